@@ -0,0 +1,80 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay;
+
+import org.apache.commons.codec.binary.Hex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hex decoding of the legacy {@code /relay} parameters in {@link RelayController}.
+ * <p>
+ * {@code decodeDeviceToken} measures both token formats: a Bisq v1 token is hex-encoded and decodes to printable
+ * ASCII, a Bisq2 APNs token is hex as well but decodes to binary and is used as-is.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RelayControllerBenchmark {
+    private static final String APNS_DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+
+    @Param({"bisqV1", "bisq2"})
+    public String tokenFormat;
+
+    @Param({"512", "4096"})
+    public int messageLength;
+
+    private Optional<String> deviceToken;
+    private Optional<String> encryptedMessageHex;
+
+    @Setup
+    public void setUp() {
+        deviceToken = Optional.of("bisqV1".equals(tokenFormat)
+                ? Hex.encodeHexString(APNS_DEVICE_TOKEN.getBytes(StandardCharsets.UTF_8))
+                : APNS_DEVICE_TOKEN);
+        final String encryptedMessage = "0123456789abcdef".repeat(messageLength / 16);
+        encryptedMessageHex = Optional.of(Hex.encodeHexString(encryptedMessage.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public String decodeDeviceToken() {
+        return RelayController.decodeDeviceToken(deviceToken);
+    }
+
+    @Benchmark
+    public String decodeMessage() {
+        return RelayController.decodeParameter(encryptedMessageHex, "msg");
+    }
+}
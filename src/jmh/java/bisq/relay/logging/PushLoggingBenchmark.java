@@ -0,0 +1,171 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import bisq.relay.notification.apns.ApnsPushNotificationController;
+import bisq.relay.notification.apns.ApnsPushNotificationSender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.joran.spi.JoranException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.util.MaskingUtil.maskSensitive;
+
+/**
+ * Throughput of the log statements of one accepted APNs push, i.e. the controller's and the sender's INFO lines,
+ * with the logging configurations below. Stdout is replaced by a sink that takes {@code stdoutMicros} per flush,
+ * to show what a slow console does to the logging threads.
+ * <ul>
+ *   <li>{@code off} - no logging</li>
+ *   <li>{@code syncText} - the former configuration, a synchronous ConsoleAppender with a highlighted pattern</li>
+ *   <li>{@code asyncJson} - logback.xml with sampling disabled, i.e. all lines are written</li>
+ *   <li>{@code asyncJsonSampled} - logback.xml as deployed, at most 10 sampled lines per second</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class PushLoggingBenchmark {
+    private static final Logger CONTROLLER_LOG = LoggerFactory.getLogger(ApnsPushNotificationController.class);
+    private static final Logger SENDER_LOG = LoggerFactory.getLogger(ApnsPushNotificationSender.class);
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String USER_AGENT = "bisq/2.1.7";
+    private static final UUID APNS_ID = UUID.randomUUID();
+
+    private static final String SYNC_TEXT_CONFIGURATION = """
+            <configuration>
+                <appender name="CONSOLE_APPENDER" class="ch.qos.logback.core.ConsoleAppender">
+                    <encoder>
+                        <pattern>%highlight(%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{15}: %msg %xEx%n)</pattern>
+                    </encoder>
+                </appender>
+                <root level="WARN">
+                    <appender-ref ref="CONSOLE_APPENDER"/>
+                </root>
+                <logger name="bisq" level="INFO"/>
+            </configuration>
+            """;
+    private static final String OFF_CONFIGURATION = """
+            <configuration>
+                <root level="OFF"/>
+            </configuration>
+            """;
+
+    @Param({"off", "syncText", "asyncJson", "asyncJsonSampled"})
+    public String logging;
+
+    @Param({"0", "50"})
+    public long stdoutMicros;
+
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JoranException {
+        stdout = System.out;
+        System.setOut(new PrintStream(new SlowOutputStream(TimeUnit.MICROSECONDS.toNanos(stdoutMicros)), false,
+                StandardCharsets.UTF_8));
+
+        final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        loggerContext.reset();
+        final JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(loggerContext);
+        switch (logging) {
+            case "off" -> configurator.doConfigure(toInputStream(OFF_CONFIGURATION));
+            case "syncText" -> configurator.doConfigure(toInputStream(SYNC_TEXT_CONFIGURATION));
+            case "asyncJson", "asyncJsonSampled" -> {
+                loggerContext.putProperty("BISQ_RELAY_LOG_SAMPLE_RATE", "asyncJson".equals(logging) ? "-1" : "10");
+                configurator.doConfigure(PushLoggingBenchmark.class.getResource("/logback.xml"));
+            }
+            default -> throw new IllegalArgumentException("Unknown logging configuration " + logging);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void acceptedPush() {
+        if (CONTROLLER_LOG.isInfoEnabled(SAMPLED)) {
+            CONTROLLER_LOG.info(SAMPLED, "Handling APNs notification for device token [{}] from [{}]",
+                    maskSensitive(DEVICE_TOKEN), USER_AGENT);
+        }
+        SENDER_LOG.info(SAMPLED, "Push notification accepted by APNs gateway; apnsId={}", APNS_ID);
+    }
+
+    private static ByteArrayInputStream toInputStream(final String configuration) {
+        return new ByteArrayInputStream(configuration.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Discards everything written, taking the given time per flush like a console or pipe that cannot keep up.
+     */
+    private static final class SlowOutputStream extends OutputStream {
+        private final long flushNanos;
+
+        private SlowOutputStream(final long flushNanos) {
+            this.flushNanos = flushNanos;
+        }
+
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+
+        @Override
+        public void flush() {
+            if (flushNanos > 0) {
+                LockSupport.parkNanos(flushNanos);
+            }
+        }
+    }
+}
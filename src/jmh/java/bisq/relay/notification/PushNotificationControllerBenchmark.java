@@ -0,0 +1,75 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ACCEPTED;
+
+/**
+ * {@link PushNotificationController#handleRequest} on top of a sender that completes immediately, i.e. serializing
+ * the {@link PushNotificationResult} into the response body and the per-request bookkeeping around it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PushNotificationControllerBenchmark {
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("encrypted", true, false);
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+
+    @Param({"accepted", "rejected"})
+    public String result;
+
+    private PushNotificationController controller;
+
+    @Setup
+    public void setUp() {
+        final CompletableFuture<PushNotificationResult> completed = CompletableFuture.completedFuture(
+                RESULT_ACCEPTED.equals(result)
+                        ? new PushNotificationResult(true, null, null, false)
+                        : new PushNotificationResult(false, "BadDeviceToken", "The device token is invalid", true));
+        final PushNotificationSender sender = (message, deviceToken) -> completed;
+        controller = new PushNotificationController(PROVIDER_ID_APNS, sender, new ObjectMapper()) {
+        };
+    }
+
+    @Benchmark
+    public ResponseEntity<String> handleRequest() {
+        return controller.handleRequest(DEVICE_TOKEN, MESSAGE).join();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.apns;
+
+import bisq.relay.notification.PushNotificationMessage;
+import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the APNs notification, including its JSON payload, with {@link ApnsPushNotificationBuilder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApnsPushNotificationBuilderBenchmark {
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String TOPIC = "bisq.relay.benchmark";
+
+    @Param({"true", "false"})
+    public boolean urgent;
+
+    @Param({"512", "4096"})
+    public int messageLength;
+
+    private ApnsPushNotificationBuilder builder;
+    private PushNotificationMessage message;
+
+    @Setup
+    public void setUp() {
+        builder = new ApnsPushNotificationBuilder();
+        message = new PushNotificationMessage("0123456789abcdef".repeat(messageLength / 16), urgent, urgent);
+    }
+
+    @Benchmark
+    public SimpleApnsPushNotification buildPushNotification() {
+        return builder.buildPushNotification(message, DEVICE_TOKEN, TOPIC);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotificationMessage;
+import com.google.firebase.messaging.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the FCM message with {@link FcmPushNotificationBuilder}, with and without the visible notification.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FcmPushNotificationBuilderBenchmark {
+    private static final String DEVICE_TOKEN = "fcm-registration-token-" + "x".repeat(140);
+
+    @Param({"true", "false"})
+    public boolean sendDataOnly;
+
+    @Param({"512", "4096"})
+    public int messageLength;
+
+    private FcmPushNotificationBuilder builder;
+    private PushNotificationMessage message;
+
+    @Setup
+    public void setUp() {
+        final FcmProperties fcmProperties = new FcmProperties();
+        fcmProperties.setSendDataOnly(sendDataOnly);
+        builder = new FcmPushNotificationBuilder(fcmProperties);
+        message = new PushNotificationMessage("0123456789abcdef".repeat(messageLength / 16), true, false);
+    }
+
+    @Benchmark
+    public Message buildMessage() {
+        return builder.buildMessage(message, DEVICE_TOKEN);
+    }
+}
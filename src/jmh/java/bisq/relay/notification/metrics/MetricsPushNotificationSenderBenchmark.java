@@ -0,0 +1,131 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.metrics;
+
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.notification.PushNotificationSender;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+
+/**
+ * Overhead per send of {@link MetricsPushNotificationSender} on top of a sender that completes immediately.
+ * <p>
+ * {@code perCallLookup} is the decorator as it was before the meters were kept in a {@link PushMeterTable}:
+ * it looks up two counters and a timer in the registry on every send.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsPushNotificationSenderBenchmark {
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("encrypted", true, false);
+    private static final String DEVICE_TOKEN = "token";
+
+    @Param({"accepted", "rejected"})
+    public String result;
+
+    private PushNotificationSender delegate;
+    private PushNotificationSender perCallLookup;
+    private PushNotificationSender meterTable;
+
+    @Setup
+    public void setUp() {
+        final CompletableFuture<PushNotificationResult> completed = CompletableFuture.completedFuture(
+                RESULT_ACCEPTED.equals(result)
+                        ? new PushNotificationResult(true, null, null, false)
+                        : new PushNotificationResult(false, "BadDeviceToken", null, true));
+        delegate = (message, deviceToken) -> completed;
+
+        final ObjectProvider<MeterRegistry> registryProvider =
+                new StaticListableBeanFactory(Map.of("meterRegistry", new SimpleMeterRegistry()))
+                        .getBeanProvider(MeterRegistry.class);
+        perCallLookup = new PerCallLookupMetricsSender(PROVIDER_ID_APNS, delegate, registryProvider);
+        meterTable = new MetricsPushNotificationSender(PROVIDER_ID_APNS, delegate, registryProvider);
+    }
+
+    @Benchmark
+    public PushNotificationResult undecorated() {
+        return delegate.sendNotification(MESSAGE, DEVICE_TOKEN).join();
+    }
+
+    @Benchmark
+    public PushNotificationResult perCallLookup() {
+        return perCallLookup.sendNotification(MESSAGE, DEVICE_TOKEN).join();
+    }
+
+    @Benchmark
+    public PushNotificationResult meterTable() {
+        return meterTable.sendNotification(MESSAGE, DEVICE_TOKEN).join();
+    }
+
+    private record PerCallLookupMetricsSender(
+            String providerId,
+            PushNotificationSender pushNotificationSender,
+            ObjectProvider<MeterRegistry> registryProvider) implements PushNotificationSender {
+        private static final double[] PUSH_LATENCY_PERCENTILES = {0.5, 0.9, 0.95, 0.99};
+        private static final Duration PUSH_LATENCY_MAX_EXPECTED_DURATION = Duration.ofSeconds(10);
+
+        @Override
+        public CompletableFuture<PushNotificationResult> sendNotification(
+                final PushNotificationMessage message,
+                final String deviceToken) {
+            final MeterRegistry registry = registryProvider.getIfAvailable();
+            final long startNanos = System.nanoTime();
+            registry.counter(METRIC_PUSH_ATTEMPTS_TOTAL, TAG_PROVIDER, providerId).increment();
+
+            return pushNotificationSender.sendNotification(message, deviceToken)
+                    .whenComplete((result, error) -> {
+                        final String outcome = result.wasAccepted() ? RESULT_ACCEPTED : RESULT_REJECTED;
+                        final String code = result.wasAccepted() ? CODE_NONE : CODE_TOKEN;
+                        registry.counter(METRIC_PUSH_TOTAL,
+                                TAG_PROVIDER, providerId,
+                                TAG_RESULT, outcome).increment();
+                        Timer.builder(METRIC_PUSH_LATENCY_SECONDS)
+                                .tags(TAG_PROVIDER, providerId, TAG_RESULT, outcome, TAG_CODE, code)
+                                .publishPercentiles(PUSH_LATENCY_PERCENTILES)
+                                .maximumExpectedValue(PUSH_LATENCY_MAX_EXPECTED_DURATION)
+                                .register(registry)
+                                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    });
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.util;
+
+import bisq.relay.logging.SamplingTurboFilter;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.util.MaskingUtil.masked;
+
+/**
+ * Cost of the masked "Relaying notification" log statement of {@code RelayController}, with a 64 character device
+ * token and a 4 KB hex message. Run with {@code -prof gc} to see the allocations per operation.
+ * <ul>
+ *   <li>{@code written} - INFO enabled and not sampled out, the line is written to a discarding stream</li>
+ *   <li>{@code sampledOut} - INFO enabled, but the sampling turbo filter drops the line</li>
+ *   <li>{@code disabled} - INFO disabled</li>
+ * </ul>
+ * {@code eagerMasking} is the statement as it was before {@link MaskedArgument}: guarded by {@code isInfoEnabled()}
+ * and masking with substrings and {@code String.repeat}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MaskedArgumentBenchmark {
+    private static final String FORMAT = "Relaying notification; isAndroid={} token={} encryptedMessage={} mutableContent={}";
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String ENCRYPTED_MESSAGE = "0123456789abcdef".repeat(256);
+
+    @Param({"written", "sampledOut", "disabled"})
+    public String logging;
+
+    private LoggerContext loggerContext;
+    private Logger log;
+
+    @Setup
+    public void setUp() {
+        loggerContext = new LoggerContext();
+
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d %-5level %logger{15}: %msg%n");
+        encoder.start();
+        final OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        final SamplingTurboFilter samplingTurboFilter = new SamplingTurboFilter();
+        samplingTurboFilter.setRatePerSecond("sampledOut".equals(logging) ? 0 : -1);
+        samplingTurboFilter.start();
+        loggerContext.addTurboFilter(samplingTurboFilter);
+
+        log = loggerContext.getLogger(MaskedArgumentBenchmark.class);
+        log.setLevel("disabled".equals(logging) ? Level.WARN : Level.INFO);
+        log.addAppender(appender);
+    }
+
+    @TearDown
+    public void tearDown() {
+        loggerContext.stop();
+    }
+
+    @Benchmark
+    public void eagerMasking() {
+        if (log.isInfoEnabled()) {
+            log.info(SAMPLED, FORMAT, true, formerMaskSensitive(DEVICE_TOKEN), formerMaskSensitive(ENCRYPTED_MESSAGE),
+                    false);
+        }
+    }
+
+    @Benchmark
+    public void lazyMasking() {
+        if (log.isInfoEnabled(SAMPLED)) {
+            log.info(SAMPLED, FORMAT, true, masked(DEVICE_TOKEN), masked(ENCRYPTED_MESSAGE), false);
+        }
+    }
+
+    /**
+     * {@link MaskingUtil#maskSensitive(String)} as it was before it masked a single copy in place.
+     */
+    private static String formerMaskSensitive(final String value) {
+        final int visibleChars = 5;
+        final char maskChar = '*';
+        if (value.length() <= visibleChars * 2) {
+            return String.valueOf(maskChar).repeat(value.length());
+        }
+        final String firstPart = value.substring(0, visibleChars);
+        final String lastPart = value.substring(value.length() - visibleChars);
+        final String maskedMiddle = String.valueOf(maskChar).repeat(value.length() - (visibleChars * 2));
+        return firstPart + maskedMiddle + lastPart;
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay;
+
+import bisq.relay.test.gateway.GatewayStubThreads;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadInfo;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntFunction;
+
+/**
+ * Sends requests at a fixed target rate, with latency measured from when a request was due rather than from when it
+ * was sent, so that a relay falling behind shows up as latency instead of as a lower request rate. With a rate of
+ * {@code 0}, requests are sent as fast as they complete, to find the maximum throughput.
+ * <p>
+ * At most {@code maxInFlight} requests are outstanding. An HTTP client opens one connection per outstanding
+ * request, and without a bound a slow start-up snowballs into thousands of connections being opened, which then
+ * dominates the measurement.
+ */
+class LoadGenerator {
+    private static final Duration COMPLETION_TIMEOUT = Duration.ofMinutes(1);
+
+    private final int maxInFlight;
+
+    LoadGenerator(final int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sends {@code ratePerSecond} requests per second for {@code duration}, the {@code i}th one sent by
+     * {@code requests}, which completes with the HTTP status of the response.
+     */
+    Result run(final String scenario,
+               final int ratePerSecond,
+               final Duration duration,
+               final IntFunction<? extends CompletionStage<Integer>> requests) throws InterruptedException {
+        return run(scenario, (int) (ratePerSecond * duration.toMillis() / 1000), ratePerSecond, requests);
+    }
+
+    /**
+     * Sends {@code count} requests, at {@code ratePerSecond} or, if that is {@code 0}, as fast as they complete.
+     */
+    Result run(final String scenario,
+               final int count,
+               final int ratePerSecond,
+               final IntFunction<? extends CompletionStage<Integer>> requests) throws InterruptedException {
+        final long intervalNanos = ratePerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / ratePerSecond : 0;
+        final long[] latencies = new long[count];
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final CountDownLatch completed = new CountDownLatch(count);
+        final Semaphore inFlight = new Semaphore(maxInFlight);
+
+        final HeapSnapshot heapBefore = HeapSnapshot.take();
+        final long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            final long due;
+            if (intervalNanos > 0) {
+                due = start + i * intervalNanos;
+                final long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire();
+            } else {
+                inFlight.acquire();
+                due = System.nanoTime();
+            }
+            final int index = i;
+            requests.apply(i).whenComplete((status, cause) -> {
+                latencies[index] = System.nanoTime() - due;
+                if (status == null || status >= 500) {
+                    failed.incrementAndGet();
+                } else if (status >= 400) {
+                    rejected.incrementAndGet();
+                } else {
+                    succeeded.incrementAndGet();
+                }
+                inFlight.release();
+                completed.countDown();
+            });
+        }
+        if (!completed.await(COMPLETION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for outstanding requests; scenario=" + scenario);
+        }
+        final long elapsed = System.nanoTime() - start;
+        final HeapSnapshot heapAfter = HeapSnapshot.take();
+
+        Arrays.sort(latencies);
+        return new Result(scenario, count, succeeded.get(), rejected.get(), failed.get(),
+                count / (elapsed / 1e9),
+                percentileMillis(latencies, 0.50),
+                percentileMillis(latencies, 0.90),
+                percentileMillis(latencies, 0.99),
+                latencies[count - 1] / 1e6,
+                (heapAfter.allocatedBytes() - heapBefore.allocatedBytes()) / count,
+                heapAfter.gcCount() - heapBefore.gcCount(),
+                heapAfter.gcMillis() - heapBefore.gcMillis(),
+                heapAfter.peakHeapBytes() / (1024 * 1024));
+    }
+
+    static void print(final List<Result> results) {
+        System.out.printf("%-10s %8s %8s %8s %7s %10s %9s %9s %9s %9s %10s %6s %8s %10s%n",
+                "target", "requests", "2xx", "4xx", "errors", "req/s", "p50 (ms)", "p90 (ms)", "p99 (ms)",
+                "max (ms)", "B/request", "gcs", "gc (ms)", "peak (MB)");
+        for (Result result : results) {
+            System.out.printf("%-10s %8d %8d %8d %7d %10.0f %9.2f %9.2f %9.2f %9.2f %10d %6d %8d %10d%n",
+                    result.scenario(), result.requests(), result.succeeded(), result.rejected(), result.failed(),
+                    result.throughput(), result.p50Millis(), result.p90Millis(), result.p99Millis(),
+                    result.maxMillis(), result.allocatedBytesPerRequest(), result.gcCount(), result.gcMillis(),
+                    result.peakHeapMegabytes());
+        }
+    }
+
+    private static double percentileMillis(final long[] sortedLatencies, final double percentile) {
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)] / 1e6;
+    }
+
+    record Result(String scenario, int requests, int succeeded, int rejected, int failed, double throughput,
+                  double p50Millis, double p90Millis, double p99Millis, double maxMillis,
+                  long allocatedBytesPerRequest, long gcCount, long gcMillis, long peakHeapMegabytes) {
+        double errorRate() {
+            return (double) failed / requests;
+        }
+    }
+
+    /**
+     * GC totals, the bytes allocated so far by the threads of this JVM except those of the gateway stand-ins, and
+     * the peak heap usage since the previous snapshot. Allocations of threads that ended in between are not counted.
+     */
+    private record HeapSnapshot(long allocatedBytes, long gcCount, long gcMillis, long peakHeapBytes) {
+        static HeapSnapshot take() {
+            final com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long allocatedBytes = 0;
+            for (ThreadInfo thread : threads.getThreadInfo(threads.getAllThreadIds())) {
+                if (thread != null && !GatewayStubThreads.isStubThread(thread.getThreadName())) {
+                    allocatedBytes += Math.max(0, threads.getThreadAllocatedBytes(thread.getThreadId()));
+                }
+            }
+            long gcCount = 0;
+            long gcMillis = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                gcCount += Math.max(0, gc.getCollectionCount());
+                gcMillis += Math.max(0, gc.getCollectionTime());
+            }
+            long peakHeapBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peakHeapBytes += pool.getPeakUsage().getUsed();
+                    pool.resetPeakUsage();
+                }
+            }
+            return new HeapSnapshot(allocatedBytes, gcCount, gcMillis, peakHeapBytes);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay;
+
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.apns.ApnsPushNotificationController;
+import bisq.relay.notification.metrics.MetricsPushNotificationSender;
+import bisq.relay.test.gateway.ApnsGatewayStub;
+import bisq.relay.test.gateway.GatewayResponseMix;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Performance regression gate, run by {@code ./gradlew perfGate}. Sends a fixed workload through the real request
+ * path, {@link ApnsPushNotificationController} to {@link MetricsPushNotificationSender} to the APNs sender, against
+ * a local {@link ApnsGatewayStub} that accepts every notification, and compares it with the baseline in
+ * {@code perfGate.baselineFile}:
+ * <ul>
+ *   <li>the maximum throughput, with {@code perfGate.maxInFlight} requests outstanding</li>
+ *   <li>the p99 latency at {@code perfGate.rate} requests per second</li>
+ *   <li>the bytes allocated per request at that rate, not counting the stand-in</li>
+ * </ul>
+ * The gate fails when any of them is worse than the baseline by more than {@code perfGate.throughputTolerance},
+ * {@code perfGate.latencyTolerance} or {@code perfGate.allocationTolerance}. With {@code perfGate.record=true}
+ * the measurements are written to the baseline file instead.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@ActiveProfiles("test")
+class PerformanceGateTest {
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final PushNotificationMessage MESSAGE =
+            new PushNotificationMessage("0123456789abcdef".repeat(32), true, false);
+
+    private static final String P99_LATENCY_MILLIS = "p99LatencyMillis";
+    private static final String MAX_REQUESTS_PER_SECOND = "maxRequestsPerSecond";
+    private static final String ALLOCATED_BYTES_PER_REQUEST = "allocatedBytesPerRequest";
+
+    private static final int WARMUP_REQUESTS = Integer.getInteger("perfGate.warmupRequests", 50_000);
+    private static final int THROUGHPUT_REQUESTS = Integer.getInteger("perfGate.throughputRequests", 100_000);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("perfGate.maxInFlight", 64);
+    private static final int RATE = Integer.getInteger("perfGate.rate", 1_000);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("perfGate.duration", 20));
+    private static final double LATENCY_TOLERANCE = tolerance("perfGate.latencyTolerance", 0.25);
+    private static final double THROUGHPUT_TOLERANCE = tolerance("perfGate.throughputTolerance", 0.15);
+    private static final double ALLOCATION_TOLERANCE = tolerance("perfGate.allocationTolerance", 0.10);
+
+    private static ApnsGatewayStub apnsGateway;
+
+    @Autowired
+    private ApnsPushNotificationController apnsPushNotificationController;
+
+    @Autowired
+    @Qualifier("apnsPushNotificationSender")
+    private PushNotificationSender apnsPushNotificationSender;
+
+    @DynamicPropertySource
+    static void gatewayProperties(final DynamicPropertyRegistry registry) throws Exception {
+        apnsGateway = ApnsGatewayStub.start(GatewayResponseMix.ACCEPT_ALL);
+
+        registry.add("apns.host", () -> "localhost");
+        registry.add("apns.port", apnsGateway::getPort);
+        registry.add("apns.trustedServerCertificateFile", () -> ApnsGatewayStub.SERVER_CERTIFICATE_FILE);
+        registry.add("fcm.enabled", () -> "false");
+    }
+
+    @AfterAll
+    static void stopGateway() throws Exception {
+        apnsGateway.close();
+    }
+
+    @Test
+    void whenRunningTheFixedWorkload_thenPerformanceIsWithinTheBaseline() throws Exception {
+        assertThat(apnsPushNotificationSender).isInstanceOf(MetricsPushNotificationSender.class);
+
+        final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+        httpRequest.addHeader(HttpHeaders.USER_AGENT, "PerformanceGateTest");
+        final IntFunction<CompletableFuture<Integer>> requests = i -> apnsPushNotificationController
+                .handleApnsNotification(DEVICE_TOKEN, MESSAGE, httpRequest)
+                .thenApply(response -> response.getStatusCode().value());
+
+        final LoadGenerator loadGenerator = new LoadGenerator(MAX_IN_FLIGHT);
+        loadGenerator.run("warm-up", WARMUP_REQUESTS, 0, requests);
+        final LoadGenerator.Result throughput = loadGenerator.run("throughput", THROUGHPUT_REQUESTS, 0, requests);
+        final LoadGenerator.Result latency = loadGenerator.run("latency", RATE, DURATION, requests);
+
+        System.out.printf("%nPerformance gate (maxInFlight=%d, rate=%d/s, duration=%ds)%n",
+                MAX_IN_FLIGHT, RATE, DURATION.toSeconds());
+        LoadGenerator.print(List.of(throughput, latency));
+        assertThat(throughput.succeeded()).isEqualTo(throughput.requests());
+        assertThat(latency.succeeded()).isEqualTo(latency.requests());
+
+        final Properties measured = new Properties();
+        measured.setProperty(P99_LATENCY_MILLIS, String.format("%.2f", latency.p99Millis()));
+        measured.setProperty(MAX_REQUESTS_PER_SECOND, String.format("%.0f", throughput.throughput()));
+        measured.setProperty(ALLOCATED_BYTES_PER_REQUEST, Long.toString(latency.allocatedBytesPerRequest()));
+
+        final Path baselineFile = Path.of(Objects.requireNonNull(System.getProperty("perfGate.baselineFile"),
+                "perfGate.baselineFile must be set; run ./gradlew perfGate"));
+        if (Boolean.getBoolean("perfGate.record")) {
+            writeBaseline(baselineFile, measured);
+            System.out.println("Recorded new baseline in " + baselineFile);
+            return;
+        }
+
+        final Properties baseline = new Properties();
+        try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+            baseline.load(reader);
+        }
+        final List<String> regressions = new ArrayList<>();
+        checkAtMost(regressions, P99_LATENCY_MILLIS, measured, baseline, LATENCY_TOLERANCE);
+        checkAtLeast(regressions, MAX_REQUESTS_PER_SECOND, measured, baseline, THROUGHPUT_TOLERANCE);
+        checkAtMost(regressions, ALLOCATED_BYTES_PER_REQUEST, measured, baseline, ALLOCATION_TOLERANCE);
+
+        assertThat(regressions)
+                .as("Regressions against the baseline of version %s in %s",
+                        baseline.getProperty("version"), baselineFile)
+                .isEmpty();
+    }
+
+    private static void checkAtMost(final List<String> regressions, final String key, final Properties measured,
+                                    final Properties baseline, final double tolerance) {
+        final double actual = Double.parseDouble(measured.getProperty(key));
+        final double limit = Double.parseDouble(baseline.getProperty(key)) * (1 + tolerance);
+        if (actual > limit) {
+            regressions.add(String.format("%s=%s exceeds %.2f (baseline %s + %.0f%%)",
+                    key, measured.getProperty(key), limit, baseline.getProperty(key), tolerance * 100));
+        }
+    }
+
+    private static void checkAtLeast(final List<String> regressions, final String key, final Properties measured,
+                                     final Properties baseline, final double tolerance) {
+        final double actual = Double.parseDouble(measured.getProperty(key));
+        final double limit = Double.parseDouble(baseline.getProperty(key)) * (1 - tolerance);
+        if (actual < limit) {
+            regressions.add(String.format("%s=%s is below %.2f (baseline %s - %.0f%%)",
+                    key, measured.getProperty(key), limit, baseline.getProperty(key), tolerance * 100));
+        }
+    }
+
+    private static void writeBaseline(final Path baselineFile, final Properties measured) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8)) {
+            writer.write(String.format("# Performance envelope of this version, recorded with " +
+                            "`./gradlew perfGate -PperfGate.record`%n# with %d available processors " +
+                            "(maxInFlight=%d, rate=%d/s, duration=%ds).%n" +
+                            "# perfGate fails when a later run is worse by more than its tolerances.%n",
+                    Runtime.getRuntime().availableProcessors(), MAX_IN_FLIGHT, RATE, DURATION.toSeconds()));
+            writer.write("version=" + version() + System.lineSeparator());
+            for (String key : List.of(P99_LATENCY_MILLIS, MAX_REQUESTS_PER_SECOND, ALLOCATED_BYTES_PER_REQUEST)) {
+                writer.write(key + "=" + measured.getProperty(key) + System.lineSeparator());
+            }
+        }
+    }
+
+    private static String version() throws IOException {
+        try (InputStream inputStream = PerformanceGateTest.class.getResourceAsStream("/version.txt")) {
+            return inputStream == null
+                    ? "unknown"
+                    : new String(inputStream.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    private static double tolerance(final String name, final double defaultValue) {
+        final String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
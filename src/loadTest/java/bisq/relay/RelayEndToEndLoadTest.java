@@ -0,0 +1,160 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay;
+
+import bisq.relay.test.gateway.ApnsGatewayStub;
+import bisq.relay.test.gateway.FcmGatewayStub;
+import bisq.relay.test.gateway.GatewayResponseMix;
+import org.apache.commons.codec.binary.Hex;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the relay against local stand-ins for the APNs gateway ({@link ApnsGatewayStub}) and the FCM v1 API
+ * ({@link FcmGatewayStub}, over the http2 transport) and drives {@code /v1/apns/device/{token}},
+ * {@code /v1/fcm/device/{token}} and the legacy {@code /relay} at a fixed rate with a {@link LoadGenerator}.
+ * Reports throughput, latency percentiles, rejections and errors, allocation per request (by the relay and the load
+ * generator), and GC activity and peak heap per endpoint.
+ * <p>
+ * The workload can be tuned with the system properties {@code loadTest.e2e.rate} (requests per second),
+ * {@code loadTest.e2e.duration} (seconds per endpoint), {@code loadTest.e2e.maxInFlight},
+ * {@code loadTest.e2e.unregisteredRatio} and {@code loadTest.e2e.throttledRatio} (the share of notifications the
+ * stand-ins reject as unregistered and throttled).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class RelayEndToEndLoadTest {
+    private static final String APNS_DEVICE_TOKEN =
+            "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String FCM_DEVICE_TOKEN = "fcm-registration-token-" + "x".repeat(140);
+    private static final String ENCRYPTED_MESSAGE = "0123456789abcdef".repeat(32);
+
+    private static final int RATE = Integer.getInteger("loadTest.e2e.rate", 500);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("loadTest.e2e.maxInFlight", 256);
+    private static final Duration DURATION = Duration.ofSeconds(Integer.getInteger("loadTest.e2e.duration", 10));
+    private static final Duration WARMUP_DURATION = Duration.ofSeconds(Math.max(1, DURATION.toSeconds() / 5));
+    private static final GatewayResponseMix RESPONSE_MIX = new GatewayResponseMix(
+            Double.parseDouble(System.getProperty("loadTest.e2e.unregisteredRatio", "0.05")),
+            Double.parseDouble(System.getProperty("loadTest.e2e.throttledRatio", "0.01")));
+
+    @TempDir
+    static Path tempDir;
+
+    private static ApnsGatewayStub apnsGateway;
+    private static FcmGatewayStub fcmGateway;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void gatewayProperties(final DynamicPropertyRegistry registry) throws Exception {
+        apnsGateway = ApnsGatewayStub.start(RESPONSE_MIX);
+        fcmGateway = FcmGatewayStub.start(RESPONSE_MIX);
+        final String serviceAccountKeyFile = fcmGateway.writeServiceAccountKey(tempDir);
+
+        registry.add("apns.host", () -> "localhost");
+        registry.add("apns.port", apnsGateway::getPort);
+        registry.add("apns.trustedServerCertificateFile", () -> ApnsGatewayStub.SERVER_CERTIFICATE_FILE);
+        registry.add("fcm.transport", () -> "http2");
+        registry.add("fcm.apiUrl", fcmGateway::getApiUrl);
+        registry.add("fcm.firebaseConfigurationFile", () -> serviceAccountKeyFile);
+        registry.add("management.server.port", () -> "0");
+    }
+
+    @AfterAll
+    static void stopGateways() throws Exception {
+        apnsGateway.close();
+        fcmGateway.close();
+    }
+
+    @Test
+    void driveEndpointsAtTargetRate() throws Exception {
+        final LoadGenerator loadGenerator = new LoadGenerator(MAX_IN_FLIGHT);
+        final List<LoadGenerator.Result> results = new ArrayList<>();
+        for (Scenario scenario : List.of(
+                new Scenario("apns", i -> send(pushRequest("apns", APNS_DEVICE_TOKEN))),
+                new Scenario("fcm", i -> send(pushRequest("fcm", FCM_DEVICE_TOKEN))),
+                new Scenario("relay", i -> send(relayRequest())))) {
+            loadGenerator.run(scenario.name(), RATE, WARMUP_DURATION, scenario.requests());
+            results.add(loadGenerator.run(scenario.name(), RATE, DURATION, scenario.requests()));
+        }
+
+        System.out.printf("%nRelay end-to-end load (rate=%d/s, duration=%ds, maxInFlight=%d, unregisteredRatio=%s, " +
+                        "throttledRatio=%s)%n", RATE, DURATION.toSeconds(), MAX_IN_FLIGHT,
+                RESPONSE_MIX.unregisteredRatio(), RESPONSE_MIX.throttledRatio());
+        LoadGenerator.print(results);
+
+        // Rejections by the gateway are answered with 400, only failures of the relay itself are errors
+        assertThat(results).allSatisfy(result -> assertThat(result.errorRate()).isZero());
+    }
+
+    private CompletableFuture<Integer> send(final HttpRequest request) {
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest pushRequest(final String provider, final String deviceToken) {
+        return HttpRequest.newBuilder(URI.create(String.format("http://localhost:%d/v1/%s/device/%s",
+                        port, provider, deviceToken)))
+                .header("Content-Type", "application/json")
+                .header("User-Agent", "RelayEndToEndLoadTest")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"encrypted\":\"" + ENCRYPTED_MESSAGE + "\",\"isUrgent\":true}"))
+                .build();
+    }
+
+    private HttpRequest relayRequest() {
+        // Bisq v1 hex-encodes every parameter, including the token
+        return HttpRequest.newBuilder(URI.create(String.format(
+                        "http://localhost:%d/relay?isAndroid=false&token=%s&msg=%s", port,
+                        Hex.encodeHexString(APNS_DEVICE_TOKEN.getBytes(StandardCharsets.UTF_8)),
+                        Hex.encodeHexString(ENCRYPTED_MESSAGE.getBytes(StandardCharsets.UTF_8)))))
+                .header("User-Agent", "RelayEndToEndLoadTest")
+                .GET()
+                .build();
+    }
+
+    private record Scenario(String name, IntFunction<CompletableFuture<Integer>> requests) {
+    }
+}
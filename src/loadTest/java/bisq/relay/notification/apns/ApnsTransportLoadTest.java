@@ -0,0 +1,176 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.apns;
+
+import bisq.relay.config.ApnsProperties;
+import bisq.relay.notification.PushNotificationMessage;
+import com.eatthepath.pushy.apns.ApnsClient;
+import com.eatthepath.pushy.apns.ApnsClientBuilder;
+import com.eatthepath.pushy.apns.server.AcceptAllPushNotificationHandlerFactory;
+import com.eatthepath.pushy.apns.server.MockApnsServer;
+import com.eatthepath.pushy.apns.server.MockApnsServerBuilder;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the throughput, p99 latency and CPU usage of the NIO and native epoll transports by sending
+ * notifications through {@link ApnsPushNotificationSender} to a local {@link MockApnsServer}.
+ * <p>
+ * The workload can be tuned with the system properties {@code loadTest.apns.notifications},
+ * {@code loadTest.apns.maxInFlight}, {@code loadTest.apns.eventLoopThreads} and
+ * {@code loadTest.apns.concurrentConnections}. The epoll run is skipped when the native transport is
+ * not available on the current platform.
+ */
+class ApnsTransportLoadTest {
+    private static final String DEVICE_TOKEN =
+            "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String APNS_BUNDLE_ID = "bisq.test.bundle";
+
+    private static final int NOTIFICATIONS = Integer.getInteger("loadTest.apns.notifications", 100_000);
+    private static final int WARMUP_NOTIFICATIONS = Math.max(1, NOTIFICATIONS / 10);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("loadTest.apns.maxInFlight", 1_000);
+    private static final int EVENT_LOOP_THREADS = Integer.getInteger("loadTest.apns.eventLoopThreads", 1);
+    private static final int CONCURRENT_CONNECTIONS = Integer.getInteger("loadTest.apns.concurrentConnections", 1);
+
+    private static EventLoopGroup serverEventLoopGroup;
+    private static MockApnsServer server;
+    private static int serverPort;
+
+    @BeforeAll
+    static void startServer() throws Exception {
+        // The server gets its own NIO group so that only the client transport varies between runs
+        serverEventLoopGroup = new NioEventLoopGroup(2);
+        server = new MockApnsServerBuilder()
+                .setServerCredentials(
+                        new File("build/resources/test/mock-apnsServerCertificate.pem"),
+                        new File("build/resources/test/mock-apnsServerKey.pk8.pem"),
+                        null)
+                .setHandlerFactory(new AcceptAllPushNotificationHandlerFactory())
+                .setEventLoopGroup(serverEventLoopGroup)
+                .build();
+        serverPort = server.start(0).get();
+    }
+
+    @AfterAll
+    static void stopServer() throws Exception {
+        server.shutdown().get();
+        serverEventLoopGroup.shutdownGracefully().await();
+    }
+
+    @Test
+    void compareNioAndEpollTransports() throws Exception {
+        final List<Result> results = new ArrayList<>();
+        results.add(run(ApnsProperties.Transport.NIO));
+        if (Epoll.isAvailable()) {
+            results.add(run(ApnsProperties.Transport.EPOLL));
+        } else {
+            System.out.println("Skipping epoll run; native transport unavailable: " + Epoll.unavailabilityCause());
+        }
+
+        System.out.printf("%nAPNs transport comparison (notifications=%d, maxInFlight=%d, eventLoopThreads=%d, " +
+                "concurrentConnections=%d)%n", NOTIFICATIONS, MAX_IN_FLIGHT, EVENT_LOOP_THREADS, CONCURRENT_CONNECTIONS);
+        System.out.printf("%-9s %14s %12s %12s %12s%n", "transport", "throughput/s", "p50 (ms)", "p99 (ms)", "cpu (cores)");
+        for (Result result : results) {
+            System.out.printf("%-9s %14.0f %12.3f %12.3f %12.2f%n", result.transport().name().toLowerCase(),
+                    result.throughput(), result.p50Millis(), result.p99Millis(), result.cpuCores());
+        }
+
+        assertThat(results).allSatisfy(result -> assertThat(result.accepted()).isEqualTo(NOTIFICATIONS));
+    }
+
+    private Result run(final ApnsProperties.Transport transport) throws Exception {
+        final EventLoopGroup clientEventLoopGroup =
+                ApnsEventLoopConfiguration.createEventLoopGroup(transport, EVENT_LOOP_THREADS);
+        final ApnsClient apnsClient = new ApnsClientBuilder()
+                .setApnsServer("localhost", serverPort)
+                .setTrustedServerCertificateChain(new File("build/resources/test/mock-apnsServerCertificate.pem"))
+                .setClientCredentials(new File("build/resources/test/mock-apnsCertificate.p12"), "testpassword")
+                .setEventLoopGroup(clientEventLoopGroup)
+                .setConcurrentConnections(CONCURRENT_CONNECTIONS)
+                .build();
+        try {
+            final ApnsPushNotificationSender sender =
+                    new ApnsPushNotificationSender(apnsClient, APNS_BUNDLE_ID, new ApnsPushNotificationBuilder());
+
+            send(sender, WARMUP_NOTIFICATIONS, new long[WARMUP_NOTIFICATIONS]);
+
+            final long[] latencies = new long[NOTIFICATIONS];
+            final com.sun.management.OperatingSystemMXBean os =
+                    (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            final long cpuStart = os.getProcessCpuTime();
+            final long start = System.nanoTime();
+            final int accepted = send(sender, NOTIFICATIONS, latencies);
+            final long elapsed = System.nanoTime() - start;
+            final long cpu = os.getProcessCpuTime() - cpuStart;
+
+            Arrays.sort(latencies);
+            return new Result(transport, accepted,
+                    NOTIFICATIONS / (elapsed / 1e9),
+                    latencies[(int) (latencies.length * 0.50)] / 1e6,
+                    latencies[(int) (latencies.length * 0.99)] / 1e6,
+                    (double) cpu / elapsed);
+        } finally {
+            apnsClient.close().get();
+            clientEventLoopGroup.shutdownGracefully().await();
+        }
+    }
+
+    private static int send(final ApnsPushNotificationSender sender, final int count, final long[] latencies)
+            throws InterruptedException {
+        final PushNotificationMessage message = new PushNotificationMessage("encrypted", true, false);
+        final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        final AtomicInteger accepted = new AtomicInteger();
+
+        for (int i = 0; i < count; i++) {
+            inFlight.acquire();
+            final int index = i;
+            final long sendStart = System.nanoTime();
+            sender.sendNotification(message, DEVICE_TOKEN).whenComplete((result, cause) -> {
+                latencies[index] = System.nanoTime() - sendStart;
+                if (result != null && result.wasAccepted()) {
+                    accepted.incrementAndGet();
+                }
+                inFlight.release();
+            });
+        }
+
+        if (!inFlight.tryAcquire(MAX_IN_FLIGHT, 1, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Timed out waiting for outstanding notifications");
+        }
+        return accepted.get();
+    }
+
+    private record Result(ApnsProperties.Transport transport, int accepted, double throughput,
+                          double p50Millis, double p99Millis, double cpuCores) {
+    }
+}
@@ -18,25 +18,34 @@
 package bisq.relay;
 
 import bisq.relay.exception.BadArgumentsException;
+import bisq.relay.exception.ServiceUnavailableException;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.apns.ApnsPushNotificationController;
 import bisq.relay.notification.fcm.FcmPushNotificationController;
+import com.google.common.annotations.VisibleForTesting;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
-import static bisq.relay.util.MaskingUtil.maskSensitive;
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.PushNotificationController.cancelledOnDisconnect;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.MaskingUtil.masked;
 
 /**
  * This controller exists to handle legacy requests for the /relay endpoint.
@@ -63,18 +72,18 @@ public class RelayController {
     }
 
     @GetMapping(value = "/relay")
-    public CompletableFuture<String> relayNotification(
+    public DeferredResult<String> relayNotification(
             @RequestParam("isAndroid") final Optional<Boolean> isAndroid,
             @RequestParam("token") final Optional<String> deviceTokenHex,
             @RequestParam("msg") final Optional<String> encryptedMessageHex,
             @RequestParam(value = "mutableContent", required = false) final Optional<Boolean> mutableContent,
             final HttpServletRequest httpRequest) {
 
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Relaying notification; isAndroid={} token={} encryptedMessage={} mutableContent={}",
+        if (LOG.isInfoEnabled(SAMPLED)) {
+            LOG.info(SAMPLED, "Relaying notification; isAndroid={} token={} encryptedMessage={} mutableContent={}",
                     isAndroid.orElse(null),
-                    maskSensitive(deviceTokenHex.orElse(null)),
-                    maskSensitive(encryptedMessageHex.orElse(null)),
+                    masked(deviceTokenHex.orElse(null)),
+                    masked(encryptedMessageHex.orElse(null)),
                     mutableContent.orElse(false));
         }
 
@@ -88,24 +97,36 @@ public class RelayController {
             if (fcmPushNotificationController == null) {
                 throw new BadArgumentsException("FCM is not enabled on this server");
             }
-            return fcmPushNotificationController.sendFcmNotification(
-                    deviceToken, pushNotificationMessage, httpRequest).thenApply(result -> {
-                if (result.getStatusCode().equals(HttpStatus.OK)) {
-                    return SUCCESS;
-                }
-                throw new BadArgumentsException(result.getBody());
-            });
+            return relayed(fcmPushNotificationController.handleFcmNotification(
+                    deviceToken, pushNotificationMessage, httpRequest));
         } else {
-            return apnsPushNotificationController.sendApnsNotification(
-                    deviceToken, pushNotificationMessage, httpRequest).thenApply(result -> {
-                if (result.getStatusCode().equals(HttpStatus.OK)) {
-                    return SUCCESS;
-                }
-                throw new BadArgumentsException(result.getBody());
-            });
+            return relayed(apnsPushNotificationController.handleApnsNotification(
+                    deviceToken, pushNotificationMessage, httpRequest));
         }
     }
 
+    private static DeferredResult<String> relayed(final CompletableFuture<ResponseEntity<String>> handled) {
+        final CompletableFuture<String> relayed = handled.thenApply(RelayController::toRelayResult);
+        cancelWhenAbandoned(relayed, handled);
+        return cancelledOnDisconnect(relayed);
+    }
+
+    private static String toRelayResult(final ResponseEntity<String> result) {
+        if (result.getStatusCode().equals(HttpStatus.OK) || result.getStatusCode().equals(HttpStatus.ACCEPTED)) {
+            // Accepted: spooled on shutdown and sent after the restart
+            return SUCCESS;
+        }
+        if (result.getStatusCode().equals(HttpStatus.SERVICE_UNAVAILABLE)) {
+            // Shed by admission control, the client should retry later rather than give up
+            throw new ServiceUnavailableException(result.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        }
+        if (result.getStatusCode().equals(HttpStatus.GATEWAY_TIMEOUT)) {
+            // Not answered by the deadline, which says nothing about the notification itself
+            throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT);
+        }
+        throw new BadArgumentsException(result.getBody());
+    }
+
     /**
      * Extracts the device token, handling both Bisq v1 and Bisq2 formats.
      *
@@ -118,7 +139,8 @@ public class RelayController {
      * value. If hex-decoding fails or produces non-printable bytes, the input
      * is already the raw token (Bisq2) and we pass it through unchanged.
      */
-    private String decodeDeviceToken(final Optional<String> deviceTokenHex) {
+    @VisibleForTesting
+    static String decodeDeviceToken(final Optional<String> deviceTokenHex) {
         if (deviceTokenHex.isEmpty()) {
             LOG.error("Missing token parameter");
             throw new BadArgumentsException("Missing token parameter");
@@ -147,7 +169,8 @@ public class RelayController {
         return !s.isEmpty();
     }
 
-    private String decodeParameter(final Optional<String> parameterHexValue, final String parameterName) {
+    @VisibleForTesting
+    static String decodeParameter(final Optional<String> parameterHexValue, final String parameterName) {
         if (parameterHexValue.isEmpty()) {
             final String errorMessage = String.format("Missing %s parameter", parameterName);
             LOG.error(errorMessage);
@@ -0,0 +1,346 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.cluster;
+
+import bisq.relay.config.ClusterProperties;
+import bisq.relay.notification.PushNotificationController;
+import bisq.relay.notification.PushNotificationMessage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.UriUtils;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_CLUSTER_FORWARDED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_CLUSTER_MEMBERS_LIVE;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_FAILED_OVER;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_FORWARDED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_TIMEOUT;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.handleUnlessAbandoned;
+import static bisq.relay.util.FutureUtil.isTimeout;
+
+/**
+ * Routes push requests in cluster mode, so that every device token is always handled by the same relay instance
+ * and per-token features such as coalescing, ordering or throttling see all of its notifications.
+ * <p>
+ * The owner of a device token is looked up on a {@link HashRing} of the live members. Requests for tokens owned by
+ * another member are forwarded to its push endpoint over keep-alive HTTP connections, marked with the
+ * {@link #FORWARDED_BY_HEADER} so that the owner handles them itself even if its view of the cluster differs for a
+ * moment. The other members are probed every {@link ClusterProperties#getProbeInterval()} on the
+ * {@link ClusterStatusController status endpoint}; a member that cannot be reached, when probed or when a request is
+ * forwarded to it, leaves the ring at once and its tokens move to the others, until it answers again. A request is
+ * only routed to the next owner if it never reached the owner, see {@link #route}.
+ */
+@Component
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true", matchIfMissing = false)
+public class ClusterRouter {
+    private static final Logger LOG = LoggerFactory.getLogger(ClusterRouter.class);
+
+    /**
+     * Request header marking a request forwarded by another member, with the URL of that member as its value.
+     */
+    public static final String FORWARDED_BY_HEADER = "X-Relay-Forwarded-By";
+
+    /**
+     * Response header with the URL of the member that handled the request.
+     */
+    public static final String HANDLED_BY_HEADER = "X-Relay-Handled-By";
+
+    static final String STATUS_PATH = "/v1/cluster/status";
+
+    // The owner answers 504 itself at the deadline, the margin leaves room for its response to arrive
+    private static final Duration FORWARD_TIMEOUT_MARGIN = Duration.ofSeconds(1);
+
+    private final String self;
+    private final List<String> members;
+    private final int virtualNodes;
+    private final Duration probeInterval;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService prober;
+    private final Set<String> liveMembers = ConcurrentHashMap.newKeySet();
+    private volatile HashRing ring;
+    @Nullable
+    private final MeterRegistry registry;
+    private final Map<String, Counter> forwardedCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ClusterRouter(final ClusterProperties clusterProperties,
+                         final ObjectMapper objectMapper,
+                         final ObjectProvider<MeterRegistry> registryProvider) {
+        this(clusterProperties.getSelf(), clusterProperties.getMembers(), clusterProperties.getVirtualNodes(),
+                clusterProperties.getConnectTimeout(), clusterProperties.getProbeInterval(), objectMapper,
+                registryProvider.getIfAvailable());
+    }
+
+    @VisibleForTesting
+    ClusterRouter(@Nonnull final String self,
+                  @Nonnull final List<String> members,
+                  final int virtualNodes,
+                  @Nonnull final Duration connectTimeout,
+                  @Nonnull final Duration probeInterval,
+                  @Nonnull final ObjectMapper objectMapper,
+                  @Nullable final MeterRegistry registry) {
+        this.self = Objects.requireNonNull(self);
+        this.members = List.copyOf(members);
+        this.virtualNodes = virtualNodes;
+        this.probeInterval = Objects.requireNonNull(probeInterval);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.registry = registry;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+
+        // Every member owns its tokens from the start, those that cannot be reached leave on the first attempt
+        liveMembers.addAll(this.members);
+        liveMembers.add(self);
+        ring = HashRing.of(liveMembers, virtualNodes);
+        if (registry != null) {
+            Gauge.builder(METRIC_PUSH_CLUSTER_MEMBERS_LIVE, liveMembers, Set::size).register(registry);
+        }
+
+        prober = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("cluster-prober")
+                .setDaemon(true)
+                .build());
+        prober.scheduleWithFixedDelay(this::probe, probeInterval.toMillis(), probeInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        LOG.info("Started cluster mode; self={} members={} virtualNodes={}", self, this.members, virtualNodes);
+    }
+
+    @PreDestroy
+    public void close() {
+        prober.shutdownNow();
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Returns the member owning {@code deviceToken}.
+     */
+    public String ownerOf(@Nonnull final String deviceToken) {
+        return ring.ownerOf(deviceToken);
+    }
+
+    /**
+     * Handles the request here if this member owns the device token, and otherwise forwards it to the owner. If no
+     * connection to the owner can be opened, it leaves the ring and the request is routed again, to the next owner.
+     * Once the request may have reached the owner, it is never routed again, as the owner may still send the
+     * notification: it is answered with {@code 504 Gateway Timeout} if the owner does not answer in time, and with
+     * {@code 502 Bad Gateway} if the exchange fails otherwise, e.g. the connection breaks. Cancelling the returned
+     * future cancels the request handled here or the exchange with the owner.
+     *
+     * @param timeout       the deadline of the request, which the owner is told about; {@code null} for none
+     * @param handleLocally handles the request here
+     * @return the response of the member that handled the request, with the {@link #HANDLED_BY_HEADER}
+     */
+    public CompletableFuture<ResponseEntity<String>> route(
+            @Nonnull final String providerId,
+            @Nonnull final String deviceToken,
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nullable final Duration timeout,
+            @Nonnull final Supplier<CompletableFuture<ResponseEntity<String>>> handleLocally) {
+        final String owner = ring.ownerOf(deviceToken);
+        if (owner.equals(self)) {
+            final CompletableFuture<ResponseEntity<String>> handled = handleLocally.get();
+            final CompletableFuture<ResponseEntity<String>> routed =
+                    handled.thenApply(responseEntity -> handledBy(self, responseEntity));
+            cancelWhenAbandoned(routed, handled);
+            return routed;
+        }
+
+        final HttpRequest request;
+        try {
+            request = forwardRequest(owner, providerId, deviceToken, pushNotificationMessage, timeout);
+        } catch (JsonProcessingException e) {
+            LOG.error("Unable to serialize notification to forward; {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.internalServerError().body(""));
+        }
+        final CompletableFuture<HttpResponse<String>> sent =
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        // Given up on, e.g. the client disconnected: the exchange is cancelled and the request not routed again
+        final CompletableFuture<ResponseEntity<String>> routed = handleUnlessAbandoned(sent, (response, cause) -> {
+            if (cause == null) {
+                countForwarded(providerId, RESULT_FORWARDED);
+                return CompletableFuture.completedFuture(toResponseEntity(owner, response));
+            }
+            final Throwable failure = unwrap(cause);
+            if (failure instanceof ConnectException || failure instanceof HttpConnectTimeoutException) {
+                // Never reached the owner, so the notification can only be sent by the next owner
+                countForwarded(providerId, RESULT_FAILED_OVER);
+                markDown(owner, failure);
+                return route(providerId, deviceToken, pushNotificationMessage, timeout, handleLocally);
+            }
+            // From here on the owner may have received the request and may still send the notification, so
+            // it must not be sent here as well
+            if (isTimeout(failure)) {
+                // Sampled as an overload warning, see LogMarkers.SAMPLED; the counter has every one of them
+                countForwarded(providerId, RESULT_TIMEOUT);
+                LOG.warn(SAMPLED, "Forwarded push notification not answered in time; provider={} owner={}",
+                        providerId, owner);
+                return CompletableFuture.completedFuture(
+                        handledBy(owner, ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("")));
+            }
+            countForwarded(providerId, RESULT_ERROR);
+            LOG.warn("Failed to forward push notification; provider={} owner={} error={}",
+                    providerId, owner, failure.toString());
+            return CompletableFuture.completedFuture(
+                    handledBy(owner, ResponseEntity.status(HttpStatus.BAD_GATEWAY).body("")));
+        });
+        cancelWhenAbandoned(routed, sent);
+        return routed;
+    }
+
+    /**
+     * Whether this member has {@code member} on its ring.
+     */
+    @VisibleForTesting
+    boolean isLive(final String member) {
+        return liveMembers.contains(member);
+    }
+
+    @VisibleForTesting
+    void probe() {
+        for (String member : members) {
+            if (member.equals(self)) {
+                continue;
+            }
+            final HttpRequest request = HttpRequest.newBuilder(URI.create(member + STATUS_PATH))
+                    .timeout(probeInterval)
+                    .GET()
+                    .build();
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, cause) -> {
+                        if (cause == null && response.statusCode() == 200) {
+                            markUp(member);
+                        } else if (cause == null) {
+                            markDown(member, "status " + response.statusCode());
+                        } else {
+                            markDown(member, unwrap(cause));
+                        }
+                    });
+        }
+    }
+
+    private HttpRequest forwardRequest(final String owner,
+                                       final String providerId,
+                                       final String deviceToken,
+                                       final PushNotificationMessage pushNotificationMessage,
+                                       @Nullable final Duration timeout) throws JsonProcessingException {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(owner + "/v1/" + providerId
+                        + "/device/" + UriUtils.encodePathSegment(deviceToken, StandardCharsets.UTF_8)))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(FORWARDED_BY_HEADER, self)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(pushNotificationMessage)));
+        if (timeout != null) {
+            builder.header(PushNotificationController.REQUEST_TIMEOUT_HEADER, timeout.toMillis() + "ms")
+                    .timeout(timeout.plus(FORWARD_TIMEOUT_MARGIN));
+        }
+        return builder.build();
+    }
+
+    private static ResponseEntity<String> toResponseEntity(final String owner, final HttpResponse<String> response) {
+        final ResponseEntity.BodyBuilder builder = ResponseEntity.status(response.statusCode())
+                .header(HANDLED_BY_HEADER, owner);
+        response.headers().firstValue(HttpHeaders.RETRY_AFTER)
+                .ifPresent(retryAfter -> builder.header(HttpHeaders.RETRY_AFTER, retryAfter));
+        return builder.body(response.body());
+    }
+
+    private static ResponseEntity<String> handledBy(final String member, final ResponseEntity<String> responseEntity) {
+        return ResponseEntity.status(responseEntity.getStatusCode())
+                .headers(responseEntity.getHeaders())
+                .header(HANDLED_BY_HEADER, member)
+                .body(responseEntity.getBody());
+    }
+
+    private synchronized void markUp(final String member) {
+        if (liveMembers.add(member)) {
+            ring = HashRing.of(liveMembers, virtualNodes);
+            LOG.info("Cluster member is back and owns its device tokens again; member={} liveMembers={}",
+                    member, liveMembers.size());
+        }
+    }
+
+    private synchronized void markDown(final String member, final Object reason) {
+        if (liveMembers.remove(member)) {
+            ring = HashRing.of(liveMembers, virtualNodes);
+            LOG.warn("Cluster member cannot be reached, its device tokens move to the others; member={} " +
+                    "liveMembers={} reason={}", member, liveMembers.size(), reason);
+        }
+    }
+
+    private void countForwarded(final String providerId, final String result) {
+        if (registry != null) {
+            forwardedCounters.computeIfAbsent(providerId + "/" + result, key -> Counter
+                    .builder(METRIC_PUSH_CLUSTER_FORWARDED_TOTAL)
+                    .tag(TAG_PROVIDER, providerId)
+                    .tag(TAG_RESULT, result)
+                    .register(registry)).increment();
+        }
+    }
+
+    private static Throwable unwrap(final Throwable cause) {
+        return cause instanceof CompletionException && cause.getCause() != null ? cause.getCause() : cause;
+    }
+}
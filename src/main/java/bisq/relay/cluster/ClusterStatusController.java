@@ -0,0 +1,51 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.cluster;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Answers the probes of the other cluster members, see {@link ClusterRouter}: {@code 200 OK} while this member
+ * accepts traffic, and {@code 503 Service Unavailable} once it refuses traffic on shutdown, so that the others take
+ * over its device tokens before it stops.
+ */
+@RestController
+@ConditionalOnProperty(name = "cluster.enabled", havingValue = "true", matchIfMissing = false)
+public class ClusterStatusController {
+    private volatile boolean acceptingTraffic = true;
+
+    @EventListener
+    public void onReadinessChanged(final AvailabilityChangeEvent<ReadinessState> event) {
+        acceptingTraffic = event.getState() == ReadinessState.ACCEPTING_TRAFFIC;
+    }
+
+    @GetMapping(ClusterRouter.STATUS_PATH)
+    public ResponseEntity<String> status() {
+        return acceptingTraffic
+                ? ResponseEntity.ok("{}")
+                : ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("{}");
+    }
+}
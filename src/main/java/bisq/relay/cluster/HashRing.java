@@ -0,0 +1,98 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.cluster;
+
+import com.google.common.hash.Hashing;
+import jakarta.annotation.Nonnull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A consistent-hash ring assigning every key, such as a device token, to one of the members. Every member has a
+ * number of points (virtual nodes) on the ring, and a key belongs to the member of the first point at or after its
+ * hash. When a member leaves, only its keys move, spread over the remaining members; the others keep theirs.
+ * <p>
+ * Rings are immutable. Built from the same members, they assign keys the same way on every instance.
+ */
+public final class HashRing {
+    private final Set<String> members;
+    private final long[] points;
+    private final String[] owners;
+
+    private HashRing(final Set<String> members, final long[] points, final String[] owners) {
+        this.members = members;
+        this.points = points;
+        this.owners = owners;
+    }
+
+    /**
+     * Creates a ring with {@code virtualNodes} points for each of the {@code members}.
+     */
+    public static HashRing of(@Nonnull final Collection<String> members, final int virtualNodes) {
+        Objects.requireNonNull(members);
+        if (members.isEmpty() || virtualNodes < 1) {
+            throw new IllegalArgumentException("A hash ring needs at least one member and one virtual node");
+        }
+        final Set<String> sortedMembers = new TreeSet<>(members);
+        final Point[] sortedPoints = new Point[sortedMembers.size() * virtualNodes];
+        int i = 0;
+        for (String member : sortedMembers) {
+            for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+                sortedPoints[i++] = new Point(hash(member + "#" + virtualNode), member);
+            }
+        }
+        // Equal hashes are as good as impossible, ordering them by member keeps the ring the same everywhere anyway
+        Arrays.sort(sortedPoints, Comparator.comparingLong(Point::hash).thenComparing(Point::member));
+        final long[] points = new long[sortedPoints.length];
+        final String[] owners = new String[sortedPoints.length];
+        for (i = 0; i < sortedPoints.length; i++) {
+            points[i] = sortedPoints[i].hash;
+            owners[i] = sortedPoints[i].member;
+        }
+        return new HashRing(Set.copyOf(sortedMembers), points, owners);
+    }
+
+    /**
+     * Returns the member owning {@code key}.
+     */
+    public String ownerOf(@Nonnull final String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    private static long hash(final String value) {
+        return Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+    private record Point(long hash, String member) {
+    }
+}
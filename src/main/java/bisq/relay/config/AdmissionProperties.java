@@ -0,0 +1,102 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the admission control, which bounds the notifications each push provider has in
+ * flight and sheds requests beyond that with {@code 503 Service Unavailable}.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_ADMISSION_ENABLED} - Whether to shed requests beyond the budgets (default: true)</li>
+ *   <li>{@code BISQ_RELAY_ADMISSION_MAX_IN_FLIGHT} - Notifications in flight per provider (default: 2000)</li>
+ *   <li>{@code BISQ_RELAY_ADMISSION_MAX_IN_FLIGHT_BYTES} - Payload bytes in flight per provider (default: 8MB)</li>
+ *   <li>{@code BISQ_RELAY_ADMISSION_MAX_RETRY_AFTER} - Upper bound of the Retry-After sent when shedding (default: 30s)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether to shed requests beyond the budgets. When disabled, the in-flight notifications are still counted.
+     * Default is {@code true}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of notifications a push provider has in flight, i.e. accepted by the relay and not yet
+     * answered by the gateway.
+     */
+    @Min(value = 1, message = "Admission max in flight must be at least 1. Set BISQ_RELAY_ADMISSION_MAX_IN_FLIGHT environment variable.")
+    private int maxInFlight = 2000;
+
+    /**
+     * Maximum size of the device tokens and encrypted messages of the notifications a push provider has in flight.
+     */
+    @NotNull(message = "Admission max in flight bytes must be configured. Set BISQ_RELAY_ADMISSION_MAX_IN_FLIGHT_BYTES environment variable.")
+    private DataSize maxInFlightBytes = DataSize.ofMegabytes(8);
+
+    /**
+     * Upper bound of the {@code Retry-After} sent with a shed request. The value sent is the recent gateway
+     * latency, i.e. the time it takes until the notifications in flight have been answered, in whole seconds.
+     */
+    @NotNull(message = "Admission max retry after must be configured. Set BISQ_RELAY_ADMISSION_MAX_RETRY_AFTER environment variable.")
+    private Duration maxRetryAfter = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public void setMaxInFlight(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+    }
+
+    public DataSize getMaxInFlightBytes() {
+        return maxInFlightBytes;
+    }
+
+    public void setMaxInFlightBytes(DataSize maxInFlightBytes) {
+        this.maxInFlightBytes = maxInFlightBytes;
+    }
+
+    public Duration getMaxRetryAfter() {
+        return maxRetryAfter;
+    }
+
+    public void setMaxRetryAfter(Duration maxRetryAfter) {
+        this.maxRetryAfter = maxRetryAfter;
+    }
+}
@@ -17,10 +17,15 @@
 
 package bisq.relay.config;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+
 /**
  * Configuration properties for Apple Push Notification service (APNs).
  * <p>
@@ -30,6 +35,14 @@ import org.springframework.validation.annotation.Validated;
  *   <li>{@code BISQ_RELAY_APNS_CERTIFICATE_FILE} - Path to the .p12 certificate file</li>
  *   <li>{@code BISQ_RELAY_APNS_CERTIFICATE_PASSWORD_FILE} - Path to file containing certificate password</li>
  *   <li>{@code BISQ_RELAY_APNS_USE_SANDBOX} - Whether to use APNs sandbox (default: true)</li>
+ *   <li>{@code BISQ_RELAY_APNS_HOST} - Host of the APNs gateway, overriding the one selected by the sandbox setting</li>
+ *   <li>{@code BISQ_RELAY_APNS_PORT} - Port of the APNs gateway (default: 443)</li>
+ *   <li>{@code BISQ_RELAY_APNS_TRUSTED_SERVER_CERTIFICATE_FILE} - PEM file with the certificates trusted for the APNs gateway, instead of the JVM's trust store</li>
+ *   <li>{@code BISQ_RELAY_APNS_TRANSPORT} - Netty transport used by the APNs client: auto, nio or epoll (default: auto)</li>
+ *   <li>{@code BISQ_RELAY_APNS_EVENT_LOOP_THREADS} - Number of threads in the shared APNs event loop group (default: 1)</li>
+ *   <li>{@code BISQ_RELAY_APNS_CONCURRENT_CONNECTIONS} - Number of concurrent connections to the APNs gateway (default: 1)</li>
+ *   <li>{@code BISQ_RELAY_APNS_REQUEST_TIMEOUT} - Time to wait for the APNs gateway to answer a notification (default: 10s)</li>
+ *   <li>{@code BISQ_RELAY_APNS_STARTUP_HANDSHAKE} - Whether to complete a TLS handshake with the APNs gateway before reporting ready (default: false)</li>
  * </ul>
  */
 @Validated
@@ -61,6 +74,63 @@ public class ApnsProperties {
      */
     private boolean useSandbox = true;
 
+    /**
+     * Host of the APNs gateway. When blank, the production or development host is selected by {@link #useSandbox}.
+     * Can be pointed at a local stand-in, such as Pushy's {@code MockApnsServer}, for testing.
+     */
+    private String host;
+
+    /**
+     * Port of the APNs gateway.
+     * Default is {@code 443}.
+     */
+    @Min(value = 1, message = "APNs port must be between 1 and 65535. Set BISQ_RELAY_APNS_PORT environment variable.")
+    @Max(value = 65535, message = "APNs port must be between 1 and 65535. Set BISQ_RELAY_APNS_PORT environment variable.")
+    private int port = 443;
+
+    /**
+     * Path to a PEM file with the certificates trusted for the APNs gateway. When blank, the JVM's trust store is
+     * used. Only needed for a gateway stand-in with a self-signed certificate. Applies to the start-up handshake as
+     * well.
+     */
+    private String trustedServerCertificateFile;
+
+    /**
+     * The Netty transport used by the APNs client.
+     * Default is {@link Transport#AUTO}, which uses the native epoll transport when it is available
+     * (Linux) and falls back to NIO otherwise.
+     */
+    @NotNull(message = "APNs transport must be one of auto, nio or epoll. Set BISQ_RELAY_APNS_TRANSPORT environment variable.")
+    private Transport transport = Transport.AUTO;
+
+    /**
+     * Number of threads in the event loop group shared by the APNs clients.
+     * Default is {@code 1}, which matches the group Pushy would otherwise create implicitly.
+     */
+    @Min(value = 1, message = "APNs event loop threads must be at least 1. Set BISQ_RELAY_APNS_EVENT_LOOP_THREADS environment variable.")
+    private int eventLoopThreads = 1;
+
+    /**
+     * Number of concurrent connections the APNs client may open to the gateway.
+     * Default is {@code 1}.
+     */
+    @Min(value = 1, message = "APNs concurrent connections must be at least 1. Set BISQ_RELAY_APNS_CONCURRENT_CONNECTIONS environment variable.")
+    private int concurrentConnections = 1;
+
+    /**
+     * Time to wait for the APNs gateway to answer a notification. Without it, a stalled stream would hold its request
+     * until the connection closes.
+     * Default is {@code 10s}.
+     */
+    @NotNull(message = "APNs request timeout must be configured. Set BISQ_RELAY_APNS_REQUEST_TIMEOUT environment variable.")
+    private Duration requestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Whether to complete a TLS handshake with the APNs gateway, presenting the client certificate, as part of
+     * start-up. Readiness is only reported once it succeeded. Default is {@code false}.
+     */
+    private boolean startupHandshake = false;
+
     public String getBundleId() {
         return bundleId;
     }
@@ -92,5 +162,87 @@ public class ApnsProperties {
     public void setUseSandbox(boolean useSandbox) {
         this.useSandbox = useSandbox;
     }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getTrustedServerCertificateFile() {
+        return trustedServerCertificateFile;
+    }
+
+    public void setTrustedServerCertificateFile(String trustedServerCertificateFile) {
+        this.trustedServerCertificateFile = trustedServerCertificateFile;
+    }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    public void setEventLoopThreads(int eventLoopThreads) {
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    public int getConcurrentConnections() {
+        return concurrentConnections;
+    }
+
+    public void setConcurrentConnections(int concurrentConnections) {
+        this.concurrentConnections = concurrentConnections;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public boolean isStartupHandshake() {
+        return startupHandshake;
+    }
+
+    public void setStartupHandshake(boolean startupHandshake) {
+        this.startupHandshake = startupHandshake;
+    }
+
+    /**
+     * Netty transports available to the APNs client.
+     */
+    public enum Transport {
+        /**
+         * Use the native epoll transport when available, otherwise NIO.
+         */
+        AUTO,
+        /**
+         * Use the JDK NIO transport.
+         */
+        NIO,
+        /**
+         * Use the native epoll transport; startup fails if it is not available.
+         */
+        EPOLL
+    }
 }
 
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the batch window, which holds background (non-urgent) notifications briefly and sends
+ * them to the gateway in batches.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_BATCH_ENABLED} - Whether to batch background notifications (default: false)</li>
+ *   <li>{@code BISQ_RELAY_BATCH_WINDOW} - How long a background notification is held at most (default: 500ms)</li>
+ *   <li>{@code BISQ_RELAY_BATCH_MAX_SIZE} - Notifications sent in one batch at most (default: 100)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "batch")
+public class BatchProperties {
+
+    /**
+     * Whether to batch background notifications. Urgent notifications are never held.
+     * Default is {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * How long a background notification is held at most, counted from the first notification of a batch.
+     */
+    @NotNull(message = "Batch window must be configured. Set BISQ_RELAY_BATCH_WINDOW environment variable.")
+    private Duration window = Duration.ofMillis(500);
+
+    /**
+     * Number of notifications that sends a batch before its window has elapsed. FCM accepts up to 500 messages in a
+     * single {@code sendEach} call.
+     */
+    @Min(value = 1, message = "Batch max size must be at least 1. Set BISQ_RELAY_BATCH_MAX_SIZE environment variable.")
+    @Max(value = 500, message = "Batch max size must not exceed 500. Set BISQ_RELAY_BATCH_MAX_SIZE environment variable.")
+    private int maxSize = 100;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+}
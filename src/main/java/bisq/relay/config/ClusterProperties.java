@@ -0,0 +1,137 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration properties for running several relay instances as a cluster, in which every device token is
+ * handled by the instance owning it.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_CLUSTER_ENABLED} - Whether cluster mode is enabled (default: false)</li>
+ *   <li>{@code BISQ_RELAY_CLUSTER_SELF} - URL of this instance as the others reach it, e.g. http://relay-1:8080</li>
+ *   <li>{@code BISQ_RELAY_CLUSTER_MEMBERS} - Comma-separated URLs of all instances, including this one</li>
+ *   <li>{@code BISQ_RELAY_CLUSTER_VIRTUAL_NODES} - Points of every instance on the hash ring (default: 128)</li>
+ *   <li>{@code BISQ_RELAY_CLUSTER_PROBE_INTERVAL} - How often the other instances are checked (default: 1s)</li>
+ *   <li>{@code BISQ_RELAY_CLUSTER_CONNECT_TIMEOUT} - How long connecting to another instance may take
+ *   (default: 500ms)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "cluster")
+public class ClusterProperties {
+
+    /**
+     * Whether cluster mode is enabled.
+     * Default is {@code false} - every instance handles the requests it receives.
+     */
+    private boolean enabled = false;
+
+    /**
+     * URL of this instance as the other instances reach it. Must be one of the {@link #members}.
+     */
+    private String self = "";
+
+    /**
+     * URLs of all instances of the cluster, including this one, the same list on every instance.
+     */
+    private List<String> members = new ArrayList<>();
+
+    /**
+     * How many points every instance has on the hash ring. More points spread the device tokens more evenly.
+     */
+    @Min(value = 1, message = "Cluster virtual nodes must be at least 1. Set BISQ_RELAY_CLUSTER_VIRTUAL_NODES environment variable.")
+    private int virtualNodes = 128;
+
+    /**
+     * How often the other instances are checked. An instance that does not answer, or refuses traffic while it shuts
+     * down, loses its device tokens to the others until it answers again.
+     */
+    @NotNull(message = "Cluster probe interval must be configured. Set BISQ_RELAY_CLUSTER_PROBE_INTERVAL environment variable.")
+    private Duration probeInterval = Duration.ofSeconds(1);
+
+    /**
+     * How long connecting to another instance may take, before its requests are handled here instead.
+     */
+    @NotNull(message = "Cluster connect timeout must be configured. Set BISQ_RELAY_CLUSTER_CONNECT_TIMEOUT environment variable.")
+    private Duration connectTimeout = Duration.ofMillis(500);
+
+    @AssertTrue(message = "Cluster self must be one of the cluster members. Set BISQ_RELAY_CLUSTER_SELF and BISQ_RELAY_CLUSTER_MEMBERS environment variables.")
+    public boolean isSelfAMember() {
+        return !enabled || members.contains(self);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public void setSelf(String self) {
+        this.self = self;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    public void setMembers(List<String> members) {
+        this.members = members;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    public void setVirtualNodes(int virtualNodes) {
+        this.virtualNodes = virtualNodes;
+    }
+
+    public Duration getProbeInterval() {
+        return probeInterval;
+    }
+
+    public void setProbeInterval(Duration probeInterval) {
+        this.probeInterval = probeInterval;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the deadline of a push request, after which the relay answers it with
+ * {@code 504 Gateway Timeout} and stops spending resources on it: a notification still queued is not sent, and one
+ * that was sent is cancelled at the gateway client.
+ * <p>
+ * Clients may ask for a shorter or longer deadline with the {@code X-Request-Timeout} header, e.g. {@code 5s} or
+ * {@code 5000} (milliseconds).
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_DEADLINE_DEFAULT_TIMEOUT} - Deadline of requests without the header (default: 15s)</li>
+ *   <li>{@code BISQ_RELAY_DEADLINE_MAX_TIMEOUT} - Longest deadline a client may ask for (default: 60s)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "deadline")
+public class DeadlineProperties {
+
+    /**
+     * Deadline of requests that do not ask for one. Longer than the request timeouts of the gateway clients, so that
+     * it mostly applies to notifications that waited for a dispatch slot or a batch.
+     */
+    @NotNull(message = "Default deadline must be configured. Set BISQ_RELAY_DEADLINE_DEFAULT_TIMEOUT environment variable.")
+    private Duration defaultTimeout = Duration.ofSeconds(15);
+
+    /**
+     * Longest deadline a client may ask for; longer ones are cut to this.
+     */
+    @NotNull(message = "Max deadline must be configured. Set BISQ_RELAY_DEADLINE_MAX_TIMEOUT environment variable.")
+    private Duration maxTimeout = Duration.ofSeconds(60);
+
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    public void setDefaultTimeout(Duration defaultTimeout) {
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    public Duration getMaxTimeout() {
+        return maxTimeout;
+    }
+
+    public void setMaxTimeout(Duration maxTimeout) {
+        this.maxTimeout = maxTimeout;
+    }
+}
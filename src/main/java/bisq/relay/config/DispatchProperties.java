@@ -0,0 +1,72 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configuration properties for the priority dispatch, which bounds the notifications each push provider sends to
+ * its gateway at the same time and lets urgent notifications go ahead of background ones.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_DISPATCH_MAX_CONCURRENT} - Notifications sent to the gateway at once per provider (default: 1000)</li>
+ *   <li>{@code BISQ_RELAY_DISPATCH_BACKGROUND_SHARE} - Share of those that background notifications may use (default: 0.5)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "dispatch")
+public class DispatchProperties {
+
+    /**
+     * Maximum number of notifications a push provider has sent to its gateway and not yet had answered. Further
+     * notifications wait in the relay, urgent ones ahead of background ones. APNs allows 1000 concurrent streams
+     * per connection.
+     */
+    @Min(value = 1, message = "Dispatch max concurrent must be at least 1. Set BISQ_RELAY_DISPATCH_MAX_CONCURRENT environment variable.")
+    private int maxConcurrent = 1000;
+
+    /**
+     * Share of {@link #maxConcurrent} that background (non-urgent) notifications may use, so that the rest is always
+     * available to urgent ones.
+     */
+    @DecimalMin(value = "0.0", inclusive = false, message = "Dispatch background share must be greater than 0. Set BISQ_RELAY_DISPATCH_BACKGROUND_SHARE environment variable.")
+    @DecimalMax(value = "1.0", message = "Dispatch background share must not exceed 1. Set BISQ_RELAY_DISPATCH_BACKGROUND_SHARE environment variable.")
+    private double backgroundShare = 0.5;
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public double getBackgroundShare() {
+        return backgroundShare;
+    }
+
+    public void setBackgroundShare(double backgroundShare) {
+        this.backgroundShare = backgroundShare;
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for draining the push notifications on shutdown.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_DRAIN_TIMEOUT} - How long in-flight notifications may take on shutdown (default: 20s)</li>
+ *   <li>{@code BISQ_RELAY_DRAIN_SPOOL_DIRECTORY} - Where notifications left over are kept until the next start
+ *   (default: spool)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "drain")
+public class DrainProperties {
+
+    /**
+     * How long the notifications in flight on shutdown may take to be answered. Notifications left over after that
+     * are written to the spool directory.
+     */
+    @NotNull(message = "Drain timeout must be configured. Set BISQ_RELAY_DRAIN_TIMEOUT environment variable.")
+    private Duration timeout = Duration.ofSeconds(20);
+
+    /**
+     * Directory the notifications left over on shutdown are written to, and sent from on the next start. Must
+     * survive the restart, e.g. a persistent volume. Empty to drop them instead.
+     */
+    private String spoolDirectory = "spool";
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+}
@@ -17,10 +17,14 @@
 
 package bisq.relay.config;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+
 /**
  * Configuration properties for Firebase Cloud Messaging (FCM).
  * <p>
@@ -30,6 +34,14 @@ import org.springframework.validation.annotation.Validated;
  *   <li>{@code BISQ_RELAY_FCM_FIREBASE_CONFIGURATION_FILE} - Path to Firebase service account JSON file</li>
  *   <li>{@code BISQ_RELAY_FCM_FIREBASE_URL} - Firebase database URL</li>
  *   <li>{@code BISQ_RELAY_FCM_DATA_ONLY} - Whether to send FCM data-only messages (default: false)</li>
+ *   <li>{@code BISQ_RELAY_FCM_TRANSPORT} - How messages are sent to FCM: sdk or http2 (default: sdk)</li>
+ *   <li>{@code BISQ_RELAY_FCM_API_URL} - Base URL of the FCM v1 API used by the http2 transport</li>
+ *   <li>{@code BISQ_RELAY_FCM_HTTP2_CONNECTIONS} - Number of HTTP/2 connections used by the http2 transport (default: 2)</li>
+ *   <li>{@code BISQ_RELAY_FCM_REQUEST_TIMEOUT} - Request timeout used by the http2 transport (default: 10s)</li>
+ *   <li>{@code BISQ_RELAY_FCM_TOKEN_REFRESH_ENABLED} - Whether the access token is renewed in the background (default: true)</li>
+ *   <li>{@code BISQ_RELAY_FCM_TOKEN_REFRESH_MARGIN} - How long before expiry the access token is renewed (default: 10m)</li>
+ *   <li>{@code BISQ_RELAY_FCM_TOKEN_REFRESH_JITTER} - Random extra lead added to each token renewal (default: 2m)</li>
+ *   <li>{@code BISQ_RELAY_FCM_STARTUP_HANDSHAKE} - Whether to complete a TLS handshake with the FCM gateway before reporting ready (default: false)</li>
  * </ul>
  */
 @Validated
@@ -62,6 +74,59 @@ public class FcmProperties {
      */
     private boolean sendDataOnly = false;
 
+    /**
+     * How messages are sent to FCM.
+     * Default is {@link Transport#SDK}, i.e. through the Firebase Admin SDK.
+     */
+    @NotNull(message = "FCM transport must be one of sdk or http2. Set BISQ_RELAY_FCM_TRANSPORT environment variable.")
+    private Transport transport = Transport.SDK;
+
+    /**
+     * Base URL of the FCM v1 API. Only used by the {@link Transport#HTTP2} transport.
+     * Can be pointed at a local stub server for testing.
+     */
+    @NotBlank(message = "FCM API URL must be configured. Set BISQ_RELAY_FCM_API_URL environment variable.")
+    private String apiUrl = "https://fcm.googleapis.com";
+
+    /**
+     * Number of HTTP/2 connections requests are multiplexed over. Only used by the {@link Transport#HTTP2} transport.
+     */
+    @Min(value = 1, message = "FCM HTTP/2 connections must be at least 1. Set BISQ_RELAY_FCM_HTTP2_CONNECTIONS environment variable.")
+    private int http2Connections = 2;
+
+    /**
+     * Time to wait for a response from the FCM v1 API. Only used by the {@link Transport#HTTP2} transport.
+     */
+    @NotNull(message = "FCM request timeout must be configured. Set BISQ_RELAY_FCM_REQUEST_TIMEOUT environment variable.")
+    private Duration requestTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Whether the OAuth access token is renewed in the background ahead of its expiry.
+     * When disabled, the token is refreshed inline by the first send that finds it stale.
+     */
+    private boolean tokenRefreshEnabled = true;
+
+    /**
+     * How long before its expiry the OAuth access token is renewed in the background.
+     * Should be larger than the few minutes the Google auth library itself refreshes ahead, so that sends never
+     * find the token stale and refresh it inline.
+     */
+    @NotNull(message = "FCM token refresh margin must be configured. Set BISQ_RELAY_FCM_TOKEN_REFRESH_MARGIN environment variable.")
+    private Duration tokenRefreshMargin = Duration.ofMinutes(10);
+
+    /**
+     * Upper bound of the random extra lead added to each background token renewal, so that instances started
+     * together do not all renew at the same moment.
+     */
+    @NotNull(message = "FCM token refresh jitter must be configured. Set BISQ_RELAY_FCM_TOKEN_REFRESH_JITTER environment variable.")
+    private Duration tokenRefreshJitter = Duration.ofMinutes(2);
+
+    /**
+     * Whether to complete a TLS handshake with the FCM API ({@link #apiUrl}) as part of start-up.
+     * Readiness is only reported once it succeeded. Default is {@code false}.
+     */
+    private boolean startupHandshake = false;
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -93,4 +158,82 @@ public class FcmProperties {
     public void setSendDataOnly(boolean sendDataOnly) {
         this.sendDataOnly = sendDataOnly;
     }
+
+    public Transport getTransport() {
+        return transport;
+    }
+
+    public void setTransport(Transport transport) {
+        this.transport = transport;
+    }
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public void setApiUrl(String apiUrl) {
+        this.apiUrl = apiUrl;
+    }
+
+    public int getHttp2Connections() {
+        return http2Connections;
+    }
+
+    public void setHttp2Connections(int http2Connections) {
+        this.http2Connections = http2Connections;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    public boolean isTokenRefreshEnabled() {
+        return tokenRefreshEnabled;
+    }
+
+    public void setTokenRefreshEnabled(boolean tokenRefreshEnabled) {
+        this.tokenRefreshEnabled = tokenRefreshEnabled;
+    }
+
+    public Duration getTokenRefreshMargin() {
+        return tokenRefreshMargin;
+    }
+
+    public void setTokenRefreshMargin(Duration tokenRefreshMargin) {
+        this.tokenRefreshMargin = tokenRefreshMargin;
+    }
+
+    public Duration getTokenRefreshJitter() {
+        return tokenRefreshJitter;
+    }
+
+    public void setTokenRefreshJitter(Duration tokenRefreshJitter) {
+        this.tokenRefreshJitter = tokenRefreshJitter;
+    }
+
+    public boolean isStartupHandshake() {
+        return startupHandshake;
+    }
+
+    public void setStartupHandshake(boolean startupHandshake) {
+        this.startupHandshake = startupHandshake;
+    }
+
+    /**
+     * Ways of sending messages to FCM.
+     */
+    public enum Transport {
+        /**
+         * Send through {@code FirebaseMessaging} from the Firebase Admin SDK.
+         */
+        SDK,
+        /**
+         * Send directly to the FCM v1 REST API using a non-blocking HTTP/2 client.
+         */
+        HTTP2
+    }
 }
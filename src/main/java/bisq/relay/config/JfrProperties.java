@@ -0,0 +1,105 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the JDK Flight Recorder recording, which is controlled via the {@code jfr} actuator
+ * endpoint.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_JFR_ENABLED} - Whether to start a recording at start-up (default: false)</li>
+ *   <li>{@code BISQ_RELAY_JFR_SETTINGS} - JFR settings used by recordings: default or profile (default: default)</li>
+ *   <li>{@code BISQ_RELAY_JFR_MAX_AGE} - How long recorded data is kept (default: 6h)</li>
+ *   <li>{@code BISQ_RELAY_JFR_MAX_SIZE} - How much recorded data is kept (default: 250MB)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "jfr")
+public class JfrProperties {
+
+    /**
+     * Whether to start a recording at start-up, so that the data of an incident is at hand without reproducing it.
+     * Default is {@code false}.
+     */
+    private boolean enabled = false;
+
+    /**
+     * JFR settings used by recordings, the name of a configuration shipped with the JDK: {@code default} or
+     * {@code profile}. Files are not accepted, as the settings can also be chosen via the actuator endpoint.
+     * Default is {@code default}, which has an overhead of less than 1%.
+     */
+    @NotBlank(message = "JFR settings must be configured. Set BISQ_RELAY_JFR_SETTINGS environment variable.")
+    @Pattern(regexp = "default|profile",
+            message = "JFR settings must be default or profile. Set BISQ_RELAY_JFR_SETTINGS environment variable.")
+    private String settings = "default";
+
+    /**
+     * How long recorded data is kept; older data is discarded.
+     */
+    @NotNull(message = "JFR max age must be configured. Set BISQ_RELAY_JFR_MAX_AGE environment variable.")
+    private Duration maxAge = Duration.ofHours(6);
+
+    /**
+     * How much recorded data is kept on disk; older data is discarded.
+     */
+    @NotNull(message = "JFR max size must be configured. Set BISQ_RELAY_JFR_MAX_SIZE environment variable.")
+    private DataSize maxSize = DataSize.ofMegabytes(250);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -24,7 +24,9 @@ import org.springframework.context.annotation.Configuration;
  * Configuration class that enables type-safe configuration properties binding.
  */
 @Configuration
-@EnableConfigurationProperties({ApnsProperties.class, FcmProperties.class})
+@EnableConfigurationProperties({ApnsProperties.class, FcmProperties.class, WarmUpProperties.class,
+        JfrProperties.class, AdmissionProperties.class, DispatchProperties.class, BatchProperties.class,
+        DeadlineProperties.class, DrainProperties.class, StateProperties.class, ClusterProperties.class})
 public class PropertiesConfiguration {
 }
 
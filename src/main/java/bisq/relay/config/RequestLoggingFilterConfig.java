@@ -17,19 +17,14 @@
 
 package bisq.relay.config;
 
+import bisq.relay.logging.AuditLoggingFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.filter.CommonsRequestLoggingFilter;
 
 @Configuration
 public class RequestLoggingFilterConfig {
     @Bean
-    public CommonsRequestLoggingFilter logFilter() {
-        final CommonsRequestLoggingFilter filter = new CommonsRequestLoggingFilter();
-        filter.setIncludeQueryString(true);
-        filter.setIncludePayload(true);
-        filter.setMaxPayloadLength(10_000);
-        filter.setIncludeHeaders(true);
-        return filter;
+    public AuditLoggingFilter auditLoggingFilter() {
+        return new AuditLoggingFilter();
     }
 }
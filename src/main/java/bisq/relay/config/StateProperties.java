@@ -0,0 +1,155 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the state shared by the relay instances.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_STATE_BACKEND} - Where the shared state is kept: memory or redis (default: memory)</li>
+ *   <li>{@code BISQ_RELAY_STATE_REDIS_HOST} - Host of the Redis server (default: localhost)</li>
+ *   <li>{@code BISQ_RELAY_STATE_REDIS_PORT} - Port of the Redis server (default: 6379)</li>
+ *   <li>{@code BISQ_RELAY_STATE_REDIS_PASSWORD} - Password of the Redis server, empty if none (default: empty)</li>
+ *   <li>{@code BISQ_RELAY_STATE_KEY_PREFIX} - Prefix of the keys written to Redis (default: bisq-relay:)</li>
+ *   <li>{@code BISQ_RELAY_STATE_COMMAND_TIMEOUT} - How long a Redis command may take (default: 200ms)</li>
+ *   <li>{@code BISQ_RELAY_STATE_NEAR_CACHE_TTL} - How long flags looked up in Redis are cached locally
+ *   (default: 1s)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "state")
+public class StateProperties {
+
+    /**
+     * Where the shared state is kept. {@link Backend#MEMORY} keeps it in this instance only, which is enough when
+     * a single instance runs.
+     */
+    @NotNull(message = "State backend must be one of memory or redis. Set BISQ_RELAY_STATE_BACKEND environment variable.")
+    private Backend backend = Backend.MEMORY;
+
+    @NotBlank(message = "Redis host must be configured. Set BISQ_RELAY_STATE_REDIS_HOST environment variable.")
+    private String redisHost = "localhost";
+
+    @Min(value = 1, message = "Redis port must be between 1 and 65535. Set BISQ_RELAY_STATE_REDIS_PORT environment variable.")
+    @Max(value = 65535, message = "Redis port must be between 1 and 65535. Set BISQ_RELAY_STATE_REDIS_PORT environment variable.")
+    private int redisPort = 6379;
+
+    /**
+     * Password sent with {@code AUTH} after connecting. Empty if the server does not require one.
+     */
+    private String redisPassword = "";
+
+    /**
+     * Prefix of every key written to Redis, so that the relay can share a server with other applications.
+     */
+    private String keyPrefix = "bisq-relay:";
+
+    /**
+     * How long a Redis command may take, including connecting, before it completes with a timeout.
+     */
+    @NotNull(message = "State command timeout must be configured. Set BISQ_RELAY_STATE_COMMAND_TIMEOUT environment variable.")
+    private Duration commandTimeout = Duration.ofMillis(200);
+
+    /**
+     * How long a flag looked up in Redis is cached locally when it is not set. Flags that are set are cached until
+     * they expire, as they cannot be cleared.
+     */
+    @NotNull(message = "State near cache TTL must be configured. Set BISQ_RELAY_STATE_NEAR_CACHE_TTL environment variable.")
+    private Duration nearCacheTtl = Duration.ofSeconds(1);
+
+    public Backend getBackend() {
+        return backend;
+    }
+
+    public void setBackend(Backend backend) {
+        this.backend = backend;
+    }
+
+    public String getRedisHost() {
+        return redisHost;
+    }
+
+    public void setRedisHost(String redisHost) {
+        this.redisHost = redisHost;
+    }
+
+    public int getRedisPort() {
+        return redisPort;
+    }
+
+    public void setRedisPort(int redisPort) {
+        this.redisPort = redisPort;
+    }
+
+    public String getRedisPassword() {
+        return redisPassword;
+    }
+
+    public void setRedisPassword(String redisPassword) {
+        this.redisPassword = redisPassword;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    public Duration getCommandTimeout() {
+        return commandTimeout;
+    }
+
+    public void setCommandTimeout(Duration commandTimeout) {
+        this.commandTimeout = commandTimeout;
+    }
+
+    public Duration getNearCacheTtl() {
+        return nearCacheTtl;
+    }
+
+    public void setNearCacheTtl(Duration nearCacheTtl) {
+        this.nearCacheTtl = nearCacheTtl;
+    }
+
+    /**
+     * Stores the shared state can be kept in.
+     */
+    public enum Backend {
+        /**
+         * Keep the state in this instance only.
+         */
+        MEMORY,
+        /**
+         * Keep the state in a Redis server, or any server speaking the Redis protocol, shared by all instances.
+         */
+        REDIS
+    }
+}
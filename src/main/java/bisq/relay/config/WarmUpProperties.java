@@ -0,0 +1,100 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.config;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the start-up warm-up, which runs before the relay reports ready.
+ * <p>
+ * These properties can be configured via environment variables:
+ * <ul>
+ *   <li>{@code BISQ_RELAY_WARMUP_ENABLED} - Whether to warm up before reporting ready (default: true)</li>
+ *   <li>{@code BISQ_RELAY_WARMUP_CONNECTIONS} - Whether to establish the push gateway connections (default: true)</li>
+ *   <li>{@code BISQ_RELAY_WARMUP_ITERATIONS} - Number of synthetic requests run through the request path (default: 2000)</li>
+ *   <li>{@code BISQ_RELAY_WARMUP_TIMEOUT} - Maximum time to wait for the push gateways during warm-up (default: 30s)</li>
+ * </ul>
+ */
+@Validated
+@ConfigurationProperties(prefix = "warmup")
+public class WarmUpProperties {
+
+    /**
+     * Whether to warm up before reporting ready.
+     * Default is {@code true}.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Whether to establish the push gateway connections (and fetch the FCM access token) during warm-up,
+     * using requests that are never delivered to a device.
+     * Default is {@code true}.
+     */
+    private boolean connections = true;
+
+    /**
+     * Number of synthetic requests run through request parsing, the controllers, the metrics decorator, the
+     * message builders and the serializers, so that they are JIT compiled before real traffic arrives.
+     */
+    @Min(value = 0, message = "Warm-up iterations must not be negative. Set BISQ_RELAY_WARMUP_ITERATIONS environment variable.")
+    private int iterations = 2000;
+
+    /**
+     * Maximum time to wait for the push gateways during warm-up. Warm-up is best effort, the relay reports ready
+     * once this has elapsed even if a gateway did not answer.
+     */
+    @NotNull(message = "Warm-up timeout must be configured. Set BISQ_RELAY_WARMUP_TIMEOUT environment variable.")
+    private Duration timeout = Duration.ofSeconds(30);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isConnections() {
+        return connections;
+    }
+
+    public void setConnections(boolean connections) {
+        this.connections = connections;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public void setIterations(int iterations) {
+        this.iterations = iterations;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.jfr;
+
+import bisq.relay.config.JfrProperties;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Actuator endpoint controlling a JDK Flight Recorder recording of the relay, including the push events in
+ * {@link bisq.relay.notification.jfr}:
+ * <ul>
+ *   <li>{@code GET /actuator/jfr} - describes the recording</li>
+ *   <li>{@code POST /actuator/jfr} - starts a new recording, replacing the current one; optionally takes
+ *   {@code settings} ({@code default} or {@code profile}) and {@code maxAge}, which default to the
+ *   {@link JfrProperties}</li>
+ *   <li>{@code DELETE /actuator/jfr} - stops the recording, its data can still be downloaded</li>
+ *   <li>{@code GET /actuator/jfr/bisq-relay.jfr} - downloads the data recorded so far, e.g. for JDK Mission Control
+ *   or {@code jfr print}</li>
+ * </ul>
+ * If enabled, a recording is started at start-up, so that the data of an incident is at hand. The endpoint is not
+ * exposed by default. Recordings leave out the events that list the environment and the system properties.
+ */
+@Component
+@Endpoint(id = "jfr")
+public class JfrEndpoint implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(JfrEndpoint.class);
+
+    static final String RECORDING_NAME = "bisq-relay";
+    static final String RECORDING_FILE_NAME = RECORDING_NAME + ".jfr";
+    static final Set<String> SETTINGS = Set.of("default", "profile");
+    static final String INITIAL_ENVIRONMENT_VARIABLE_EVENT = "jdk.InitialEnvironmentVariable";
+    static final String INITIAL_SYSTEM_PROPERTY_EVENT = "jdk.InitialSystemProperty";
+
+    private final JfrProperties jfrProperties;
+    // Guarded by this
+    @Nullable
+    private Recording recording;
+    // Guarded by this
+    @Nullable
+    private String recordingSettings;
+
+    public JfrEndpoint(final JfrProperties jfrProperties) {
+        this.jfrProperties = Objects.requireNonNull(jfrProperties);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (jfrProperties.isEnabled()) {
+            final RecordingDescriptor descriptor = start(null, null);
+            LOG.info("JFR recording started; settings={}, maxAge={}, maxSize={}",
+                    descriptor.settings(), descriptor.maxAge(), jfrProperties.getMaxSize());
+        }
+    }
+
+    @ReadOperation
+    @Nullable
+    public synchronized RecordingDescriptor recording() {
+        return recording == null ? null : RecordingDescriptor.of(recording, recordingSettings);
+    }
+
+    @WriteOperation
+    public synchronized RecordingDescriptor start(
+            // Actuator only treats parameters annotated with Spring's @Nullable as optional
+            @org.springframework.lang.Nullable final String settings,
+            @org.springframework.lang.Nullable final Duration maxAge) {
+        final String newRecordingSettings = settings == null ? jfrProperties.getSettings() : settings;
+        final Recording newRecording = new Recording(configuration(newRecordingSettings));
+        // Emitted at the start of every chunk with the full environment and system properties, i.e. the credentials
+        // passed to the relay
+        newRecording.disable(INITIAL_ENVIRONMENT_VARIABLE_EVENT);
+        newRecording.disable(INITIAL_SYSTEM_PROPERTY_EVENT);
+        newRecording.setName(RECORDING_NAME);
+        newRecording.setToDisk(true);
+        newRecording.setMaxAge(maxAge == null ? jfrProperties.getMaxAge() : maxAge);
+        newRecording.setMaxSize(jfrProperties.getMaxSize().toBytes());
+        newRecording.start();
+
+        if (recording != null) {
+            recording.close();
+        }
+        recording = newRecording;
+        recordingSettings = newRecordingSettings;
+        return RecordingDescriptor.of(newRecording, newRecordingSettings);
+    }
+
+    @DeleteOperation
+    @Nullable
+    public synchronized RecordingDescriptor stop() {
+        if (recording == null) {
+            return null;
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            LOG.info("JFR recording stopped; duration={}", recording.getDuration());
+        }
+        return RecordingDescriptor.of(recording, recordingSettings);
+    }
+
+    /**
+     * Returns the data recorded so far. The dump is written to a temporary file, which is deleted once the response
+     * has been sent.
+     */
+    @ReadOperation(produces = "application/octet-stream")
+    @Nullable
+    public Resource download(@Selector final String fileName) throws IOException {
+        if (!RECORDING_FILE_NAME.equals(fileName)) {
+            return null;
+        }
+
+        final Path dumpFile = Files.createTempFile(RECORDING_NAME + "-", ".jfr");
+        try {
+            synchronized (this) {
+                if (recording == null) {
+                    Files.delete(dumpFile);
+                    return null;
+                }
+                recording.dump(dumpFile);
+            }
+            return new InputStreamResource(Files.newInputStream(dumpFile, StandardOpenOption.DELETE_ON_CLOSE));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(dumpFile);
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void destroy() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            recordingSettings = null;
+        }
+    }
+
+    /**
+     * Only the configurations shipped with the JDK are accepted; a path would let any caller of the endpoint read
+     * files of the host.
+     */
+    private static Configuration configuration(final String settings) {
+        if (!SETTINGS.contains(settings)) {
+            throw new InvalidEndpointRequestException("Unknown JFR settings " + settings,
+                    "JFR settings must be one of " + String.join(", ", new TreeSet<>(SETTINGS)));
+        }
+        try {
+            return Configuration.getConfiguration(settings);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read JFR settings " + settings, e);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid JFR settings " + settings, e);
+        }
+    }
+
+    /**
+     * Describes a recording; {@code maxSize} and {@code size} are in bytes.
+     */
+    public record RecordingDescriptor(String name,
+                                      String state,
+                                      String settings,
+                                      @Nullable Instant startTime,
+                                      @Nullable Instant stopTime,
+                                      Duration maxAge,
+                                      long maxSize,
+                                      long size) {
+
+        static RecordingDescriptor of(final Recording recording, final String settings) {
+            return new RecordingDescriptor(recording.getName(), recording.getState().name(), settings,
+                    recording.getStartTime(), recording.getStopTime(), recording.getMaxAge(), recording.getMaxSize(),
+                    recording.getSize());
+        }
+    }
+}
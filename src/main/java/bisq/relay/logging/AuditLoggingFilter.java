@@ -0,0 +1,164 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nullable;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.logging.LogMarkers.AUDIT_SAMPLED;
+import static bisq.relay.util.MaskingUtil.masked;
+import static bisq.relay.util.MaskingUtil.maskSensitive;
+
+/**
+ * Writes one audit log line per request once its response is complete, with a fixed set of fields: method, path,
+ * {@code token} query parameter, status, duration, user agent and remote address. Device tokens in the path and the
+ * query are masked.
+ * <p>
+ * Failed requests (status 400 and above, or an exception) are logged at WARN and always kept. Successful requests are
+ * logged at INFO with the {@link LogMarkers#AUDIT_SAMPLED} marker, which is rate-sampled by a
+ * {@link SamplingTurboFilter}; no field is prepared for a request that sampling skips. Request and response bodies
+ * are never read or copied.
+ */
+public class AuditLoggingFilter extends OncePerRequestFilter {
+    private static final String DEVICE_PATH_SEGMENT = "/device/";
+    private static final String TOKEN_PARAMETER = "token=";
+
+    private final Logger log;
+
+    public AuditLoggingFilter() {
+        this(LoggerFactory.getLogger(AuditLoggingFilter.class));
+    }
+
+    @VisibleForTesting
+    AuditLoggingFilter(final Logger log) {
+        this.log = Objects.requireNonNull(log);
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request,
+                                    final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        final long startNanos = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException e) {
+            log(request, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, startNanos, e);
+            throw e;
+        }
+
+        if (request.isAsyncStarted()) {
+            // The push endpoints complete asynchronously, the status is only known once the async request completes
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(final AsyncEvent event) {
+                    log(request, response.getStatus(), startNanos, null);
+                }
+
+                @Override
+                public void onTimeout(final AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(final AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(final AsyncEvent event) {
+                }
+            });
+        } else {
+            log(request, response.getStatus(), startNanos, null);
+        }
+    }
+
+    private void log(final HttpServletRequest request,
+                     final int status,
+                     final long startNanos,
+                     @Nullable final Throwable cause) {
+        final long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        if (cause != null || status >= HttpServletResponse.SC_BAD_REQUEST) {
+            if (log.isWarnEnabled()) {
+                log.warn("Request failed; method={} path={} token={} status={} durationMillis={} userAgent={} " +
+                                "remoteAddress={} error={}",
+                        request.getMethod(), maskPath(request.getRequestURI()),
+                        masked(queryToken(request.getQueryString())), status, durationMillis,
+                        request.getHeader(HttpHeaders.USER_AGENT), request.getRemoteAddr(),
+                        cause == null ? null : cause.toString());
+            }
+        } else if (log.isInfoEnabled(AUDIT_SAMPLED)) {
+            log.info(AUDIT_SAMPLED, "Request completed; method={} path={} token={} status={} durationMillis={} " +
+                            "userAgent={} remoteAddress={}",
+                    request.getMethod(), maskPath(request.getRequestURI()),
+                    masked(queryToken(request.getQueryString())), status, durationMillis,
+                    request.getHeader(HttpHeaders.USER_AGENT), request.getRemoteAddr());
+        }
+    }
+
+    /**
+     * Masks the device token of the {@code /v1/{provider}/device/{deviceToken}} paths.
+     */
+    @VisibleForTesting
+    static String maskPath(final String path) {
+        final int index = path.indexOf(DEVICE_PATH_SEGMENT);
+        if (index < 0) {
+            return path;
+        }
+        final int tokenIndex = index + DEVICE_PATH_SEGMENT.length();
+        return path.substring(0, tokenIndex) + maskSensitive(path.substring(tokenIndex));
+    }
+
+    /**
+     * Returns the {@code token} parameter of the {@code /relay} endpoint, from the query string only, so that a
+     * form body is never read.
+     */
+    @Nullable
+    @VisibleForTesting
+    static String queryToken(@Nullable final String queryString) {
+        if (queryString == null) {
+            return null;
+        }
+        final int parameterIndex;
+        if (queryString.startsWith(TOKEN_PARAMETER)) {
+            parameterIndex = 0;
+        } else {
+            final int separatorIndex = queryString.indexOf("&" + TOKEN_PARAMETER);
+            if (separatorIndex < 0) {
+                return null;
+            }
+            parameterIndex = separatorIndex + 1;
+        }
+        final int start = parameterIndex + TOKEN_PARAMETER.length();
+        final int end = queryString.indexOf('&', start);
+        return end < 0 ? queryString.substring(start) : queryString.substring(start, end);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+public class LogMarkers {
+    public static final String SAMPLED_NAME = "SAMPLED";
+    public static final String AUDIT_SAMPLED_NAME = "AUDIT_SAMPLED";
+
+    /**
+     * Marks routine log events of the push hot path, e.g. accepted notifications, which are rate-sampled by the
+     * {@link SamplingTurboFilter}. Failures must not be marked, so that all of them are kept.
+     * <p>
+     * The one exception are the per-request warnings of overload handling, e.g. shed requests or requests past
+     * their deadline. They come in bursts of thousands exactly when the relay is saturated, where writing each of
+     * them would only add to the load, so they are marked and sampled as well. Every such event must be counted by
+     * a metric, which is the complete record; the sampled lines only show what it looks like.
+     */
+    public static final Marker SAMPLED = MarkerFactory.getMarker(SAMPLED_NAME);
+
+    /**
+     * Marks the audit log events of successful requests, which are rate-sampled separately from {@link #SAMPLED}.
+     */
+    public static final Marker AUDIT_SAMPLED = MarkerFactory.getMarker(AUDIT_SAMPLED_NAME);
+
+    private LogMarkers() {
+        throw new AssertionError("This class must not be instantiated");
+    }
+}
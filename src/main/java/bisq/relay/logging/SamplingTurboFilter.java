@@ -0,0 +1,110 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Marker;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets at most {@code ratePerSecond} log events marked with {@code marker} ({@link LogMarkers#SAMPLED} by default)
+ * through per second and drops the rest, before they are formatted or handed to an appender. Events without the
+ * marker are not affected. A negative rate keeps all marked events.
+ * <p>
+ * {@code isXxxEnabled(marker)} returns {@code false} while the current second's samples are used up, so that callers
+ * can skip preparing the arguments of events that would be dropped anyway.
+ */
+public class SamplingTurboFilter extends TurboFilter {
+    private final LongSupplier nanoTime;
+    private final AtomicLong currentSecond = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicInteger eventsInCurrentSecond = new AtomicInteger();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    // A name rather than a Marker: logback configures turbo filters while SLF4J is initializing, and touching
+    // MarkerFactory before SLF4J is ready leaves it without a marker factory for good
+    private String markerName = LogMarkers.SAMPLED_NAME;
+    private int ratePerSecond = 10;
+
+    public SamplingTurboFilter() {
+        this(System::nanoTime);
+    }
+
+    @VisibleForTesting
+    SamplingTurboFilter(final LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+    }
+
+    @Override
+    public FilterReply decide(final Marker marker, final Logger logger, final Level level,
+                              final String format, final Object[] params, final Throwable t) {
+        if (!isStarted() || ratePerSecond < 0 || marker == null || !marker.contains(markerName)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        final int events = eventsInSecond(TimeUnit.NANOSECONDS.toSeconds(nanoTime.getAsLong()));
+        if (format == null) {
+            // An isXxxEnabled() check, which must not use up a sample
+            return events < ratePerSecond ? FilterReply.NEUTRAL : FilterReply.DENY;
+        }
+        if (events < ratePerSecond && eventsInCurrentSecond.incrementAndGet() <= ratePerSecond) {
+            return FilterReply.NEUTRAL;
+        }
+        droppedEvents.incrementAndGet();
+        return FilterReply.DENY;
+    }
+
+    private int eventsInSecond(final long second) {
+        final long previousSecond = currentSecond.get();
+        if (previousSecond != second && currentSecond.compareAndSet(previousSecond, second)) {
+            // Events counted by racing threads in between are lost, which only lets a few more events through
+            eventsInCurrentSecond.set(0);
+        }
+        return eventsInCurrentSecond.get();
+    }
+
+    /**
+     * Number of marked events dropped so far.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    public String getMarker() {
+        return markerName;
+    }
+
+    public void setMarker(final String markerName) {
+        this.markerName = markerName;
+    }
+
+    public int getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public void setRatePerSecond(final int ratePerSecond) {
+        this.ratePerSecond = ratePerSecond;
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.AdmissionProperties;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_ADMISSION_IN_FLIGHT;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_ADMISSION_IN_FLIGHT_BYTES;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_ADMISSION_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ADMITTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_SHED;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+
+/**
+ * Bounds the notifications of one push provider that are in flight, i.e. admitted by the relay and not yet answered
+ * by the gateway, by count and by size.
+ * <p>
+ * Without a bound, a slow gateway makes pending futures and servlet async contexts pile up until the heap is
+ * exhausted. Beyond the budgets, requests are shed immediately and the client is told when to retry: by Little's law,
+ * a full budget drains within one gateway latency, so that is the {@code Retry-After}. The latency is the moving
+ * average of the answered notifications, or the time since the last answer while the gateway does not answer at all.
+ */
+public class PushAdmissionControl {
+    private static final Logger LOG = LoggerFactory.getLogger(PushAdmissionControl.class);
+
+    /**
+     * Admits everything; used where the requests do not come from clients, e.g. during warm-up.
+     */
+    public static final PushAdmissionControl UNLIMITED =
+            new PushAdmissionControl("unlimited", Integer.MAX_VALUE, Long.MAX_VALUE, Duration.ofSeconds(1), null);
+
+    // Weight of a new latency sample in the moving average, as a right shift: 1/8
+    private static final int LATENCY_SMOOTHING_SHIFT = 3;
+
+    private final String providerId;
+    private final int maxInFlight;
+    private final long maxInFlightBytes;
+    private final long maxRetryAfterSeconds;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong averageLatencyNanos = new AtomicLong();
+    private volatile long lastProgressNanos = System.nanoTime();
+
+    @Nullable
+    private final Counter admittedCounter;
+    @Nullable
+    private final Counter shedCounter;
+
+    public PushAdmissionControl(@Nonnull final String providerId,
+                                @Nonnull final AdmissionProperties admissionProperties,
+                                @Nullable final MeterRegistry registry) {
+        this(providerId,
+                admissionProperties.isEnabled() ? admissionProperties.getMaxInFlight() : Integer.MAX_VALUE,
+                admissionProperties.isEnabled() ? admissionProperties.getMaxInFlightBytes().toBytes() : Long.MAX_VALUE,
+                admissionProperties.getMaxRetryAfter(),
+                registry);
+    }
+
+    @VisibleForTesting
+    PushAdmissionControl(final String providerId,
+                         final int maxInFlight,
+                         final long maxInFlightBytes,
+                         final Duration maxRetryAfter,
+                         @Nullable final MeterRegistry registry) {
+        this.providerId = Objects.requireNonNull(providerId);
+        this.maxInFlight = maxInFlight;
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxRetryAfterSeconds = Math.max(1, maxRetryAfter.toSeconds());
+
+        if (registry != null) {
+            this.admittedCounter = Counter.builder(METRIC_PUSH_ADMISSION_TOTAL)
+                    .tag(TAG_PROVIDER, providerId)
+                    .tag(TAG_RESULT, RESULT_ADMITTED)
+                    .register(registry);
+            this.shedCounter = Counter.builder(METRIC_PUSH_ADMISSION_TOTAL)
+                    .tag(TAG_PROVIDER, providerId)
+                    .tag(TAG_RESULT, RESULT_SHED)
+                    .register(registry);
+            Gauge.builder(METRIC_PUSH_ADMISSION_IN_FLIGHT, inFlight, AtomicInteger::get)
+                    .tag(TAG_PROVIDER, providerId)
+                    .register(registry);
+            Gauge.builder(METRIC_PUSH_ADMISSION_IN_FLIGHT_BYTES, inFlightBytes, AtomicLong::get)
+                    .tag(TAG_PROVIDER, providerId)
+                    .register(registry);
+        } else {
+            this.admittedCounter = null;
+            this.shedCounter = null;
+        }
+    }
+
+    /**
+     * Admits a notification if both budgets have room for it. An admitted notification must be
+     * {@link #release released} once it has been answered, whatever the outcome.
+     *
+     * @param bytes the size of the notification, see {@link #sizeOf}
+     * @return {@code true} if the notification was admitted, {@code false} if it has to be shed
+     */
+    public boolean tryAcquire(final long bytes) {
+        // Increment first and back out, so that concurrent callers never exceed the budgets
+        final int admitted = inFlight.incrementAndGet();
+        if (admitted == 1) {
+            // Waiting starts now, not at the last answer before an idle period
+            lastProgressNanos = System.nanoTime();
+        }
+        if (admitted > maxInFlight) {
+            inFlight.decrementAndGet();
+            shed("in flight", bytes);
+            return false;
+        }
+        if (inFlightBytes.addAndGet(bytes) > maxInFlightBytes) {
+            inFlightBytes.addAndGet(-bytes);
+            inFlight.decrementAndGet();
+            shed("in flight bytes", bytes);
+            return false;
+        }
+        if (admittedCounter != null) {
+            admittedCounter.increment();
+        }
+        return true;
+    }
+
+    /**
+     * Releases an admitted notification.
+     *
+     * @param bytes        the size the notification was admitted with
+     * @param latencyNanos the time from admission to the gateway's answer (or the failure)
+     */
+    public void release(final long bytes, final long latencyNanos) {
+        inFlightBytes.addAndGet(-bytes);
+        inFlight.decrementAndGet();
+        lastProgressNanos = System.nanoTime();
+        averageLatencyNanos.accumulateAndGet(latencyNanos, (average, sample) -> average == 0
+                ? sample
+                : average + ((sample - average) >> LATENCY_SMOOTHING_SHIFT));
+    }
+
+    /**
+     * The number of seconds a shed client should wait before retrying, between 1 and the configured maximum.
+     */
+    public long retryAfterSeconds() {
+        long latencyNanos = averageLatencyNanos.get();
+        if (inFlight.get() > 0) {
+            // A gateway that stopped answering has a latency of at least the time since its last answer
+            latencyNanos = Math.max(latencyNanos, System.nanoTime() - lastProgressNanos);
+        }
+        final long seconds = TimeUnit.NANOSECONDS.toSeconds(latencyNanos + TimeUnit.SECONDS.toNanos(1) - 1);
+        return Math.min(Math.max(seconds, 1), maxRetryAfterSeconds);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    /**
+     * The size a notification is accounted with: its device token and encrypted message, which make up most of
+     * what is held while it is in flight. Both are ASCII, so characters are bytes.
+     */
+    public static long sizeOf(@Nonnull final String deviceToken,
+                              @Nonnull final PushNotificationMessage pushNotificationMessage) {
+        final String encrypted = pushNotificationMessage.encrypted();
+        return deviceToken.length() + (encrypted == null ? 0 : encrypted.length());
+    }
+
+    private void shed(final String budget, final long bytes) {
+        if (shedCounter != null) {
+            shedCounter.increment();
+        }
+        // Sampled as an overload warning, see LogMarkers.SAMPLED; the counter above has every shed request
+        if (LOG.isWarnEnabled(SAMPLED)) {
+            LOG.warn(SAMPLED, "Shedding push notification, {} budget exhausted; provider={} inFlight={} "
+                    + "inFlightBytes={} bytes={}", budget, providerId, inFlight.get(), inFlightBytes.get(), bytes);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.BatchProperties;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_BATCH_SIZE;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+
+/**
+ * Holds the background notifications of one push provider for a short window and sends them to the gateway as a
+ * batch, through {@link PushNotificationSender#sendNotifications}. A batch is sent once the window has elapsed since
+ * its first notification, or as soon as it is full.
+ * <p>
+ * Background notifications do not need sub-second delivery, and a batch reaches the gateway as a burst over its
+ * multiplexed connections (or a single {@code sendEach} call for FCM) instead of a steady trickle.
+ * <p>
+ * A notification whose future is completed while it is held, e.g. with a timeout once its deadline passed, is left
+ * out of its batch; one that was sent is cancelled.
+ */
+public class PushBatcher {
+    private static final Logger LOG = LoggerFactory.getLogger(PushBatcher.class);
+
+    private final String providerId;
+    private final PushNotificationSender pushNotificationSender;
+    private final long windowNanos;
+    private final int maxSize;
+    private final ScheduledExecutorService scheduler;
+    @Nullable
+    private final DistributionSummary batchSizeSummary;
+
+    // Guarded by this
+    private List<Held> held;
+    @Nullable
+    private ScheduledFuture<?> scheduledSend;
+    private boolean closed;
+
+    public PushBatcher(@Nonnull final String providerId,
+                       @Nonnull final PushNotificationSender pushNotificationSender,
+                       @Nonnull final BatchProperties batchProperties,
+                       @Nullable final MeterRegistry registry) {
+        this(providerId, pushNotificationSender, batchProperties.getWindow(), batchProperties.getMaxSize(),
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("push-batch-" + providerId)
+                        .setDaemon(true)
+                        .build()),
+                registry);
+    }
+
+    @VisibleForTesting
+    PushBatcher(final String providerId,
+                final PushNotificationSender pushNotificationSender,
+                final Duration window,
+                final int maxSize,
+                final ScheduledExecutorService scheduler,
+                @Nullable final MeterRegistry registry) {
+        this.providerId = Objects.requireNonNull(providerId);
+        this.pushNotificationSender = Objects.requireNonNull(pushNotificationSender);
+        this.windowNanos = window.toNanos();
+        this.maxSize = maxSize;
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.held = new ArrayList<>(maxSize);
+        this.batchSizeSummary = registry == null ? null : DistributionSummary.builder(METRIC_PUSH_BATCH_SIZE)
+                .tag(TAG_PROVIDER, providerId)
+                .register(registry);
+    }
+
+    /**
+     * Holds the notification for the next batch.
+     *
+     * @return a future completed with the result of the notification once its batch has been answered
+     */
+    public CompletableFuture<PushNotificationResult> add(
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final String deviceToken) {
+        final Held notification = new Held(new PushNotification(pushNotificationMessage, deviceToken),
+                new CompletableFuture<>());
+        final List<Held> batch;
+        synchronized (this) {
+            if (closed) {
+                batch = List.of(notification);
+            } else {
+                held.add(notification);
+                if (held.size() >= maxSize) {
+                    batch = takeBatch();
+                } else {
+                    if (held.size() == 1) {
+                        scheduledSend = scheduler.schedule(this::sendHeld, windowNanos, TimeUnit.NANOSECONDS);
+                    }
+                    batch = null;
+                }
+            }
+        }
+        if (batch != null) {
+            send(batch);
+        }
+        return notification.result;
+    }
+
+    /**
+     * Sends the notifications held right now and sends later ones right away; called on shutdown.
+     */
+    public void close() {
+        final List<Held> batch;
+        synchronized (this) {
+            closed = true;
+            batch = takeBatch();
+        }
+        if (!batch.isEmpty()) {
+            LOG.info("Sending held push notifications on shutdown; provider={} count={}", providerId, batch.size());
+            send(batch);
+        }
+        scheduler.shutdownNow();
+    }
+
+    @VisibleForTesting
+    synchronized int getHeld() {
+        return held.size();
+    }
+
+    private void sendHeld() {
+        final List<Held> batch;
+        synchronized (this) {
+            batch = takeBatch();
+        }
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+    }
+
+    // Must hold the lock
+    private List<Held> takeBatch() {
+        if (scheduledSend != null) {
+            // A send that already started finds an empty or a younger batch, which then goes out a bit early
+            scheduledSend.cancel(false);
+            scheduledSend = null;
+        }
+        final List<Held> batch = held;
+        held = new ArrayList<>(maxSize);
+        return batch;
+    }
+
+    private void send(final List<Held> heldBatch) {
+        // Notifications abandoned while held, e.g. past their deadline, are not sent
+        final List<Held> batch = new ArrayList<>(heldBatch.size());
+        for (Held notification : heldBatch) {
+            if (!notification.result.isDone()) {
+                batch.add(notification);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batchSizeSummary != null) {
+            batchSizeSummary.record(batch.size());
+        }
+
+        final List<PushNotification> notifications = new ArrayList<>(batch.size());
+        for (Held notification : batch) {
+            notifications.add(notification.notification);
+        }
+        final List<CompletableFuture<PushNotificationResult>> results;
+        try {
+            results = pushNotificationSender.sendNotifications(notifications);
+        } catch (RuntimeException e) {
+            LOG.error("Failed to send batch of push notifications; provider={} count={} cause={}",
+                    providerId, batch.size(), e.toString());
+            batch.forEach(notification -> notification.result.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            final CompletableFuture<PushNotificationResult> result = batch.get(i).result;
+            cancelWhenAbandoned(result, results.get(i));
+            results.get(i).whenComplete((notificationResult, cause) -> {
+                if (cause != null) {
+                    result.completeExceptionally(cause);
+                } else {
+                    result.complete(notificationResult);
+                }
+            });
+        }
+    }
+
+    private record Held(PushNotification notification, CompletableFuture<PushNotificationResult> result) {
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.DispatchProperties;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_EXPIRED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_QUEUED;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_WAIT_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.PRIORITY_BACKGROUND;
+import static bisq.relay.notification.metrics.PushMetrics.PRIORITY_URGENT;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PRIORITY;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+
+/**
+ * Bounds the notifications of one push provider that have been sent to its gateway and not yet answered, and queues
+ * the rest by priority: urgent notifications are always sent before background ones, and background notifications
+ * never use more than their share of the concurrent sends, so that a burst of them cannot delay urgent ones.
+ * <p>
+ * The queues themselves are bounded by {@link PushAdmissionControl}, which admits requests before they get here.
+ * Queued notifications are sent by the thread that completes an earlier one, usually a gateway client thread.
+ * <p>
+ * The future of a dispatch may be completed by the caller, typically with a timeout once the deadline of the request
+ * passed. If it is still queued then, it is dropped without being sent; if it was sent, the send is cancelled.
+ */
+public class PushDispatcher {
+
+    /**
+     * Sends everything right away; used where the requests do not come from clients, e.g. during warm-up.
+     */
+    public static final PushDispatcher UNLIMITED = new PushDispatcher("unlimited", Integer.MAX_VALUE, 1, null);
+
+    private final int maxConcurrent;
+    private final int maxBackgroundConcurrent;
+
+    // Guarded by this
+    private final ArrayDeque<Dispatch> urgentQueue = new ArrayDeque<>();
+    private final ArrayDeque<Dispatch> backgroundQueue = new ArrayDeque<>();
+    private int concurrent;
+    private int backgroundConcurrent;
+
+    // Lets a single thread at a time send queued notifications, so that sends completing right away do not recurse
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    @Nullable
+    private final Timer urgentWaitTimer;
+    @Nullable
+    private final Timer backgroundWaitTimer;
+    @Nullable
+    private final Counter urgentExpiredCounter;
+    @Nullable
+    private final Counter backgroundExpiredCounter;
+
+    public PushDispatcher(@Nonnull final String providerId,
+                          @Nonnull final DispatchProperties dispatchProperties,
+                          @Nullable final MeterRegistry registry) {
+        this(providerId, dispatchProperties.getMaxConcurrent(), dispatchProperties.getBackgroundShare(), registry);
+    }
+
+    @VisibleForTesting
+    PushDispatcher(final String providerId,
+                   final int maxConcurrent,
+                   final double backgroundShare,
+                   @Nullable final MeterRegistry registry) {
+        Objects.requireNonNull(providerId);
+        this.maxConcurrent = maxConcurrent;
+        this.maxBackgroundConcurrent = (int) Math.max(1, Math.min(maxConcurrent, maxConcurrent * backgroundShare));
+
+        if (registry != null) {
+            this.urgentWaitTimer = waitTimer(providerId, PRIORITY_URGENT, registry);
+            this.backgroundWaitTimer = waitTimer(providerId, PRIORITY_BACKGROUND, registry);
+            this.urgentExpiredCounter = registry.counter(METRIC_PUSH_DISPATCH_EXPIRED_TOTAL,
+                    TAG_PROVIDER, providerId, TAG_PRIORITY, PRIORITY_URGENT);
+            this.backgroundExpiredCounter = registry.counter(METRIC_PUSH_DISPATCH_EXPIRED_TOTAL,
+                    TAG_PROVIDER, providerId, TAG_PRIORITY, PRIORITY_BACKGROUND);
+            Gauge.builder(METRIC_PUSH_DISPATCH_QUEUED, this, dispatcher -> dispatcher.getQueued(true))
+                    .tag(TAG_PROVIDER, providerId)
+                    .tag(TAG_PRIORITY, PRIORITY_URGENT)
+                    .register(registry);
+            Gauge.builder(METRIC_PUSH_DISPATCH_QUEUED, this, dispatcher -> dispatcher.getQueued(false))
+                    .tag(TAG_PROVIDER, providerId)
+                    .tag(TAG_PRIORITY, PRIORITY_BACKGROUND)
+                    .register(registry);
+        } else {
+            this.urgentWaitTimer = null;
+            this.backgroundWaitTimer = null;
+            this.urgentExpiredCounter = null;
+            this.backgroundExpiredCounter = null;
+        }
+    }
+
+    private static Timer waitTimer(final String providerId, final String priority, final MeterRegistry registry) {
+        return Timer.builder(METRIC_PUSH_DISPATCH_WAIT_SECONDS)
+                .tag(TAG_PROVIDER, providerId)
+                .tag(TAG_PRIORITY, priority)
+                .register(registry);
+    }
+
+    /**
+     * Sends the notification once its priority has a free slot, right away unless the provider is saturated.
+     *
+     * @param urgent whether the notification is urgent, see {@link PushNotificationMessage#isUrgent()}
+     * @param send   sends the notification
+     * @return a future completed with the result of {@code send}; a {@code send} that throws fails it. Completing it
+     * first, e.g. with {@link CompletableFuture#orTimeout}, abandons the notification.
+     */
+    public CompletableFuture<PushNotificationResult> dispatch(
+            final boolean urgent,
+            @Nonnull final Supplier<CompletableFuture<PushNotificationResult>> send) {
+        final Dispatch dispatch = new Dispatch(urgent, Objects.requireNonNull(send), System.nanoTime());
+        synchronized (this) {
+            (urgent ? urgentQueue : backgroundQueue).add(dispatch);
+        }
+        drain();
+        return dispatch.result;
+    }
+
+    public synchronized int getConcurrent() {
+        return concurrent;
+    }
+
+    public synchronized int getQueued(final boolean urgent) {
+        return urgent ? urgentQueue.size() : backgroundQueue.size();
+    }
+
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            // The draining thread sees the request when it decrements
+            return;
+        }
+        int requests = 1;
+        do {
+            Dispatch dispatch;
+            while ((dispatch = next()) != null) {
+                send(dispatch);
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    @Nullable
+    private synchronized Dispatch next() {
+        if (concurrent >= maxConcurrent) {
+            return null;
+        }
+        Dispatch dispatch = poll(urgentQueue, urgentExpiredCounter);
+        if (dispatch == null && backgroundConcurrent < maxBackgroundConcurrent) {
+            dispatch = poll(backgroundQueue, backgroundExpiredCounter);
+            if (dispatch != null) {
+                backgroundConcurrent++;
+            }
+        }
+        if (dispatch != null) {
+            concurrent++;
+        }
+        return dispatch;
+    }
+
+    // Must hold the lock
+    @Nullable
+    private static Dispatch poll(final ArrayDeque<Dispatch> queue, @Nullable final Counter expiredCounter) {
+        Dispatch dispatch;
+        while ((dispatch = queue.poll()) != null && dispatch.result.isDone()) {
+            // Abandoned while queued; nobody waits for it anymore
+            if (expiredCounter != null) {
+                expiredCounter.increment();
+            }
+        }
+        return dispatch;
+    }
+
+    private void send(final Dispatch dispatch) {
+        final Timer waitTimer = dispatch.urgent ? urgentWaitTimer : backgroundWaitTimer;
+        if (waitTimer != null) {
+            waitTimer.record(System.nanoTime() - dispatch.queuedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        CompletableFuture<PushNotificationResult> sendFuture;
+        try {
+            sendFuture = dispatch.send.get();
+        } catch (RuntimeException e) {
+            sendFuture = CompletableFuture.failedFuture(e);
+        }
+        cancelWhenAbandoned(dispatch.result, sendFuture);
+        sendFuture.whenComplete((result, cause) -> {
+            // Answer this request before sending the next one on the same thread
+            if (cause != null) {
+                dispatch.result.completeExceptionally(cause);
+            } else {
+                dispatch.result.complete(result);
+            }
+            release(dispatch.urgent);
+        });
+    }
+
+    private void release(final boolean urgent) {
+        final boolean queued;
+        synchronized (this) {
+            concurrent--;
+            if (!urgent) {
+                backgroundConcurrent--;
+            }
+            queued = !urgentQueue.isEmpty() || !backgroundQueue.isEmpty();
+        }
+        if (queued) {
+            drain();
+        }
+    }
+
+    private static final class Dispatch {
+        private final boolean urgent;
+        private final Supplier<CompletableFuture<PushNotificationResult>> send;
+        private final long queuedNanos;
+        private final CompletableFuture<PushNotificationResult> result = new CompletableFuture<>();
+
+        private Dispatch(final boolean urgent,
+                         final Supplier<CompletableFuture<PushNotificationResult>> send,
+                         final long queuedNanos) {
+            this.urgent = urgent;
+            this.send = send;
+            this.queuedNanos = queuedNanos;
+        }
+    }
+}
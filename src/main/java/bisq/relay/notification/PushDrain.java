@@ -0,0 +1,244 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.DrainProperties;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DRAIN_ABANDONED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DRAIN_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_SPOOL_REPLAYED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ACCEPTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_REJECTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_SHED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_TIMEOUT;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+
+/**
+ * Drains the push notifications on shutdown, before the web server shuts down gracefully: the relay stops accepting
+ * requests and reports that it is not ready, held background notifications are sent, and the notifications in
+ * flight get up to {@link DrainProperties#getTimeout()} to be answered. Those left over after that are abandoned and
+ * written to the {@link PushSpool}, and on the next start they are sent again.
+ * <p>
+ * Spooled notifications are delivered at least once: one that the gateway accepted just before it was abandoned is
+ * sent twice, and so are those of a start that crashed before all spooled notifications were answered. Spooled
+ * notifications that are neither accepted nor rejected when they are sent again, e.g. because they timed out, are
+ * spooled again.
+ */
+@Component
+public class PushDrain implements SmartLifecycle {
+    private static final Logger LOG = LoggerFactory.getLogger(PushDrain.class);
+
+    private final ObjectProvider<PushNotificationController> controllers;
+    private final PushSpool spool;
+    private final Duration timeout;
+    private final ApplicationEventPublisher eventPublisher;
+    @Nullable
+    private final MeterRegistry registry;
+    private volatile boolean running;
+
+    @Autowired
+    public PushDrain(@Nonnull final ObjectProvider<PushNotificationController> controllers,
+                     @Nonnull final PushSpool spool,
+                     @Nonnull final DrainProperties drainProperties,
+                     @Nonnull final ApplicationEventPublisher eventPublisher,
+                     @Nonnull final ObjectProvider<MeterRegistry> registryProvider) {
+        this(controllers, spool, drainProperties.getTimeout(), eventPublisher, registryProvider.getIfAvailable());
+    }
+
+    @VisibleForTesting
+    PushDrain(final ObjectProvider<PushNotificationController> controllers,
+              final PushSpool spool,
+              final Duration timeout,
+              final ApplicationEventPublisher eventPublisher,
+              @Nullable final MeterRegistry registry) {
+        this.controllers = Objects.requireNonNull(controllers);
+        this.spool = Objects.requireNonNull(spool);
+        this.timeout = Objects.requireNonNull(timeout);
+        this.eventPublisher = Objects.requireNonNull(eventPublisher);
+        this.registry = registry;
+    }
+
+    /**
+     * Sends the notifications spooled on the last shutdown.
+     */
+    @Override
+    public void start() {
+        running = true;
+        controllers.orderedStream().forEach(this::replay);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        drain();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops before the graceful shutdown of the web server, which then only waits for the responses.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE;
+    }
+
+    private void replay(final PushNotificationController controller) {
+        final String providerId = controller.getProviderId();
+        final PushSpool.Claim claim;
+        try {
+            claim = spool.claim(providerId);
+        } catch (IOException e) {
+            LOG.error("Failed to read spooled push notifications; provider={} error={}", providerId, e.toString());
+            return;
+        }
+        final List<PushNotification> spooled = claim.notifications();
+        if (spooled.isEmpty()) {
+            release(providerId, claim, List.of());
+            return;
+        }
+        LOG.info("Sending push notifications spooled on shutdown; provider={} count={}", providerId, spooled.size());
+        // Neither accepted nor rejected, e.g. shed because a shutdown started in the meantime, timed out or failed;
+        // those abandoned in flight are spooled by the drain
+        final List<PushNotification> unsent = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<?>[] replays = new CompletableFuture<?>[spooled.size()];
+        for (int i = 0; i < spooled.size(); i++) {
+            final PushNotification notification = spooled.get(i);
+            replays[i] = controller.handleRequest(notification.deviceToken(), notification.message())
+                    .thenAccept(responseEntity -> {
+                        if (responseEntity.getStatusCode().is5xxServerError()) {
+                            unsent.add(notification);
+                        }
+                        final String result = replayResult(responseEntity.getStatusCode());
+                        if (registry != null) {
+                            registry.counter(METRIC_PUSH_SPOOL_REPLAYED_TOTAL, TAG_PROVIDER, providerId,
+                                    TAG_RESULT, result).increment();
+                        }
+                    });
+        }
+        // The claimed files are only deleted once every notification in them has been answered
+        CompletableFuture.allOf(replays).whenComplete((ignored, cause) -> release(providerId, claim, unsent));
+    }
+
+    private void release(final String providerId, final PushSpool.Claim claim, final List<PushNotification> unsent) {
+        try {
+            if (!unsent.isEmpty()) {
+                spool.write(providerId, List.copyOf(unsent));
+                LOG.warn("Spooled push notifications not sent on replay; provider={} count={}",
+                        providerId, unsent.size());
+            }
+            spool.release(claim);
+        } catch (IOException e) {
+            // The claimed files are kept, so their notifications are sent again on the next start
+            LOG.error("Failed to release spooled push notifications; provider={} error={}", providerId, e.toString());
+        }
+    }
+
+    private static String replayResult(final HttpStatusCode statusCode) {
+        return switch (statusCode.value()) {
+            case 200 -> RESULT_ACCEPTED;
+            case 400 -> RESULT_REJECTED;
+            case 503 -> RESULT_SHED;
+            case 504 -> RESULT_TIMEOUT;
+            default -> RESULT_ERROR;
+        };
+    }
+
+    private void drain() {
+        final long startNanos = System.nanoTime();
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+
+        final List<PushNotificationController> drained = controllers.orderedStream().toList();
+        final CompletableFuture<?>[] drains = drained.stream()
+                .map(PushNotificationController::drain)
+                .toArray(CompletableFuture<?>[]::new);
+        try {
+            CompletableFuture.allOf(drains).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            // Whatever is still in flight is abandoned below
+        }
+
+        int abandonedCount = 0;
+        for (PushNotificationController controller : drained) {
+            final List<PushNotification> abandoned = controller.abandonInFlight();
+            if (!abandoned.isEmpty()) {
+                abandonedCount += abandoned.size();
+                spool(controller.getProviderId(), abandoned);
+            }
+        }
+
+        final long durationNanos = System.nanoTime() - startNanos;
+        if (registry != null) {
+            registry.timer(METRIC_PUSH_DRAIN_SECONDS).record(durationNanos, TimeUnit.NANOSECONDS);
+        }
+        LOG.info("Drained push notifications; durationMillis={} abandoned={}",
+                TimeUnit.NANOSECONDS.toMillis(durationNanos), abandonedCount);
+    }
+
+    private void spool(final String providerId, final List<PushNotification> abandoned) {
+        if (registry != null) {
+            registry.counter(METRIC_PUSH_DRAIN_ABANDONED_TOTAL, TAG_PROVIDER, providerId).increment(abandoned.size());
+        }
+        if (!spool.isEnabled()) {
+            LOG.warn("Dropping push notifications left over on shutdown; provider={} count={}",
+                    providerId, abandoned.size());
+            return;
+        }
+        try {
+            spool.write(providerId, abandoned);
+            LOG.warn("Spooled push notifications left over on shutdown; provider={} count={}",
+                    providerId, abandoned.size());
+        } catch (IOException e) {
+            LOG.error("Failed to spool push notifications left over on shutdown; provider={} count={} error={}",
+                    providerId, abandoned.size(), e.toString());
+        }
+    }
+}
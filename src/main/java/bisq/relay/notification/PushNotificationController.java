@@ -17,30 +17,135 @@
 
 package bisq.relay.notification;
 
+import bisq.relay.cluster.ClusterRouter;
+import bisq.relay.config.DeadlineProperties;
+import bisq.relay.notification.jfr.PushRequestEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PreDestroy;
 import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.isTimeout;
 
 public abstract class PushNotificationController implements Filter {
     private static final Logger LOG = LoggerFactory.getLogger(PushNotificationController.class);
 
+    /**
+     * Request header with the deadline a client asks for, e.g. {@code 5s} or {@code 5000} (milliseconds).
+     */
+    public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private final String providerId;
     private final PushNotificationSender pushNotificationSender;
     private final ObjectMapper objectMapper;
+    private final PushAdmissionControl admissionControl;
+    private final PushDispatcher dispatcher;
+    @Nullable
+    private final PushBatcher batcher;
+    @Nullable
+    private final DeadlineProperties deadlineProperties;
+    @Nullable
+    private final ClusterRouter clusterRouter;
+
+    // The notifications of the requests admitted and not answered yet, by the future of their dispatch
+    private final Map<CompletableFuture<PushNotificationResult>, PushNotification> inFlight =
+            new ConcurrentHashMap<>();
+    private volatile boolean draining;
 
-    protected PushNotificationController(@Nonnull final PushNotificationSender pushNotificationSender,
+    /**
+     * Creates a controller that admits and sends every request right away; see {@link PushAdmissionControl#UNLIMITED}
+     * and {@link PushDispatcher#UNLIMITED}. Nothing is batched, requests have no deadline, and they are not routed
+     * to other cluster members.
+     */
+    protected PushNotificationController(@Nonnull final String providerId,
+                                         @Nonnull final PushNotificationSender pushNotificationSender,
                                          @Nonnull final ObjectMapper objectMapper) {
+        this(providerId, pushNotificationSender, objectMapper, PushAdmissionControl.UNLIMITED,
+                PushDispatcher.UNLIMITED, null, null, null);
+    }
+
+    protected PushNotificationController(@Nonnull final String providerId,
+                                         @Nonnull final PushNotificationSender pushNotificationSender,
+                                         @Nonnull final ObjectMapper objectMapper,
+                                         @Nonnull final PushAdmissionControl admissionControl,
+                                         @Nonnull final PushDispatcher dispatcher,
+                                         @Nullable final PushBatcher batcher,
+                                         @Nullable final DeadlineProperties deadlineProperties,
+                                         @Nullable final ClusterRouter clusterRouter) {
+        this.providerId = Objects.requireNonNull(providerId);
         this.pushNotificationSender = Objects.requireNonNull(pushNotificationSender);
         this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.admissionControl = Objects.requireNonNull(admissionControl);
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.batcher = batcher;
+        this.deadlineProperties = deadlineProperties;
+        this.clusterRouter = clusterRouter;
+    }
+
+    @PreDestroy
+    public void closeBatcher() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    public String getProviderId() {
+        return providerId;
+    }
+
+    /**
+     * Starts draining the controller on shutdown: from now on requests are answered with
+     * {@code 503 Service Unavailable} and a {@code Retry-After}, and held background notifications are sent right
+     * away.
+     *
+     * @return a future completed once every request admitted before has been answered
+     */
+    public CompletableFuture<Void> drain() {
+        draining = true;
+        closeBatcher();
+        return CompletableFuture.allOf(inFlight.keySet().stream()
+                .map(dispatched -> dispatched.handle((notificationResult, cause) -> null))
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * Answers the requests that are still in flight with {@code 202 Accepted} and abandons their notifications,
+     * which are returned so that they can be sent later; called once draining took too long.
+     */
+    public List<PushNotification> abandonInFlight() {
+        final List<PushNotification> abandoned = new ArrayList<>();
+        inFlight.forEach((dispatched, notification) -> {
+            // Loses against a result that arrives at the same time, and then the notification was answered
+            if (dispatched.completeExceptionally(new AbandonedOnShutdownException())) {
+                abandoned.add(notification);
+            }
+        });
+        return abandoned;
     }
 
     @Override
@@ -51,28 +156,186 @@ public abstract class PushNotificationController implements Filter {
         chain.doFilter(request, response);
     }
 
-    // TODO implement rate limiting, can use resilience4j
-    //  Ref: https://www.baeldung.com/spring-boot-resilience4j
+    /**
+     * Handles the request of a push endpoint. In cluster mode it is forwarded to the member owning the device token,
+     * see {@link ClusterRouter}, unless it was forwarded here by another member; otherwise it is handled here by
+     * {@link #handleRequest(String, PushNotificationMessage, Duration)}. Cancelling the returned future cancels the
+     * notification, or its forwarding to the owner.
+     */
+    protected CompletableFuture<ResponseEntity<String>> routeRequest(
+            @Nonnull final String deviceToken,
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final HttpServletRequest httpRequest) {
+        final Duration requestTimeout = requestTimeout(httpRequest);
+        if (clusterRouter == null || httpRequest.getHeader(ClusterRouter.FORWARDED_BY_HEADER) != null) {
+            return handleRequest(deviceToken, pushNotificationMessage, requestTimeout);
+        }
+        return clusterRouter.route(providerId, deviceToken, pushNotificationMessage, timeout(requestTimeout),
+                () -> handleRequest(deviceToken, pushNotificationMessage, requestTimeout));
+    }
+
+    /**
+     * Answers an endpoint with the result of {@code future}, like returning it would, except that {@code future} is
+     * cancelled if the client disconnects or the async request times out before it completes. Spring MVC never
+     * cancels a returned {@link CompletableFuture}, so without this a disconnect is only bounded by the deadline.
+     */
+    public static <T> DeferredResult<T> cancelledOnDisconnect(@Nonnull final CompletableFuture<T> future) {
+        final DeferredResult<T> deferredResult = new DeferredResult<>();
+        // Does nothing once the future completed
+        deferredResult.onError(cause -> future.cancel(true));
+        deferredResult.onCompletion(() -> future.cancel(true));
+        future.whenComplete((result, cause) -> {
+            if (cause == null) {
+                deferredResult.setResult(result);
+            } else {
+                deferredResult.setErrorResult(cause instanceof CompletionException && cause.getCause() != null
+                        ? cause.getCause()
+                        : cause);
+            }
+        });
+        return deferredResult;
+    }
+
+    /**
+     * Same as {@link #handleRequest(String, PushNotificationMessage, Duration)} with the default deadline.
+     */
     public CompletableFuture<ResponseEntity<String>> handleRequest(
             @Nonnull final String deviceToken,
             @Nonnull final PushNotificationMessage pushNotificationMessage) {
+        return handleRequest(deviceToken, pushNotificationMessage, null);
+    }
+
+    /**
+     * Sends the notification, unless the provider's admission budgets are exhausted, in which case the request is
+     * answered right away with {@code 503 Service Unavailable} and a {@code Retry-After}. Admitted notifications
+     * are sent through the provider's {@link PushDispatcher}, urgent ones first, and background ones are held for the
+     * {@link PushBatcher} if batching is enabled.
+     * <p>
+     * A request that is not answered by its deadline is answered with {@code 504 Gateway Timeout}, and its
+     * notification is abandoned: not sent if it is still queued or held, cancelled if it was sent. Cancelling the
+     * returned future abandons the notification the same way.
+     * <p>
+     * On shutdown, see {@link PushDrain}, new requests are answered with {@code 503 Service Unavailable}, and requests
+     * still in flight once draining took too long with {@code 202 Accepted}, as their notifications are sent after the
+     * restart.
+     *
+     * @param requestTimeout the deadline the client asked for, capped by {@link DeadlineProperties#getMaxTimeout()};
+     *                       {@code null} for the default
+     */
+    public CompletableFuture<ResponseEntity<String>> handleRequest(
+            @Nonnull final String deviceToken,
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nullable final Duration requestTimeout) {
         Objects.requireNonNull(deviceToken);
         Objects.requireNonNull(pushNotificationMessage);
 
-        return pushNotificationSender.sendNotification(pushNotificationMessage, deviceToken)
+        final PushRequestEvent requestEvent = new PushRequestEvent();
+        requestEvent.begin();
+
+        final long bytes = PushAdmissionControl.sizeOf(deviceToken, pushNotificationMessage);
+        if (draining || !admissionControl.tryAcquire(bytes)) {
+            final ResponseEntity<String> responseEntity = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(admissionControl.retryAfterSeconds()))
+                    .body("");
+            requestEvent.complete(providerId, deviceToken, null, null, responseEntity.getStatusCode().value());
+            return CompletableFuture.completedFuture(responseEntity);
+        }
+
+        final long admittedNanos = System.nanoTime();
+        final boolean urgent = pushNotificationMessage.isUrgent();
+        final CompletableFuture<PushNotificationResult> dispatched = dispatcher.dispatch(urgent,
+                urgent || batcher == null
+                        ? () -> pushNotificationSender.sendNotification(pushNotificationMessage, deviceToken)
+                        : () -> batcher.add(pushNotificationMessage, deviceToken));
+        final Duration timeout = timeout(requestTimeout);
+        if (timeout != null) {
+            // Completing the dispatch abandons the notification, see PushDispatcher#dispatch
+            dispatched.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        inFlight.put(dispatched, new PushNotification(pushNotificationMessage, deviceToken));
+        final CompletableFuture<ResponseEntity<String>> response = dispatched
+                .whenComplete((notificationResult, cause) -> {
+                    inFlight.remove(dispatched);
+                    admissionControl.release(bytes, System.nanoTime() - admittedNanos);
+                })
                 .thenApply(notificationResult -> {
-                    final String body;
-                    try {
-                        body = objectMapper.writeValueAsString(notificationResult);
-                    } catch (JsonProcessingException e) {
-                        LOG.error("Unable to serialize notification result; {}\n{}", e.getMessage(), notificationResult);
-                        return ResponseEntity.internalServerError().body("");
-                    }
-                    if (notificationResult.wasAccepted()) {
-                        return ResponseEntity.ok().body(body);
-                    }
-                    return ResponseEntity.badRequest().body(body);
+                    final long respondStartNanos = System.nanoTime();
+                    final ResponseEntity<String> responseEntity = toResponseEntity(notificationResult);
+                    pushNotificationSender.stageCompleted(PushStage.RESPOND, System.nanoTime() - respondStartNanos);
+                    requestEvent.complete(providerId, deviceToken, notificationResult, null,
+                            responseEntity.getStatusCode().value());
+                    return responseEntity;
                 })
-                .exceptionally(cause -> ResponseEntity.internalServerError().body(""));
+                .exceptionally(cause -> {
+                    final ResponseEntity<String> responseEntity;
+                    if (cause instanceof CompletionException
+                            && cause.getCause() instanceof AbandonedOnShutdownException) {
+                        // Will be sent after the restart
+                        responseEntity = ResponseEntity.accepted().body("");
+                    } else if (isTimeout(cause)) {
+                        LOG.warn(SAMPLED, "Push notification not answered in time; provider={} urgent={}",
+                                providerId, urgent);
+                        responseEntity = ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("");
+                    } else {
+                        responseEntity = ResponseEntity.internalServerError().body("");
+                    }
+                    requestEvent.complete(providerId, deviceToken, null, cause, responseEntity.getStatusCode().value());
+                    return responseEntity;
+                });
+        cancelWhenAbandoned(response, dispatched);
+        return response;
+    }
+
+    /**
+     * Reads the deadline a client asked for from the {@link #REQUEST_TIMEOUT_HEADER}.
+     *
+     * @return the deadline, or {@code null} if the header is missing or not a positive duration
+     */
+    @Nullable
+    protected static Duration requestTimeout(@Nonnull final HttpServletRequest httpRequest) {
+        final String value = httpRequest.getHeader(REQUEST_TIMEOUT_HEADER);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            final Duration requestTimeout = DurationStyle.detectAndParse(value.trim());
+            return requestTimeout.isNegative() || requestTimeout.isZero() ? null : requestTimeout;
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Ignoring invalid request timeout; value={}", value);
+            return null;
+        }
+    }
+
+    @Nullable
+    private Duration timeout(@Nullable final Duration requestTimeout) {
+        if (deadlineProperties == null) {
+            return null;
+        }
+        if (requestTimeout == null) {
+            return deadlineProperties.getDefaultTimeout();
+        }
+        return requestTimeout.compareTo(deadlineProperties.getMaxTimeout()) > 0
+                ? deadlineProperties.getMaxTimeout()
+                : requestTimeout;
+    }
+
+    private static final class AbandonedOnShutdownException extends RuntimeException {
+        private AbandonedOnShutdownException() {
+            super("Abandoned on shutdown", null, false, false);
+        }
+    }
+
+    private ResponseEntity<String> toResponseEntity(final PushNotificationResult notificationResult) {
+        final String body;
+        try {
+            body = objectMapper.writeValueAsString(notificationResult);
+        } catch (JsonProcessingException e) {
+            LOG.error("Unable to serialize notification result; {}\n{}", e.getMessage(), notificationResult);
+            return ResponseEntity.internalServerError().body("");
+        }
+        if (notificationResult.wasAccepted()) {
+            return ResponseEntity.ok().body(body);
+        }
+        return ResponseEntity.badRequest().body(body);
     }
 }
@@ -17,8 +17,74 @@
 
 package bisq.relay.notification;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
+/**
+ * Sends push notifications to a provider's gateway. Cancelling a returned future abandons that send: the sender stops
+ * waiting for the gateway and cancels the gateway request if it can, e.g. once the deadline of the request passed.
+ */
 public interface PushNotificationSender {
     CompletableFuture<PushNotificationResult> sendNotification(PushNotificationMessage pushNotificationMessage, String deviceToken);
+
+    /**
+     * Same as {@link #sendNotification(PushNotificationMessage, String)}, and reports the duration of each
+     * {@link PushStage} the sender goes through to the given listener.
+     */
+    default CompletableFuture<PushNotificationResult> sendNotification(
+            final PushNotificationMessage pushNotificationMessage,
+            final String deviceToken,
+            final PushStageListener stageListener) {
+        return sendNotification(pushNotificationMessage, deviceToken);
+    }
+
+    /**
+     * Sends several notifications at once, e.g. a batch of background notifications. By default they are sent one
+     * by one, which for the HTTP/2 gateways means a burst of streams over the same connections.
+     *
+     * @return one future per notification, in the same order
+     */
+    default List<CompletableFuture<PushNotificationResult>> sendNotifications(
+            final List<PushNotification> notifications) {
+        return sendNotifications(notifications, PushStageListener.NOOP);
+    }
+
+    /**
+     * Same as {@link #sendNotifications(List)}, and reports the duration of each {@link PushStage} of each
+     * notification to the given listener.
+     */
+    default List<CompletableFuture<PushNotificationResult>> sendNotifications(
+            final List<PushNotification> notifications,
+            final PushStageListener stageListener) {
+        final List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>(notifications.size());
+        for (PushNotification notification : notifications) {
+            CompletableFuture<PushNotificationResult> result;
+            try {
+                result = sendNotification(notification.message(), notification.deviceToken(), stageListener);
+            } catch (RuntimeException e) {
+                // Fail this notification only, the rest of the batch is still sent
+                result = CompletableFuture.failedFuture(e);
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Reports the duration of a {@link PushStage} that ran outside of the sender, such as writing the response.
+     * Ignored unless the sender records metrics.
+     */
+    default void stageCompleted(final PushStage stage, final long durationNanos) {
+    }
+
+    /**
+     * Establishes the connections to the push gateway ahead of the first real send, without delivering anything to
+     * a device. Called once by {@link PushWarmUp} before the relay reports ready.
+     *
+     * @return a future completed once the gateway has answered, whatever the answer was
+     */
+    default CompletableFuture<Void> warmUpConnections() {
+        return CompletableFuture.completedFuture(null);
+    }
 }
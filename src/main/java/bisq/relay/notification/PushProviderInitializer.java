@@ -0,0 +1,104 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the blocking start-up work of the push providers (loading certificates and credentials, building clients,
+ * optional connection checks) in the background and in parallel, instead of inside the Spring bean constructors.
+ * <p>
+ * Senders register their initialization here and keep the returned future; sends issued before it completes are
+ * chained onto it. {@link PushProvidersHealthIndicator} reports the state of all registered initializations so
+ * that the readiness probe stays down until every enabled provider is usable.
+ */
+@Component
+public class PushProviderInitializer {
+    private static final Logger LOG = LoggerFactory.getLogger(PushProviderInitializer.class);
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("push-provider-init-%d")
+            .setDaemon(true)
+            .build());
+    private final Map<String, CompletableFuture<?>> initializations = new ConcurrentHashMap<>();
+
+    /**
+     * Starts initializing a provider in the background.
+     *
+     * @param providerId     provider id (e.g., {@code apns}, {@code fcm}), used for logging and health details
+     * @param initialization the blocking initialization work, returning the initialized client
+     * @return a future completed with the initialized client, or exceptionally if initialization failed
+     */
+    public <T> CompletableFuture<T> initialize(
+            @Nonnull final String providerId,
+            @Nonnull final Callable<T> initialization) {
+        Objects.requireNonNull(providerId);
+        Objects.requireNonNull(initialization);
+
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<T> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                return initialization.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+
+        future.whenComplete((client, cause) -> {
+            final long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (cause == null) {
+                LOG.info("Push provider initialized; provider={}, durationMillis={}", providerId, durationMillis);
+            } else {
+                final Throwable failure = cause instanceof CompletionException && cause.getCause() != null
+                        ? cause.getCause()
+                        : cause;
+                LOG.error("Push provider initialization failed; provider={}, error={}", providerId, failure.toString());
+            }
+        });
+
+        initializations.put(providerId, future);
+        return future;
+    }
+
+    /**
+     * @return the initializations registered so far, keyed by provider id
+     */
+    public Map<String, CompletableFuture<?>> getInitializations() {
+        return Map.copyOf(initializations);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Health of the push provider clients, exposed as {@code pushProviders} and included in the readiness group.
+ * <p>
+ * Reports {@code OUT_OF_SERVICE} while any enabled provider is still initializing and {@code DOWN} if any provider
+ * failed to initialize, so that no traffic is routed to an instance with a half-initialized client.
+ */
+@Component
+public class PushProvidersHealthIndicator implements HealthIndicator {
+    static final String STATE_INITIALIZING = "initializing";
+    static final String STATE_READY = "ready";
+    static final String STATE_FAILED = "failed";
+
+    private final PushProviderInitializer pushProviderInitializer;
+
+    public PushProvidersHealthIndicator(final PushProviderInitializer pushProviderInitializer) {
+        this.pushProviderInitializer = Objects.requireNonNull(pushProviderInitializer);
+    }
+
+    @Override
+    public Health health() {
+        Status status = Status.UP;
+        final Map<String, String> details = new TreeMap<>();
+
+        for (Map.Entry<String, CompletableFuture<?>> entry : pushProviderInitializer.getInitializations().entrySet()) {
+            final CompletableFuture<?> initialization = entry.getValue();
+            if (!initialization.isDone()) {
+                details.put(entry.getKey(), STATE_INITIALIZING);
+                if (status == Status.UP) {
+                    status = Status.OUT_OF_SERVICE;
+                }
+            } else if (initialization.isCompletedExceptionally()) {
+                details.put(entry.getKey(), STATE_FAILED);
+                status = Status.DOWN;
+            } else {
+                details.put(entry.getKey(), STATE_READY);
+            }
+        }
+
+        return Health.status(status).withDetails(details).build();
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.DrainProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.annotations.VisibleForTesting;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the push notifications left over on shutdown on disk, so that they are sent after the restart.
+ * <p>
+ * Every shutdown writes one file per provider, with a JSON line per notification. A file is written under a temporary
+ * name and then renamed, so that a crash while writing it leaves nothing half-written behind to be sent. On start, the
+ * files are {@link #claim claimed}, renamed once more while their notifications are sent, and only deleted once that
+ * is done, so that a crash in between sends them again on the next start. The messages
+ * are encrypted by the clients, but the device tokens are not, so the files are readable by their owner only where
+ * the file system supports that.
+ */
+@Component
+public class PushSpool {
+    private static final Logger LOG = LoggerFactory.getLogger(PushSpool.class);
+    private static final String FILE_SUFFIX = ".jsonl";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final String CLAIMED_FILE_SUFFIX = ".claimed";
+
+    @Nullable
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public PushSpool(@Nonnull final DrainProperties drainProperties, @Nonnull final ObjectMapper objectMapper) {
+        this(StringUtils.hasText(drainProperties.getSpoolDirectory())
+                ? Path.of(drainProperties.getSpoolDirectory())
+                : null, objectMapper);
+    }
+
+    @VisibleForTesting
+    PushSpool(@Nullable final Path directory, final ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+    }
+
+    /**
+     * @return whether a spool directory is configured; without one, notifications left over on shutdown are dropped
+     */
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Writes the notifications of a provider to a new file in the spool directory; does nothing if spooling is
+     * disabled.
+     */
+    public void write(@Nonnull final String providerId,
+                      @Nonnull final List<PushNotification> notifications) throws IOException {
+        if (directory == null || notifications.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory);
+        final Path file = directory.resolve(providerId + "-" + System.currentTimeMillis() + FILE_SUFFIX);
+        final Path tempFile = directory.resolve(file.getFileName() + TEMP_FILE_SUFFIX);
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            restrictToOwner(tempFile);
+            for (PushNotification notification : notifications) {
+                writer.write(objectMapper.writeValueAsString(notification));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Claims the files of a provider in the spool directory, oldest first, and reads them. The files are renamed, so
+     * that the notifications left over by a shutdown during their replay go to a new file, and are kept until the
+     * claim is {@link #release released}. Files claimed by an earlier run that never released them, e.g. because it
+     * crashed, are claimed again. Lines that cannot be read are skipped.
+     *
+     * @return the claim on the notifications spooled for the provider
+     */
+    public Claim claim(@Nonnull final String providerId) throws IOException {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return new Claim(List.of(), List.of());
+        }
+        final List<Path> spooledFiles;
+        try (Stream<Path> paths = Files.list(directory)) {
+            spooledFiles = paths.filter(path -> {
+                        final String fileName = path.getFileName().toString();
+                        return fileName.startsWith(providerId + "-")
+                                && (fileName.endsWith(FILE_SUFFIX)
+                                || fileName.endsWith(FILE_SUFFIX + CLAIMED_FILE_SUFFIX));
+                    })
+                    .sorted()
+                    .toList();
+        }
+        final List<Path> files = new ArrayList<>(spooledFiles.size());
+        final List<PushNotification> notifications = new ArrayList<>();
+        for (Path spooledFile : spooledFiles) {
+            final Path file;
+            if (spooledFile.getFileName().toString().endsWith(CLAIMED_FILE_SUFFIX)) {
+                file = spooledFile;
+            } else {
+                file = spooledFile.resolveSibling(spooledFile.getFileName() + CLAIMED_FILE_SUFFIX);
+                Files.move(spooledFile, file, StandardCopyOption.ATOMIC_MOVE);
+            }
+            files.add(file);
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    notifications.add(objectMapper.readValue(line, PushNotification.class));
+                } catch (JsonProcessingException e) {
+                    LOG.warn("Skipping unreadable spooled push notification; file={} error={}", file, e.getMessage());
+                }
+            }
+        }
+        return new Claim(notifications, files);
+    }
+
+    /**
+     * Deletes the files of a claim, once its notifications have been sent or spooled again.
+     */
+    public void release(@Nonnull final Claim claim) throws IOException {
+        for (Path file : claim.files()) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void restrictToOwner(final Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system
+        }
+    }
+
+    /**
+     * The notifications read from the claimed files of a provider.
+     */
+    public record Claim(List<PushNotification> notifications, List<Path> files) {
+    }
+}
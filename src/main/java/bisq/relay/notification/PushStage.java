@@ -0,0 +1,56 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+
+/**
+ * The stages a push goes through, recorded as {@code push_stage_latency_seconds{provider,stage}}.
+ */
+public enum PushStage {
+    /**
+     * Building and serializing the provider payload.
+     */
+    BUILD(STAGE_BUILD),
+    /**
+     * Waiting for the provider client, e.g. while it is still being initialized.
+     */
+    WAIT(STAGE_WAIT),
+    /**
+     * From handing the request to the provider client until the gateway answered. Includes waiting for a
+     * connection or stream inside the client, which the client libraries do not report separately.
+     */
+    GATEWAY(STAGE_GATEWAY),
+    /**
+     * Serializing the result into the HTTP response.
+     */
+    RESPOND(STAGE_RESPOND);
+
+    private final String tag;
+
+    PushStage(final String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return the value of the {@code stage} tag
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import bisq.relay.config.WarmUpProperties;
+import bisq.relay.notification.apns.ApnsPushNotificationBuilder;
+import bisq.relay.notification.fcm.FcmPushNotificationBuilder;
+import bisq.relay.notification.metrics.MetricsPushNotificationSender;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.firebase.messaging.Message;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+
+/**
+ * Warms up the relay after a (re)start, before it reports ready.
+ * <p>
+ * First the push gateway connections are established through
+ * {@link PushNotificationSender#warmUpConnections()}, which also fetches the FCM access token. Then synthetic
+ * requests are run through request parsing, {@link PushNotificationController},
+ * {@link MetricsPushNotificationSender}, the message builders and the serializers, so that the request path is
+ * JIT compiled before the first real push. The synthetic requests go to throwaway controllers whose senders
+ * complete locally, so they never reach a device and are recorded in a throwaway meter registry.
+ * <p>
+ * The warm-up is registered with {@link PushProviderInitializer}, so readiness only flips once it completed.
+ * It is best effort: failures and gateway timeouts are logged, but do not keep the relay from becoming ready.
+ */
+@Component
+public class PushWarmUp implements SmartInitializingSingleton {
+    private static final Logger LOG = LoggerFactory.getLogger(PushWarmUp.class);
+
+    public static final String INITIALIZATION_ID = "warmUp";
+
+    private static final String APNS_DEVICE_TOKEN = "0".repeat(64);
+    private static final String APNS_TOPIC = "bisq.relay.warmup";
+    private static final String FCM_DEVICE_TOKEN = "warm-up";
+    private static final List<String> REQUEST_BODIES = List.of(
+            "{\"encrypted\":\"warm-up\",\"isUrgent\":true,\"isMutableContent\":true}",
+            "{\"encrypted\":\"warm-up\",\"isUrgent\":false}");
+
+    private final WarmUpProperties warmUpProperties;
+    private final PushProviderInitializer pushProviderInitializer;
+    private final List<PushNotificationSender> pushNotificationSenders;
+    private final ObjectMapper objectMapper;
+    private final ApnsPushNotificationBuilder apnsPushNotificationBuilder;
+    private final FcmPushNotificationBuilder fcmPushNotificationBuilder;
+    // Set by the warm-up loop before each iteration and read by the stand-in sends, which it waits for
+    private volatile boolean acceptSends;
+
+    public PushWarmUp(
+            final WarmUpProperties warmUpProperties,
+            final PushProviderInitializer pushProviderInitializer,
+            final List<PushNotificationSender> pushNotificationSenders,
+            final ObjectMapper objectMapper,
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder,
+            final ObjectProvider<FcmPushNotificationBuilder> fcmPushNotificationBuilder) {
+        this.warmUpProperties = Objects.requireNonNull(warmUpProperties);
+        this.pushProviderInitializer = Objects.requireNonNull(pushProviderInitializer);
+        this.pushNotificationSenders = List.copyOf(pushNotificationSenders);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+        this.apnsPushNotificationBuilder = Objects.requireNonNull(apnsPushNotificationBuilder);
+        this.fcmPushNotificationBuilder = fcmPushNotificationBuilder.getIfAvailable();
+    }
+
+    /**
+     * Starts the warm-up once all singletons, and with them all push providers, have been created.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!warmUpProperties.isEnabled()) {
+            LOG.info("Warm-up is disabled");
+            return;
+        }
+
+        final Map<String, CompletableFuture<?>> providerInitializations = pushProviderInitializer.getInitializations();
+        pushProviderInitializer.initialize(INITIALIZATION_ID, () -> {
+            // Only failed initializations surface here, and those are already reported by the health indicator
+            CompletableFuture.allOf(providerInitializations.values().toArray(CompletableFuture[]::new))
+                    .handle((result, cause) -> null)
+                    .join();
+            warmUp();
+            return null;
+        });
+    }
+
+    private void warmUp() {
+        if (warmUpProperties.isConnections()) {
+            final long startNanos = System.nanoTime();
+            try {
+                CompletableFuture.allOf(pushNotificationSenders.stream()
+                                .map(PushNotificationSender::warmUpConnections)
+                                .toArray(CompletableFuture[]::new))
+                        .orTimeout(warmUpProperties.getTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                        .join();
+                LOG.info("Push gateway connections warmed up; durationMillis={}",
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            } catch (RuntimeException e) {
+                LOG.warn("Push gateway connections could not be warmed up, continuing; error={}", e.toString());
+            }
+        }
+
+        final long startNanos = System.nanoTime();
+        try {
+            warmUpRequestPath(warmUpProperties.getIterations());
+            LOG.info("Request path warmed up; iterations={}, durationMillis={}", warmUpProperties.getIterations(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        } catch (RuntimeException e) {
+            LOG.warn("Request path could not be warmed up, continuing; error={}", e.toString());
+        }
+    }
+
+    private void warmUpRequestPath(final int iterations) {
+        // Keep the synthetic requests out of the exported metrics
+        warmUpRequestPath(iterations, new SimpleMeterRegistry());
+    }
+
+    @VisibleForTesting
+    void warmUpRequestPath(final int iterations, final MeterRegistry registry) {
+        final ObjectProvider<MeterRegistry> registryProvider =
+                new StaticListableBeanFactory(Map.of("warmUpMeterRegistry", registry))
+                        .getBeanProvider(MeterRegistry.class);
+
+        final List<WarmUpController> controllers = new ArrayList<>();
+        controllers.add(new WarmUpController(PROVIDER_ID_APNS, new MetricsPushNotificationSender(PROVIDER_ID_APNS,
+                this::buildApnsPushNotification, registryProvider), objectMapper, APNS_DEVICE_TOKEN));
+        if (fcmPushNotificationBuilder != null) {
+            controllers.add(new WarmUpController(PROVIDER_ID_FCM, new MetricsPushNotificationSender(PROVIDER_ID_FCM,
+                    this::buildFcmMessage, registryProvider), objectMapper, FCM_DEVICE_TOKEN));
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            final PushNotificationMessage pushNotificationMessage = parse(REQUEST_BODIES.get(i % REQUEST_BODIES.size()));
+            // Every request body is answered both ways in turn, by every provider
+            acceptSends = (i / REQUEST_BODIES.size()) % 2 == 0;
+            for (WarmUpController controller : controllers) {
+                controller.handleRequest(controller.deviceToken, pushNotificationMessage).join();
+            }
+        }
+    }
+
+    private PushNotificationMessage parse(final String requestBody) {
+        try {
+            return objectMapper.readValue(requestBody, PushNotificationMessage.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<PushNotificationResult> buildApnsPushNotification(
+            final PushNotificationMessage pushNotificationMessage,
+            final String deviceToken) {
+        apnsPushNotificationBuilder.buildPushNotification(pushNotificationMessage, deviceToken, APNS_TOPIC);
+        return CompletableFuture.completedFuture(result("BadDeviceToken"));
+    }
+
+    private CompletableFuture<PushNotificationResult> buildFcmMessage(
+            final PushNotificationMessage pushNotificationMessage,
+            final String deviceToken) {
+        final Message message = fcmPushNotificationBuilder.buildMessage(pushNotificationMessage, deviceToken);
+        try {
+            // Serialized like the SDK does it on send, the string itself is not needed
+            GsonFactory.getDefaultInstance().toString(message);
+            return CompletableFuture.completedFuture(result("UNREGISTERED"));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Accepted or rejected as set by the warm-up loop, which alternates both per request body, so that every
+     * provider exercises both response paths equally often.
+     */
+    private PushNotificationResult result(final String errorCode) {
+        return acceptSends
+                ? new PushNotificationResult(true, null, null, false)
+                : new PushNotificationResult(false, errorCode, "warm-up", true);
+    }
+
+    private static final class WarmUpController extends PushNotificationController {
+        private final String deviceToken;
+
+        private WarmUpController(final String providerId,
+                                 final PushNotificationSender pushNotificationSender,
+                                 final ObjectMapper objectMapper,
+                                 final String deviceToken) {
+            super(providerId, pushNotificationSender, objectMapper);
+            this.deviceToken = deviceToken;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.apns;
+
+import bisq.relay.config.ApnsProperties;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides the Netty event loop group shared by all APNs clients.
+ * <p>
+ * Pushy would otherwise create a single-threaded NIO group per client. Creating the group here lets the
+ * transport (NIO or native epoll) and the number of I/O threads be configured via {@link ApnsProperties}.
+ * The group is shut down by Spring after the clients that depend on it have been closed.
+ */
+@Configuration
+public class ApnsEventLoopConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger(ApnsEventLoopConfiguration.class);
+
+    @Bean(destroyMethod = "shutdownGracefully")
+    public EventLoopGroup apnsEventLoopGroup(final ApnsProperties apnsProperties) {
+        final EventLoopGroup eventLoopGroup =
+                createEventLoopGroup(apnsProperties.getTransport(), apnsProperties.getEventLoopThreads());
+        LOG.info("Created APNs event loop group; transport={} threads={}",
+                eventLoopGroup instanceof EpollEventLoopGroup ? "epoll" : "nio",
+                apnsProperties.getEventLoopThreads());
+        return eventLoopGroup;
+    }
+
+    /**
+     * Creates an event loop group for the given transport.
+     *
+     * @param transport the requested transport; {@link ApnsProperties.Transport#AUTO} selects epoll when available
+     * @param threads   the number of event loop threads
+     * @return a new event loop group that the caller is responsible for shutting down
+     * @throws IllegalStateException if epoll was explicitly requested but is not available on this platform
+     */
+    public static EventLoopGroup createEventLoopGroup(@Nonnull final ApnsProperties.Transport transport,
+                                                      final int threads) {
+        Objects.requireNonNull(transport);
+
+        final ThreadFactory threadFactory = new DefaultThreadFactory("apns-event-loop", true);
+
+        return switch (transport) {
+            case NIO -> new NioEventLoopGroup(threads, threadFactory);
+            case EPOLL -> {
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException("APNs transport 'epoll' was requested but is not available",
+                            Epoll.unavailabilityCause());
+                }
+                yield new EpollEventLoopGroup(threads, threadFactory);
+            }
+            case AUTO -> Epoll.isAvailable()
+                    ? new EpollEventLoopGroup(threads, threadFactory)
+                    : new NioEventLoopGroup(threads, threadFactory);
+        };
+    }
+}
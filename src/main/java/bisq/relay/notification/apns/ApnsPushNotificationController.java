@@ -17,14 +17,24 @@
 
 package bisq.relay.notification.apns;
 
+import bisq.relay.cluster.ClusterRouter;
+import bisq.relay.config.AdmissionProperties;
+import bisq.relay.config.BatchProperties;
+import bisq.relay.config.DeadlineProperties;
+import bisq.relay.config.DispatchProperties;
+import bisq.relay.notification.PushAdmissionControl;
+import bisq.relay.notification.PushBatcher;
+import bisq.relay.notification.PushDispatcher;
 import bisq.relay.notification.PushNotificationController;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationSender;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpHeaders;
@@ -33,10 +43,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.concurrent.CompletableFuture;
 
-import static bisq.relay.util.MaskingUtil.maskSensitive;
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.util.MaskingUtil.masked;
 
 @RestController
 public class ApnsPushNotificationController extends PushNotificationController {
@@ -45,22 +58,45 @@ public class ApnsPushNotificationController extends PushNotificationController {
     @Autowired
     public ApnsPushNotificationController(
             @Qualifier("apnsPushNotificationSender") final PushNotificationSender sender,
-            final ObjectMapper objectMapper) {
-        super(sender, objectMapper);
+            final ObjectMapper objectMapper,
+            final AdmissionProperties admissionProperties,
+            final DispatchProperties dispatchProperties,
+            final BatchProperties batchProperties,
+            final DeadlineProperties deadlineProperties,
+            final ObjectProvider<ClusterRouter> clusterRouterProvider,
+            final ObjectProvider<MeterRegistry> registryProvider) {
+        super(PROVIDER_ID_APNS, sender, objectMapper,
+                new PushAdmissionControl(PROVIDER_ID_APNS, admissionProperties, registryProvider.getIfAvailable()),
+                new PushDispatcher(PROVIDER_ID_APNS, dispatchProperties, registryProvider.getIfAvailable()),
+                batchProperties.isEnabled()
+                        ? new PushBatcher(PROVIDER_ID_APNS, sender, batchProperties, registryProvider.getIfAvailable())
+                        : null,
+                deadlineProperties,
+                clusterRouterProvider.getIfAvailable());
     }
 
     @PostMapping(value = "/v1/apns/device/{deviceToken}")
-    public CompletableFuture<ResponseEntity<String>> sendApnsNotification(
+    public DeferredResult<ResponseEntity<String>> sendApnsNotification(
             @PathVariable("deviceToken") final String deviceToken,
             @Valid @RequestBody final PushNotificationMessage pushNotificationMessage,
             final HttpServletRequest httpRequest) {
+        return cancelledOnDisconnect(handleApnsNotification(deviceToken, pushNotificationMessage, httpRequest));
+    }
+
+    /**
+     * Handles a request for the APNs endpoint, also made by the legacy {@code /relay} endpoint.
+     */
+    public CompletableFuture<ResponseEntity<String>> handleApnsNotification(
+            final String deviceToken,
+            final PushNotificationMessage pushNotificationMessage,
+            final HttpServletRequest httpRequest) {
 
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Handling APNs notification for device token [{}] from [{}]",
-                    maskSensitive(deviceToken),
+        if (LOG.isInfoEnabled(SAMPLED)) {
+            LOG.info(SAMPLED, "Handling APNs notification for device token [{}] from [{}]",
+                    masked(deviceToken),
                     httpRequest.getHeader(HttpHeaders.USER_AGENT));
         }
 
-        return handleRequest(deviceToken, pushNotificationMessage);
+        return routeRequest(deviceToken, pushNotificationMessage, httpRequest);
     }
 }
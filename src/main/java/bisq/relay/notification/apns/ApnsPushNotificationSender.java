@@ -21,46 +21,133 @@ import bisq.relay.config.ApnsProperties;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.PushProviderInitializer;
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
+import bisq.relay.notification.jfr.PushBuildEvent;
+import bisq.relay.notification.jfr.PushGatewayEvent;
 import bisq.relay.notification.metrics.PushProvider;
+import bisq.relay.util.TlsHandshakeUtil;
 import com.eatthepath.pushy.apns.ApnsClient;
 import com.eatthepath.pushy.apns.ApnsClientBuilder;
+import com.eatthepath.pushy.apns.ApnsClientMetricsListener;
 import com.eatthepath.pushy.apns.PushNotificationResponse;
 import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
 import com.eatthepath.pushy.apns.util.concurrent.PushNotificationFuture;
 import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.EventLoopGroup;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static bisq.relay.logging.LogMarkers.SAMPLED;
 import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.composeUnlessAbandoned;
 
 @PushProvider(PROVIDER_ID_APNS)
 @Service
 public class ApnsPushNotificationSender implements PushNotificationSender {
     private static final Logger LOG = LoggerFactory.getLogger(ApnsPushNotificationSender.class);
 
+    private static final Duration STARTUP_HANDSHAKE_TIMEOUT = Duration.ofSeconds(10);
+    // The notifications were drained before, see PushDrain; a close that takes longer must not hold up the shutdown
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    // Never issued by APNs, so warm-up notifications are rejected with BadDeviceToken instead of being delivered
+    @VisibleForTesting
+    static final String WARM_UP_DEVICE_TOKEN = "0".repeat(64);
+    private static final String WARM_UP_PAYLOAD = "{}";
+
     private final String apnsBundleId;
-    private final ApnsClient apnsClient;
+    private final int concurrentConnections;
+    private final Duration requestTimeout;
+    private final CompletableFuture<ApnsClient> apnsClientFuture;
     private final ApnsPushNotificationBuilder apnsPushNotificationBuilder;
 
     @Autowired
     public ApnsPushNotificationSender(
             final ApnsProperties apnsProperties,
-            final ApnsPushNotificationBuilder apnsPushNotificationBuilder)
-            throws IOException {
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder,
+            @Qualifier("apnsEventLoopGroup") final EventLoopGroup apnsEventLoopGroup,
+            final PushProviderInitializer pushProviderInitializer,
+            final ObjectProvider<MeterRegistry> registryProvider) {
         this.apnsBundleId = apnsProperties.getBundleId();
+        this.concurrentConnections = apnsProperties.getConcurrentConnections();
+        this.requestTimeout = apnsProperties.getRequestTimeout();
+        this.apnsPushNotificationBuilder = apnsPushNotificationBuilder;
+        final MeterRegistry registry = registryProvider.getIfAvailable();
+        this.apnsClientFuture = pushProviderInitializer.initialize(PROVIDER_ID_APNS,
+                () -> createApnsClient(apnsProperties, apnsEventLoopGroup,
+                        registry == null ? null : new MicrometerApnsClientMetricsListener(registry)));
+    }
+
+    @VisibleForTesting
+    public ApnsPushNotificationSender(
+            final ApnsClient apnsClient,
+            final String apnsBundleId,
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder) {
+        this(apnsClient, apnsBundleId, DEFAULT_REQUEST_TIMEOUT, apnsPushNotificationBuilder);
+    }
+
+    @VisibleForTesting
+    public ApnsPushNotificationSender(
+            final ApnsClient apnsClient,
+            final String apnsBundleId,
+            final Duration requestTimeout,
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder) {
+        this(CompletableFuture.completedFuture(apnsClient), apnsBundleId, 1, requestTimeout,
+                apnsPushNotificationBuilder);
+    }
+
+    @VisibleForTesting
+    ApnsPushNotificationSender(
+            final CompletableFuture<ApnsClient> apnsClientFuture,
+            final String apnsBundleId,
+            final int concurrentConnections,
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder) {
+        this(apnsClientFuture, apnsBundleId, concurrentConnections, DEFAULT_REQUEST_TIMEOUT,
+                apnsPushNotificationBuilder);
+    }
+
+    private ApnsPushNotificationSender(
+            final CompletableFuture<ApnsClient> apnsClientFuture,
+            final String apnsBundleId,
+            final int concurrentConnections,
+            final Duration requestTimeout,
+            final ApnsPushNotificationBuilder apnsPushNotificationBuilder) {
+        this.apnsClientFuture = apnsClientFuture;
+        this.apnsBundleId = apnsBundleId;
+        this.concurrentConnections = concurrentConnections;
+        this.requestTimeout = Objects.requireNonNull(requestTimeout);
         this.apnsPushNotificationBuilder = apnsPushNotificationBuilder;
+    }
 
+    private static ApnsClient createApnsClient(
+            final ApnsProperties apnsProperties,
+            final EventLoopGroup apnsEventLoopGroup,
+            @Nullable final ApnsClientMetricsListener metricsListener) throws IOException, GeneralSecurityException {
         final String appleCertPassword;
         try (Scanner scanner = new Scanner(new FileInputStream(apnsProperties.getCertificatePasswordFile()))) {
             appleCertPassword = scanner.next();
@@ -68,32 +155,92 @@ public class ApnsPushNotificationSender implements PushNotificationSender {
 
         final File appleCertFile = new File(apnsProperties.getCertificateFile());
 
-        final String apnsHost = apnsProperties.isUseSandbox()
+        final String apnsHost = StringUtils.hasText(apnsProperties.getHost())
+                ? apnsProperties.getHost()
+                : apnsProperties.isUseSandbox()
                 ? ApnsClientBuilder.DEVELOPMENT_APNS_HOST
                 : ApnsClientBuilder.PRODUCTION_APNS_HOST;
 
-        apnsClient = new ApnsClientBuilder()
-                .setApnsServer(apnsHost)
-                .setClientCredentials(appleCertFile, appleCertPassword)
-                .build();
+        final File trustedServerCertificateFile = StringUtils.hasText(apnsProperties.getTrustedServerCertificateFile())
+                ? new File(apnsProperties.getTrustedServerCertificateFile())
+                : null;
 
-        LOG.info("APNs client is ready to push notifications (sandbox={})", apnsProperties.isUseSandbox());
-    }
+        if (apnsProperties.isStartupHandshake()) {
+            // Trust the same certificates as the client below, so the check passes exactly when the client can connect
+            TlsHandshakeUtil.handshake(apnsHost, apnsProperties.getPort(),
+                    TlsHandshakeUtil.pkcs12KeyManagers(appleCertFile, appleCertPassword),
+                    trustedServerCertificateFile == null
+                            ? null
+                            : TlsHandshakeUtil.x509TrustManagers(trustedServerCertificateFile),
+                    STARTUP_HANDSHAKE_TIMEOUT);
+            LOG.info("TLS handshake with APNs gateway succeeded; host={}", apnsHost);
+        }
 
-    @VisibleForTesting
-    public ApnsPushNotificationSender(
-            final ApnsClient apnsClient,
-            final String apnsBundleId,
-            final ApnsPushNotificationBuilder apnsPushNotificationBuilder) {
-        this.apnsClient = apnsClient;
-        this.apnsBundleId = apnsBundleId;
-        this.apnsPushNotificationBuilder = apnsPushNotificationBuilder;
+        final ApnsClientBuilder apnsClientBuilder = new ApnsClientBuilder()
+                .setApnsServer(apnsHost, apnsProperties.getPort())
+                .setClientCredentials(appleCertFile, appleCertPassword)
+                .setEventLoopGroup(apnsEventLoopGroup)
+                .setConcurrentConnections(apnsProperties.getConcurrentConnections());
+        if (trustedServerCertificateFile != null) {
+            apnsClientBuilder.setTrustedServerCertificateChain(trustedServerCertificateFile);
+        }
+        if (metricsListener != null) {
+            apnsClientBuilder.setMetricsListener(metricsListener);
+        }
+        final ApnsClient apnsClient = apnsClientBuilder.build();
+
+        LOG.info("APNs client is ready to push notifications (host={}, concurrentConnections={})",
+                apnsHost, apnsProperties.getConcurrentConnections());
+        return apnsClient;
     }
 
     @PreDestroy
     public void destroy() {
         LOG.info("Shutting down APNs client");
-        apnsClient.close().join();
+        final ApnsClient apnsClient;
+        try {
+            // Initialization may still be running, e.g. on a shutdown right after start; give it as long as a close
+            apnsClient = apnsClientFuture.get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            apnsClientFuture.thenAccept(ApnsClient::close);
+            return;
+        } catch (TimeoutException e) {
+            // Do not hold up the shutdown any longer, but do not leak the client either
+            LOG.warn("APNs client still initializing at shutdown, closing it once initialized; waitMillis={}",
+                    CLOSE_TIMEOUT.toMillis());
+            apnsClientFuture.thenAccept(ApnsClient::close);
+            return;
+        } catch (ExecutionException | CancellationException e) {
+            // Never initialized, nothing to close
+            return;
+        }
+
+        try {
+            apnsClient.close().get(CLOSE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("APNs client did not close cleanly; closeTimeoutMillis={} error={}",
+                    CLOSE_TIMEOUT.toMillis(), e.toString());
+        }
+    }
+
+    /**
+     * Sends one notification per configured connection, all at once so that the client opens every connection,
+     * to a device token that APNs never issues.
+     */
+    @Override
+    public CompletableFuture<Void> warmUpConnections() {
+        return apnsClientFuture.thenCompose(apnsClient -> {
+            final CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrentConnections];
+            for (int i = 0; i < concurrentConnections; i++) {
+                responses[i] = apnsClient.sendNotification(
+                                new SimpleApnsPushNotification(WARM_UP_DEVICE_TOKEN, apnsBundleId, WARM_UP_PAYLOAD))
+                        .handle((response, cause) -> null);
+            }
+            return CompletableFuture.allOf(responses);
+        });
     }
 
     // TODO implement circuit breaker, can use resilience4j
@@ -102,22 +249,68 @@ public class ApnsPushNotificationSender implements PushNotificationSender {
     public CompletableFuture<PushNotificationResult> sendNotification(
             @Nonnull final PushNotificationMessage pushNotificationMessage,
             @Nonnull final String deviceToken) {
+        return sendNotification(pushNotificationMessage, deviceToken, PushStageListener.NOOP);
+    }
+
+    @Override
+    public CompletableFuture<PushNotificationResult> sendNotification(
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final String deviceToken,
+            @Nonnull final PushStageListener stageListener) {
         Objects.requireNonNull(pushNotificationMessage);
         Objects.requireNonNull(deviceToken);
+        Objects.requireNonNull(stageListener);
 
+        if (apnsClientFuture.isDone() && !apnsClientFuture.isCompletedExceptionally()) {
+            return sendNotification(apnsClientFuture.join(), pushNotificationMessage, deviceToken, stageListener);
+        }
+        // Not initialized yet (or failed to); readiness keeps traffic away, but do not fail early requests. One that is
+        // abandoned while waiting is not sent at all, or cancelled along with the gateway request
+        final long waitStartNanos = System.nanoTime();
+        return composeUnlessAbandoned(apnsClientFuture, apnsClient -> {
+            stageListener.stageCompleted(PushStage.WAIT, System.nanoTime() - waitStartNanos);
+            return sendNotification(apnsClient, pushNotificationMessage, deviceToken, stageListener);
+        });
+    }
+
+    private CompletableFuture<PushNotificationResult> sendNotification(
+            final ApnsClient apnsClient,
+            final PushNotificationMessage pushNotificationMessage,
+            final String deviceToken,
+            final PushStageListener stageListener) {
         final CompletableFuture<PushNotificationResult> completableFuture = new CompletableFuture<>();
 
+        final PushBuildEvent buildEvent = new PushBuildEvent();
+        buildEvent.begin();
+        final long buildStartNanos = System.nanoTime();
+        final SimpleApnsPushNotification pushNotification = apnsPushNotificationBuilder.buildPushNotification(
+                pushNotificationMessage, deviceToken, apnsBundleId);
+        final long gatewayStartNanos = System.nanoTime();
+        stageListener.stageCompleted(PushStage.BUILD, gatewayStartNanos - buildStartNanos);
+        buildEvent.complete(PROVIDER_ID_APNS, deviceToken);
+
+        final PushGatewayEvent gatewayEvent = new PushGatewayEvent();
+        gatewayEvent.begin();
         final PushNotificationFuture<SimpleApnsPushNotification, PushNotificationResponse<SimpleApnsPushNotification>>
-                sendNotificationFuture = apnsClient.sendNotification(apnsPushNotificationBuilder.buildPushNotification(
-                pushNotificationMessage, deviceToken, apnsBundleId));
+                sendNotificationFuture = apnsClient.sendNotification(pushNotification);
+        // Pushy does not time out a stream the gateway never answers; stop waiting for it here
+        sendNotificationFuture.orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        // A caller that gives up on the notification, e.g. past its deadline, stops the wait for the gateway as well
+        cancelWhenAbandoned(completableFuture, sendNotificationFuture);
 
         sendNotificationFuture.whenComplete((response, cause) -> {
+            stageListener.stageCompleted(PushStage.GATEWAY, System.nanoTime() - gatewayStartNanos);
             if (response == null) {
                 // Something went wrong when trying to send the notification to the
                 // APNs server. Note that this is distinct from a rejection from
                 // the server, and indicates that something went wrong when actually
                 // sending the notification or waiting for a reply.
-                LOG.error("Failed to send notification to APNs gateway; {}", cause.getMessage());
+                gatewayEvent.complete(PROVIDER_ID_APNS, deviceToken, null, cause);
+                if (completableFuture.isCancelled()) {
+                    // Abandoned by the caller, nobody is waiting for this answer
+                    return;
+                }
+                LOG.error("Failed to send notification to APNs gateway; {}", cause.toString());
                 completableFuture.completeExceptionally(cause);
                 return;
             }
@@ -132,7 +325,7 @@ public class ApnsPushNotificationSender implements PushNotificationSender {
                 errorCode = null;
                 errorMessage = null;
                 isUnregistered = false;
-                LOG.info("Push notification accepted by APNs gateway; apnsId={}", response.getApnsId());
+                LOG.info(SAMPLED, "Push notification accepted by APNs gateway; apnsId={}", response.getApnsId());
             } else {
                 wasAccepted = false;
                 errorCode = response.getRejectionReason().orElse("unknown");
@@ -146,7 +339,10 @@ public class ApnsPushNotificationSender implements PushNotificationSender {
                         errorCode, errorMessage == null ? "" : errorMessage);
             }
 
-            completableFuture.complete(new PushNotificationResult(wasAccepted, errorCode, errorMessage, isUnregistered));
+            final PushNotificationResult result =
+                    new PushNotificationResult(wasAccepted, errorCode, errorMessage, isUnregistered);
+            gatewayEvent.complete(PROVIDER_ID_APNS, deviceToken, result, null);
+            completableFuture.complete(result);
         });
 
         return completableFuture;
@@ -0,0 +1,146 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.apns;
+
+import com.eatthepath.pushy.apns.ApnsClient;
+import com.eatthepath.pushy.apns.ApnsClientMetricsListener;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+
+/**
+ * Exposes the client-side metrics of Pushy's {@link ApnsClient} through Micrometer, tagged with
+ * {@code provider=apns}.
+ * <p>Emits the following metrics:
+ * <ul>
+ *   <li>{@code push_client_connections{provider}} - open connections to the gateway</li>
+ *   <li>{@code push_client_connection_failures_total{provider}} - failed connection attempts</li>
+ *   <li>{@code push_client_write_failures_total{provider}} - notifications that could not be written</li>
+ *   <li>{@code push_client_in_flight{provider}} - notifications written but not yet answered</li>
+ *   <li>{@code push_client_ack_seconds{provider}} - time from writing a notification to the gateway's answer</li>
+ * </ul>
+ * <p>
+ * Pushy does not report notifications that were lost with a dropped connection or whose stream was never answered.
+ * Notifications that have been in flight for longer than {@link #IN_FLIGHT_EXPIRY} are therefore dropped from the
+ * in-flight count, at most every {@link #PRUNE_INTERVAL} while sending and whenever a connection is removed.
+ */
+public class MicrometerApnsClientMetricsListener implements ApnsClientMetricsListener {
+
+    static final Duration IN_FLIGHT_EXPIRY = Duration.ofMinutes(1);
+    static final Duration PRUNE_INTERVAL = Duration.ofSeconds(1);
+
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<Long, Long> inFlightSentNanos = new ConcurrentHashMap<>();
+    private final Counter connectionFailures;
+    private final Counter writeFailures;
+    private final Timer ackLatency;
+    private final LongSupplier nanoClock;
+    private final AtomicLong nextPruneNanos;
+
+    public MicrometerApnsClientMetricsListener(@Nonnull final MeterRegistry registry) {
+        this(registry, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    MicrometerApnsClientMetricsListener(@Nonnull final MeterRegistry registry,
+                                        @Nonnull final LongSupplier nanoClock) {
+        Objects.requireNonNull(registry);
+        this.nanoClock = Objects.requireNonNull(nanoClock);
+        this.nextPruneNanos = new AtomicLong(nanoClock.getAsLong() + PRUNE_INTERVAL.toNanos());
+
+        Gauge.builder(METRIC_PUSH_CLIENT_CONNECTIONS, connections, AtomicInteger::get)
+                .tag(TAG_PROVIDER, PROVIDER_ID_APNS)
+                .register(registry);
+        Gauge.builder(METRIC_PUSH_CLIENT_IN_FLIGHT, inFlightSentNanos, Map::size)
+                .tag(TAG_PROVIDER, PROVIDER_ID_APNS)
+                .register(registry);
+        connectionFailures = registry.counter(METRIC_PUSH_CLIENT_CONNECTION_FAILURES_TOTAL, TAG_PROVIDER, PROVIDER_ID_APNS);
+        writeFailures = registry.counter(METRIC_PUSH_CLIENT_WRITE_FAILURES_TOTAL, TAG_PROVIDER, PROVIDER_ID_APNS);
+        ackLatency = Timer.builder(METRIC_PUSH_CLIENT_ACK_SECONDS)
+                .tag(TAG_PROVIDER, PROVIDER_ID_APNS)
+                .register(registry);
+    }
+
+    @Override
+    public void handleWriteFailure(final ApnsClient apnsClient, final long notificationId) {
+        writeFailures.increment();
+    }
+
+    @Override
+    public void handleNotificationSent(final ApnsClient apnsClient, final long notificationId) {
+        final long now = nanoClock.getAsLong();
+        inFlightSentNanos.put(notificationId, now);
+
+        final long nextPrune = nextPruneNanos.get();
+        if (now - nextPrune >= 0 && nextPruneNanos.compareAndSet(nextPrune, now + PRUNE_INTERVAL.toNanos())) {
+            pruneExpired(now);
+        }
+    }
+
+    @Override
+    public void handleNotificationAccepted(final ApnsClient apnsClient, final long notificationId) {
+        recordAck(notificationId);
+    }
+
+    @Override
+    public void handleNotificationRejected(final ApnsClient apnsClient, final long notificationId) {
+        recordAck(notificationId);
+    }
+
+    @Override
+    public void handleConnectionAdded(final ApnsClient apnsClient) {
+        connections.incrementAndGet();
+    }
+
+    @Override
+    public void handleConnectionRemoved(final ApnsClient apnsClient) {
+        connections.decrementAndGet();
+        pruneExpired(nanoClock.getAsLong());
+    }
+
+    @Override
+    public void handleConnectionCreationFailed(final ApnsClient apnsClient) {
+        connectionFailures.increment();
+    }
+
+    private void recordAck(final long notificationId) {
+        final Long sentNanos = inFlightSentNanos.remove(notificationId);
+        if (sentNanos != null) {
+            ackLatency.record(nanoClock.getAsLong() - sentNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void pruneExpired(final long now) {
+        final long expiredBefore = now - IN_FLIGHT_EXPIRY.toNanos();
+        inFlightSentNanos.values().removeIf(sentNanos -> sentNanos - expiredBefore < 0);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import com.google.auth.oauth2.AccessToken;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_FCM_TOKEN_REFRESH_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_SUCCESS;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+
+/**
+ * Renews the FCM OAuth access token in the background, well before it expires.
+ * <p>
+ * Without this, the Google auth library refreshes the token lazily, i.e. the first send after (or shortly before)
+ * expiry performs the OAuth round trip inline. Here the token is refreshed once at startup and then again
+ * {@code fcm.tokenRefreshMargin} plus a random share of {@code fcm.tokenRefreshJitter} before each expiry, so
+ * sends always find a fresh token in {@link FcmGoogleCredentials}. Failed refreshes are retried with exponential
+ * backoff while the current token is still valid.
+ * <p>Emits the following metrics:
+ * <ul>
+ *   <li>{@code fcm_token_refresh_seconds{result=success|error}}</li>
+ *   <li>{@code fcm_token_refresh_failures_total}</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "fcm.enabled", havingValue = "true", matchIfMissing = false)
+@ConditionalOnProperty(name = "fcm.tokenRefreshEnabled", havingValue = "true", matchIfMissing = true)
+public class FcmAccessTokenRefresher {
+    private static final Logger LOG = LoggerFactory.getLogger(FcmAccessTokenRefresher.class);
+
+    @VisibleForTesting
+    static final Duration MIN_REFRESH_DELAY = Duration.ofSeconds(5);
+    @VisibleForTesting
+    static final Duration MAX_RETRY_DELAY = Duration.ofMinutes(1);
+    /**
+     * Used when the token endpoint does not report an expiry; Google access tokens are valid for an hour.
+     */
+    private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofHours(1);
+
+    private final FcmGoogleCredentials googleCredentials;
+    private final Duration refreshMargin;
+    private final Duration refreshJitter;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectProvider<MeterRegistry> registryProvider;
+    private final Clock clock;
+
+    // Only accessed from the scheduler thread
+    private Duration retryDelay = MIN_REFRESH_DELAY;
+
+    @Autowired
+    public FcmAccessTokenRefresher(
+            final FcmProperties fcmProperties,
+            final FcmGoogleCredentials googleCredentials,
+            final ObjectProvider<MeterRegistry> registryProvider) {
+        this(googleCredentials,
+                fcmProperties.getTokenRefreshMargin(),
+                fcmProperties.getTokenRefreshJitter(),
+                Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                        .setNameFormat("fcm-token-refresher")
+                        .setDaemon(true)
+                        .build()),
+                registryProvider,
+                Clock.systemUTC());
+    }
+
+    @VisibleForTesting
+    FcmAccessTokenRefresher(
+            final FcmGoogleCredentials googleCredentials,
+            final Duration refreshMargin,
+            final Duration refreshJitter,
+            final ScheduledExecutorService scheduler,
+            final ObjectProvider<MeterRegistry> registryProvider,
+            final Clock clock) {
+        this.googleCredentials = Objects.requireNonNull(googleCredentials);
+        this.refreshMargin = Objects.requireNonNull(refreshMargin);
+        this.refreshJitter = Objects.requireNonNull(refreshJitter);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.registryProvider = Objects.requireNonNull(registryProvider);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    @PostConstruct
+    public void start() {
+        LOG.info("Starting FCM access token refresher; refreshMargin={}, refreshJitter={}",
+                refreshMargin, refreshJitter);
+        scheduler.execute(this::refresh);
+    }
+
+    @PreDestroy
+    public void stop() {
+        LOG.info("Stopping FCM access token refresher");
+        scheduler.shutdownNow();
+    }
+
+    @VisibleForTesting
+    void refresh() {
+        final long startNanos = System.nanoTime();
+        Duration nextDelay;
+        try {
+            googleCredentials.refresh();
+            final Instant expiresAt = expiresAt(googleCredentials.getAccessToken());
+            recordRefresh(RESULT_SUCCESS, startNanos);
+
+            retryDelay = MIN_REFRESH_DELAY;
+            nextDelay = nextRefreshDelay(expiresAt, clock.instant(), refreshMargin, randomJitter());
+            LOG.info("FCM access token refreshed; expiresAt={}, nextRefreshIn={}", expiresAt, nextDelay);
+        } catch (IOException | RuntimeException e) {
+            recordRefresh(RESULT_ERROR, startNanos);
+
+            nextDelay = retryDelay;
+            retryDelay = min(retryDelay.multipliedBy(2), MAX_RETRY_DELAY);
+            LOG.error("Failed to refresh FCM access token, retrying; retryIn={}, error={}", nextDelay, e.toString());
+        }
+
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::refresh, nextDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Computes how long to wait before the next refresh: until {@code refreshMargin + jitter} before
+     * {@code expiresAt}, but never less than {@link #MIN_REFRESH_DELAY}.
+     */
+    @VisibleForTesting
+    static Duration nextRefreshDelay(
+            @Nonnull final Instant expiresAt,
+            @Nonnull final Instant now,
+            @Nonnull final Duration refreshMargin,
+            @Nonnull final Duration jitter) {
+        final Duration delay = Duration.between(now, expiresAt).minus(refreshMargin).minus(jitter);
+        return delay.compareTo(MIN_REFRESH_DELAY) < 0 ? MIN_REFRESH_DELAY : delay;
+    }
+
+    private Instant expiresAt(@Nullable final AccessToken accessToken) {
+        if (accessToken == null || accessToken.getExpirationTime() == null) {
+            return clock.instant().plus(DEFAULT_TOKEN_LIFETIME);
+        }
+        return accessToken.getExpirationTime().toInstant();
+    }
+
+    private Duration randomJitter() {
+        final long jitterMillis = refreshJitter.toMillis();
+        return jitterMillis <= 0
+                ? Duration.ZERO
+                : Duration.ofMillis(ThreadLocalRandom.current().nextLong(jitterMillis + 1));
+    }
+
+    private void recordRefresh(final String result, final long startNanos) {
+        // Resolve registry lazily and tolerate absence (e.g., in certain tests)
+        final MeterRegistry registry = registryProvider.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+
+        Timer.builder(METRIC_FCM_TOKEN_REFRESH_SECONDS)
+                .tags(TAG_RESULT, result)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (RESULT_ERROR.equals(result)) {
+            registry.counter(METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL).increment();
+        }
+    }
+
+    private static Duration min(final Duration a, final Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+}
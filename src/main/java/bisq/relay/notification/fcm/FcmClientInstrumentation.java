@@ -0,0 +1,367 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.ThreadManager;
+import com.google.firebase.internal.ApacheHttp2Transport;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+
+/**
+ * Replaces the executor and the HTTP transport of the Firebase Admin SDK with instrumented equivalents, so that
+ * time spent saturating the relay (queued tasks, waiting for a connection) can be told apart from time spent at
+ * the FCM API. Everything is configured as in the SDK's defaults, tagged with {@code provider=fcm}.
+ * <p>Emits the following metrics:
+ * <ul>
+ *   <li>{@code push_client_executor_*{provider,name}} - Micrometer's executor metrics, including queued tasks,
+ *   active threads and the time tasks wait in the queue ({@code push_client_executor_idle_seconds})</li>
+ *   <li>{@code push_client_connection_wait_seconds{provider}} - time to lease a pooled connection</li>
+ *   <li>{@code push_client_connect_seconds{provider}} - time to open a new connection, TLS included</li>
+ *   <li>{@code push_client_tls_handshake_seconds{provider}} - time of the TLS handshake of a new connection</li>
+ *   <li>{@code push_client_connection_failures_total{provider}} - failed connection attempts</li>
+ *   <li>{@code push_client_pool_connections{provider,state=leased|available|pending}} - connection pool state</li>
+ *   <li>{@code push_client_request_seconds{provider}} - time of an HTTP exchange, from leasing the connection
+ *   to the end of the response</li>
+ * </ul>
+ * Connection reuse is the share of leases that did not need a new connection, i.e.
+ * {@code 1 - push_client_connect_seconds_count / push_client_connection_wait_seconds_count}.
+ * <p>
+ * Note: the transport is built on {@code com.google.firebase.internal.ApacheHttp2Transport}, the SDK's default
+ * transport. It lives in an internal package, so it may change or move in any SDK release, not only in major
+ * ones. {@code FcmClientInstrumentationTest} runs requests through the transport and fails once it does; on an
+ * SDK upgrade check that test first, and if the class is gone, stop passing the transport to
+ * {@code FirebaseOptions} (the SDK then uses its own, uninstrumented one) until this class is adapted.
+ */
+final class FcmClientInstrumentation {
+    // Same as the SDK's default executor and HTTP client
+    private static final int EXECUTOR_THREADS = 100;
+    private static final long EXECUTOR_KEEP_ALIVE_SECONDS = 60;
+    private static final int MAX_CONNECTIONS_TOTAL = 200;
+    private static final int MAX_CONNECTIONS_PER_ROUTE = 100;
+
+    private static final String EXECUTOR_NAME = "fcm-sdk";
+    private static final String EXECUTOR_METRIC_PREFIX = "push_client";
+    private static final String EXEC_INTERCEPTOR_NAME = "push-client-metrics";
+
+    private FcmClientInstrumentation() {
+        throw new AssertionError("This class must not be instantiated");
+    }
+
+    static ThreadManager threadManager(final MeterRegistry registry) {
+        return new InstrumentedThreadManager(registry);
+    }
+
+    static ApacheHttp2Transport httpTransport(final MeterRegistry registry) {
+        final PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(MAX_CONNECTIONS_TOTAL)
+                .setMaxConnPerRoute(MAX_CONNECTIONS_PER_ROUTE)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setTimeToLive(-1, TimeUnit.MILLISECONDS)
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .setTlsStrategy(new TimedTlsStrategy(ClientTlsStrategyBuilder.create()
+                        .setSslContext(SSLContexts.createSystemDefault())
+                        .buildAsync(), timer(registry, METRIC_PUSH_CLIENT_TLS_HANDSHAKE_SECONDS)))
+                .build();
+
+        poolGauge(registry, connectionManager, "leased", PoolStats::getLeased);
+        poolGauge(registry, connectionManager, "available", PoolStats::getAvailable);
+        poolGauge(registry, connectionManager, "pending", PoolStats::getPending);
+
+        final Timer requestTimer = timer(registry, METRIC_PUSH_CLIENT_REQUEST_SECONDS);
+        return new ApacheHttp2Transport(ApacheHttp2Transport.defaultHttpAsyncClientBuilder()
+                .setConnectionManager(new TimedConnectionManager(connectionManager, registry))
+                .addExecInterceptorFirst(EXEC_INTERCEPTOR_NAME, new TimedExecChainHandler(requestTimer))
+                .build());
+    }
+
+    private static Timer timer(final MeterRegistry registry, final String name) {
+        return Timer.builder(name)
+                .tag(TAG_PROVIDER, PROVIDER_ID_FCM)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static void poolGauge(final MeterRegistry registry,
+                                  final PoolingAsyncClientConnectionManager connectionManager,
+                                  final String state,
+                                  final ToIntFunction<PoolStats> value) {
+        Gauge.builder(METRIC_PUSH_CLIENT_POOL_CONNECTIONS, connectionManager,
+                        manager -> value.applyAsInt(manager.getTotalStats()))
+                .tags(TAG_PROVIDER, PROVIDER_ID_FCM, TAG_STATE, state)
+                .register(registry);
+    }
+
+    private static final class InstrumentedThreadManager extends ThreadManager {
+        private final MeterRegistry registry;
+
+        private InstrumentedThreadManager(final MeterRegistry registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        protected ExecutorService getExecutor(final FirebaseApp app) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(EXECUTOR_THREADS, EXECUTOR_THREADS,
+                    EXECUTOR_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), getThreadFactory());
+            executor.allowCoreThreadTimeOut(true);
+            return ExecutorServiceMetrics.monitor(registry, executor, EXECUTOR_NAME, EXECUTOR_METRIC_PREFIX,
+                    Tags.of(TAG_PROVIDER, PROVIDER_ID_FCM));
+        }
+
+        @Override
+        protected void releaseExecutor(final FirebaseApp app, final ExecutorService executor) {
+            executor.shutdownNow();
+        }
+
+        @Override
+        protected ThreadFactory getThreadFactory() {
+            return new ThreadFactoryBuilder().setNameFormat("fcm-sdk-%d").setDaemon(true).build();
+        }
+    }
+
+    private record TimedTlsStrategy(TlsStrategy delegate, Timer handshakeTimer) implements TlsStrategy {
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public boolean upgrade(final TransportSecurityLayer sessionLayer,
+                               final HttpHost host,
+                               final SocketAddress localAddress,
+                               final SocketAddress remoteAddress,
+                               final Object attachment,
+                               final Timeout handshakeTimeout) {
+            return delegate.upgrade(sessionLayer, host, localAddress, remoteAddress, attachment, handshakeTimeout);
+        }
+
+        @Override
+        public void upgrade(final TransportSecurityLayer sessionLayer,
+                            final NamedEndpoint endpoint,
+                            final Object attachment,
+                            final Timeout handshakeTimeout,
+                            final FutureCallback<TransportSecurityLayer> callback) {
+            final long startNanos = System.nanoTime();
+            delegate.upgrade(sessionLayer, endpoint, attachment, handshakeTimeout, new FutureCallback<>() {
+                @Override
+                public void completed(final TransportSecurityLayer result) {
+                    handshakeTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                }
+
+                @Override
+                public void failed(final Exception ex) {
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class TimedConnectionManager implements AsyncClientConnectionManager {
+        private final AsyncClientConnectionManager delegate;
+        private final Timer waitTimer;
+        private final Timer connectTimer;
+        private final Counter connectionFailures;
+
+        private TimedConnectionManager(final AsyncClientConnectionManager delegate, final MeterRegistry registry) {
+            this.delegate = delegate;
+            this.waitTimer = timer(registry, METRIC_PUSH_CLIENT_CONNECTION_WAIT_SECONDS);
+            this.connectTimer = timer(registry, METRIC_PUSH_CLIENT_CONNECT_SECONDS);
+            this.connectionFailures = registry.counter(METRIC_PUSH_CLIENT_CONNECTION_FAILURES_TOTAL,
+                    TAG_PROVIDER, PROVIDER_ID_FCM);
+        }
+
+        @Override
+        public Future<AsyncConnectionEndpoint> lease(final String id,
+                                                     final HttpRoute route,
+                                                     final Object state,
+                                                     final Timeout requestTimeout,
+                                                     final FutureCallback<AsyncConnectionEndpoint> callback) {
+            final long startNanos = System.nanoTime();
+            return delegate.lease(id, route, state, requestTimeout,
+                    timed(callback, () -> waitTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS), null));
+        }
+
+        @Override
+        public void release(final AsyncConnectionEndpoint endpoint, final Object newState, final TimeValue validDuration) {
+            delegate.release(endpoint, newState, validDuration);
+        }
+
+        @Override
+        public Future<AsyncConnectionEndpoint> connect(final AsyncConnectionEndpoint endpoint,
+                                                       final ConnectionInitiator connectionInitiator,
+                                                       final Timeout connectTimeout,
+                                                       final Object attachment,
+                                                       final HttpContext context,
+                                                       final FutureCallback<AsyncConnectionEndpoint> callback) {
+            final long startNanos = System.nanoTime();
+            return delegate.connect(endpoint, connectionInitiator, connectTimeout, attachment, context,
+                    timed(callback,
+                            () -> connectTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS),
+                            connectionFailures::increment));
+        }
+
+        @Override
+        public void upgrade(final AsyncConnectionEndpoint endpoint, final Object attachment, final HttpContext context) {
+            delegate.upgrade(endpoint, attachment, context);
+        }
+
+        @Override
+        public void upgrade(final AsyncConnectionEndpoint endpoint,
+                            final Object attachment,
+                            final HttpContext context,
+                            final FutureCallback<AsyncConnectionEndpoint> callback) {
+            delegate.upgrade(endpoint, attachment, context, callback);
+        }
+
+        @Override
+        public void close(final CloseMode closeMode) {
+            delegate.close(closeMode);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        private static <T> FutureCallback<T> timed(final FutureCallback<T> callback,
+                                                   final Runnable onCompleted,
+                                                   final Runnable onFailed) {
+            return new FutureCallback<>() {
+                @Override
+                public void completed(final T result) {
+                    onCompleted.run();
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                }
+
+                @Override
+                public void failed(final Exception ex) {
+                    if (onFailed != null) {
+                        onFailed.run();
+                    }
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+            };
+        }
+    }
+
+    private record TimedExecChainHandler(Timer requestTimer) implements AsyncExecChainHandler {
+
+        @Override
+        public void execute(final HttpRequest request,
+                            final AsyncEntityProducer entityProducer,
+                            final AsyncExecChain.Scope scope,
+                            final AsyncExecChain chain,
+                            final AsyncExecCallback callback) throws HttpException, IOException {
+            final long startNanos = System.nanoTime();
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(final HttpResponse response, final EntityDetails entityDetails)
+                        throws HttpException, IOException {
+                    return callback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(final HttpResponse response) throws HttpException, IOException {
+                    callback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    requestTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    callback.completed();
+                }
+
+                @Override
+                public void failed(final Exception cause) {
+                    requestTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    callback.failed(cause);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Loads the Google service account credentials shared by the FCM senders.
+ */
+@Configuration
+@ConditionalOnProperty(name = "fcm.enabled", havingValue = "true", matchIfMissing = false)
+public class FcmCredentialsConfiguration {
+    /**
+     * OAuth scope required to send messages through the FCM v1 API.
+     */
+    public static final String FIREBASE_MESSAGING_SCOPE = "https://www.googleapis.com/auth/firebase.messaging";
+
+    @Bean
+    public FcmGoogleCredentials fcmGoogleCredentials(final FcmProperties fcmProperties) throws IOException {
+        try (InputStream firebaseConfigStream = new FileInputStream(fcmProperties.getFirebaseConfigurationFile())) {
+            return FcmGoogleCredentials.of(GoogleCredentials.fromStream(firebaseConfigStream), FIREBASE_MESSAGING_SCOPE);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.auth.oauth2.ServiceAccountCredentials;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Service account credentials shared by everything that talks to FCM.
+ * <p>
+ * The Firebase Admin SDK re-scopes whatever credentials it is given, which for service accounts creates a new
+ * instance with its own token cache. These credentials are already scoped and return themselves from every
+ * {@code createScoped} variant, so the SDK, the HTTP/2 sender and {@link FcmAccessTokenRefresher} all read and
+ * renew the same access token.
+ */
+public final class FcmGoogleCredentials extends GoogleCredentials {
+    private final GoogleCredentials delegate;
+    private final String projectId;
+
+    public FcmGoogleCredentials(@Nonnull final GoogleCredentials delegate, @Nullable final String projectId) {
+        this.delegate = Objects.requireNonNull(delegate);
+        this.projectId = projectId;
+    }
+
+    public static FcmGoogleCredentials of(@Nonnull final GoogleCredentials googleCredentials,
+                                          @Nonnull final String scope) {
+        Objects.requireNonNull(googleCredentials);
+        Objects.requireNonNull(scope);
+        final String projectId = googleCredentials instanceof ServiceAccountCredentials serviceAccountCredentials
+                ? serviceAccountCredentials.getProjectId()
+                : null;
+        return new FcmGoogleCredentials(googleCredentials.createScoped(scope), projectId);
+    }
+
+    /**
+     * @return the Google Cloud project id of the service account, or {@code null} if it is not known
+     */
+    @Nullable
+    public String getProjectId() {
+        return projectId;
+    }
+
+    @Override
+    public AccessToken refreshAccessToken() throws IOException {
+        return delegate.refreshAccessToken();
+    }
+
+    @Override
+    public String getUniverseDomain() throws IOException {
+        return delegate.getUniverseDomain();
+    }
+
+    @Override
+    public String getQuotaProjectId() {
+        return delegate.getQuotaProjectId();
+    }
+
+    @Override
+    public boolean createScopedRequired() {
+        return false;
+    }
+
+    @Override
+    public GoogleCredentials createScoped(final Collection<String> scopes) {
+        return this;
+    }
+
+    @Override
+    public GoogleCredentials createScoped(final Collection<String> scopes, final Collection<String> defaultScopes) {
+        return this;
+    }
+
+    @Override
+    public GoogleCredentials createScoped(final String... scopes) {
+        return this;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return this == obj;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.PushProviderInitializer;
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
+import bisq.relay.notification.jfr.PushBuildEvent;
+import bisq.relay.notification.jfr.PushGatewayEvent;
+import bisq.relay.notification.metrics.PushProvider;
+import bisq.relay.util.TlsHandshakeUtil;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.composeUnlessAbandoned;
+
+/**
+ * Sends messages directly to the FCM v1 REST API over non-blocking HTTP/2 connections.
+ * <p>
+ * This is an alternative to {@link FcmPushNotificationSender}, which goes through the Firebase Admin SDK and
+ * occupies one SDK thread per outstanding request. Here requests are multiplexed over a small, fixed number of
+ * HTTP/2 connections and completed asynchronously, so the number of outstanding requests is not bound to a
+ * thread pool. Message content is still built by {@link FcmPushNotificationBuilder} and results are mapped the
+ * same way as by the SDK based sender.
+ * <p>
+ * Enabled with {@code fcm.transport=http2}.
+ */
+@PushProvider(PROVIDER_ID_FCM)
+@Service("fcmPushNotificationSender")
+@ConditionalOnProperty(name = "fcm.enabled", havingValue = "true", matchIfMissing = false)
+@ConditionalOnProperty(name = "fcm.transport", havingValue = "http2")
+public class FcmHttp2PushNotificationSender implements PushNotificationSender {
+    private static final Logger LOG = LoggerFactory.getLogger(FcmHttp2PushNotificationSender.class);
+    private static final String FCM_ERROR_TYPE = "type.googleapis.com/google.firebase.fcm.v1.FcmError";
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration STARTUP_HANDSHAKE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Message WARM_UP_MESSAGE = Message.builder().setToken("warm-up").build();
+
+    private final URI sendUri;
+    private final CompletableFuture<List<HttpClient>> httpClientsFuture;
+    private final AtomicInteger nextHttpClient = new AtomicInteger();
+    private final Supplier<String> accessTokenSupplier;
+    private final Duration requestTimeout;
+    private final FcmPushNotificationBuilder fcmPushNotificationBuilder;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public FcmHttp2PushNotificationSender(
+            final FcmProperties fcmProperties,
+            final FcmPushNotificationBuilder fcmPushNotificationBuilder,
+            final FcmGoogleCredentials googleCredentials,
+            final ObjectMapper objectMapper,
+            final PushProviderInitializer pushProviderInitializer) {
+        this(sendUri(fcmProperties.getApiUrl(), projectId(googleCredentials)),
+                pushProviderInitializer.initialize(PROVIDER_ID_FCM, () -> createHttpClients(fcmProperties)),
+                accessTokenSupplier(googleCredentials),
+                fcmProperties.getRequestTimeout(),
+                fcmPushNotificationBuilder,
+                objectMapper);
+    }
+
+    @VisibleForTesting
+    public FcmHttp2PushNotificationSender(
+            final URI sendUri,
+            final List<HttpClient> httpClients,
+            final Supplier<String> accessTokenSupplier,
+            final Duration requestTimeout,
+            final FcmPushNotificationBuilder fcmPushNotificationBuilder,
+            final ObjectMapper objectMapper) {
+        this(sendUri, CompletableFuture.completedFuture(checkNotEmpty(httpClients)), accessTokenSupplier,
+                requestTimeout, fcmPushNotificationBuilder, objectMapper);
+    }
+
+    private FcmHttp2PushNotificationSender(
+            final URI sendUri,
+            final CompletableFuture<List<HttpClient>> httpClientsFuture,
+            final Supplier<String> accessTokenSupplier,
+            final Duration requestTimeout,
+            final FcmPushNotificationBuilder fcmPushNotificationBuilder,
+            final ObjectMapper objectMapper) {
+        this.sendUri = Objects.requireNonNull(sendUri);
+        this.httpClientsFuture = Objects.requireNonNull(httpClientsFuture);
+        this.accessTokenSupplier = Objects.requireNonNull(accessTokenSupplier);
+        this.requestTimeout = Objects.requireNonNull(requestTimeout);
+        this.fcmPushNotificationBuilder = Objects.requireNonNull(fcmPushNotificationBuilder);
+        this.objectMapper = Objects.requireNonNull(objectMapper);
+    }
+
+    /**
+     * Sends a validate-only request over every HTTP/2 connection. FCM validates such requests but never delivers
+     * them; this fetches the OAuth access token and opens the connections.
+     */
+    @Override
+    public CompletableFuture<Void> warmUpConnections() {
+        return httpClientsFuture.thenCompose(httpClients -> {
+            final HttpRequest request;
+            try {
+                request = newRequest(toRequestBody(WARM_UP_MESSAGE, true));
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to prepare FCM warm-up request; {}", e.getMessage());
+                return CompletableFuture.completedFuture(null);
+            }
+            final CompletableFuture<?>[] responses = httpClients.stream()
+                    .map(httpClient -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                            .handle((response, cause) -> null))
+                    .toArray(CompletableFuture<?>[]::new);
+            return CompletableFuture.allOf(responses);
+        });
+    }
+
+    @Override
+    public CompletableFuture<PushNotificationResult> sendNotification(
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final String deviceToken) {
+        return sendNotification(pushNotificationMessage, deviceToken, PushStageListener.NOOP);
+    }
+
+    @Override
+    public CompletableFuture<PushNotificationResult> sendNotification(
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final String deviceToken,
+            @Nonnull final PushStageListener stageListener) {
+        Objects.requireNonNull(pushNotificationMessage);
+        Objects.requireNonNull(deviceToken);
+        Objects.requireNonNull(stageListener);
+
+        final PushBuildEvent buildEvent = new PushBuildEvent();
+        buildEvent.begin();
+        final long buildStartNanos = System.nanoTime();
+        final Message message = fcmPushNotificationBuilder.buildMessage(pushNotificationMessage, deviceToken);
+        final long buildNanos = System.nanoTime() - buildStartNanos;
+        buildEvent.complete(PROVIDER_ID_FCM, deviceToken);
+
+        if (httpClientsFuture.isDone() && !httpClientsFuture.isCompletedExceptionally()) {
+            return sendNotification(httpClientsFuture.join(), message, deviceToken, buildNanos, stageListener);
+        }
+        // Not initialized yet (or failed to); readiness keeps traffic away, but do not fail early requests. One that is
+        // abandoned while waiting is not sent at all, or cancelled along with the gateway request
+        final long waitStartNanos = System.nanoTime();
+        return composeUnlessAbandoned(httpClientsFuture, httpClients -> {
+            stageListener.stageCompleted(PushStage.WAIT, System.nanoTime() - waitStartNanos);
+            return sendNotification(httpClients, message, deviceToken, buildNanos, stageListener);
+        });
+    }
+
+    private CompletableFuture<PushNotificationResult> sendNotification(
+            final List<HttpClient> httpClients,
+            final Message message,
+            final String deviceToken,
+            final long buildNanos,
+            final PushStageListener stageListener) {
+        final long serializeStartNanos = System.nanoTime();
+        final HttpRequest request;
+        try {
+            request = newRequest(toRequestBody(message, false));
+        } catch (RuntimeException e) {
+            LOG.error("Failed to prepare notification for FCM gateway; {}", e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+        final long gatewayStartNanos = System.nanoTime();
+        stageListener.stageCompleted(PushStage.BUILD, buildNanos + gatewayStartNanos - serializeStartNanos);
+
+        final CompletableFuture<PushNotificationResult> completableFuture = new CompletableFuture<>();
+
+        final PushGatewayEvent gatewayEvent = new PushGatewayEvent();
+        gatewayEvent.begin();
+        final CompletableFuture<HttpResponse<String>> responseFuture =
+                nextHttpClient(httpClients).sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        // A caller that gives up on the notification, e.g. past its deadline, resets the HTTP/2 stream as well
+        cancelWhenAbandoned(completableFuture, responseFuture);
+        responseFuture.whenComplete((response, cause) -> {
+            stageListener.stageCompleted(PushStage.GATEWAY, System.nanoTime() - gatewayStartNanos);
+            if (response == null) {
+                // Something went wrong when trying to send the notification to the
+                // FCM server. Note that this is distinct from a rejection from
+                // the server, and indicates that something went wrong when actually
+                // sending the notification or waiting for a reply.
+                final Throwable failure = cause instanceof CompletionException && cause.getCause() != null
+                        ? cause.getCause()
+                        : cause;
+                gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, null, failure);
+                if (completableFuture.isCancelled()) {
+                    // Abandoned by the caller, nobody is waiting for this answer
+                    return;
+                }
+                LOG.error("Failed to send notification to FCM gateway; {}", failure.toString());
+                completableFuture.completeExceptionally(failure);
+                return;
+            }
+
+            try {
+                final PushNotificationResult result = toPushNotificationResult(response);
+                gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, result, null);
+                completableFuture.complete(result);
+            } catch (IOException e) {
+                gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, null, e);
+                completableFuture.completeExceptionally(e);
+            }
+        });
+
+        return completableFuture;
+    }
+
+    private PushNotificationResult toPushNotificationResult(final HttpResponse<String> response) throws IOException {
+        final JsonNode body = readBody(response.body());
+
+        if (response.statusCode() == 200) {
+            LOG.info(SAMPLED, "Push notification accepted by FCM gateway; messageId={}",
+                    body == null ? null : body.path("name").asText(null));
+            return new PushNotificationResult(true, null, null, false);
+        }
+
+        final JsonNode error = body == null ? null : body.get("error");
+        final MessagingErrorCode messagingErrorCode = messagingErrorCode(error);
+        final String errorMessage = error == null ? null : error.path("message").asText(null);
+
+        if (messagingErrorCode == null) {
+            // Same as the SDK based sender: a failure without an FCM error code is not a rejection
+            final String status = error == null ? "" : error.path("status").asText("");
+            LOG.error("Failed to send notification to FCM gateway; HTTP {} {}", response.statusCode(), status);
+            throw new IOException(String.format(
+                    "FCM request failed with HTTP status %d %s", response.statusCode(), status).trim());
+        }
+
+        final String errorCode = messagingErrorCode.name();
+        LOG.error("Push notification rejected by FCM gateway; [{}] {}", errorCode,
+                errorMessage == null ? "" : errorMessage);
+        return new PushNotificationResult(false, errorCode, errorMessage,
+                messagingErrorCode == MessagingErrorCode.UNREGISTERED);
+    }
+
+    @Nullable
+    private JsonNode readBody(@Nullable final String body) {
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(body);
+        } catch (IOException e) {
+            LOG.warn("Unable to parse FCM response body; {}", e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private static MessagingErrorCode messagingErrorCode(@Nullable final JsonNode error) {
+        if (error == null) {
+            return null;
+        }
+        for (JsonNode detail : error.path("details")) {
+            if (FCM_ERROR_TYPE.equals(detail.path("@type").asText())) {
+                try {
+                    return MessagingErrorCode.valueOf(detail.path("errorCode").asText());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private HttpRequest newRequest(final String body) {
+        return HttpRequest.newBuilder(sendUri)
+                .timeout(requestTimeout)
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + accessTokenSupplier.get())
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static String toRequestBody(final Message message, final boolean validateOnly) {
+        try {
+            return GsonFactory.getDefaultInstance().toString(validateOnly
+                    ? Map.of("message", message, "validate_only", true)
+                    : Map.of("message", message));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpClient nextHttpClient(final List<HttpClient> httpClients) {
+        return httpClients.get(Math.floorMod(nextHttpClient.getAndIncrement(), httpClients.size()));
+    }
+
+    private static URI sendUri(final String apiUrl, final String projectId) {
+        final String baseUrl = apiUrl.endsWith("/") ? apiUrl.substring(0, apiUrl.length() - 1) : apiUrl;
+        return URI.create(baseUrl + "/v1/projects/" + projectId + "/messages:send");
+    }
+
+    private static String projectId(final FcmGoogleCredentials googleCredentials) {
+        if (googleCredentials.getProjectId() != null) {
+            return googleCredentials.getProjectId();
+        }
+        throw new IllegalStateException("FCM HTTP/2 transport requires service account credentials with a project id");
+    }
+
+    private static List<HttpClient> checkNotEmpty(final List<HttpClient> httpClients) {
+        if (httpClients.isEmpty()) {
+            throw new IllegalArgumentException("At least one HTTP client is required");
+        }
+        return List.copyOf(httpClients);
+    }
+
+    private static List<HttpClient> createHttpClients(final FcmProperties fcmProperties)
+            throws IOException, GeneralSecurityException {
+        if (fcmProperties.isStartupHandshake()) {
+            TlsHandshakeUtil.handshake(URI.create(fcmProperties.getApiUrl()), null, STARTUP_HANDSHAKE_TIMEOUT);
+            LOG.info("TLS handshake with FCM gateway succeeded; apiUrl={}", fcmProperties.getApiUrl());
+        }
+
+        final int connections = fcmProperties.getHttp2Connections();
+        final List<HttpClient> httpClients = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            // Each client keeps its own HTTP/2 connection to the gateway, which all its requests are multiplexed over
+            httpClients.add(HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(CONNECT_TIMEOUT)
+                    .build());
+        }
+
+        LOG.info("FCM HTTP/2 client is ready to push notifications (connections={})", connections);
+        return List.copyOf(httpClients);
+    }
+
+    private static Supplier<String> accessTokenSupplier(final FcmGoogleCredentials googleCredentials) {
+        // The token is normally kept fresh by FcmAccessTokenRefresher, this only refreshes inline as a fallback
+        return () -> {
+            try {
+                googleCredentials.refreshIfExpired();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to obtain FCM access token", e);
+            }
+            return googleCredentials.getAccessToken().getTokenValue();
+        };
+    }
+}
@@ -17,14 +17,24 @@
 
 package bisq.relay.notification.fcm;
 
+import bisq.relay.cluster.ClusterRouter;
+import bisq.relay.config.AdmissionProperties;
+import bisq.relay.config.BatchProperties;
+import bisq.relay.config.DeadlineProperties;
+import bisq.relay.config.DispatchProperties;
+import bisq.relay.notification.PushAdmissionControl;
+import bisq.relay.notification.PushBatcher;
+import bisq.relay.notification.PushDispatcher;
 import bisq.relay.notification.PushNotificationController;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationSender;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -34,10 +44,13 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.concurrent.CompletableFuture;
 
-import static bisq.relay.util.MaskingUtil.maskSensitive;
+import static bisq.relay.logging.LogMarkers.SAMPLED;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static bisq.relay.util.MaskingUtil.masked;
 
 @RestController
 @ConditionalOnProperty(name = "fcm.enabled", havingValue = "true", matchIfMissing = false)
@@ -47,22 +60,45 @@ public class FcmPushNotificationController extends PushNotificationController {
     @Autowired
     public FcmPushNotificationController(
             @Qualifier("fcmPushNotificationSender") final PushNotificationSender sender,
-            final ObjectMapper objectMapper) {
-        super(sender, objectMapper);
+            final ObjectMapper objectMapper,
+            final AdmissionProperties admissionProperties,
+            final DispatchProperties dispatchProperties,
+            final BatchProperties batchProperties,
+            final DeadlineProperties deadlineProperties,
+            final ObjectProvider<ClusterRouter> clusterRouterProvider,
+            final ObjectProvider<MeterRegistry> registryProvider) {
+        super(PROVIDER_ID_FCM, sender, objectMapper,
+                new PushAdmissionControl(PROVIDER_ID_FCM, admissionProperties, registryProvider.getIfAvailable()),
+                new PushDispatcher(PROVIDER_ID_FCM, dispatchProperties, registryProvider.getIfAvailable()),
+                batchProperties.isEnabled()
+                        ? new PushBatcher(PROVIDER_ID_FCM, sender, batchProperties, registryProvider.getIfAvailable())
+                        : null,
+                deadlineProperties,
+                clusterRouterProvider.getIfAvailable());
     }
 
     @PostMapping(value = "/v1/fcm/device/{deviceToken}")
-    public CompletableFuture<ResponseEntity<String>> sendFcmNotification(
+    public DeferredResult<ResponseEntity<String>> sendFcmNotification(
             @PathVariable("deviceToken") final String deviceToken,
             @Valid @RequestBody final PushNotificationMessage pushNotificationMessage,
             final HttpServletRequest httpRequest) {
+        return cancelledOnDisconnect(handleFcmNotification(deviceToken, pushNotificationMessage, httpRequest));
+    }
+
+    /**
+     * Handles a request for the FCM endpoint, also made by the legacy {@code /relay} endpoint.
+     */
+    public CompletableFuture<ResponseEntity<String>> handleFcmNotification(
+            final String deviceToken,
+            final PushNotificationMessage pushNotificationMessage,
+            final HttpServletRequest httpRequest) {
 
-        if (LOG.isInfoEnabled()) {
-            LOG.info("Handling FCM notification for device token [{}] from [{}]",
-                    maskSensitive(deviceToken),
+        if (LOG.isInfoEnabled(SAMPLED)) {
+            LOG.info(SAMPLED, "Handling FCM notification for device token [{}] from [{}]",
+                    masked(deviceToken),
                     httpRequest.getHeader(HttpHeaders.USER_AGENT));
         }
 
-        return handleRequest(deviceToken, pushNotificationMessage);
+        return routeRequest(deviceToken, pushNotificationMessage, httpRequest);
     }
 }
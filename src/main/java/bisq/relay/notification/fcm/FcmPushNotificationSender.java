@@ -18,132 +18,401 @@
 package bisq.relay.notification.fcm;
 
 import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotification;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.PushProviderInitializer;
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
+import bisq.relay.notification.jfr.PushBuildEvent;
+import bisq.relay.notification.jfr.PushGatewayEvent;
 import bisq.relay.notification.metrics.PushProvider;
+import bisq.relay.util.TlsHandshakeUtil;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
-import com.google.auth.oauth2.GoogleCredentials;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
+import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.SendResponse;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static bisq.relay.logging.LogMarkers.SAMPLED;
 import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.composeUnlessAbandoned;
 
 @PushProvider(PROVIDER_ID_FCM)
 @Service
 @ConditionalOnProperty(name = "fcm.enabled", havingValue = "true", matchIfMissing = false)
+@ConditionalOnProperty(name = "fcm.transport", havingValue = "sdk", matchIfMissing = true)
 public class FcmPushNotificationSender implements PushNotificationSender {
     private static final Logger LOG = LoggerFactory.getLogger(FcmPushNotificationSender.class);
 
+    private static final Duration STARTUP_HANDSHAKE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration INITIALIZATION_WAIT_TIMEOUT = Duration.ofSeconds(5);
+    private static final Message WARM_UP_MESSAGE = Message.builder().setToken("warm-up").build();
+
     private final Executor executor;
-    private final FirebaseMessaging firebaseMessaging;
+    private final CompletableFuture<FirebaseMessaging> firebaseMessagingFuture;
     private final FcmPushNotificationBuilder fcmPushNotificationBuilder;
 
     @Autowired
     public FcmPushNotificationSender(
             final FcmProperties fcmProperties,
-            final FcmPushNotificationBuilder fcmPushNotificationBuilder) throws IOException {
+            final FcmPushNotificationBuilder fcmPushNotificationBuilder,
+            final FcmGoogleCredentials googleCredentials,
+            final PushProviderInitializer pushProviderInitializer,
+            final ObjectProvider<MeterRegistry> registryProvider) {
         this.fcmPushNotificationBuilder = fcmPushNotificationBuilder;
 
         this.executor = MoreExecutors.directExecutor();
 
-        InputStream firebaseConfigStream = new FileInputStream(fcmProperties.getFirebaseConfigurationFile());
-        GoogleCredentials googleCredentials = GoogleCredentials.fromStream(firebaseConfigStream);
-        FirebaseOptions firebaseOptions = FirebaseOptions.builder()
-                .setCredentials(googleCredentials)
-                .setDatabaseUrl(fcmProperties.getFirebaseUrl())
-                .build();
-        if (FirebaseApp.getApps().isEmpty()) {
-            FirebaseApp.initializeApp(firebaseOptions);
-        }
-
-        this.firebaseMessaging = FirebaseMessaging.getInstance();
-
-        LOG.info("FCM client is ready to push notifications");
+        final MeterRegistry registry = registryProvider.getIfAvailable();
+        this.firebaseMessagingFuture = pushProviderInitializer.initialize(PROVIDER_ID_FCM,
+                () -> createFirebaseMessaging(fcmProperties, googleCredentials, registry));
     }
 
     @VisibleForTesting
     public FcmPushNotificationSender(
             final FirebaseMessaging firebaseMessaging,
             final FcmPushNotificationBuilder fcmPushNotificationBuilder) {
-        this.firebaseMessaging = firebaseMessaging;
+        this.firebaseMessagingFuture = CompletableFuture.completedFuture(firebaseMessaging);
         this.fcmPushNotificationBuilder = fcmPushNotificationBuilder;
         this.executor = MoreExecutors.directExecutor();
     }
 
+    private static FirebaseMessaging createFirebaseMessaging(
+            final FcmProperties fcmProperties,
+            final FcmGoogleCredentials googleCredentials,
+            @Nullable final MeterRegistry registry) throws IOException, GeneralSecurityException {
+        if (fcmProperties.isStartupHandshake()) {
+            TlsHandshakeUtil.handshake(URI.create(fcmProperties.getApiUrl()), null, STARTUP_HANDSHAKE_TIMEOUT);
+            LOG.info("TLS handshake with FCM gateway succeeded; apiUrl={}", fcmProperties.getApiUrl());
+        }
+
+        if (FirebaseApp.getApps().isEmpty()) {
+            final FirebaseOptions.Builder firebaseOptionsBuilder = FirebaseOptions.builder()
+                    .setCredentials(googleCredentials)
+                    .setProjectId(googleCredentials.getProjectId())
+                    .setDatabaseUrl(fcmProperties.getFirebaseUrl());
+            if (registry != null) {
+                firebaseOptionsBuilder
+                        .setThreadManager(FcmClientInstrumentation.threadManager(registry))
+                        .setHttpTransport(FcmClientInstrumentation.httpTransport(registry));
+            }
+            FirebaseApp.initializeApp(firebaseOptionsBuilder.build());
+        }
+
+        final FirebaseMessaging firebaseMessaging = FirebaseMessaging.getInstance();
+
+        LOG.info("FCM client is ready to push notifications");
+        return firebaseMessaging;
+    }
+
     @PreDestroy
     public void destroy() {
+        // Runs after PushDrain, so no notification is in flight anymore
         LOG.info("Shutting down FCM client");
+        try {
+            // Initialization may still be running, e.g. on a shutdown right after start; an app it creates after
+            // the deletion below would never be deleted
+            firebaseMessagingFuture.get(INITIALIZATION_WAIT_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            firebaseMessagingFuture.thenRun(FcmPushNotificationSender::deleteFirebaseApps);
+        } catch (TimeoutException e) {
+            // Do not hold up the shutdown any longer, but do not leak the app either
+            LOG.warn("FCM client still initializing at shutdown, deleting it once initialized; waitMillis={}",
+                    INITIALIZATION_WAIT_TIMEOUT.toMillis());
+            firebaseMessagingFuture.thenRun(FcmPushNotificationSender::deleteFirebaseApps);
+        } catch (ExecutionException | CancellationException e) {
+            // Initialization failed, but it may have created the app before that
+        }
+        deleteFirebaseApps();
+    }
+
+    private static void deleteFirebaseApps() {
         for (FirebaseApp firebaseApp : FirebaseApp.getApps()) {
             firebaseApp.delete();
         }
     }
 
+    /**
+     * Sends a dry run message, which FCM validates but never delivers. This fetches the OAuth access token and
+     * opens the connection to the FCM API.
+     */
+    @Override
+    public CompletableFuture<Void> warmUpConnections() {
+        return firebaseMessagingFuture.thenCompose(firebaseMessaging -> {
+            final CompletableFuture<Void> completableFuture = new CompletableFuture<>();
+            ApiFutures.addCallback(firebaseMessaging.sendAsync(WARM_UP_MESSAGE, true), new ApiFutureCallback<>() {
+                @Override
+                public void onSuccess(final String result) {
+                    completableFuture.complete(null);
+                }
+
+                @Override
+                public void onFailure(final Throwable cause) {
+                    // Expected, the warm-up token is not a registration token
+                    completableFuture.complete(null);
+                }
+            }, executor);
+            return completableFuture;
+        });
+    }
+
     // TODO implement circuit breaker, can use resilience4j
     //  Ref: https://www.baeldung.com/spring-boot-resilience4j
     @Override
     public CompletableFuture<PushNotificationResult> sendNotification(
             @Nonnull final PushNotificationMessage pushNotificationMessage,
             @Nonnull final String deviceToken) {
+        return sendNotification(pushNotificationMessage, deviceToken, PushStageListener.NOOP);
+    }
+
+    @Override
+    public CompletableFuture<PushNotificationResult> sendNotification(
+            @Nonnull final PushNotificationMessage pushNotificationMessage,
+            @Nonnull final String deviceToken,
+            @Nonnull final PushStageListener stageListener) {
         Objects.requireNonNull(pushNotificationMessage);
         Objects.requireNonNull(deviceToken);
+        Objects.requireNonNull(stageListener);
 
+        final PushBuildEvent buildEvent = new PushBuildEvent();
+        buildEvent.begin();
+        final long buildStartNanos = System.nanoTime();
         final Message message = fcmPushNotificationBuilder.buildMessage(pushNotificationMessage, deviceToken);
+        stageListener.stageCompleted(PushStage.BUILD, System.nanoTime() - buildStartNanos);
+        buildEvent.complete(PROVIDER_ID_FCM, deviceToken);
 
+        if (firebaseMessagingFuture.isDone() && !firebaseMessagingFuture.isCompletedExceptionally()) {
+            return sendNotification(firebaseMessagingFuture.join(), message, deviceToken, stageListener);
+        }
+        // Not initialized yet (or failed to); readiness keeps traffic away, but do not fail early requests. One that is
+        // abandoned while waiting is not sent at all, or cancelled along with the SDK request
+        final long waitStartNanos = System.nanoTime();
+        return composeUnlessAbandoned(firebaseMessagingFuture, firebaseMessaging -> {
+            stageListener.stageCompleted(PushStage.WAIT, System.nanoTime() - waitStartNanos);
+            return sendNotification(firebaseMessaging, message, deviceToken, stageListener);
+        });
+    }
+
+    private CompletableFuture<PushNotificationResult> sendNotification(
+            final FirebaseMessaging firebaseMessaging,
+            final Message message,
+            final String deviceToken,
+            final PushStageListener stageListener) {
         final CompletableFuture<PushNotificationResult> completableFuture = new CompletableFuture<>();
 
+        // The SDK serializes the message on its own threads, so that is part of the gateway stage here
+        final PushGatewayEvent gatewayEvent = new PushGatewayEvent();
+        gatewayEvent.begin();
+        final long gatewayStartNanos = System.nanoTime();
         final ApiFuture<String> apiFuture = firebaseMessaging.sendAsync(message);
+        // A caller that gives up on the notification, e.g. past its deadline, cancels the SDK request as well
+        cancelWhenAbandoned(completableFuture, apiFuture);
 
         ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
             @Override
             public void onSuccess(final String result) {
-                LOG.info("Push notification accepted by FCM gateway; messageId={}", result);
-                completableFuture.complete(new PushNotificationResult(true, null, null, false));
+                stageListener.stageCompleted(PushStage.GATEWAY, System.nanoTime() - gatewayStartNanos);
+                completeAccepted(result, deviceToken, gatewayEvent, completableFuture);
             }
 
             @Override
             public void onFailure(final Throwable cause) {
-                if (cause instanceof final FirebaseMessagingException firebaseMessagingException &&
-                        firebaseMessagingException.getMessagingErrorCode() != null) {
-                    final String errorCode = firebaseMessagingException.getMessagingErrorCode().name();
-                    final String errorMessage = firebaseMessagingException.getMessage();
-                    LOG.error("Push notification rejected by FCM gateway; [{}] {}", errorCode,
-                            errorMessage == null ? "" : errorMessage);
-                    completableFuture.complete(new PushNotificationResult(false, errorCode, errorMessage,
-                            firebaseMessagingException.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED));
-                } else {
-                    // Something went wrong when trying to send the notification to the
-                    // FCM server. Note that this is distinct from a rejection from
-                    // the server, and indicates that something went wrong when actually
-                    // sending the notification or waiting for a reply.
-                    LOG.error("Failed to send notification to FCM gateway; {}", cause.getMessage());
-                    completableFuture.completeExceptionally(cause);
-                }
+                stageListener.stageCompleted(PushStage.GATEWAY, System.nanoTime() - gatewayStartNanos);
+                completeFailed(cause, deviceToken, gatewayEvent, completableFuture);
             }
         }, executor);
 
         return completableFuture;
     }
+
+    /**
+     * Sends the notifications with a single {@link FirebaseMessaging#sendEachAsync} call.
+     */
+    @Override
+    public List<CompletableFuture<PushNotificationResult>> sendNotifications(
+            @Nonnull final List<PushNotification> notifications,
+            @Nonnull final PushStageListener stageListener) {
+        Objects.requireNonNull(notifications);
+        Objects.requireNonNull(stageListener);
+
+        final List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>(notifications.size());
+        final List<Message> messages = new ArrayList<>(notifications.size());
+        final List<String> deviceTokens = new ArrayList<>(notifications.size());
+        final List<CompletableFuture<PushNotificationResult>> pending = new ArrayList<>(notifications.size());
+        for (PushNotification notification : notifications) {
+            final CompletableFuture<PushNotificationResult> result = new CompletableFuture<>();
+            results.add(result);
+
+            final PushBuildEvent buildEvent = new PushBuildEvent();
+            buildEvent.begin();
+            final long buildStartNanos = System.nanoTime();
+            final String deviceToken = notification.deviceToken();
+            try {
+                messages.add(fcmPushNotificationBuilder.buildMessage(notification.message(), deviceToken));
+            } catch (RuntimeException e) {
+                // Fail this notification only, the rest of the batch is still sent
+                result.completeExceptionally(e);
+                continue;
+            }
+            stageListener.stageCompleted(PushStage.BUILD, System.nanoTime() - buildStartNanos);
+            buildEvent.complete(PROVIDER_ID_FCM, deviceToken);
+            deviceTokens.add(deviceToken);
+            pending.add(result);
+        }
+        if (messages.isEmpty()) {
+            return results;
+        }
+
+        if (firebaseMessagingFuture.isDone() && !firebaseMessagingFuture.isCompletedExceptionally()) {
+            sendEach(firebaseMessagingFuture.join(), messages, deviceTokens, pending, stageListener);
+            return results;
+        }
+        final long waitStartNanos = System.nanoTime();
+        firebaseMessagingFuture.whenComplete((firebaseMessaging, cause) -> {
+            if (cause != null) {
+                pending.forEach(result -> result.completeExceptionally(cause));
+                return;
+            }
+            // Notifications abandoned while waiting, e.g. past their deadline, are not sent
+            final List<Message> unabandonedMessages = new ArrayList<>(messages.size());
+            final List<String> unabandonedDeviceTokens = new ArrayList<>(messages.size());
+            final List<CompletableFuture<PushNotificationResult>> unabandoned = new ArrayList<>(messages.size());
+            for (int i = 0; i < pending.size(); i++) {
+                if (!pending.get(i).isDone()) {
+                    unabandonedMessages.add(messages.get(i));
+                    unabandonedDeviceTokens.add(deviceTokens.get(i));
+                    unabandoned.add(pending.get(i));
+                }
+            }
+            if (unabandoned.isEmpty()) {
+                return;
+            }
+            final long waitNanos = System.nanoTime() - waitStartNanos;
+            unabandoned.forEach(result -> stageListener.stageCompleted(PushStage.WAIT, waitNanos));
+            sendEach(firebaseMessaging, unabandonedMessages, unabandonedDeviceTokens, unabandoned, stageListener);
+        });
+        return results;
+    }
+
+    private void sendEach(
+            final FirebaseMessaging firebaseMessaging,
+            final List<Message> messages,
+            final List<String> deviceTokens,
+            final List<CompletableFuture<PushNotificationResult>> results,
+            final PushStageListener stageListener) {
+        final List<PushGatewayEvent> gatewayEvents = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            final PushGatewayEvent gatewayEvent = new PushGatewayEvent();
+            gatewayEvent.begin();
+            gatewayEvents.add(gatewayEvent);
+        }
+        final long gatewayStartNanos = System.nanoTime();
+        final ApiFuture<BatchResponse> apiFuture = firebaseMessaging.sendEachAsync(messages);
+
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(final BatchResponse batchResponse) {
+                final long gatewayNanos = System.nanoTime() - gatewayStartNanos;
+                final List<SendResponse> responses = batchResponse.getResponses();
+                for (int i = 0; i < results.size(); i++) {
+                    stageListener.stageCompleted(PushStage.GATEWAY, gatewayNanos);
+                    final SendResponse response = responses.get(i);
+                    if (response.isSuccessful()) {
+                        completeAccepted(response.getMessageId(), deviceTokens.get(i), gatewayEvents.get(i),
+                                results.get(i));
+                    } else {
+                        completeFailed(response.getException(), deviceTokens.get(i), gatewayEvents.get(i),
+                                results.get(i));
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(final Throwable cause) {
+                final long gatewayNanos = System.nanoTime() - gatewayStartNanos;
+                for (int i = 0; i < results.size(); i++) {
+                    stageListener.stageCompleted(PushStage.GATEWAY, gatewayNanos);
+                    completeFailed(cause, deviceTokens.get(i), gatewayEvents.get(i), results.get(i));
+                }
+            }
+        }, executor);
+    }
+
+    private static void completeAccepted(
+            final String messageId,
+            final String deviceToken,
+            final PushGatewayEvent gatewayEvent,
+            final CompletableFuture<PushNotificationResult> completableFuture) {
+        LOG.info(SAMPLED, "Push notification accepted by FCM gateway; messageId={}", messageId);
+        final PushNotificationResult pushNotificationResult = new PushNotificationResult(true, null, null, false);
+        gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, pushNotificationResult, null);
+        completableFuture.complete(pushNotificationResult);
+    }
+
+    private static void completeFailed(
+            final Throwable cause,
+            final String deviceToken,
+            final PushGatewayEvent gatewayEvent,
+            final CompletableFuture<PushNotificationResult> completableFuture) {
+        if (cause instanceof final FirebaseMessagingException firebaseMessagingException &&
+                firebaseMessagingException.getMessagingErrorCode() != null) {
+            final String errorCode = firebaseMessagingException.getMessagingErrorCode().name();
+            final String errorMessage = firebaseMessagingException.getMessage();
+            LOG.error("Push notification rejected by FCM gateway; [{}] {}", errorCode,
+                    errorMessage == null ? "" : errorMessage);
+            final PushNotificationResult pushNotificationResult = new PushNotificationResult(false,
+                    errorCode, errorMessage,
+                    firebaseMessagingException.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED);
+            gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, pushNotificationResult, null);
+            completableFuture.complete(pushNotificationResult);
+        } else {
+            // Something went wrong when trying to send the notification to the
+            // FCM server. Note that this is distinct from a rejection from
+            // the server, and indicates that something went wrong when actually
+            // sending the notification or waiting for a reply.
+            gatewayEvent.complete(PROVIDER_ID_FCM, deviceToken, null, cause);
+            if (completableFuture.isCancelled()) {
+                // Abandoned by the caller, nobody is waiting for this answer
+                return;
+            }
+            LOG.error("Failed to send notification to FCM gateway; {}", cause.getMessage());
+            completableFuture.completeExceptionally(cause);
+        }
+    }
 }
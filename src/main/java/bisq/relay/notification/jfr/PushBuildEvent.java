@@ -0,0 +1,41 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.jfr;
+
+import jakarta.annotation.Nonnull;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans building the provider specific notification from a push request.
+ */
+@Name("bisq.relay.PushBuild")
+@Label("Push Payload Built")
+@Description("Building the provider specific notification")
+public final class PushBuildEvent extends PushEvent {
+
+    public void complete(@Nonnull final String provider, @Nonnull final String deviceToken) {
+        end();
+        if (shouldCommit()) {
+            populate(provider, deviceToken);
+            commit();
+        }
+    }
+}
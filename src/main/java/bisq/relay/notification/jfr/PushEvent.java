@@ -0,0 +1,74 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.jfr;
+
+import bisq.relay.notification.PushNotificationResult;
+import jakarta.annotation.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+import static bisq.relay.util.FutureUtil.isTimeout;
+import static bisq.relay.util.MaskingUtil.maskSensitive;
+
+/**
+ * Base of the JDK Flight Recorder events emitted along the way of a push notification.
+ * <p>Every event is a duration event and carries the provider and the masked device token, which is masked the same
+ * way as in the logs, so that the events of one push can be correlated with each other and with the log lines.
+ * Fields are only populated if the event is going to be committed, so the events cost next to nothing while no
+ * recording is running.
+ */
+@Category({"Bisq Relay", "Push"})
+public abstract class PushEvent extends Event {
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Device Token")
+    @Description("Masked device token")
+    String deviceToken;
+
+    void populate(final String provider, final String deviceToken) {
+        this.provider = provider;
+        this.deviceToken = maskSensitive(deviceToken);
+    }
+
+    /**
+     * Classifies a result the same way as the {@code result} tag of the push metrics.
+     */
+    static String outcome(@Nullable final PushNotificationResult result, @Nullable final Throwable cause) {
+        if (isTimeout(cause)) {
+            return RESULT_TIMEOUT;
+        }
+        if (cause != null || result == null) {
+            return RESULT_ERROR;
+        }
+        return result.wasAccepted() ? RESULT_ACCEPTED : RESULT_REJECTED;
+    }
+
+    @Nullable
+    static String errorCode(@Nullable final PushNotificationResult result, @Nullable final Throwable cause) {
+        if (cause != null) {
+            return cause.getClass().getSimpleName();
+        }
+        return result == null ? null : result.errorCode();
+    }
+}
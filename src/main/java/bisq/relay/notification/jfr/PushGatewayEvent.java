@@ -0,0 +1,56 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.jfr;
+
+import bisq.relay.notification.PushNotificationResult;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans a notification from its dispatch to the push gateway until the gateway's result has been received.
+ * The event is committed on the thread that received the result.
+ */
+@Name("bisq.relay.PushGateway")
+@Label("Push Gateway Exchange")
+@Description("Notification from its dispatch to the push gateway until the result has been received")
+public final class PushGatewayEvent extends PushEvent {
+
+    @Label("Outcome")
+    @Description("accepted, rejected, error or timeout")
+    String outcome;
+
+    @Label("Error Code")
+    String errorCode;
+
+    public void complete(@Nonnull final String provider,
+                         @Nonnull final String deviceToken,
+                         @Nullable final PushNotificationResult result,
+                         @Nullable final Throwable cause) {
+        end();
+        if (shouldCommit()) {
+            populate(provider, deviceToken);
+            this.outcome = outcome(result, cause);
+            this.errorCode = errorCode(result, cause);
+            commit();
+        }
+    }
+}
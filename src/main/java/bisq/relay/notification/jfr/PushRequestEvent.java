@@ -0,0 +1,60 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.jfr;
+
+import bisq.relay.notification.PushNotificationResult;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Spans a push request from its receipt by the controller until the HTTP response has been built.
+ */
+@Name("bisq.relay.PushRequest")
+@Label("Push Request")
+@Description("Push request from its receipt until the response has been built")
+public final class PushRequestEvent extends PushEvent {
+
+    @Label("Outcome")
+    @Description("accepted, rejected, error or timeout")
+    String outcome;
+
+    @Label("Error Code")
+    String errorCode;
+
+    @Label("HTTP Status")
+    int httpStatus;
+
+    public void complete(@Nonnull final String provider,
+                         @Nonnull final String deviceToken,
+                         @Nullable final PushNotificationResult result,
+                         @Nullable final Throwable cause,
+                         final int httpStatus) {
+        end();
+        if (shouldCommit()) {
+            populate(provider, deviceToken);
+            this.outcome = outcome(result, cause);
+            this.errorCode = errorCode(result, cause);
+            this.httpStatus = httpStatus;
+            commit();
+        }
+    }
+}
@@ -17,42 +17,50 @@
 
 package bisq.relay.notification.metrics;
 
+import bisq.relay.notification.PushNotification;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
+import bisq.relay.notification.metrics.PushMeterTable.Code;
+import bisq.relay.notification.metrics.PushMeterTable.Outcome;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.springframework.beans.factory.ObjectProvider;
 
-import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
 
 import static bisq.relay.notification.metrics.PushMetrics.*;
+import static bisq.relay.util.FutureUtil.cancelWhenAbandoned;
+import static bisq.relay.util.FutureUtil.isTimeout;
 
 /**
  * Decorator that adds Micrometer metrics to any {@link PushNotificationSender}.
  * <p>Emits the following metrics:
  * <ul>
  *   <li>{@code push_attempts_total{provider}}</li>
- *   <li>{@code push_total{provider,result=accepted|rejected|error}}</li>
+ *   <li>{@code push_total{provider,result=accepted|rejected|error|timeout}}</li>
  *   <li>{@code push_latency_seconds_bucket{provider,result,code,le=...}}</li>
+ *   <li>{@code push_stage_latency_seconds_bucket{provider,stage,le=...}}</li>
  * </ul>
  * <p><strong>Note:</strong> The {@link MeterRegistry} is resolved lazily via {@link ObjectProvider}
  * to avoid early bean initialization during post-processing. If no registry is available, this
  * decorator becomes a no-op and simply delegates for the {@link PushNotificationSender}.
+ * Once a registry is available, its meters are kept in a {@link PushMeterTable}, so that sends do not
+ * look them up again.
  */
-final class MetricsPushNotificationSender implements PushNotificationSender {
-
-    private static final double[] PUSH_LATENCY_PERCENTILES = {0.5, 0.9, 0.95, 0.99};
-    private static final Duration PUSH_LATENCY_MAX_EXPECTED_DURATION = Duration.ofSeconds(10);
+public final class MetricsPushNotificationSender implements PushNotificationSender {
 
     private final String providerId;
     private final PushNotificationSender pushNotificationSender;
     private final ObjectProvider<MeterRegistry> registryProvider;
+    @Nullable
+    private volatile PushMeterTable meterTable;
 
     /**
      * Creates a metrics-decorated push notification sender.
@@ -74,52 +82,139 @@ final class MetricsPushNotificationSender implements PushNotificationSender {
     public CompletableFuture<PushNotificationResult> sendNotification(
             @Nonnull final PushNotificationMessage message,
             @Nonnull final String deviceToken) {
+        return sendNotification(message, deviceToken, PushStageListener.NOOP);
+    }
+
+    @Override
+    public CompletableFuture<PushNotificationResult> sendNotification(
+            @Nonnull final PushNotificationMessage message,
+            @Nonnull final String deviceToken,
+            @Nonnull final PushStageListener stageListener) {
+
+        final PushMeterTable meters = meterTable();
+        if (meters == null) {
+            // No metrics backend available; nothing to record
+            return pushNotificationSender.sendNotification(message, deviceToken, stageListener);
+        }
+
+        final long startNanos = System.nanoTime();
+
+        // Count the attempt (low cardinality: only provider tag)
+        meters.recordAttempt();
 
-        // Resolve registry lazily and tolerate absence (e.g., in certain tests)
-        final MeterRegistry registry = registryProvider.getIfAvailable();
+        final PushStageListener recordingStageListener = recordingStageListener(meters, stageListener);
+        final CompletableFuture<PushNotificationResult> result =
+                pushNotificationSender.sendNotification(message, deviceToken, recordingStageListener);
+        return recordingResult(meters, result, startNanos);
+    }
+
+    @Override
+    public List<CompletableFuture<PushNotificationResult>> sendNotifications(
+            @Nonnull final List<PushNotification> notifications,
+            @Nonnull final PushStageListener stageListener) {
+
+        final PushMeterTable meters = meterTable();
+        if (meters == null) {
+            return pushNotificationSender.sendNotifications(notifications, stageListener);
+        }
 
         final long startNanos = System.nanoTime();
+        for (int i = 0; i < notifications.size(); i++) {
+            meters.recordAttempt();
+        }
+
+        final List<CompletableFuture<PushNotificationResult>> results = pushNotificationSender.sendNotifications(
+                notifications, recordingStageListener(meters, stageListener));
+        final List<CompletableFuture<PushNotificationResult>> recordingResults = new ArrayList<>(results.size());
+        for (CompletableFuture<PushNotificationResult> result : results) {
+            recordingResults.add(recordingResult(meters, result, startNanos));
+        }
+        return recordingResults;
+    }
+
+    private static PushStageListener recordingStageListener(final PushMeterTable meters,
+                                                            final PushStageListener stageListener) {
+        return stageListener == PushStageListener.NOOP
+                ? meters
+                : (stage, durationNanos) -> {
+                    meters.stageCompleted(stage, durationNanos);
+                    stageListener.stageCompleted(stage, durationNanos);
+                };
+    }
+
+    private CompletableFuture<PushNotificationResult> recordingResult(
+            final PushMeterTable meters,
+            final CompletableFuture<PushNotificationResult> result,
+            final long startNanos) {
+        // Not a dependent of the send: a cancelled dependent would skip recording the send
+        final CompletableFuture<PushNotificationResult> recordingResult = new CompletableFuture<>();
+        result.whenComplete((r, error) -> {
+            recordResult(meters, r, error, startNanos);
+            if (error != null) {
+                recordingResult.completeExceptionally(error);
+            } else {
+                recordingResult.complete(r);
+            }
+        });
+        // Cancelling the returned future abandons the send itself, which is then recorded as a timeout
+        cancelWhenAbandoned(recordingResult, result);
+        return recordingResult;
+    }
+
+    private void recordResult(final PushMeterTable meters,
+                              @Nullable final PushNotificationResult result,
+                              @Nullable final Throwable error,
+                              final long startNanos) {
+        final Outcome outcome;
+        final Code code;
+
+        if (isTimeout(error)) {
+            outcome = Outcome.TIMEOUT;
+            code = Code.IO;
+        } else if (error != null) {
+            outcome = Outcome.ERROR;
+            code = Code.IO;
+        } else if (result != null && result.wasAccepted()) {
+            outcome = Outcome.ACCEPTED;
+            code = Code.NONE;
+        } else {
+            outcome = Outcome.REJECTED;
+            code = classifyCode(providerId, result != null ? result.errorCode() : null);
+        }
+
+        // Count the result (providerId + outcome) and record the latency (providerId, outcome, code)
+        meters.recordResult(outcome, code, System.nanoTime() - startNanos);
+    }
 
-        if (registry != null) {
-            // Count the attempt (low cardinality: only provider tag)
-            registry.counter(METRIC_PUSH_ATTEMPTS_TOTAL, TAG_PROVIDER, providerId).increment();
+    /**
+     * Resolves the registry lazily and tolerates its absence (e.g., in certain tests).
+     */
+    @Nullable
+    private PushMeterTable meterTable() {
+        PushMeterTable meters = meterTable;
+        if (meters == null) {
+            final MeterRegistry registry = registryProvider.getIfAvailable();
+            if (registry != null) {
+                // Racing threads build equal tables on top of the same registry meters
+                meters = new PushMeterTable(registry, providerId);
+                meterTable = meters;
+            }
         }
+        return meters;
+    }
 
-        return pushNotificationSender.sendNotification(message, deviceToken)
-                .whenComplete((result, error) -> {
-                    if (registry == null) {
-                        // No metrics backend available; nothing to record
-                        return;
-                    }
-
-                    final String outcome;
-                    final String code;
-
-                    if (error != null) {
-                        outcome = RESULT_ERROR;
-                        code = CODE_IO;
-                    } else if (result != null && result.wasAccepted()) {
-                        outcome = RESULT_ACCEPTED;
-                        code = CODE_NONE;
-                    } else {
-                        outcome = RESULT_REJECTED;
-                        code = classifyCode(providerId, result != null ? result.errorCode() : null);
-                    }
-
-                    // Count the result (providerId + outcome)
-                    registry.counter(METRIC_PUSH_TOTAL,
-                            TAG_PROVIDER, providerId,
-                            TAG_RESULT, outcome).increment();
-
-                    // Record the latency (providerId, outcome, code)
-                    final long durationNanos = System.nanoTime() - startNanos;
-                    Timer.builder(METRIC_PUSH_LATENCY_SECONDS)
-                            .tags(TAG_PROVIDER, providerId, TAG_RESULT, outcome, TAG_CODE, code)
-                            .publishPercentiles(PUSH_LATENCY_PERCENTILES)
-                            .maximumExpectedValue(PUSH_LATENCY_MAX_EXPECTED_DURATION)
-                            .register(registry)
-                            .record(durationNanos, TimeUnit.NANOSECONDS);
-                });
+    @Override
+    public void stageCompleted(@Nonnull final PushStage stage, final long durationNanos) {
+        final PushMeterTable meters = meterTable();
+        if (meters != null) {
+            meters.stageCompleted(stage, durationNanos);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUpConnections() {
+        // Not a push, so nothing to record
+        return pushNotificationSender.warmUpConnections();
     }
 
     /**
@@ -127,34 +222,34 @@ final class MetricsPushNotificationSender implements PushNotificationSender {
      *
      * @param providerId the provider id (e.g., {@link PushMetrics#PROVIDER_ID_APNS}, {@link PushMetrics#PROVIDER_ID_FCM})
      * @param errorCode  the raw error code returned by the provider
-     * @return a low-cardinality classification tag value
+     * @return a low-cardinality classification
      */
-    private static String classifyCode(@Nonnull final String providerId, @Nullable final String errorCode) {
+    private static Code classifyCode(@Nonnull final String providerId, @Nullable final String errorCode) {
         if (errorCode == null) {
-            return CODE_OTHER;
+            return Code.OTHER;
         }
 
         if (PROVIDER_ID_APNS.equals(providerId)) {
             return switch (errorCode) {
-                case "Unregistered", "BadDeviceToken" -> CODE_TOKEN;
-                case "TooManyRequests" -> CODE_THROTTLE;
-                case "PayloadTooLarge" -> CODE_PAYLOAD;
-                case "InternalServerError", "ServiceUnavailable" -> CODE_SERVER;
-                default -> CODE_OTHER;
+                case "Unregistered", "BadDeviceToken" -> Code.TOKEN;
+                case "TooManyRequests" -> Code.THROTTLE;
+                case "PayloadTooLarge" -> Code.PAYLOAD;
+                case "InternalServerError", "ServiceUnavailable" -> Code.SERVER;
+                default -> Code.OTHER;
             };
         }
 
         if (PROVIDER_ID_FCM.equals(providerId)) {
             return switch (errorCode) {
-                case "UNREGISTERED", "INVALID_ARGUMENT" -> CODE_TOKEN;
-                case "QUOTA_EXCEEDED" -> CODE_THROTTLE;
-                case "MESSAGE_TOO_BIG" -> CODE_PAYLOAD;
-                case "UNAVAILABLE", "INTERNAL" -> CODE_SERVER;
-                case "SENDER_ID_MISMATCH" -> CODE_AUTH;
-                default -> CODE_OTHER;
+                case "UNREGISTERED", "INVALID_ARGUMENT" -> Code.TOKEN;
+                case "QUOTA_EXCEEDED" -> Code.THROTTLE;
+                case "MESSAGE_TOO_BIG" -> Code.PAYLOAD;
+                case "UNAVAILABLE", "INTERNAL" -> Code.SERVER;
+                case "SENDER_ID_MISMATCH" -> Code.AUTH;
+                default -> Code.OTHER;
             };
         }
 
-        return CODE_OTHER;
+        return Code.OTHER;
     }
 }
@@ -0,0 +1,150 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.metrics;
+
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Nonnull;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+
+/**
+ * The push meters of one provider, indexed by {@link Outcome}, {@link Code} and {@link PushStage}.
+ * <p>
+ * The tag space is small and fixed by {@link PushMetrics}, so every meter is looked up in the {@link MeterRegistry}
+ * at most once. After that, recording a push is an array read plus an increment or record, without allocating tags.
+ * Meters other than the attempts counter are registered on first use, so only outcomes that actually occurred
+ * are exported, as before.
+ */
+final class PushMeterTable implements PushStageListener {
+
+    private static final double[] PUSH_LATENCY_PERCENTILES = {0.5, 0.9, 0.95, 0.99};
+    private static final Duration PUSH_LATENCY_MAX_EXPECTED_DURATION = Duration.ofSeconds(10);
+
+    /**
+     * Values of the {@link PushMetrics#TAG_RESULT} tag of a push.
+     */
+    enum Outcome {
+        ACCEPTED(RESULT_ACCEPTED),
+        REJECTED(RESULT_REJECTED),
+        ERROR(RESULT_ERROR),
+        TIMEOUT(RESULT_TIMEOUT);
+
+        private final String tag;
+
+        Outcome(final String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Values of the {@link PushMetrics#TAG_CODE} tag of a push.
+     */
+    enum Code {
+        NONE(CODE_NONE),
+        TOKEN(CODE_TOKEN),
+        PAYLOAD(CODE_PAYLOAD),
+        THROTTLE(CODE_THROTTLE),
+        SERVER(CODE_SERVER),
+        AUTH(CODE_AUTH),
+        IO(CODE_IO),
+        OTHER(CODE_OTHER);
+
+        private final String tag;
+
+        Code(final String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final Code[] CODES = Code.values();
+    private static final PushStage[] STAGES = PushStage.values();
+
+    private final MeterRegistry registry;
+    private final String providerId;
+    private final Counter attempts;
+    private final AtomicReferenceArray<Counter> results = new AtomicReferenceArray<>(OUTCOMES.length);
+    private final AtomicReferenceArray<Timer> latencies = new AtomicReferenceArray<>(OUTCOMES.length * CODES.length);
+    private final AtomicReferenceArray<Timer> stageLatencies = new AtomicReferenceArray<>(STAGES.length);
+
+    PushMeterTable(@Nonnull final MeterRegistry registry, @Nonnull final String providerId) {
+        this.registry = Objects.requireNonNull(registry);
+        this.providerId = Objects.requireNonNull(providerId);
+        this.attempts = registry.counter(METRIC_PUSH_ATTEMPTS_TOTAL, TAG_PROVIDER, providerId);
+    }
+
+    void recordAttempt() {
+        attempts.increment();
+    }
+
+    void recordResult(@Nonnull final Outcome outcome, @Nonnull final Code code, final long durationNanos) {
+        result(outcome).increment();
+        latency(outcome, code).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void stageCompleted(@Nonnull final PushStage stage, final long durationNanos) {
+        stageLatency(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter result(final Outcome outcome) {
+        Counter counter = results.get(outcome.ordinal());
+        if (counter == null) {
+            // Racing threads get the same meter from the registry, so whichever write wins is fine
+            counter = registry.counter(METRIC_PUSH_TOTAL, TAG_PROVIDER, providerId, TAG_RESULT, outcome.tag);
+            results.set(outcome.ordinal(), counter);
+        }
+        return counter;
+    }
+
+    private Timer latency(final Outcome outcome, final Code code) {
+        final int index = outcome.ordinal() * CODES.length + code.ordinal();
+        Timer timer = latencies.get(index);
+        if (timer == null) {
+            timer = Timer.builder(METRIC_PUSH_LATENCY_SECONDS)
+                    .tags(TAG_PROVIDER, providerId, TAG_RESULT, outcome.tag, TAG_CODE, code.tag)
+                    .publishPercentiles(PUSH_LATENCY_PERCENTILES)
+                    .maximumExpectedValue(PUSH_LATENCY_MAX_EXPECTED_DURATION)
+                    .register(registry);
+            latencies.set(index, timer);
+        }
+        return timer;
+    }
+
+    private Timer stageLatency(final PushStage stage) {
+        Timer timer = stageLatencies.get(stage.ordinal());
+        if (timer == null) {
+            timer = Timer.builder(METRIC_PUSH_STAGE_LATENCY_SECONDS)
+                    .tags(TAG_PROVIDER, providerId, TAG_STAGE, stage.tag())
+                    .publishPercentiles(PUSH_LATENCY_PERCENTILES)
+                    .maximumExpectedValue(PUSH_LATENCY_MAX_EXPECTED_DURATION)
+                    .register(registry);
+            stageLatencies.set(stage.ordinal(), timer);
+        }
+        return timer;
+    }
+}
@@ -54,6 +54,138 @@ public final class PushMetrics {
      */
     public static final String METRIC_PUSH_LATENCY_SECONDS = "push_latency_seconds";
 
+    /**
+     * Histogram of the latencies of the stages of a send in seconds, tagged by provider and stage.
+     */
+    public static final String METRIC_PUSH_STAGE_LATENCY_SECONDS = "push_stage_latency_seconds";
+
+    /**
+     * Counter for requests passed to admission control, tagged by provider and result (admitted or shed).
+     */
+    public static final String METRIC_PUSH_ADMISSION_TOTAL = "push_admission_total";
+
+    /**
+     * Gauge of the admitted notifications that have not been answered yet, tagged by provider.
+     */
+    public static final String METRIC_PUSH_ADMISSION_IN_FLIGHT = "push_admission_in_flight";
+
+    /**
+     * Gauge of the size of the admitted notifications that have not been answered yet in bytes, tagged by provider.
+     */
+    public static final String METRIC_PUSH_ADMISSION_IN_FLIGHT_BYTES = "push_admission_in_flight_bytes";
+
+    /**
+     * Histogram of the time admitted notifications waited for a free dispatch slot in seconds, tagged by provider
+     * and priority.
+     */
+    public static final String METRIC_PUSH_DISPATCH_WAIT_SECONDS = "push_dispatch_wait_seconds";
+
+    /**
+     * Gauge of the notifications waiting for a free dispatch slot, tagged by provider and priority.
+     */
+    public static final String METRIC_PUSH_DISPATCH_QUEUED = "push_dispatch_queued";
+
+    /**
+     * Counter for queued notifications whose deadline passed before they got a dispatch slot, so that they were never
+     * sent, tagged by provider and priority.
+     */
+    public static final String METRIC_PUSH_DISPATCH_EXPIRED_TOTAL = "push_dispatch_expired_total";
+
+    /**
+     * Distribution of the number of background notifications sent together in a batch, tagged by provider.
+     */
+    public static final String METRIC_PUSH_BATCH_SIZE = "push_batch_size";
+
+    /**
+     * Histogram of the time draining the push notifications on shutdown took in seconds.
+     */
+    public static final String METRIC_PUSH_DRAIN_SECONDS = "push_drain_seconds";
+
+    /**
+     * Counter for notifications still in flight once draining on shutdown timed out, which were spooled to disk (or
+     * dropped if spooling is disabled), tagged by provider.
+     */
+    public static final String METRIC_PUSH_DRAIN_ABANDONED_TOTAL = "push_drain_abandoned_total";
+
+    /**
+     * Counter for spooled notifications sent on start, tagged by provider and result (accepted, rejected, shed or
+     * error).
+     */
+    public static final String METRIC_PUSH_SPOOL_REPLAYED_TOTAL = "push_spool_replayed_total";
+
+    /**
+     * Counter for requests forwarded to the cluster member owning their device token, tagged by provider and result
+     * (forwarded, failed_over when no connection to the owner could be opened and the request was routed again,
+     * timeout, or error when the exchange with the owner failed otherwise).
+     */
+    public static final String METRIC_PUSH_CLUSTER_FORWARDED_TOTAL = "push_cluster_forwarded_total";
+
+    /**
+     * Gauge of the cluster members, including this one, that currently own device tokens.
+     */
+    public static final String METRIC_PUSH_CLUSTER_MEMBERS_LIVE = "push_cluster_members_live";
+
+    /**
+     * Gauge of the open connections of a provider client, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_CONNECTIONS = "push_client_connections";
+
+    /**
+     * Counter for failed connection attempts of a provider client, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_CONNECTION_FAILURES_TOTAL = "push_client_connection_failures_total";
+
+    /**
+     * Counter for notifications a provider client failed to write, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_WRITE_FAILURES_TOTAL = "push_client_write_failures_total";
+
+    /**
+     * Gauge of the notifications written by a provider client and not yet answered, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_IN_FLIGHT = "push_client_in_flight";
+
+    /**
+     * Histogram of the time from writing a notification to the gateway's answer in seconds, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_ACK_SECONDS = "push_client_ack_seconds";
+
+    /**
+     * Histogram of the time a provider client waited to lease a pooled connection in seconds, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_CONNECTION_WAIT_SECONDS = "push_client_connection_wait_seconds";
+
+    /**
+     * Histogram of the time a provider client took to open a connection, TLS included, in seconds, tagged by
+     * provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_CONNECT_SECONDS = "push_client_connect_seconds";
+
+    /**
+     * Histogram of the TLS handshakes of a provider client in seconds, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_TLS_HANDSHAKE_SECONDS = "push_client_tls_handshake_seconds";
+
+    /**
+     * Gauge of the connections in the pool of a provider client, tagged by provider and state.
+     */
+    public static final String METRIC_PUSH_CLIENT_POOL_CONNECTIONS = "push_client_pool_connections";
+
+    /**
+     * Histogram of the HTTP exchanges of a provider client in seconds, tagged by provider.
+     */
+    public static final String METRIC_PUSH_CLIENT_REQUEST_SECONDS = "push_client_request_seconds";
+
+    /**
+     * Histogram of background FCM access token refresh latencies in seconds, tagged by result.
+     */
+    public static final String METRIC_FCM_TOKEN_REFRESH_SECONDS = "fcm_token_refresh_seconds";
+
+    /**
+     * Counter for failed background FCM access token refreshes.
+     */
+    public static final String METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL = "fcm_token_refresh_failures_total";
+
     // ========================================================================
     // Tag keys
     // ========================================================================
@@ -61,6 +193,9 @@ public final class PushMetrics {
     public static final String TAG_PROVIDER = "provider";
     public static final String TAG_RESULT = "result";
     public static final String TAG_CODE = "code";
+    public static final String TAG_STAGE = "stage";
+    public static final String TAG_STATE = "state";
+    public static final String TAG_PRIORITY = "priority";
 
     // ========================================================================
     // Tag values: result
@@ -81,6 +216,74 @@ public final class PushMetrics {
      */
     public static final String RESULT_ERROR = "error";
 
+    /**
+     * Result: push abandoned because its deadline passed before the provider responded.
+     */
+    public static final String RESULT_TIMEOUT = "timeout";
+
+    /**
+     * Result: request admitted by admission control.
+     */
+    public static final String RESULT_ADMITTED = "admitted";
+
+    /**
+     * Result: request shed by admission control because a budget was exhausted.
+     */
+    public static final String RESULT_SHED = "shed";
+
+    /**
+     * Result: request forwarded to and answered by the cluster member owning its device token.
+     */
+    public static final String RESULT_FORWARDED = "forwarded";
+
+    /**
+     * Result: request not forwarded because the cluster member owning its device token could not be reached.
+     */
+    public static final String RESULT_FAILED_OVER = "failed_over";
+
+    /**
+     * Result: background task (e.g. token refresh) completed.
+     */
+    public static final String RESULT_SUCCESS = "success";
+
+    // ========================================================================
+    // Tag values: stage
+    // ========================================================================
+
+    /**
+     * Stage: building and serializing the provider payload.
+     */
+    public static final String STAGE_BUILD = "build";
+
+    /**
+     * Stage: waiting for the provider client.
+     */
+    public static final String STAGE_WAIT = "wait";
+
+    /**
+     * Stage: gateway round trip, including waiting for a connection or stream.
+     */
+    public static final String STAGE_GATEWAY = "gateway";
+
+    /**
+     * Stage: serializing the HTTP response.
+     */
+    public static final String STAGE_RESPOND = "respond";
+
+    // ========================================================================
+    // Tag values: priority
+    // ========================================================================
+
+    /**
+     * Priority: urgent notification, sent with immediate delivery (APNs) or high priority (FCM).
+     */
+    public static final String PRIORITY_URGENT = "urgent";
+
+    /**
+     * Priority: background notification, sent conserving power (APNs) or with normal priority (FCM).
+     */
+    public static final String PRIORITY_BACKGROUND = "background";
+
     // ========================================================================
     // Tag values: code classification
     // ========================================================================
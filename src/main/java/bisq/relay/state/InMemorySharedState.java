@@ -0,0 +1,101 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the shared state in this instance only. Enough when a single relay instance runs, and the fallback when no
+ * Redis server is configured.
+ */
+public class InMemorySharedState implements SharedState {
+    /**
+     * Expired entries are only noticed when their key is used again, so every so many operations the map is swept.
+     */
+    private static final int SWEEP_INTERVAL = 4096;
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+    private static final CompletableFuture<Boolean> PRESENT = CompletableFuture.completedFuture(true);
+    private static final CompletableFuture<Boolean> ABSENT = CompletableFuture.completedFuture(false);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicInteger operations = new AtomicInteger();
+    private final LongSupplier nanoClock;
+
+    public InMemorySharedState() {
+        this(System::nanoTime);
+    }
+
+    @VisibleForTesting
+    InMemorySharedState(final LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(final String key, final long delta, final Duration ttl) {
+        final long now = now();
+        final Entry entry = entries.compute(key, (k, current) -> current == null || current.isExpired(now)
+                ? new Entry(delta, now + ttl.toNanos())
+                : new Entry(current.value + delta, current.expiresAtNanos));
+        return CompletableFuture.completedFuture(entry.value);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(final String key, final Duration ttl) {
+        entries.put(key, new Entry(1, now() + ttl.toNanos()));
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> contains(final String key) {
+        final long now = now();
+        final Entry entry = entries.get(key);
+        return entry != null && !entry.isExpired(now) ? PRESENT : ABSENT;
+    }
+
+    @Override
+    public void close() {
+        entries.clear();
+    }
+
+    @VisibleForTesting
+    int size() {
+        return entries.size();
+    }
+
+    private long now() {
+        final long now = nanoClock.getAsLong();
+        if (operations.incrementAndGet() % SWEEP_INTERVAL == 0) {
+            entries.values().removeIf(entry -> entry.isExpired(now));
+        }
+        return now;
+    }
+
+    private record Entry(long value, long expiresAtNanos) {
+        boolean isExpired(final long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import bisq.relay.config.StateProperties;
+import com.google.common.annotations.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the shared state in a Redis server, or any server speaking the Redis protocol such as Valkey, so that all
+ * relay instances see the same counters and flags. Requires Redis 7.0 or later.
+ * <p>
+ * Commands from concurrent requests are pipelined over a single connection by {@link RespClient}. Flags are cached
+ * locally: once set, until they expire, and while not set, for the near cache TTL. Concurrent lookups of the same
+ * flag share one command, so that the lookup on the hot path is usually answered without a round trip.
+ */
+public class RedisSharedState implements SharedState {
+    /**
+     * The near cache is cleared when it grows beyond this, rather than tracking which entry was used least recently.
+     */
+    private static final int MAX_NEAR_CACHE_ENTRIES = 100_000;
+    private static final long PTTL_NO_KEY = -2;
+    private static final long PTTL_NO_EXPIRY = -1;
+
+    private final RespClient client;
+    private final String keyPrefix;
+    private final long nearCacheTtlNanos;
+    private final LongSupplier nanoClock;
+    private final Map<String, NearCacheEntry> nearCache = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> lookups = new ConcurrentHashMap<>();
+
+    public RedisSharedState(final StateProperties stateProperties) {
+        this(new RespClient(stateProperties.getRedisHost(), stateProperties.getRedisPort(),
+                        stateProperties.getRedisPassword(), stateProperties.getCommandTimeout()),
+                stateProperties.getKeyPrefix(), stateProperties.getNearCacheTtl(), System::nanoTime);
+    }
+
+    @VisibleForTesting
+    RedisSharedState(final RespClient client, final String keyPrefix, final Duration nearCacheTtl,
+                     final LongSupplier nanoClock) {
+        this.client = client;
+        this.keyPrefix = keyPrefix;
+        this.nearCacheTtlNanos = nearCacheTtl.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(final String key, final long delta, final Duration ttl) {
+        final String redisKey = keyPrefix + key;
+        final CompletableFuture<Object> value = client.send("INCRBY", redisKey, Long.toString(delta));
+        // Only the increment that creates the counter sets its expiry; if it fails, the next increment sets it
+        client.send("PEXPIRE", redisKey, Long.toString(ttl.toMillis()), "NX");
+        return value.thenApply(Long.class::cast);
+    }
+
+    @Override
+    public CompletableFuture<Void> put(final String key, final Duration ttl) {
+        cache(key, true, ttl.toNanos());
+        return client.send("SET", keyPrefix + key, "1", "PX", Long.toString(ttl.toMillis()))
+                .thenApply(reply -> null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> contains(final String key) {
+        final NearCacheEntry cached = nearCache.get(key);
+        if (cached != null && nanoClock.getAsLong() - cached.expiresAtNanos < 0) {
+            return CompletableFuture.completedFuture(cached.present);
+        }
+        final CompletableFuture<Boolean> lookup = new CompletableFuture<>();
+        final CompletableFuture<Boolean> pending = lookups.putIfAbsent(key, lookup);
+        if (pending != null) {
+            return pending;
+        }
+        client.send("PTTL", keyPrefix + key).whenComplete((reply, error) -> {
+            lookups.remove(key, lookup);
+            if (error != null) {
+                lookup.completeExceptionally(error);
+                return;
+            }
+            final long remainingMillis = (Long) reply;
+            if (remainingMillis == PTTL_NO_KEY) {
+                cache(key, false, nearCacheTtlNanos);
+                lookup.complete(false);
+            } else {
+                cache(key, true, remainingMillis == PTTL_NO_EXPIRY
+                        ? nearCacheTtlNanos
+                        : Duration.ofMillis(remainingMillis).toNanos());
+                lookup.complete(true);
+            }
+        });
+        return lookup;
+    }
+
+    @Override
+    public void close() {
+        client.close();
+        nearCache.clear();
+    }
+
+    private void cache(final String key, final boolean present, final long ttlNanos) {
+        if (ttlNanos <= 0) {
+            nearCache.remove(key);
+            return;
+        }
+        if (nearCache.size() >= MAX_NEAR_CACHE_ENTRIES) {
+            nearCache.clear();
+        }
+        nearCache.put(key, new NearCacheEntry(present, nanoClock.getAsLong() + ttlNanos));
+    }
+
+    private record NearCacheEntry(boolean present, long expiresAtNanos) {
+    }
+}
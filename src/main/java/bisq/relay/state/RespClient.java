@@ -0,0 +1,335 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+import io.netty.util.ByteProcessor;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A minimal client for the Redis serialization protocol (RESP2) over a single connection.
+ * <p>
+ * Commands are queued by the calling threads and written by the event loop, all the commands queued since its last
+ * turn in one buffer and one flush. Under load many commands therefore share a write and a round trip (pipelining),
+ * and the replies are matched to them in order. The connection is opened on start and again by the first command
+ * after it was lost; while the server cannot be reached, commands fail fast instead of piling up.
+ */
+final class RespClient implements AutoCloseable {
+    private static final Logger LOG = LoggerFactory.getLogger(RespClient.class);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(1);
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final Object INCOMPLETE = new Object();
+    private static final Object NIL = new Object();
+
+    private final String host;
+    private final int port;
+    private final String password;
+    private final Duration commandTimeout;
+    private final NioEventLoopGroup eventLoopGroup;
+    private final EventLoop eventLoop;
+    private final Bootstrap bootstrap;
+    private final Queue<Command> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile boolean closed;
+
+    // Only used on the event loop
+    private final Queue<CompletableFuture<Object>> awaitingReply = new ArrayDeque<>();
+    private Channel channel;
+    private ChannelFuture connecting;
+    private long reconnectNotBeforeNanos;
+    private Throwable connectFailure;
+
+    RespClient(final String host, final int port, final String password, final Duration commandTimeout) {
+        this.host = host;
+        this.port = port;
+        this.password = password;
+        this.commandTimeout = commandTimeout;
+        this.eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("state-event-loop", true));
+        this.eventLoop = eventLoopGroup.next();
+        this.bootstrap = new Bootstrap()
+                .group(eventLoop)
+                .channel(NioSocketChannel.class)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.max(1, commandTimeout.toMillis()))
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel socketChannel) {
+                        socketChannel.pipeline().addLast(new ReplyDecoder(), new ReplyHandler());
+                    }
+                });
+        eventLoop.execute(this::connect);
+    }
+
+    /**
+     * Sends a command, e.g. {@code send("INCRBY", "key", "1")}.
+     *
+     * @return the reply: a {@link String} for simple and bulk strings, a {@link Long} for integers, a {@link List}
+     * for arrays and {@code null} for nil; completes exceptionally with an {@link IOException} for error replies
+     * and a lost connection, and with a {@link java.util.concurrent.TimeoutException} after the command timeout
+     */
+    CompletableFuture<Object> send(final String... args) {
+        final CompletableFuture<Object> reply = new CompletableFuture<>();
+        if (closed) {
+            reply.completeExceptionally(new IOException("Shared state client is closed"));
+            return reply;
+        }
+        queued.add(new Command(args, reply));
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flush);
+        }
+        return reply.orTimeout(commandTimeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        eventLoop.execute(() -> {
+            if (channel != null) {
+                channel.close();
+            }
+            failQueued(new IOException("Shared state client is closed"));
+        });
+        eventLoopGroup.shutdownGracefully(0, commandTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .awaitUninterruptibly(commandTimeout.toMillis() + 1000);
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        if (queued.isEmpty()) {
+            return;
+        }
+        if (channel == null || !channel.isActive()) {
+            connect();
+            return;
+        }
+        final ByteBuf buffer = channel.alloc().buffer();
+        Command command;
+        while ((command = queued.poll()) != null) {
+            if (command.reply.isDone()) {
+                // Timed out while waiting for the connection
+                continue;
+            }
+            encode(command.args, buffer);
+            awaitingReply.add(command.reply);
+        }
+        if (buffer.isReadable()) {
+            channel.writeAndFlush(buffer, channel.voidPromise());
+        } else {
+            buffer.release();
+        }
+    }
+
+    private void connect() {
+        if (closed || connecting != null || (channel != null && channel.isActive())) {
+            return;
+        }
+        if (connectFailure != null && System.nanoTime() - reconnectNotBeforeNanos < 0) {
+            failQueued(connectFailure);
+            return;
+        }
+        connecting = bootstrap.connect(host, port);
+        connecting.addListener((ChannelFuture future) -> {
+            connecting = null;
+            if (!future.isSuccess()) {
+                if (connectFailure == null) {
+                    LOG.warn("Cannot connect to the shared state server; host={} port={} error={}",
+                            host, port, future.cause().toString());
+                }
+                connectFailure = future.cause();
+                reconnectNotBeforeNanos = System.nanoTime() + RECONNECT_DELAY.toNanos();
+                failQueued(connectFailure);
+                return;
+            }
+            channel = future.channel();
+            LOG.info("Connected to the shared state server; host={} port={}", host, port);
+            connectFailure = null;
+            if (!password.isEmpty()) {
+                final CompletableFuture<Object> authenticated = new CompletableFuture<>();
+                authenticated.whenComplete((reply, error) -> {
+                    if (error != null) {
+                        LOG.warn("Shared state server rejected the password; error={}", error.getMessage());
+                    }
+                });
+                final ByteBuf buffer = channel.alloc().buffer();
+                encode(new String[]{"AUTH", password}, buffer);
+                awaitingReply.add(authenticated);
+                channel.writeAndFlush(buffer, channel.voidPromise());
+            }
+            flush();
+        });
+    }
+
+    private void failQueued(final Throwable cause) {
+        Command command;
+        while ((command = queued.poll()) != null) {
+            command.reply.completeExceptionally(cause);
+        }
+    }
+
+    static void encode(final String[] args, final ByteBuf buffer) {
+        buffer.writeByte('*').writeCharSequence(Integer.toString(args.length), StandardCharsets.US_ASCII);
+        buffer.writeBytes(CRLF);
+        for (String arg : args) {
+            final byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            buffer.writeByte('$').writeCharSequence(Integer.toString(bytes.length), StandardCharsets.US_ASCII);
+            buffer.writeBytes(CRLF).writeBytes(bytes).writeBytes(CRLF);
+        }
+    }
+
+    /**
+     * Reads one reply from {@code in}, or returns {@link #INCOMPLETE} if it has not been received in full yet.
+     * Error replies are returned as an {@link IOException}, nil as {@link #NIL}.
+     */
+    static Object decode(final ByteBuf in) {
+        if (!in.isReadable()) {
+            return INCOMPLETE;
+        }
+        final byte type = in.readByte();
+        final String line = readLine(in);
+        if (line == null) {
+            return INCOMPLETE;
+        }
+        switch (type) {
+            case '+':
+                return line;
+            case '-':
+                return new IOException("Shared state server replied with an error: " + line);
+            case ':':
+                return Long.parseLong(line);
+            case '$': {
+                final int length = Integer.parseInt(line);
+                if (length < 0) {
+                    return NIL;
+                }
+                if (in.readableBytes() < length + CRLF.length) {
+                    return INCOMPLETE;
+                }
+                final String value = in.toString(in.readerIndex(), length, StandardCharsets.UTF_8);
+                in.skipBytes(length + CRLF.length);
+                return value;
+            }
+            case '*': {
+                final int count = Integer.parseInt(line);
+                if (count < 0) {
+                    return NIL;
+                }
+                final List<Object> items = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    final Object item = decode(in);
+                    if (item == INCOMPLETE) {
+                        return INCOMPLETE;
+                    }
+                    items.add(item == NIL ? null : item);
+                }
+                return items;
+            }
+            default:
+                throw new DecoderException("Unexpected RESP reply type: " + (char) type);
+        }
+    }
+
+    private static String readLine(final ByteBuf in) {
+        final int lf = in.forEachByte(ByteProcessor.FIND_LF);
+        if (lf < 0) {
+            return null;
+        }
+        final String line = in.toString(in.readerIndex(), lf - 1 - in.readerIndex(), StandardCharsets.UTF_8);
+        in.readerIndex(lf + 1);
+        return line;
+    }
+
+    private record Command(String[] args, CompletableFuture<Object> reply) {
+    }
+
+    private static final class ReplyDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out) {
+            while (in.isReadable()) {
+                final int start = in.readerIndex();
+                final Object reply = RespClient.decode(in);
+                if (reply == INCOMPLETE) {
+                    in.readerIndex(start);
+                    return;
+                }
+                out.add(reply);
+            }
+        }
+    }
+
+    private final class ReplyHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object reply) {
+            final CompletableFuture<Object> awaiting = awaitingReply.poll();
+            if (awaiting == null) {
+                LOG.warn("Received a reply from the shared state server without a command");
+            } else if (reply instanceof IOException error) {
+                awaiting.completeExceptionally(error);
+            } else {
+                awaiting.complete(reply == NIL ? null : reply);
+            }
+        }
+
+        @Override
+        public void channelInactive(final ChannelHandlerContext ctx) {
+            if (!closed) {
+                LOG.warn("Lost the connection to the shared state server; host={} port={} awaitingReplies={}",
+                        host, port, awaitingReply.size());
+            }
+            final IOException cause = new IOException("Connection to the shared state server was closed");
+            CompletableFuture<Object> awaiting;
+            while ((awaiting = awaitingReply.poll()) != null) {
+                awaiting.completeExceptionally(cause);
+            }
+            channel = null;
+        }
+
+        @Override
+        public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+            LOG.warn("Closing the connection to the shared state server; error={}", cause.toString());
+            ctx.close();
+        }
+    }
+}
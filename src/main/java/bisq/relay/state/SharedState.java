@@ -0,0 +1,55 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Small key-value state shared by all relay instances behind the load balancer, for features such as rate limits
+ * or remembering unregistered device tokens, which would be easy to bypass if every instance kept them to itself.
+ * <p>
+ * Every key expires, nothing is kept forever. The operations are asynchronous so that a remote store can batch them;
+ * they complete exceptionally if the store cannot be reached in time, and the caller decides whether to fail open.
+ * Keys end up in the store as given, so callers should hash device tokens and other personal data first.
+ */
+public interface SharedState extends AutoCloseable {
+
+    /**
+     * Adds {@code delta} to the counter {@code key}, creating it with {@code ttl} if it does not exist. The expiry
+     * is not extended by later increments, which makes the counter a fixed window.
+     *
+     * @return the value of the counter after the increment
+     */
+    CompletableFuture<Long> increment(String key, long delta, Duration ttl);
+
+    /**
+     * Sets the flag {@code key} for {@code ttl}.
+     */
+    CompletableFuture<Void> put(String key, Duration ttl);
+
+    /**
+     * Returns whether the flag {@code key} is set. Implementations may answer from a local cache, so a flag set by
+     * another instance can take a moment to show up.
+     */
+    CompletableFuture<Boolean> contains(String key);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,46 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import bisq.relay.config.StateProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the {@link SharedState} selected by {@link StateProperties#getBackend()}.
+ */
+@Configuration
+public class SharedStateConfiguration {
+    private static final Logger LOG = LoggerFactory.getLogger(SharedStateConfiguration.class);
+
+    @Bean(destroyMethod = "close")
+    public SharedState sharedState(final StateProperties stateProperties) {
+        return switch (stateProperties.getBackend()) {
+            case MEMORY -> new InMemorySharedState();
+            case REDIS -> {
+                LOG.info("Keeping the shared state in Redis; host={} port={} keyPrefix={}",
+                        stateProperties.getRedisHost(), stateProperties.getRedisPort(),
+                        stateProperties.getKeyPrefix());
+                yield new RedisSharedState(stateProperties);
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+public class FutureUtil {
+
+    private FutureUtil() {
+        throw new AssertionError("This class must not be instantiated");
+    }
+
+    /**
+     * Cancels {@code source} once {@code dependent} completes while {@code source} is still pending, i.e. once whoever
+     * waits on {@code dependent} gave up on the result (its deadline passed or it was cancelled). Completing
+     * {@code dependent} from {@code source} never cancels anything, as {@code source} is done by then.
+     */
+    public static void cancelWhenAbandoned(@Nonnull final CompletableFuture<?> dependent,
+                                           @Nonnull final Future<?> source) {
+        dependent.whenComplete((result, cause) -> {
+            if (!source.isDone()) {
+                source.cancel(true);
+            }
+        });
+    }
+
+    /**
+     * Same as {@code source.thenCompose(fn)}, except that giving up on the returned future reaches the composed one,
+     * see {@link #handleUnlessAbandoned}.
+     */
+    public static <T, U> CompletableFuture<U> composeUnlessAbandoned(
+            @Nonnull final CompletableFuture<T> source,
+            @Nonnull final Function<? super T, ? extends CompletableFuture<U>> fn) {
+        return handleUnlessAbandoned(source, (value, cause) -> cause == null
+                ? fn.apply(value)
+                : CompletableFuture.failedFuture(cause));
+    }
+
+    /**
+     * Same as {@code source.handle(fn).thenCompose(identity)}, except that giving up on the returned future reaches
+     * the composed one: if the returned future completes before {@code source}, e.g. it is cancelled or its deadline
+     * passed, {@code fn} is never applied; if it completes while the future of {@code fn} is pending, that one is
+     * cancelled, see {@link #cancelWhenAbandoned}. {@code source} itself is never cancelled, it may be shared.
+     */
+    public static <T, U> CompletableFuture<U> handleUnlessAbandoned(
+            @Nonnull final CompletableFuture<T> source,
+            @Nonnull final BiFunction<? super T, Throwable, ? extends CompletableFuture<U>> fn) {
+        final CompletableFuture<U> dependent = new CompletableFuture<>();
+        source.whenComplete((value, cause) -> {
+            if (dependent.isDone()) {
+                return;
+            }
+            final CompletableFuture<U> composed;
+            try {
+                composed = fn.apply(value, cause);
+            } catch (RuntimeException e) {
+                dependent.completeExceptionally(e);
+                return;
+            }
+            cancelWhenAbandoned(dependent, composed);
+            composed.whenComplete((result, composedCause) -> {
+                if (composedCause == null) {
+                    dependent.complete(result);
+                } else {
+                    dependent.completeExceptionally(composedCause);
+                }
+            });
+        });
+        return dependent;
+    }
+
+    /**
+     * Whether the failure is a timeout or a cancellation, also if wrapped by the future that reported it.
+     */
+    public static boolean isTimeout(@Nullable final Throwable cause) {
+        Throwable failure = cause;
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException)
+                && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure instanceof TimeoutException
+                || failure instanceof CancellationException
+                || failure instanceof HttpTimeoutException;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+/**
+ * A masked view of a sensitive value, created by {@link MaskingUtil#masked(String)}.
+ * <p>
+ * Nothing is copied until the view is read: {@link #charAt(int)} masks on the fly, so appending the view to a
+ * {@link StringBuilder} or {@link java.io.Writer} as a {@link CharSequence} writes the masked characters directly
+ * into the output buffer. {@link #toString()}, which SLF4J uses to format arguments, copies the value once.
+ */
+public final class MaskedArgument implements CharSequence {
+    private static final String NULL = "null";
+
+    @Nullable
+    private final String value;
+    private final int maskStart;
+    private final int maskEnd;
+    private final char maskChar;
+
+    MaskedArgument(@Nullable final String value, final int visibleChars, final char maskChar) {
+        this.value = value;
+        this.maskChar = maskChar;
+        final int length = value == null ? 0 : value.length();
+        if (length <= visibleChars * 2) {
+            this.maskStart = 0;
+            this.maskEnd = length;
+        } else {
+            this.maskStart = visibleChars;
+            this.maskEnd = length - visibleChars;
+        }
+    }
+
+    @Override
+    public int length() {
+        return value == null ? NULL.length() : value.length();
+    }
+
+    @Override
+    public char charAt(final int index) {
+        if (value == null) {
+            return NULL.charAt(index);
+        }
+        if (index < 0 || index >= value.length()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index >= maskStart && index < maskEnd ? maskChar : value.charAt(index);
+    }
+
+    @Nonnull
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        return toString().subSequence(start, end);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        if (value == null) {
+            return NULL;
+        }
+        if (maskStart == maskEnd) {
+            return value;
+        }
+        return MaskingUtil.maskSensitive(value, maskStart, maskChar);
+    }
+}
@@ -54,4 +54,12 @@ public class MaskingUtil {
     public static String maskSensitive(@Nullable final String value, int visibleChars) {
         return maskSensitive(value, visibleChars, DEFAULT_MASK_CHARACTER);
     }
+
+    /**
+     * Returns a log argument that masks the value like {@link #maskSensitive(String)}, but only once the log event
+     * is actually written, so that nothing is copied for events that are filtered out.
+     */
+    public static MaskedArgument masked(@Nullable final String value) {
+        return new MaskedArgument(value, DEFAULT_VISIBLE_CHARACTERS, DEFAULT_MASK_CHARACTER);
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.util;
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Opens a TLS connection to a push gateway and completes the handshake, to verify on start-up that the gateway
+ * is reachable and accepts the configured credentials before the instance reports ready.
+ */
+public class TlsHandshakeUtil {
+    private static final int HTTPS_PORT = 443;
+    private static final String[] APPLICATION_PROTOCOLS = {"h2"};
+
+    private TlsHandshakeUtil() {
+        throw new AssertionError("This class must not be instantiated");
+    }
+
+    /**
+     * Connects to {@code host:port}, completes a TLS handshake (including host name verification) and closes
+     * the connection again.
+     *
+     * @param keyManagers   client credentials to present, or {@code null} for none
+     * @param trustManagers server certificates to trust, or {@code null} for the JVM default trust store
+     * @param timeout       applied to both connecting and the handshake
+     */
+    public static void handshake(
+            @Nonnull final String host,
+            final int port,
+            @Nullable final KeyManager[] keyManagers,
+            @Nullable final TrustManager[] trustManagers,
+            @Nonnull final Duration timeout) throws IOException, GeneralSecurityException {
+        final SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(keyManagers, trustManagers, null);
+
+        try (SSLSocket socket = (SSLSocket) sslContext.getSocketFactory().createSocket()) {
+            final SSLParameters sslParameters = socket.getSSLParameters();
+            sslParameters.setServerNames(List.of(new SNIHostName(host)));
+            sslParameters.setEndpointIdentificationAlgorithm("HTTPS");
+            sslParameters.setApplicationProtocols(APPLICATION_PROTOCOLS);
+            socket.setSSLParameters(sslParameters);
+
+            socket.connect(new InetSocketAddress(host, port), (int) timeout.toMillis());
+            socket.setSoTimeout((int) timeout.toMillis());
+            socket.startHandshake();
+        }
+    }
+
+    /**
+     * Same as {@link #handshake(String, int, KeyManager[], TrustManager[], Duration)} for the host and port of
+     * {@code uri}, defaulting to port 443, trusting the JVM default trust store.
+     */
+    public static void handshake(
+            @Nonnull final URI uri,
+            @Nullable final KeyManager[] keyManagers,
+            @Nonnull final Duration timeout) throws IOException, GeneralSecurityException {
+        handshake(uri.getHost(), uri.getPort() == -1 ? HTTPS_PORT : uri.getPort(), keyManagers, null, timeout);
+    }
+
+    /**
+     * Loads client credentials from a PKCS#12 file, e.g. an APNs client certificate.
+     */
+    public static KeyManager[] pkcs12KeyManagers(@Nonnull final File pkcs12File, @Nonnull final String password)
+            throws IOException, GeneralSecurityException {
+        final KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream inputStream = new FileInputStream(pkcs12File)) {
+            keyStore.load(inputStream, password.toCharArray());
+        }
+
+        final KeyManagerFactory keyManagerFactory =
+                KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagerFactory.init(keyStore, password.toCharArray());
+        return keyManagerFactory.getKeyManagers();
+    }
+
+    /**
+     * Trusts only the certificates in a PEM file, e.g. the pinned server certificate chain of a gateway.
+     */
+    public static TrustManager[] x509TrustManagers(@Nonnull final File certificateFile)
+            throws IOException, GeneralSecurityException {
+        final Collection<? extends Certificate> certificates;
+        try (InputStream inputStream = new FileInputStream(certificateFile)) {
+            certificates = CertificateFactory.getInstance("X.509").generateCertificates(inputStream);
+        }
+        if (certificates.isEmpty()) {
+            throw new GeneralSecurityException("No certificate found in " + certificateFile);
+        }
+
+        final KeyStore keyStore = KeyStore.getInstance(KeyStore.getDefaultType());
+        keyStore.load(null, null);
+        int i = 0;
+        for (Certificate certificate : certificates) {
+            keyStore.setCertificateEntry("trusted-" + i++, certificate);
+        }
+
+        final TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(keyStore);
+        return trustManagerFactory.getTrustManagers();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.cluster;
+
+import bisq.relay.notification.PushNotificationMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static bisq.relay.cluster.ClusterRouter.HANDLED_BY_HEADER;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_CLUSTER_FORWARDED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_FAILED_OVER;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClusterRouterTest {
+    private static final String SELF = "http://localhost:1";
+    private static final int VIRTUAL_NODES = 128;
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("encrypted", true, false);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger handledLocally = new AtomicInteger();
+    private ClusterRouter router;
+
+    @AfterEach
+    void tearDown() {
+        if (router != null) {
+            router.close();
+        }
+    }
+
+    @Test
+    void whenOwnerRefusesTheConnection_thenRequestIsHandledByTheNextOwner() throws IOException {
+        final String owner;
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            owner = "http://localhost:" + serverSocket.getLocalPort();
+        }
+        router = router(owner);
+
+        ResponseEntity<String> responseEntity = route(tokenOwnedBy(owner));
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(responseEntity.getHeaders().getFirst(HANDLED_BY_HEADER)).isEqualTo(SELF);
+        assertThat(handledLocally).hasValue(1);
+        assertThat(router.isLive(owner)).isFalse();
+        assertThat(registry.get(METRIC_PUSH_CLUSTER_FORWARDED_TOTAL).tag(TAG_RESULT, RESULT_FAILED_OVER).counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenConnectionBreaksAfterTheOwnerReceivedTheRequest_thenAnsweredWithBadGateway() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            final String owner = "http://localhost:" + serverSocket.getLocalPort();
+            CompletableFuture.runAsync(() -> {
+                try (Socket socket = serverSocket.accept()) {
+                    socket.getInputStream().read();
+                } catch (IOException e) {
+                    // The test fails on the response
+                }
+            });
+            router = router(owner);
+
+            ResponseEntity<String> responseEntity = route(tokenOwnedBy(owner));
+
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+            assertThat(responseEntity.getHeaders().getFirst(HANDLED_BY_HEADER)).isEqualTo(owner);
+            assertThat(handledLocally).hasValue(0);
+            assertThat(router.isLive(owner)).isTrue();
+            assertThat(registry.get(METRIC_PUSH_CLUSTER_FORWARDED_TOTAL).tag(TAG_RESULT, RESULT_ERROR).counter()
+                    .count()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void whenRequestHandledHereIsCancelled_thenItsHandlingIsCancelled() {
+        router = new ClusterRouter(SELF, List.of(SELF), VIRTUAL_NODES, Duration.ofSeconds(1), Duration.ofMinutes(1),
+                new ObjectMapper(), registry);
+        CompletableFuture<ResponseEntity<String>> handled = new CompletableFuture<>();
+
+        router.route(PROVIDER_ID_APNS, "token", MESSAGE, null, () -> handled).cancel(true);
+
+        assertThat(handled).isCancelled();
+    }
+
+    private ClusterRouter router(final String owner) {
+        // Probed once a minute only, so that the requests decide which members are live
+        return new ClusterRouter(SELF, List.of(SELF, owner), VIRTUAL_NODES, Duration.ofSeconds(1),
+                Duration.ofMinutes(1), new ObjectMapper(), registry);
+    }
+
+    private ResponseEntity<String> route(final String deviceToken) {
+        return router.route(PROVIDER_ID_APNS, deviceToken, MESSAGE, null, () -> {
+            handledLocally.incrementAndGet();
+            return CompletableFuture.completedFuture(ResponseEntity.ok(""));
+        }).join();
+    }
+
+    private static String tokenOwnedBy(final String owner) {
+        HashRing ring = HashRing.of(List.of(SELF, owner), VIRTUAL_NODES);
+        while (true) {
+            String deviceToken = UUID.randomUUID().toString().replace("-", "");
+            if (ring.ownerOf(deviceToken).equals(owner)) {
+                return deviceToken;
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.cluster;
+
+import bisq.relay.Main;
+import bisq.relay.test.gateway.ApnsGatewayStub;
+import bisq.relay.test.gateway.GatewayResponseMix;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static bisq.relay.cluster.ClusterRouter.HANDLED_BY_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs three relay instances as a cluster in this JVM, each on its own port and all sending to one
+ * {@link ApnsGatewayStub}, and checks that every device token is handled by its owner whichever instance a request
+ * reaches, also after an instance left.
+ */
+class ClusterRoutingTest {
+    private static final int INSTANCES = 3;
+    private static final int VIRTUAL_NODES = 128;
+    private static final int TOKENS = 30;
+    private static final String BODY = "{\"encrypted\":\"foo\",\"isUrgent\":true,\"isMutableContent\":false}";
+
+    private static ApnsGatewayStub gateway;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final List<String> members = new ArrayList<>();
+    private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    @BeforeAll
+    static void startGateway() throws Exception {
+        gateway = ApnsGatewayStub.start(GatewayResponseMix.ACCEPT_ALL);
+    }
+
+    @AfterAll
+    static void stopGateway() throws Exception {
+        gateway.close();
+    }
+
+    @BeforeEach
+    void startInstances() throws IOException {
+        List<Integer> ports = new ArrayList<>();
+        for (int i = 0; i < INSTANCES; i++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports.add(socket.getLocalPort());
+            }
+        }
+        ports.forEach(port -> members.add("http://localhost:" + port));
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(new SpringApplicationBuilder(Main.class)
+                    .profiles("test")
+                    .run("--server.port=" + ports.get(i),
+                            "--management.server.port=0",
+                            "--fcm.enabled=false",
+                            "--apns.host=localhost",
+                            "--apns.port=" + gateway.getPort(),
+                            "--apns.trustedServerCertificateFile=" + ApnsGatewayStub.SERVER_CERTIFICATE_FILE,
+                            "--drain.spoolDirectory=",
+                            "--cluster.enabled=true",
+                            "--cluster.self=" + members.get(i),
+                            "--cluster.members=" + String.join(",", members),
+                            "--cluster.virtualNodes=" + VIRTUAL_NODES,
+                            "--cluster.probeInterval=200ms"));
+        }
+    }
+
+    @AfterEach
+    void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void whenRequestsReachAnyInstance_thenEveryTokenIsHandledByItsOwner() throws Exception {
+        HashRing ring = HashRing.of(members, VIRTUAL_NODES);
+        Set<String> owners = new HashSet<>();
+
+        for (int i = 0; i < TOKENS; i++) {
+            String deviceToken = deviceToken();
+            String owner = ring.ownerOf(deviceToken);
+            owners.add(owner);
+            for (String member : members) {
+                HttpResponse<String> response = send(member, deviceToken);
+
+                assertThat(response.statusCode()).isEqualTo(200);
+                assertThat(response.headers().firstValue(HANDLED_BY_HEADER)).hasValue(owner);
+            }
+        }
+        assertThat(owners).containsExactlyInAnyOrderElementsOf(members);
+    }
+
+    @Test
+    void whenAnInstanceLeaves_thenItsTokensAreHandledByTheirNextOwner() throws Exception {
+        String leaving = members.get(INSTANCES - 1);
+        instances.remove(INSTANCES - 1).close();
+        HashRing ring = HashRing.of(members, VIRTUAL_NODES);
+        HashRing remainingRing = HashRing.of(members.subList(0, INSTANCES - 1), VIRTUAL_NODES);
+
+        int movedTokens = 0;
+        while (movedTokens < TOKENS / INSTANCES) {
+            String deviceToken = deviceToken();
+            if (!ring.ownerOf(deviceToken).equals(leaving)) {
+                continue;
+            }
+            movedTokens++;
+            for (String member : members.subList(0, INSTANCES - 1)) {
+                HttpResponse<String> response = send(member, deviceToken);
+
+                assertThat(response.statusCode()).isEqualTo(200);
+                assertThat(response.headers().firstValue(HANDLED_BY_HEADER))
+                        .hasValue(remainingRing.ownerOf(deviceToken));
+            }
+        }
+    }
+
+    private HttpResponse<String> send(final String member, final String deviceToken) throws Exception {
+        return httpClient.send(HttpRequest.newBuilder(URI.create(member + "/v1/apns/device/" + deviceToken))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(BODY))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String deviceToken() {
+        byte[] bytes = new byte[32];
+        ThreadLocalRandom.current().nextBytes(bytes);
+        StringBuilder deviceToken = new StringBuilder();
+        for (byte b : bytes) {
+            deviceToken.append(String.format("%02x", b));
+        }
+        return deviceToken.toString();
+    }
+}
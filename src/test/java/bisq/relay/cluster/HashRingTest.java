@@ -0,0 +1,88 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashRingTest {
+    private static final List<String> MEMBERS = List.of("http://relay-1:8080", "http://relay-2:8080",
+            "http://relay-3:8080", "http://relay-4:8080");
+    private static final int VIRTUAL_NODES = 128;
+    private static final int TOKENS = 20_000;
+
+    @Test
+    void whenBuiltFromTheSameMembers_thenTokensHaveTheSameOwner() {
+        HashRing ring = HashRing.of(MEMBERS, VIRTUAL_NODES);
+        List<String> reversedMembers = new ArrayList<>(MEMBERS);
+        Collections.reverse(reversedMembers);
+        HashRing reversed = HashRing.of(reversedMembers, VIRTUAL_NODES);
+
+        for (int i = 0; i < 1000; i++) {
+            String token = UUID.randomUUID().toString();
+            assertThat(reversed.ownerOf(token)).isEqualTo(ring.ownerOf(token));
+        }
+    }
+
+    @Test
+    void whenTokensAreAssigned_thenEveryMemberOwnsAboutTheSameShare() {
+        HashRing ring = HashRing.of(MEMBERS, VIRTUAL_NODES);
+        Map<String, Integer> owned = new HashMap<>();
+
+        for (int i = 0; i < TOKENS; i++) {
+            owned.merge(ring.ownerOf(UUID.randomUUID().toString()), 1, Integer::sum);
+        }
+
+        assertThat(owned).containsOnlyKeys(MEMBERS);
+        assertThat(owned.values()).allSatisfy(count ->
+                assertThat(count).isBetween(TOKENS / MEMBERS.size() * 3 / 4, TOKENS / MEMBERS.size() * 5 / 4));
+    }
+
+    @Test
+    void whenAMemberLeaves_thenOnlyItsTokensMove() {
+        HashRing ring = HashRing.of(MEMBERS, VIRTUAL_NODES);
+        String leaving = MEMBERS.get(2);
+        HashRing withoutMember = HashRing.of(MEMBERS.stream().filter(member -> !member.equals(leaving)).toList(),
+                VIRTUAL_NODES);
+
+        for (int i = 0; i < TOKENS; i++) {
+            String token = UUID.randomUUID().toString();
+            String owner = ring.ownerOf(token);
+            if (owner.equals(leaving)) {
+                assertThat(withoutMember.ownerOf(token)).isNotEqualTo(leaving);
+            } else {
+                assertThat(withoutMember.ownerOf(token)).isEqualTo(owner);
+            }
+        }
+    }
+
+    @Test
+    void whenThereAreNoMembers_thenTheRingCannotBeBuilt() {
+        assertThatThrownBy(() -> HashRing.of(List.of(), VIRTUAL_NODES)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
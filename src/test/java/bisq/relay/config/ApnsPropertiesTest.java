@@ -27,6 +27,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -61,6 +62,80 @@ class ApnsPropertiesTest {
         assertThat(properties.isUseSandbox()).isTrue();
     }
 
+    @Test
+    void whenTransportSettingsAreNotConfigured_thenPushyDefaultsApply() {
+        ApnsProperties properties = new ApnsProperties();
+
+        assertThat(properties.getTransport()).isEqualTo(ApnsProperties.Transport.AUTO);
+        assertThat(properties.getEventLoopThreads()).isEqualTo(1);
+        assertThat(properties.getConcurrentConnections()).isEqualTo(1);
+    }
+
+    @Test
+    void whenTransportIsNull_thenViolation() {
+        ApnsProperties properties = createValidProperties();
+        properties.setTransport(null);
+
+        Set<ConstraintViolation<ApnsProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("transport");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    void whenEventLoopThreadsIsNotPositive_thenViolation(int eventLoopThreads) {
+        ApnsProperties properties = createValidProperties();
+        properties.setEventLoopThreads(eventLoopThreads);
+
+        Set<ConstraintViolation<ApnsProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("eventLoopThreads");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    void whenConcurrentConnectionsIsNotPositive_thenViolation(int concurrentConnections) {
+        ApnsProperties properties = createValidProperties();
+        properties.setConcurrentConnections(concurrentConnections);
+
+        Set<ConstraintViolation<ApnsProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("concurrentConnections");
+    }
+
+    @Test
+    void whenRequestTimeoutIsNotConfigured_thenTenSecondsApply() {
+        ApnsProperties properties = new ApnsProperties();
+
+        assertThat(properties.getRequestTimeout()).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void whenRequestTimeoutIsNull_thenViolation() {
+        ApnsProperties properties = createValidProperties();
+        properties.setRequestTimeout(null);
+
+        Set<ConstraintViolation<ApnsProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("requestTimeout");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1, 65536})
+    void whenPortIsOutOfRange_thenViolation(int port) {
+        ApnsProperties properties = createValidProperties();
+        properties.setPort(port);
+
+        Set<ConstraintViolation<ApnsProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("port");
+    }
+
     @ParameterizedTest
     @NullAndEmptySource
     @ValueSource(strings = {"   ", "\t", "\n"})
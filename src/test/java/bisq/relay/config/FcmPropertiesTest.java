@@ -27,6 +27,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.NullAndEmptySource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.time.Duration;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -87,6 +88,28 @@ class FcmPropertiesTest {
         assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("firebaseUrl");
     }
 
+    @Test
+    void whenTransportPropertiesAreNotSet_thenSdkTransportIsUsed() {
+        FcmProperties properties = new FcmProperties();
+
+        assertThat(properties.getTransport()).isEqualTo(FcmProperties.Transport.SDK);
+        assertThat(properties.getApiUrl()).isEqualTo("https://fcm.googleapis.com");
+        assertThat(properties.getHttp2Connections()).isEqualTo(2);
+        assertThat(properties.getRequestTimeout()).isEqualTo(Duration.ofSeconds(10));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, -1})
+    void whenHttp2ConnectionsIsNotPositive_thenViolation(int http2Connections) {
+        FcmProperties properties = createValidProperties();
+        properties.setHttp2Connections(http2Connections);
+
+        Set<ConstraintViolation<FcmProperties>> violations = validator.validate(properties);
+
+        assertThat(violations).hasSize(1);
+        assertThat(violations.iterator().next().getPropertyPath().toString()).isEqualTo("http2Connections");
+    }
+
     @Test
     void whenMultiplePropertiesAreInvalid_thenMultipleViolations() {
         FcmProperties properties = new FcmProperties();
@@ -0,0 +1,139 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.jfr;
+
+import bisq.relay.config.JfrProperties;
+import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.notification.jfr.PushRequestEvent;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class JfrEndpointTest {
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+
+    private JfrEndpoint jfrEndpoint;
+
+    @BeforeEach
+    void setup() {
+        jfrEndpoint = new JfrEndpoint(new JfrProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        jfrEndpoint.destroy();
+    }
+
+    @Test
+    void whenStartedAndStopped_thenRecordingStateReported() {
+        assertThat(jfrEndpoint.recording()).isNull();
+
+        JfrEndpoint.RecordingDescriptor started = jfrEndpoint.start("profile", Duration.ofMinutes(5));
+        assertThat(started.name()).isEqualTo("bisq-relay");
+        assertThat(started.state()).isEqualTo("RUNNING");
+        assertThat(started.settings()).isEqualTo("profile");
+        assertThat(started.maxAge()).isEqualTo(Duration.ofMinutes(5));
+        assertThat(started.startTime()).isNotNull();
+
+        JfrEndpoint.RecordingDescriptor stopped = jfrEndpoint.stop();
+        assertThat(stopped.state()).isEqualTo("STOPPED");
+        assertThat(stopped.stopTime()).isNotNull();
+        assertThat(jfrEndpoint.recording()).isEqualTo(stopped);
+    }
+
+    @Test
+    void whenDownloading_thenPushEventsRecordedSoFarReturned(@TempDir final Path tempDir) throws IOException {
+        jfrEndpoint.start(null, null);
+
+        PushRequestEvent requestEvent = new PushRequestEvent();
+        requestEvent.begin();
+        requestEvent.complete("apns", DEVICE_TOKEN, new PushNotificationResult(false, "BadDeviceToken", null, true),
+                null, 400);
+
+        Resource resource = jfrEndpoint.download("bisq-relay.jfr");
+        assertThat(resource).isNotNull();
+        Path recordingFile = tempDir.resolve("bisq-relay.jfr");
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.copy(inputStream, recordingFile);
+        }
+
+        List<RecordedEvent> requestEvents = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().equals("bisq.relay.PushRequest"))
+                .toList();
+        assertThat(requestEvents).singleElement().satisfies(event -> {
+            assertThat(event.getString("provider")).isEqualTo("apns");
+            assertThat(event.getString("deviceToken")).startsWith("d4516").endsWith("162a1").contains("*");
+            assertThat(event.getString("outcome")).isEqualTo("rejected");
+            assertThat(event.getString("errorCode")).isEqualTo("BadDeviceToken");
+            assertThat(event.getInt("httpStatus")).isEqualTo(400);
+        });
+    }
+
+    @Test
+    void whenDownloading_thenEnvironmentAndSystemPropertiesNotRecorded(@TempDir final Path tempDir)
+            throws IOException {
+        jfrEndpoint.start(null, null);
+
+        Resource resource = jfrEndpoint.download("bisq-relay.jfr");
+        assertThat(resource).isNotNull();
+        Path recordingFile = tempDir.resolve("bisq-relay.jfr");
+        try (InputStream inputStream = resource.getInputStream()) {
+            Files.copy(inputStream, recordingFile);
+        }
+
+        assertThat(RecordingFile.readAllEvents(recordingFile))
+                .extracting(event -> event.getEventType().getName())
+                .isNotEmpty()
+                .doesNotContain("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/etc/passwd", "/usr/lib/jvm/default.jfc", "other"})
+    void whenStartingWithUnknownSettings_thenRejected(final String settings) {
+        Throwable thrown = catchThrowable(() -> jfrEndpoint.start(settings, null));
+
+        assertThat(thrown).isInstanceOf(InvalidEndpointRequestException.class);
+        assertThat(jfrEndpoint.recording()).isNull();
+    }
+
+    @Test
+    void whenDownloadingWithoutRecordingOrUnknownFile_thenNothingReturned() throws IOException {
+        assertThat(jfrEndpoint.download("bisq-relay.jfr")).isNull();
+
+        jfrEndpoint.start(null, null);
+        assertThat(jfrEndpoint.download("other.jfr")).isNull();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class AuditLoggingFilterTest {
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String MASKED_DEVICE_TOKEN = "d4516" + "*".repeat(54) + "162a1";
+
+    private LoggerContext loggerContext;
+    private ListAppender<ILoggingEvent> listAppender;
+    private AuditLoggingFilter auditLoggingFilter;
+
+    @BeforeEach
+    void setup() {
+        loggerContext = new LoggerContext();
+        listAppender = new ListAppender<>();
+        listAppender.setContext(loggerContext);
+        listAppender.start();
+        Logger logger = loggerContext.getLogger(AuditLoggingFilter.class);
+        logger.setLevel(Level.INFO);
+        logger.addAppender(listAppender);
+        auditLoggingFilter = new AuditLoggingFilter(logger);
+    }
+
+    @Test
+    void whenRequestSucceeds_thenSampledLineWithMaskedTokenLogged() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/relay");
+        request.setQueryString("isAndroid=true&token=" + DEVICE_TOKEN + "&msg=secret");
+        request.addHeader(HttpHeaders.USER_AGENT, "bisq");
+        MockFilterChain filterChain = new MockFilterChain();
+
+        auditLoggingFilter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        // No content caching wrapper, the body is never read
+        assertThat(filterChain.getRequest()).isSameAs(request);
+        assertThat(listAppender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.INFO);
+            assertThat(event.getMarkerList()).containsExactly(LogMarkers.AUDIT_SAMPLED);
+            assertThat(event.getFormattedMessage())
+                    .contains("method=GET path=/relay token=" + MASKED_DEVICE_TOKEN + " status=200")
+                    .contains("userAgent=bisq")
+                    .doesNotContain(DEVICE_TOKEN)
+                    .doesNotContain("secret");
+        });
+    }
+
+    @Test
+    void whenRequestIsRejected_thenWarnLineWithMaskedPathLogged() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/apns/device/" + DEVICE_TOKEN);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        auditLoggingFilter.doFilter(request, response,
+                (servletRequest, servletResponse) -> response.setStatus(400));
+
+        assertThat(listAppender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.WARN);
+            assertThat(event.getMarkerList()).isNullOrEmpty();
+            assertThat(event.getFormattedMessage())
+                    .contains("method=POST path=/v1/apns/device/" + MASKED_DEVICE_TOKEN + " token=null status=400");
+        });
+    }
+
+    @Test
+    void whenFilterChainThrows_thenWarnLineLoggedAndExceptionRethrown() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/fcm/device/" + DEVICE_TOKEN);
+
+        Throwable thrown = catchThrowable(() -> auditLoggingFilter.doFilter(request, new MockHttpServletResponse(),
+                (servletRequest, servletResponse) -> {
+                    throw new IllegalStateException("boom");
+                }));
+
+        assertThat(thrown).isInstanceOf(IllegalStateException.class);
+        assertThat(listAppender.list).singleElement().satisfies(event -> {
+            assertThat(event.getLevel()).isEqualTo(Level.WARN);
+            assertThat(event.getFormattedMessage()).contains("status=500").contains("error=java.lang.IllegalStateException: boom");
+        });
+    }
+
+    @Test
+    void whenRequestCompletesAsynchronously_thenLoggedOnceCompleted() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/v1/apns/device/" + DEVICE_TOKEN);
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        auditLoggingFilter.doFilter(request, response,
+                (servletRequest, servletResponse) -> servletRequest.startAsync());
+        assertThat(listAppender.list).isEmpty();
+
+        response.setStatus(503);
+        request.getAsyncContext().complete();
+
+        assertThat(listAppender.list).singleElement()
+                .satisfies(event -> assertThat(event.getFormattedMessage()).contains("status=503"));
+    }
+
+    @Test
+    void whenSamplingSkipsRequest_thenNothingLogged() throws ServletException, IOException {
+        SamplingTurboFilter samplingTurboFilter = new SamplingTurboFilter();
+        samplingTurboFilter.setMarker("AUDIT_SAMPLED");
+        samplingTurboFilter.setRatePerSecond(0);
+        samplingTurboFilter.start();
+        loggerContext.addTurboFilter(samplingTurboFilter);
+
+        auditLoggingFilter.doFilter(new MockHttpServletRequest("GET", "/relay"), new MockHttpServletResponse(),
+                new MockFilterChain());
+
+        assertThat(listAppender.list).isEmpty();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MarkerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTest {
+    private final AtomicLong nanoTime = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    private SamplingTurboFilter samplingTurboFilter;
+
+    @BeforeEach
+    void setup() {
+        samplingTurboFilter = new SamplingTurboFilter(nanoTime::get);
+        samplingTurboFilter.setRatePerSecond(2);
+        samplingTurboFilter.start();
+    }
+
+    @Test
+    void whenMoreSampledEventsThanRate_thenExcessDroppedUntilNextSecond() {
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.DENY);
+        assertThat(samplingTurboFilter.getDroppedEvents()).isEqualTo(1);
+
+        nanoTime.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void whenEventNotSampled_thenNeverDropped() {
+        decideSampled("accepted");
+        decideSampled("accepted");
+
+        assertThat(samplingTurboFilter.decide(null, null, Level.ERROR, "rejected", null, null))
+                .isEqualTo(FilterReply.NEUTRAL);
+        assertThat(samplingTurboFilter.decide(MarkerFactory.getMarker("OTHER"), null, Level.INFO, "other", null, null))
+                .isEqualTo(FilterReply.NEUTRAL);
+    }
+
+    @Test
+    void whenCheckingIfEnabled_thenNoSampleUsedUp() {
+        assertThat(decideSampled(null)).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+        assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+
+        assertThat(decideSampled(null)).isEqualTo(FilterReply.DENY);
+        assertThat(samplingTurboFilter.getDroppedEvents()).isZero();
+    }
+
+    @Test
+    void whenRateIsNegative_thenAllSampledEventsKept() {
+        samplingTurboFilter.setRatePerSecond(-1);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(decideSampled("accepted")).isEqualTo(FilterReply.NEUTRAL);
+        }
+    }
+
+    private FilterReply decideSampled(final String format) {
+        return samplingTurboFilter.decide(LogMarkers.SAMPLED, null, Level.INFO, format, null, null);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_ADMISSION_IN_FLIGHT;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_ADMISSION_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ADMITTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_SHED;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PushAdmissionControlTest {
+    private static final Duration MAX_RETRY_AFTER = Duration.ofSeconds(30);
+
+    private MeterRegistry registry;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void whenInFlightBudgetIsExhausted_thenNotificationIsShed() {
+        PushAdmissionControl admissionControl = admissionControl(2, Long.MAX_VALUE);
+
+        assertThat(admissionControl.tryAcquire(10)).isTrue();
+        assertThat(admissionControl.tryAcquire(10)).isTrue();
+        assertThat(admissionControl.tryAcquire(10)).isFalse();
+        assertThat(admissionControl.getInFlight()).isEqualTo(2);
+        assertThat(admissionControl.getInFlightBytes()).isEqualTo(20);
+
+        admissionControl.release(10, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(admissionControl.tryAcquire(10)).isTrue();
+    }
+
+    @Test
+    void whenByteBudgetIsExhausted_thenNotificationIsShed() {
+        PushAdmissionControl admissionControl = admissionControl(Integer.MAX_VALUE, 100);
+
+        assertThat(admissionControl.tryAcquire(60)).isTrue();
+        assertThat(admissionControl.tryAcquire(60)).isFalse();
+        assertThat(admissionControl.getInFlight()).isEqualTo(1);
+        assertThat(admissionControl.getInFlightBytes()).isEqualTo(60);
+        assertThat(admissionControl.tryAcquire(40)).isTrue();
+    }
+
+    @Test
+    void whenNotificationsAreAdmittedAndShed_thenMetricsAreRecorded() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+
+        admissionControl.tryAcquire(10);
+        admissionControl.tryAcquire(10);
+        admissionControl.tryAcquire(10);
+
+        assertThat(registry.get(METRIC_PUSH_ADMISSION_TOTAL).tag(TAG_RESULT, RESULT_ADMITTED).counter().count())
+                .isEqualTo(1);
+        assertThat(registry.get(METRIC_PUSH_ADMISSION_TOTAL).tag(TAG_RESULT, RESULT_SHED).counter().count())
+                .isEqualTo(2);
+        assertThat(registry.get(METRIC_PUSH_ADMISSION_IN_FLIGHT).gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void whenGatewayIsFast_thenRetryAfterIsOneSecond() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+
+        admissionControl.tryAcquire(10);
+        admissionControl.release(10, TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertThat(admissionControl.retryAfterSeconds()).isEqualTo(1);
+    }
+
+    @Test
+    void whenGatewayIsSlow_thenRetryAfterFollowsItsLatency() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+
+        admissionControl.tryAcquire(10);
+        admissionControl.release(10, TimeUnit.MILLISECONDS.toNanos(4500));
+
+        assertThat(admissionControl.retryAfterSeconds()).isEqualTo(5);
+    }
+
+    @Test
+    void whenGatewayIsVerySlow_thenRetryAfterIsCapped() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+
+        admissionControl.tryAcquire(10);
+        admissionControl.release(10, TimeUnit.MINUTES.toNanos(5));
+
+        assertThat(admissionControl.retryAfterSeconds()).isEqualTo(MAX_RETRY_AFTER.toSeconds());
+    }
+
+    @Test
+    void whenBudgetIsExhausted_thenControllerRespondsServiceUnavailableWithoutSending() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+        PushNotificationSender sender = mock(PushNotificationSender.class);
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString())).thenReturn(pending);
+        PushNotificationController controller = controller(sender, admissionControl);
+        PushNotificationMessage message = new PushNotificationMessage("encrypted", true, false);
+
+        CompletableFuture<ResponseEntity<String>> admitted = controller.handleRequest("token", message);
+        ResponseEntity<String> shed = controller.handleRequest("token", message).join();
+
+        assertThat(admitted).isNotDone();
+        assertThat(shed.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(admissionControl.getInFlightBytes()).isEqualTo("token".length() + "encrypted".length());
+
+        pending.complete(new PushNotificationResult(true, null, null, false));
+
+        assertThat(admitted.join().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(admissionControl.getInFlight()).isZero();
+        assertThat(admissionControl.getInFlightBytes()).isZero();
+    }
+
+    @Test
+    void whenSendFails_thenBudgetIsReleased() {
+        PushAdmissionControl admissionControl = admissionControl(1, Long.MAX_VALUE);
+        PushNotificationSender sender = mock(PushNotificationSender.class);
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("lost connection")))
+                .thenThrow(new IllegalArgumentException("invalid token"));
+        PushNotificationController controller = controller(sender, admissionControl);
+        PushNotificationMessage message = new PushNotificationMessage("encrypted", true, false);
+
+        assertThat(controller.handleRequest("token", message).join().getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(admissionControl.getInFlight()).isZero();
+
+        assertThat(controller.handleRequest("token", message).join().getStatusCode())
+                .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(admissionControl.getInFlight()).isZero();
+        assertThat(admissionControl.getInFlightBytes()).isZero();
+    }
+
+    private PushAdmissionControl admissionControl(final int maxInFlight, final long maxInFlightBytes) {
+        return new PushAdmissionControl(PROVIDER_ID_APNS, maxInFlight, maxInFlightBytes, MAX_RETRY_AFTER, registry);
+    }
+
+    private static PushNotificationController controller(final PushNotificationSender sender,
+                                                         final PushAdmissionControl admissionControl) {
+        return new PushNotificationController(PROVIDER_ID_APNS, sender, new ObjectMapper(), admissionControl,
+                PushDispatcher.UNLIMITED, null, null, null) {
+        };
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_BATCH_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushBatcherTest {
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("foo", false, false);
+    private static final PushNotificationResult ACCEPTED = new PushNotificationResult(true, null, null, false);
+    private static final Duration WINDOW = Duration.ofMillis(500);
+
+    @Mock
+    private PushNotificationSender sender;
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ScheduledFuture<?> scheduledSend;
+
+    private MeterRegistry registry;
+    private PushBatcher batcher;
+    private final List<List<PushNotification>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        batcher = new PushBatcher("apns", sender, WINDOW, 3, scheduler, registry);
+    }
+
+    @Test
+    void whenBatchIsFull_thenItIsSentRightAway() {
+        givenSenderAcceptsEverything();
+        givenSendIsScheduled();
+
+        List<CompletableFuture<PushNotificationResult>> results = List.of(
+                batcher.add(MESSAGE, "token-1"), batcher.add(MESSAGE, "token-2"), batcher.add(MESSAGE, "token-3"));
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).extracting(PushNotification::deviceToken)
+                .containsExactly("token-1", "token-2", "token-3");
+        assertThat(results).allMatch(result -> result.join() == ACCEPTED);
+        verify(scheduler).schedule(any(Runnable.class), eq(WINDOW.toNanos()), eq(TimeUnit.NANOSECONDS));
+        verify(scheduledSend).cancel(false);
+        assertThat(registry.get(METRIC_PUSH_BATCH_SIZE).summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void whenWindowElapses_thenHeldNotificationsAreSent() {
+        givenSenderAcceptsEverything();
+        givenSendIsScheduled();
+
+        CompletableFuture<PushNotificationResult> first = batcher.add(MESSAGE, "token-1");
+        CompletableFuture<PushNotificationResult> second = batcher.add(MESSAGE, "token-2");
+
+        assertThat(first).isNotDone();
+        assertThat(batcher.getHeld()).isEqualTo(2);
+        verify(sender, never()).sendNotifications(anyList());
+
+        scheduledSendTask().run();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(2);
+        assertThat(first.join()).isEqualTo(ACCEPTED);
+        assertThat(second.join()).isEqualTo(ACCEPTED);
+        assertThat(batcher.getHeld()).isZero();
+    }
+
+    @Test
+    void whenBatchSendThrows_thenEveryHeldNotificationFails() {
+        givenSendIsScheduled();
+        when(sender.sendNotifications(anyList())).thenThrow(new IllegalStateException("client closed"));
+
+        CompletableFuture<PushNotificationResult> result = batcher.add(MESSAGE, "token-1");
+        scheduledSendTask().run();
+
+        assertThat(result).isCompletedExceptionally();
+    }
+
+    @Test
+    void whenClosed_thenHeldNotificationsAreSentAndLaterOnesAreNotHeld() {
+        givenSenderAcceptsEverything();
+        givenSendIsScheduled();
+
+        CompletableFuture<PushNotificationResult> held = batcher.add(MESSAGE, "token-1");
+        batcher.close();
+        CompletableFuture<PushNotificationResult> late = batcher.add(MESSAGE, "token-2");
+
+        assertThat(held.join()).isEqualTo(ACCEPTED);
+        assertThat(late.join()).isEqualTo(ACCEPTED);
+        assertThat(batches).hasSize(2);
+        verify(scheduler).shutdownNow();
+        verify(scheduler, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    private void givenSenderAcceptsEverything() {
+        when(sender.sendNotifications(anyList())).thenAnswer(invocation -> {
+            List<PushNotification> notifications = invocation.getArgument(0);
+            batches.add(notifications);
+            return notifications.stream().map(notification -> CompletableFuture.completedFuture(ACCEPTED)).toList();
+        });
+    }
+
+    private void givenSendIsScheduled() {
+        doReturn(scheduledSend).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    private Runnable scheduledSendTask() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(task.capture(), anyLong(), any(TimeUnit.class));
+        return task.getValue();
+    }
+}
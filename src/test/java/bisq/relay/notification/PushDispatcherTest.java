@@ -0,0 +1,202 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_EXPIRED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_QUEUED;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DISPATCH_WAIT_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.PRIORITY_BACKGROUND;
+import static bisq.relay.notification.metrics.PushMetrics.PRIORITY_URGENT;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PRIORITY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PushDispatcherTest {
+    private static final PushNotificationResult ACCEPTED = new PushNotificationResult(true, null, null, false);
+
+    private MeterRegistry registry;
+    private List<String> sent;
+    private List<CompletableFuture<PushNotificationResult>> pending;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        sent = new ArrayList<>();
+        pending = new ArrayList<>();
+    }
+
+    @Test
+    void whenSlotsAreFree_thenNotificationIsSentRightAway() {
+        PushDispatcher dispatcher = dispatcher(2, 0.5);
+
+        CompletableFuture<PushNotificationResult> result = dispatcher.dispatch(true, send("urgent"));
+
+        assertThat(sent).containsExactly("urgent");
+        assertThat(dispatcher.getConcurrent()).isEqualTo(1);
+        pending.get(0).complete(ACCEPTED);
+        assertThat(result).isCompletedWithValue(ACCEPTED);
+        assertThat(dispatcher.getConcurrent()).isZero();
+    }
+
+    @Test
+    void whenSaturated_thenUrgentNotificationsAreSentBeforeQueuedBackgroundOnes() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+        dispatcher.dispatch(true, send("first"));
+        dispatcher.dispatch(false, send("background-1"));
+        dispatcher.dispatch(false, send("background-2"));
+        dispatcher.dispatch(true, send("urgent"));
+
+        assertThat(sent).containsExactly("first");
+        assertThat(dispatcher.getQueued(true)).isEqualTo(1);
+        assertThat(dispatcher.getQueued(false)).isEqualTo(2);
+
+        completeInOrder(3);
+
+        assertThat(sent).containsExactly("first", "urgent", "background-1", "background-2");
+    }
+
+    @Test
+    void whenBackgroundShareIsUsedUp_thenBackgroundNotificationsWaitWhileUrgentOnesAreSent() {
+        PushDispatcher dispatcher = dispatcher(4, 0.5);
+        dispatcher.dispatch(false, send("background-1"));
+        dispatcher.dispatch(false, send("background-2"));
+        dispatcher.dispatch(false, send("background-3"));
+        dispatcher.dispatch(true, send("urgent-1"));
+        dispatcher.dispatch(true, send("urgent-2"));
+
+        assertThat(sent).containsExactly("background-1", "background-2", "urgent-1", "urgent-2");
+        assertThat(dispatcher.getQueued(false)).isEqualTo(1);
+
+        pending.get(0).complete(ACCEPTED);
+
+        assertThat(sent).endsWith("background-3");
+        assertThat(dispatcher.getConcurrent()).isEqualTo(4);
+    }
+
+    @Test
+    void whenNotificationsWaited_thenWaitTimeIsRecordedPerPriority() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+        dispatcher.dispatch(true, send("urgent"));
+        dispatcher.dispatch(false, send("background"));
+
+        assertThat(registry.get(METRIC_PUSH_DISPATCH_QUEUED).tag(TAG_PRIORITY, PRIORITY_BACKGROUND).gauge().value())
+                .isEqualTo(1);
+
+        completeInOrder(1);
+
+        assertThat(registry.get(METRIC_PUSH_DISPATCH_WAIT_SECONDS).tag(TAG_PRIORITY, PRIORITY_URGENT).timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get(METRIC_PUSH_DISPATCH_WAIT_SECONDS).tag(TAG_PRIORITY, PRIORITY_BACKGROUND).timer()
+                .count()).isEqualTo(1);
+        assertThat(registry.get(METRIC_PUSH_DISPATCH_QUEUED).tag(TAG_PRIORITY, PRIORITY_BACKGROUND).gauge().value())
+                .isZero();
+    }
+
+    @Test
+    void whenSendThrows_thenResultFailsAndSlotIsReleased() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+
+        CompletableFuture<PushNotificationResult> result = dispatcher.dispatch(true, () -> {
+            throw new IllegalArgumentException("invalid token");
+        });
+
+        assertThatThrownBy(result::join)
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IllegalArgumentException.class);
+        assertThat(dispatcher.getConcurrent()).isZero();
+    }
+
+    @Test
+    void whenManyQueuedSendsCompleteRightAway_thenTheyAreSentWithoutRecursing() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+        dispatcher.dispatch(true, send("first"));
+        List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            results.add(dispatcher.dispatch(i % 2 == 0, () -> CompletableFuture.completedFuture(ACCEPTED)));
+        }
+
+        pending.get(0).complete(ACCEPTED);
+
+        assertThat(results).allMatch(result -> result.isDone() && !result.isCompletedExceptionally());
+        assertThat(dispatcher.getConcurrent()).isZero();
+    }
+
+    @Test
+    void whenQueuedNotificationIsAbandoned_thenItIsNotSent() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+        dispatcher.dispatch(true, send("first"));
+        CompletableFuture<PushNotificationResult> abandoned = dispatcher.dispatch(false, send("abandoned"));
+        dispatcher.dispatch(false, send("background"));
+
+        abandoned.completeExceptionally(new TimeoutException());
+        pending.get(0).complete(ACCEPTED);
+
+        assertThat(sent).containsExactly("first", "background");
+        assertThat(registry.get(METRIC_PUSH_DISPATCH_EXPIRED_TOTAL).tag(TAG_PRIORITY, PRIORITY_BACKGROUND).counter()
+                .count()).isEqualTo(1);
+    }
+
+    @Test
+    void whenSentNotificationIsAbandoned_thenSendIsCancelledAndSlotIsReleased() {
+        PushDispatcher dispatcher = dispatcher(1, 1.0);
+        CompletableFuture<PushNotificationResult> abandoned = dispatcher.dispatch(true, send("abandoned"));
+        dispatcher.dispatch(true, send("urgent"));
+
+        abandoned.completeExceptionally(new TimeoutException());
+
+        assertThat(pending.get(0)).isCancelled();
+        assertThat(sent).containsExactly("abandoned", "urgent");
+        assertThat(dispatcher.getConcurrent()).isEqualTo(1);
+    }
+
+    private PushDispatcher dispatcher(final int maxConcurrent, final double backgroundShare) {
+        return new PushDispatcher(PROVIDER_ID_APNS, maxConcurrent, backgroundShare, registry);
+    }
+
+    private Supplier<CompletableFuture<PushNotificationResult>> send(final String name) {
+        return () -> {
+            sent.add(name);
+            CompletableFuture<PushNotificationResult> future = new CompletableFuture<>();
+            pending.add(future);
+            return future;
+        };
+    }
+
+    /**
+     * Completes the pending sends one after another, including those the completions dispatch.
+     */
+    private void completeInOrder(final int dispatchedByCompletions) {
+        for (int i = 0; i <= dispatchedByCompletions; i++) {
+            pending.get(i).complete(ACCEPTED);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DRAIN_ABANDONED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_DRAIN_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_SPOOL_REPLAYED_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ACCEPTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_TIMEOUT;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PushDrainTest {
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("encrypted", true, false);
+    private static final PushNotificationResult ACCEPTED = new PushNotificationResult(true, null, null, false);
+
+    @TempDir
+    private Path directory;
+
+    private MeterRegistry registry;
+    private PushSpool spool;
+    private PushNotificationSender sender;
+    private PushNotificationController controller;
+    private PushDrain drain;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        spool = new PushSpool(directory, new ObjectMapper());
+        sender = mock(PushNotificationSender.class);
+        controller = new PushNotificationController(PROVIDER_ID_APNS, sender, new ObjectMapper()) {
+        };
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory(Map.of("controller", controller));
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        drain = new PushDrain(beanFactory.getBeanProvider(PushNotificationController.class), spool,
+                Duration.ofMillis(50), eventPublisher, registry);
+    }
+
+    @Test
+    void whenSendsAreAnsweredInTime_thenNothingIsSpooled() throws IOException {
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(ACCEPTED));
+        ResponseEntity<String> responseEntity = controller.handleRequest("token", MESSAGE).join();
+
+        drain.stop();
+
+        assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(PushSpoolTest.take(spool, PROVIDER_ID_APNS)).isEmpty();
+        assertThat(registry.get(METRIC_PUSH_DRAIN_SECONDS).timer().count()).isEqualTo(1);
+        assertThat(registry.find(METRIC_PUSH_DRAIN_ABANDONED_TOTAL).counter()).isNull();
+    }
+
+    @Test
+    void whenSendsAreNotAnsweredInTime_thenTheyAreAbandonedAndSpooled() throws IOException {
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString())).thenReturn(pending);
+        CompletableFuture<ResponseEntity<String>> inFlight = controller.handleRequest("token", MESSAGE);
+
+        drain.stop();
+
+        assertThat(inFlight.join().getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        assertThat(pending).isCancelled();
+        assertThat(PushSpoolTest.take(spool, PROVIDER_ID_APNS)).containsExactly(new PushNotification(MESSAGE, "token"));
+        assertThat(registry.get(METRIC_PUSH_DRAIN_ABANDONED_TOTAL).counter().count()).isEqualTo(1);
+        assertThat(controller.handleRequest("token", MESSAGE).join().getStatusCode())
+                .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void whenStarting_thenSpooledNotificationsAreSent() throws IOException {
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(ACCEPTED));
+        spool.write(PROVIDER_ID_APNS, List.of(new PushNotification(MESSAGE, "spooled-token")));
+
+        drain.start();
+
+        verify(sender).sendNotification(MESSAGE, "spooled-token");
+        assertThat(registry.get(METRIC_PUSH_SPOOL_REPLAYED_TOTAL).tag(TAG_RESULT, RESULT_ACCEPTED).counter().count())
+                .isEqualTo(1);
+        assertThat(PushSpoolTest.take(spool, PROVIDER_ID_APNS)).isEmpty();
+    }
+
+    @Test
+    void whenSpooledNotificationTimesOutAgain_thenItIsSpooledAgain() throws IOException {
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException()));
+        spool.write(PROVIDER_ID_APNS, List.of(new PushNotification(MESSAGE, "spooled-token")));
+
+        drain.start();
+
+        assertThat(registry.get(METRIC_PUSH_SPOOL_REPLAYED_TOTAL).tag(TAG_RESULT, RESULT_TIMEOUT).counter().count())
+                .isEqualTo(1);
+        assertThat(PushSpoolTest.take(spool, PROVIDER_ID_APNS))
+                .containsExactly(new PushNotification(MESSAGE, "spooled-token"));
+    }
+
+    @Test
+    void whenSpooledNotificationFailsAgain_thenItIsSpooledAgain() throws IOException {
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("lost connection")));
+        spool.write(PROVIDER_ID_APNS, List.of(new PushNotification(MESSAGE, "spooled-token")));
+
+        drain.start();
+
+        assertThat(registry.get(METRIC_PUSH_SPOOL_REPLAYED_TOTAL).tag(TAG_RESULT, RESULT_ERROR).counter().count())
+                .isEqualTo(1);
+        assertThat(PushSpoolTest.take(spool, PROVIDER_ID_APNS))
+                .containsExactly(new PushNotification(MESSAGE, "spooled-token"));
+    }
+
+    @Test
+    void whenSpooledNotificationsAreStillInFlight_thenTheirFileIsKept() throws IOException {
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        when(sender.sendNotification(any(PushNotificationMessage.class), anyString())).thenReturn(pending);
+        spool.write(PROVIDER_ID_APNS, List.of(new PushNotification(MESSAGE, "spooled-token")));
+
+        drain.start();
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).singleElement().satisfies(file -> assertThat(file.toString()).endsWith(".claimed"));
+        }
+        pending.complete(ACCEPTED);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for PushProvidersHealthIndicator - runs real background initializations, no Spring context needed.
+ */
+class PushProvidersHealthIndicatorTest {
+    private final PushProviderInitializer initializer = new PushProviderInitializer();
+    private final PushProvidersHealthIndicator healthIndicator = new PushProvidersHealthIndicator(initializer);
+    private final CountDownLatch releaseInitialization = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        releaseInitialization.countDown();
+        initializer.destroy();
+    }
+
+    @Test
+    void whenNoProviderIsRegistered_thenUp() {
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void whenAProviderIsStillInitializing_thenOutOfService() {
+        initializer.initialize(PROVIDER_ID_APNS, () -> "apns-client").join();
+        initializer.initialize(PROVIDER_ID_FCM, () -> {
+            releaseInitialization.await();
+            return "fcm-client";
+        });
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        assertThat(health.getDetails())
+                .containsEntry(PROVIDER_ID_APNS, PushProvidersHealthIndicator.STATE_READY)
+                .containsEntry(PROVIDER_ID_FCM, PushProvidersHealthIndicator.STATE_INITIALIZING);
+    }
+
+    @Test
+    void whenAllProvidersAreInitialized_thenUp() {
+        initializer.initialize(PROVIDER_ID_APNS, () -> "apns-client");
+        CompletableFuture<String> fcmInitialization = initializer.initialize(PROVIDER_ID_FCM, () -> {
+            releaseInitialization.await();
+            return "fcm-client";
+        });
+
+        releaseInitialization.countDown();
+        assertThat(fcmInitialization.join()).isEqualTo("fcm-client");
+        CompletableFuture.allOf(initializer.getInitializations().values().toArray(CompletableFuture[]::new)).join();
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails())
+                .containsEntry(PROVIDER_ID_APNS, PushProvidersHealthIndicator.STATE_READY)
+                .containsEntry(PROVIDER_ID_FCM, PushProvidersHealthIndicator.STATE_READY);
+    }
+
+    @Test
+    void whenAProviderFailedToInitialize_thenDown() {
+        initializer.initialize(PROVIDER_ID_FCM, () -> {
+            releaseInitialization.await();
+            return "fcm-client";
+        });
+        CompletableFuture<Object> apnsInitialization = initializer.initialize(PROVIDER_ID_APNS, () -> {
+            throw new IOException("certificate not found");
+        });
+        assertThat(apnsInitialization).failsWithin(Duration.ofSeconds(5));
+
+        Health health = healthIndicator.health();
+
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails())
+                .containsEntry(PROVIDER_ID_APNS, PushProvidersHealthIndicator.STATE_FAILED)
+                .containsEntry(PROVIDER_ID_FCM, PushProvidersHealthIndicator.STATE_INITIALIZING);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification;
+
+import bisq.relay.config.DrainProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PushSpoolTest {
+    private static final PushNotification URGENT =
+            new PushNotification(new PushNotificationMessage("encrypted-1", true, false), "token-1");
+    private static final PushNotification BACKGROUND =
+            new PushNotification(new PushNotificationMessage("encrypted-2", false, true), "token-2");
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void whenNotificationsAreSpooled_thenTheyAreTakenOnceByTheirProvider() throws IOException {
+        PushSpool spool = new PushSpool(directory, new ObjectMapper());
+
+        spool.write(PROVIDER_ID_APNS, List.of(URGENT, BACKGROUND));
+        spool.write(PROVIDER_ID_FCM, List.of(BACKGROUND));
+
+        assertThat(take(spool, PROVIDER_ID_APNS)).containsExactly(URGENT, BACKGROUND);
+        assertThat(take(spool, PROVIDER_ID_APNS)).isEmpty();
+        assertThat(take(spool, PROVIDER_ID_FCM)).containsExactly(BACKGROUND);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void whenClaimIsNeverReleased_thenClaimedAgainOnTheNextStart() throws IOException {
+        new PushSpool(directory, new ObjectMapper()).write(PROVIDER_ID_APNS, List.of(URGENT));
+
+        PushSpool.Claim claim = new PushSpool(directory, new ObjectMapper()).claim(PROVIDER_ID_APNS);
+        assertThat(claim.notifications()).containsExactly(URGENT);
+        assertThat(claim.files()).singleElement().satisfies(file -> assertThat(file).exists());
+
+        // Restarted without releasing the claim, e.g. after a crash
+        PushSpool spool = new PushSpool(directory, new ObjectMapper());
+        assertThat(take(spool, PROVIDER_ID_APNS)).containsExactly(URGENT);
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @Test
+    void whenASpooledLineCannotBeRead_thenTheOthersAreStillTaken() throws IOException {
+        PushSpool spool = new PushSpool(directory, new ObjectMapper());
+        spool.write(PROVIDER_ID_APNS, List.of(URGENT));
+        Files.writeString(directory.resolve(PROVIDER_ID_APNS + "-9999999999999.jsonl"), "{\"truncated\n",
+                StandardCharsets.UTF_8);
+
+        assertThat(take(spool, PROVIDER_ID_APNS)).containsExactly(URGENT);
+    }
+
+    @Test
+    void whenSpoolingIsDisabled_thenNothingIsWritten() throws IOException {
+        DrainProperties drainProperties = new DrainProperties();
+        drainProperties.setSpoolDirectory("");
+        PushSpool spool = new PushSpool(drainProperties, new ObjectMapper());
+
+        spool.write(PROVIDER_ID_APNS, List.of(URGENT));
+
+        assertThat(spool.isEnabled()).isFalse();
+        assertThat(take(spool, PROVIDER_ID_APNS)).isEmpty();
+    }
+
+    static List<PushNotification> take(final PushSpool spool, final String providerId) throws IOException {
+        PushSpool.Claim claim = spool.claim(providerId);
+        spool.release(claim);
+        return claim.notifications();
+    }
+}
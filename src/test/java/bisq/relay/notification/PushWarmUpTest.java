@@ -0,0 +1,128 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification;
+
+import bisq.relay.config.FcmProperties;
+import bisq.relay.config.WarmUpProperties;
+import bisq.relay.notification.apns.ApnsPushNotificationBuilder;
+import bisq.relay.notification.fcm.FcmPushNotificationBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_PUSH_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_APNS;
+import static bisq.relay.notification.metrics.PushMetrics.PROVIDER_ID_FCM;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ACCEPTED;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_REJECTED;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_PROVIDER;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit test for PushWarmUp - runs the warm-up against a mocked sender, no Spring context needed.
+ */
+@ExtendWith(MockitoExtension.class)
+class PushWarmUpTest {
+    @Mock
+    private PushNotificationSender pushNotificationSender;
+    @Mock
+    private ObjectProvider<FcmPushNotificationBuilder> fcmPushNotificationBuilderProvider;
+
+    private final PushProviderInitializer initializer = new PushProviderInitializer();
+    private final WarmUpProperties warmUpProperties = new WarmUpProperties();
+    private PushWarmUp pushWarmUp;
+
+    @BeforeEach
+    void setUp() {
+        warmUpProperties.setIterations(10);
+        lenient().when(fcmPushNotificationBuilderProvider.getIfAvailable())
+                .thenReturn(new FcmPushNotificationBuilder(new FcmProperties()));
+        pushWarmUp = new PushWarmUp(warmUpProperties, initializer, List.of(pushNotificationSender),
+                new ObjectMapper(), new ApnsPushNotificationBuilder(), fcmPushNotificationBuilderProvider);
+    }
+
+    @AfterEach
+    void tearDown() {
+        initializer.destroy();
+    }
+
+    @Test
+    void whenProvidersAreInitialized_thenConnectionsWarmedUpWithoutSendingNotifications() {
+        when(pushNotificationSender.warmUpConnections()).thenReturn(CompletableFuture.completedFuture(null));
+        initializer.initialize(PROVIDER_ID_APNS, () -> "apns-client").join();
+
+        pushWarmUp.afterSingletonsInstantiated();
+
+        assertThat(initializer.getInitializations().get(PushWarmUp.INITIALIZATION_ID))
+                .succeedsWithin(Duration.ofSeconds(10));
+        verify(pushNotificationSender).warmUpConnections();
+        verify(pushNotificationSender, never()).sendNotification(any(), any());
+    }
+
+    @Test
+    void whenGatewayDoesNotAnswer_thenWarmUpCompletesAfterTimeout() {
+        warmUpProperties.setTimeout(Duration.ofMillis(100));
+        when(pushNotificationSender.warmUpConnections()).thenReturn(new CompletableFuture<>());
+
+        pushWarmUp.afterSingletonsInstantiated();
+
+        assertThat(initializer.getInitializations().get(PushWarmUp.INITIALIZATION_ID))
+                .succeedsWithin(Duration.ofSeconds(10));
+    }
+
+    @Test
+    void whenRequestPathIsWarmedUp_thenEveryProviderSeesBothOutcomes() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        pushWarmUp.warmUpRequestPath(8, registry);
+
+        for (String providerId : List.of(PROVIDER_ID_APNS, PROVIDER_ID_FCM)) {
+            for (String result : List.of(RESULT_ACCEPTED, RESULT_REJECTED)) {
+                assertThat(registry.get(METRIC_PUSH_TOTAL).tag(TAG_PROVIDER, providerId).tag(TAG_RESULT, result)
+                        .counter().count()).as("%s %s", providerId, result).isEqualTo(4);
+            }
+        }
+    }
+
+    @Test
+    void whenDisabled_thenNothingIsWarmedUp() {
+        warmUpProperties.setEnabled(false);
+
+        pushWarmUp.afterSingletonsInstantiated();
+
+        assertThat(initializer.getInitializations()).doesNotContainKey(PushWarmUp.INITIALIZATION_ID);
+        verify(pushNotificationSender, never()).warmUpConnections();
+    }
+}
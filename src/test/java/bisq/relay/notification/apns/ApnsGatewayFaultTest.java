@@ -0,0 +1,241 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.apns;
+
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.test.gateway.ApnsGatewayStub;
+import bisq.relay.test.gateway.FaultSchedule;
+import bisq.relay.test.gateway.GatewayFault;
+import bisq.relay.test.gateway.GatewayResponseMix;
+import bisq.relay.test.gateway.LatencyDistribution;
+import com.eatthepath.pushy.apns.ApnsClient;
+import com.eatthepath.pushy.apns.ApnsClientBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends notifications through {@link ApnsPushNotificationSender} and a real Pushy client to an
+ * {@link ApnsGatewayStub} that injects faults. Under every fault each notification must complete within the request
+ * timeout, so that none are left outstanding, and be reported as the right {@link PushNotificationResult} or
+ * failure.
+ */
+class ApnsGatewayFaultTest {
+    private static final String DEVICE_TOKEN = "d45161df3d172837f1b83bb3e411d5a63120de6b435ff9235adb70d619d162a1";
+    private static final String APNS_BUNDLE_ID = "bisqremote.joachimneumann.com";
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("foo", true, false);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(500);
+    // Leaves room for connection set-up and a busy machine, while still catching notifications that never complete
+    private static final Duration COMPLETION_BOUND = REQUEST_TIMEOUT.plusSeconds(3);
+    private static final Duration FAULT_WINDOW = Duration.ofSeconds(1);
+    private static final int NOTIFICATIONS = 50;
+
+    private static ApnsGatewayStub gateway;
+
+    private ApnsClient apnsClient;
+    private ApnsPushNotificationSender apnsSender;
+
+    @BeforeAll
+    static void startGateway() throws Exception {
+        gateway = ApnsGatewayStub.start(GatewayResponseMix.ACCEPT_ALL);
+    }
+
+    @AfterAll
+    static void stopGateway() throws Exception {
+        gateway.close();
+    }
+
+    @BeforeEach
+    void setup() throws Exception {
+        apnsClient = new ApnsClientBuilder()
+                .setApnsServer("localhost", gateway.getPort())
+                .setTrustedServerCertificateChain(new File(ApnsGatewayStub.SERVER_CERTIFICATE_FILE))
+                .setClientCredentials(new File("build/resources/test/mock-apnsCertificate.p12"), "testpassword")
+                .build();
+        apnsSender = new ApnsPushNotificationSender(apnsClient, APNS_BUNDLE_ID, REQUEST_TIMEOUT,
+                new ApnsPushNotificationBuilder());
+        // Connect before any fault is injected, without the short timeout, which the TLS handshake may exceed
+        assertThat(new ApnsPushNotificationSender(apnsClient, APNS_BUNDLE_ID, new ApnsPushNotificationBuilder())
+                .sendNotification(MESSAGE, DEVICE_TOKEN).join().wasAccepted()).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        gateway.setFaultSchedule(FaultSchedule.NONE);
+        gateway.dropConnections();
+        apnsClient.close().get();
+    }
+
+    @Test
+    void whenGatewayThrottles_thenNotificationsAreRejectedAsTooManyRequests() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.THROTTLED, 1).build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+
+        assertThat(awaitResults(results)).containsOnly(
+                new PushNotificationResult(false, "TooManyRequests", null, false));
+    }
+
+    @Test
+    void whenGatewayFailsWithServerErrors_thenNotificationsAreRejectedAsInternalServerError() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.SERVER_ERROR, 1).build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+
+        assertThat(awaitResults(results)).containsOnly(
+                new PushNotificationResult(false, "InternalServerError", null, false));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = GatewayFault.class, names = {"SERVER_ERROR", "CONNECTION_RESET", "GOAWAY"})
+    void whenFaultBurstIsOver_thenNotificationsAreAcceptedAgain(final GatewayFault fault) throws Exception {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(fault, Duration.ZERO, FAULT_WINDOW).build());
+        final long burstStartNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> duringBurst = send(NOTIFICATIONS);
+        awaitCompletion(duringBurst);
+        assertThat(duringBurst).allSatisfy(result -> assertThat(result.handle((value, cause) ->
+                cause != null || !value.wasAccepted()).join()).isTrue());
+        assertThat(gateway.getCount(fault)).isPositive();
+
+        Thread.sleep(Math.max(0, FAULT_WINDOW.toMillis() - (System.nanoTime() - burstStartNanos) / 1_000_000));
+        final List<CompletableFuture<PushNotificationResult>> afterBurst = send(NOTIFICATIONS);
+
+        assertThat(awaitResults(afterBurst)).allSatisfy(result -> assertThat(result.wasAccepted()).isTrue());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = GatewayFault.class, names = {"CONNECTION_RESET", "GOAWAY"})
+    void whenConnectionIsLost_thenNotificationsFailWithoutWaitingForTheTimeout(final GatewayFault fault) {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(fault, 1).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result -> assertThat(failureOf(result))
+                .isNotNull()
+                .isNotInstanceOf(TimeoutException.class));
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(COMPLETION_BOUND);
+    }
+
+    @Test
+    void whenStreamsStall_thenNotificationsTimeOut() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.STALLED_STREAM, 1).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result -> assertThat(failureOf(result)).isInstanceOf(TimeoutException.class));
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isGreaterThanOrEqualTo(REQUEST_TIMEOUT);
+    }
+
+    @Test
+    void whenGatewayIsSlow_thenNotificationsAreAcceptedAfterItsLatency() {
+        final Duration latency = Duration.ofMillis(200);
+        gateway.setFaultSchedule(FaultSchedule.builder().latency(LatencyDistribution.fixed(latency)).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+
+        assertThat(awaitResults(results)).allSatisfy(result -> assertThat(result.wasAccepted()).isTrue());
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isGreaterThanOrEqualTo(latency);
+    }
+
+    @Test
+    void whenGatewayIsSlowerThanTheTimeout_thenNotificationsTimeOut() {
+        gateway.setFaultSchedule(FaultSchedule.builder()
+                .latency(LatencyDistribution.fixed(REQUEST_TIMEOUT.multipliedBy(4)))
+                .build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(NOTIFICATIONS);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result -> assertThat(failureOf(result)).isInstanceOf(TimeoutException.class));
+    }
+
+    @Test
+    void whenFaultsAreMixed_thenEveryNotificationCompletesWithinTheBound() {
+        gateway.setFaultSchedule(FaultSchedule.builder()
+                .latency(LatencyDistribution.logNormal(Duration.ofMillis(5), Duration.ofMillis(100)))
+                .inject(GatewayFault.THROTTLED, 0.05)
+                .inject(GatewayFault.SERVER_ERROR, 0.05)
+                .inject(GatewayFault.STALLED_STREAM, 0.02)
+                .inject(GatewayFault.CONNECTION_RESET, 0.002)
+                .inject(GatewayFault.GOAWAY, 0.002)
+                .build());
+
+        // In waves, so that a connection reset or GOAWAY fails the streams of one wave rather than most of them
+        final List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>();
+        for (int wave = 0; wave < 10; wave++) {
+            final List<CompletableFuture<PushNotificationResult>> waveResults = send(NOTIFICATIONS);
+            awaitCompletion(waveResults);
+            results.addAll(waveResults);
+        }
+
+        assertThat(results).allSatisfy(result -> {
+            if (failureOf(result) == null) {
+                assertThat(result.join().errorCode()).isIn(null, "TooManyRequests", "InternalServerError");
+            }
+        });
+        assertThat(results).filteredOn(result -> failureOf(result) == null)
+                .extracting(result -> result.join().errorCode())
+                .contains(null, "TooManyRequests", "InternalServerError");
+    }
+
+    private List<CompletableFuture<PushNotificationResult>> send(final int count) {
+        final List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(apnsSender.sendNotification(MESSAGE, DEVICE_TOKEN));
+        }
+        return results;
+    }
+
+    private static void awaitCompletion(final List<CompletableFuture<PushNotificationResult>> results) {
+        assertThat(CompletableFuture.allOf(results.stream()
+                .map(result -> result.handle((value, cause) -> null))
+                .toArray(CompletableFuture<?>[]::new)))
+                .succeedsWithin(COMPLETION_BOUND);
+    }
+
+    private static List<PushNotificationResult> awaitResults(
+            final List<CompletableFuture<PushNotificationResult>> results) {
+        awaitCompletion(results);
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static Throwable failureOf(final CompletableFuture<PushNotificationResult> result) {
+        return result.handle((value, cause) -> cause).join();
+    }
+}
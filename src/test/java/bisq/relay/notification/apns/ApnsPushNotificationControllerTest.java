@@ -17,10 +17,13 @@
 
 package bisq.relay.notification.apns;
 
+import bisq.relay.notification.PushNotificationController;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +34,7 @@ import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockAsyncContext;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
@@ -198,6 +202,64 @@ class ApnsPushNotificationControllerTest {
         assertThat(asyncResult.getResponse().getContentAsString()).isEmpty();
     }
 
+    @Test
+    void whenApnsDoesNotAnswerBeforeTheRequestDeadline_thenGatewayTimeoutReturnedAndSendCancelled() throws Exception {
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        when(apnsSender.sendNotification(isA(PushNotificationMessage.class), isA(String.class))).thenReturn(pending);
+
+        ObjectMapper mapper = new ObjectMapper();
+        String serializedNotificationRequest = mapper.writeValueAsString(
+                new PushNotificationMessage(
+                        "encrypted",
+                        true,
+                        false));
+
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .post("/v1/apns/device/{deviceToken}", deviceToken)
+                .headers(httpHeaders)
+                .header(PushNotificationController.REQUEST_TIMEOUT_HEADER, "50ms")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(serializedNotificationRequest);
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult asyncResult = mockMvc.perform(asyncDispatch(mvcResult))
+                .andReturn();
+        assertThat(asyncResult.getResponse().getStatus()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT.value());
+        assertThat(asyncResult.getResponse().getContentAsString()).isEmpty();
+        assertThat(pending).isCancelled();
+    }
+
+    @Test
+    void whenClientDisconnectsBeforeApnsAnswers_thenSendCancelled() throws Exception {
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        when(apnsSender.sendNotification(isA(PushNotificationMessage.class), isA(String.class))).thenReturn(pending);
+
+        ObjectMapper mapper = new ObjectMapper();
+        String serializedNotificationRequest = mapper.writeValueAsString(
+                new PushNotificationMessage(
+                        "encrypted",
+                        true,
+                        false));
+
+        RequestBuilder requestBuilder = MockMvcRequestBuilders
+                .post("/v1/apns/device/{deviceToken}", deviceToken)
+                .headers(httpHeaders)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(serializedNotificationRequest);
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext asyncContext = (MockAsyncContext) mvcResult.getRequest().getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Connection reset by peer")));
+        }
+
+        assertThat(pending).isCancelled();
+    }
+
     @Test
     void whenJsonProcessingExceptionWithPushNotificationResult_thenServerErrorResponseReturned() throws Exception {
         givenApnsNotificationWillBeAccepted();
@@ -19,11 +19,16 @@ package bisq.relay.notification.apns;
 
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.notification.PushStage;
 import com.eatthepath.pushy.apns.*;
 import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
 import com.eatthepath.pushy.apns.util.concurrent.PushNotificationFuture;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -31,10 +36,18 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+import static bisq.relay.util.MaskingUtil.maskSensitive;
 import static java.time.temporal.ChronoUnit.DAYS;
 import static java.time.temporal.ChronoUnit.SECONDS;
 import static org.assertj.core.api.Assertions.*;
@@ -106,6 +119,168 @@ class ApnsPushNotificationSenderTest {
         verifyNoMoreInteractions(apnsClient);
     }
 
+    @Test
+    void whenApnsNeverAnswers_thenSendTimesOut() {
+        when(apnsClient.sendNotification(isA(SimpleApnsPushNotification.class)))
+                .thenAnswer(invocationOnMock -> new PushNotificationFuture<>(invocationOnMock.getArgument(0)));
+        apnsSender = new ApnsPushNotificationSender(apnsClient, APNS_BUNDLE_ID, Duration.ofMillis(50),
+                new ApnsPushNotificationBuilder());
+
+        PushNotificationMessage pushNotification = new PushNotificationMessage("foo", true, false);
+        Throwable thrown = catchThrowable(() -> apnsSender.sendNotification(pushNotification, DEVICE_TOKEN).join());
+        assertThat(thrown).isInstanceOf(CompletionException.class).hasCauseInstanceOf(TimeoutException.class);
+    }
+
+    @Test
+    void whenCallerAbandonsTheSend_thenApnsFutureIsCancelled() {
+        final List<PushNotificationFuture<?, ?>> sent = new ArrayList<>();
+        when(apnsClient.sendNotification(isA(SimpleApnsPushNotification.class))).thenAnswer(invocationOnMock -> {
+            final PushNotificationFuture<?, ?> future = new PushNotificationFuture<>(invocationOnMock.getArgument(0));
+            sent.add(future);
+            return future;
+        });
+
+        apnsSender.sendNotification(new PushNotificationMessage("foo", true, false), DEVICE_TOKEN).cancel(true);
+
+        assertThat(sent).singleElement().satisfies(future -> assertThat(future).isCancelled());
+    }
+
+    @Test
+    void whenSendingBeforeApnsClientIsInitialized_thenSentOnceInitialized() {
+        givenApnsWillAcceptPushNotifications();
+        CompletableFuture<ApnsClient> apnsClientFuture = new CompletableFuture<>();
+        apnsSender = new ApnsPushNotificationSender(apnsClientFuture, APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+
+        CompletableFuture<PushNotificationResult> result =
+                apnsSender.sendNotification(new PushNotificationMessage("foo", true, false), DEVICE_TOKEN);
+        assertThat(result).isNotDone();
+        verifyNoInteractions(apnsClient);
+
+        apnsClientFuture.complete(apnsClient);
+
+        assertThat(result.join().wasAccepted()).isTrue();
+        verify(apnsClient).sendNotification(isA(SimpleApnsPushNotification.class));
+    }
+
+    @Test
+    void whenCallerAbandonsTheSendWhileApnsClientIsInitializing_thenNothingSent() {
+        CompletableFuture<ApnsClient> apnsClientFuture = new CompletableFuture<>();
+        apnsSender = new ApnsPushNotificationSender(apnsClientFuture, APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+
+        CompletableFuture<PushNotificationResult> result =
+                apnsSender.sendNotification(new PushNotificationMessage("foo", true, false), DEVICE_TOKEN);
+        result.cancel(true);
+        apnsClientFuture.complete(apnsClient);
+
+        verifyNoInteractions(apnsClient);
+        assertThat(apnsClientFuture).isCompletedWithValue(apnsClient);
+    }
+
+    @Test
+    void whenCallerAbandonsTheSendAfterApnsClientInitialized_thenApnsFutureIsCancelled() {
+        final List<PushNotificationFuture<?, ?>> sent = new ArrayList<>();
+        when(apnsClient.sendNotification(isA(SimpleApnsPushNotification.class))).thenAnswer(invocationOnMock -> {
+            final PushNotificationFuture<?, ?> future = new PushNotificationFuture<>(invocationOnMock.getArgument(0));
+            sent.add(future);
+            return future;
+        });
+        CompletableFuture<ApnsClient> apnsClientFuture = new CompletableFuture<>();
+        apnsSender = new ApnsPushNotificationSender(apnsClientFuture, APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+
+        CompletableFuture<PushNotificationResult> result =
+                apnsSender.sendNotification(new PushNotificationMessage("foo", true, false), DEVICE_TOKEN);
+        apnsClientFuture.complete(apnsClient);
+        result.cancel(true);
+
+        assertThat(sent).singleElement().satisfies(future -> assertThat(future).isCancelled());
+    }
+
+    @Test
+    void whenApnsClientFailedToInitialize_thenExceptionRaised() {
+        apnsSender = new ApnsPushNotificationSender(
+                CompletableFuture.failedFuture(new IOException("certificate not found")),
+                APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+
+        PushNotificationMessage pushNotification = new PushNotificationMessage("foo", true, false);
+        Throwable thrown = catchThrowable(() -> apnsSender.sendNotification(pushNotification, DEVICE_TOKEN).join());
+        assertThat(thrown).isInstanceOf(CompletionException.class).hasCauseInstanceOf(IOException.class);
+
+        verifyNoInteractions(apnsClient);
+    }
+
+    @Test
+    void whenSendingBeforeApnsClientIsInitialized_thenEveryStageReported() {
+        givenApnsWillAcceptPushNotifications();
+        CompletableFuture<ApnsClient> apnsClientFuture = new CompletableFuture<>();
+        apnsSender = new ApnsPushNotificationSender(apnsClientFuture, APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+        List<PushStage> stages = new ArrayList<>();
+
+        CompletableFuture<PushNotificationResult> result = apnsSender.sendNotification(
+                new PushNotificationMessage("foo", true, false), DEVICE_TOKEN,
+                (stage, durationNanos) -> {
+                    assertThat(durationNanos).isNotNegative();
+                    stages.add(stage);
+                });
+        apnsClientFuture.complete(apnsClient);
+
+        assertThat(result.join().wasAccepted()).isTrue();
+        assertThat(stages).containsExactly(PushStage.WAIT, PushStage.BUILD, PushStage.GATEWAY);
+    }
+
+    @Test
+    void whenDestroyedWhileApnsClientIsInitializing_thenClientClosedOnceInitialized() {
+        when(apnsClient.close()).thenReturn(CompletableFuture.completedFuture(null));
+        CompletableFuture<ApnsClient> apnsClientFuture = new CompletableFuture<>();
+        apnsSender = new ApnsPushNotificationSender(apnsClientFuture, APNS_BUNDLE_ID, 1, new ApnsPushNotificationBuilder());
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> apnsClientFuture.complete(apnsClient));
+
+        apnsSender.destroy();
+
+        verify(apnsClient).close();
+    }
+
+    @Test
+    void whenWarmingUpConnections_thenOneInvalidTokenNotificationSentPerConnection() {
+        givenApnsWillRejectPushNotifications("BadDeviceToken");
+        apnsSender = new ApnsPushNotificationSender(
+                CompletableFuture.completedFuture(apnsClient), APNS_BUNDLE_ID, 3, new ApnsPushNotificationBuilder());
+
+        apnsSender.warmUpConnections().join();
+
+        ArgumentCaptor<SimpleApnsPushNotification> captor = ArgumentCaptor.forClass(SimpleApnsPushNotification.class);
+        verify(apnsClient, times(3)).sendNotification(captor.capture());
+        assertThat(captor.getAllValues()).allSatisfy(notification -> {
+            assertThat(notification.getToken()).isEqualTo(ApnsPushNotificationSender.WARM_UP_DEVICE_TOKEN);
+            assertThat(notification.getTopic()).isEqualTo(APNS_BUNDLE_ID);
+        });
+    }
+
+    @Test
+    void whenPushNotificationIsRejectedByApns_thenJfrEventsRecorded(@TempDir final Path tempDir) throws IOException {
+        givenApnsWillRejectPushNotifications("BadDeviceToken");
+        Path recordingFile = tempDir.resolve("push.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("bisq.relay.PushBuild");
+            recording.enable("bisq.relay.PushGateway");
+            recording.start();
+            whenSendingAPushNotification(true, false);
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().startsWith("bisq.relay."))
+                .toList();
+        assertThat(events).extracting(event -> event.getEventType().getName())
+                .containsExactly("bisq.relay.PushBuild", "bisq.relay.PushGateway");
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getString("provider")).isEqualTo("apns");
+            assertThat(event.getString("deviceToken")).isEqualTo(maskSensitive(DEVICE_TOKEN));
+        });
+        assertThat(events.get(1).getString("outcome")).isEqualTo("rejected");
+        assertThat(events.get(1).getString("errorCode")).isEqualTo("BadDeviceToken");
+    }
+
     private void givenApnsWillAcceptPushNotifications() {
         @SuppressWarnings("unchecked")
         PushNotificationResponse<SimpleApnsPushNotification> response = mock(PushNotificationResponse.class);
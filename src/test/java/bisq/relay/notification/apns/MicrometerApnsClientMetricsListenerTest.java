@@ -0,0 +1,110 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.apns;
+
+import com.eatthepath.pushy.apns.ApnsClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit test for MicrometerApnsClientMetricsListener - drives the listener directly, no APNs client needed.
+ */
+class MicrometerApnsClientMetricsListenerTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final MicrometerApnsClientMetricsListener listener =
+            new MicrometerApnsClientMetricsListener(registry, nanoClock::get);
+    private final ApnsClient apnsClient = mock(ApnsClient.class);
+
+    @Test
+    void whenConnectionsAddedAndRemoved_thenOpenConnectionsTracked() {
+        listener.handleConnectionAdded(apnsClient);
+        listener.handleConnectionAdded(apnsClient);
+        listener.handleConnectionRemoved(apnsClient);
+        listener.handleConnectionCreationFailed(apnsClient);
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_CONNECTIONS).tag(TAG_PROVIDER, PROVIDER_ID_APNS).gauge().value())
+                .isEqualTo(1.0);
+        assertThat(registry.get(METRIC_PUSH_CLIENT_CONNECTION_FAILURES_TOTAL).tag(TAG_PROVIDER, PROVIDER_ID_APNS)
+                .counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void whenNotificationsSentAndAnswered_thenInFlightAndAckLatencyTracked() {
+        listener.handleNotificationSent(apnsClient, 1);
+        listener.handleNotificationSent(apnsClient, 2);
+        listener.handleNotificationSent(apnsClient, 3);
+        listener.handleNotificationAccepted(apnsClient, 1);
+        listener.handleNotificationRejected(apnsClient, 2);
+        listener.handleWriteFailure(apnsClient, 4);
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_IN_FLIGHT).tag(TAG_PROVIDER, PROVIDER_ID_APNS).gauge().value())
+                .isEqualTo(1.0);
+        assertThat(registry.get(METRIC_PUSH_CLIENT_ACK_SECONDS).tag(TAG_PROVIDER, PROVIDER_ID_APNS).timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get(METRIC_PUSH_CLIENT_WRITE_FAILURES_TOTAL).tag(TAG_PROVIDER, PROVIDER_ID_APNS)
+                .counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void whenConnectionRemoved_thenRecentNotificationsStayInFlight() {
+        listener.handleNotificationSent(apnsClient, 1);
+
+        listener.handleConnectionRemoved(apnsClient);
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_IN_FLIGHT).tag(TAG_PROVIDER, PROVIDER_ID_APNS).gauge().value())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void whenNotificationIsNeverAnswered_thenItExpiresFromInFlightWhileSending() {
+        listener.handleNotificationSent(apnsClient, 1);
+        nanoClock.addAndGet(MicrometerApnsClientMetricsListener.IN_FLIGHT_EXPIRY.toNanos() + 1);
+
+        listener.handleNotificationSent(apnsClient, 2);
+        listener.handleNotificationSent(apnsClient, 3);
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_IN_FLIGHT).tag(TAG_PROVIDER, PROVIDER_ID_APNS).gauge().value())
+                .isEqualTo(2.0);
+    }
+
+    @Test
+    void whenPrunedWithinTheLastInterval_thenSendingDoesNotPruneAgain() {
+        final long halfInterval = MicrometerApnsClientMetricsListener.PRUNE_INTERVAL.toNanos() / 2;
+        listener.handleNotificationSent(apnsClient, 1);
+        nanoClock.addAndGet(halfInterval);
+        listener.handleNotificationSent(apnsClient, 2);
+        nanoClock.addAndGet(MicrometerApnsClientMetricsListener.IN_FLIGHT_EXPIRY.toNanos() - halfInterval + 1);
+        listener.handleNotificationSent(apnsClient, 3);
+        nanoClock.addAndGet(halfInterval);
+
+        listener.handleNotificationSent(apnsClient, 4);
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_IN_FLIGHT).tag(TAG_PROVIDER, PROVIDER_ID_APNS).gauge().value())
+                .isEqualTo(3.0);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL;
+import static bisq.relay.notification.metrics.PushMetrics.METRIC_FCM_TOKEN_REFRESH_SECONDS;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_ERROR;
+import static bisq.relay.notification.metrics.PushMetrics.RESULT_SUCCESS;
+import static bisq.relay.notification.metrics.PushMetrics.TAG_RESULT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class FcmAccessTokenRefresherTest {
+    private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+    @Mock
+    private ObjectProvider<MeterRegistry> registryProvider;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StubGoogleCredentials tokenEndpoint = new StubGoogleCredentials();
+    private FcmGoogleCredentials googleCredentials;
+    private FcmAccessTokenRefresher refresher;
+
+    @BeforeEach
+    void setup() {
+        lenient().when(registryProvider.getIfAvailable()).thenReturn(registry);
+        googleCredentials = new FcmGoogleCredentials(tokenEndpoint, "test-project");
+        refresher = new FcmAccessTokenRefresher(googleCredentials, Duration.ofMinutes(10), Duration.ZERO,
+                scheduler, registryProvider, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void whenTokenIsRefreshed_thenNextRefreshIsScheduledAheadOfExpiry() {
+        tokenEndpoint.respondWith(new AccessToken("token-1", Date.from(NOW.plus(Duration.ofHours(1)))));
+
+        refresher.refresh();
+
+        assertThat(googleCredentials.getAccessToken().getTokenValue()).isEqualTo("token-1");
+        verify(scheduler).schedule(any(Runnable.class),
+                eq(Duration.ofMinutes(50).toMillis()), eq(TimeUnit.MILLISECONDS));
+        assertThat(registry.get(METRIC_FCM_TOKEN_REFRESH_SECONDS).tag(TAG_RESULT, RESULT_SUCCESS).timer().count())
+                .isEqualTo(1);
+        assertThat(registry.find(METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL).counter()).isNull();
+    }
+
+    @Test
+    void whenTokenRefreshFails_thenRetriedWithBackoffAndFailureRecorded() {
+        tokenEndpoint.failWith(new IOException("token endpoint unavailable"));
+        tokenEndpoint.failWith(new IOException("token endpoint unavailable"));
+
+        refresher.refresh();
+        refresher.refresh();
+
+        var inOrder = inOrder(scheduler);
+        inOrder.verify(scheduler).schedule(any(Runnable.class),
+                eq(FcmAccessTokenRefresher.MIN_REFRESH_DELAY.toMillis()), eq(TimeUnit.MILLISECONDS));
+        inOrder.verify(scheduler).schedule(any(Runnable.class),
+                eq(FcmAccessTokenRefresher.MIN_REFRESH_DELAY.multipliedBy(2).toMillis()), eq(TimeUnit.MILLISECONDS));
+        assertThat(registry.get(METRIC_FCM_TOKEN_REFRESH_SECONDS).tag(TAG_RESULT, RESULT_ERROR).timer().count())
+                .isEqualTo(2);
+        assertThat(registry.get(METRIC_FCM_TOKEN_REFRESH_FAILURES_TOTAL).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void whenTokenRefreshSucceedsAfterFailure_thenBackoffIsReset() {
+        tokenEndpoint.failWith(new IOException("token endpoint unavailable"));
+        tokenEndpoint.respondWith(new AccessToken("token-1", Date.from(NOW.plus(Duration.ofHours(1)))));
+        tokenEndpoint.failWith(new IOException("token endpoint unavailable"));
+
+        refresher.refresh();
+        refresher.refresh();
+        refresher.refresh();
+
+        var inOrder = inOrder(scheduler);
+        inOrder.verify(scheduler).schedule(any(Runnable.class),
+                eq(FcmAccessTokenRefresher.MIN_REFRESH_DELAY.toMillis()), eq(TimeUnit.MILLISECONDS));
+        inOrder.verify(scheduler).schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS));
+        inOrder.verify(scheduler).schedule(any(Runnable.class),
+                eq(FcmAccessTokenRefresher.MIN_REFRESH_DELAY.toMillis()), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void whenSdkRescopesSharedCredentials_thenSameInstanceIsUsed() {
+        assertThat(googleCredentials.createScoped("https://www.googleapis.com/auth/cloud-platform"))
+                .isSameAs(googleCredentials);
+        assertThat(googleCredentials.createScopedRequired()).isFalse();
+    }
+
+    @Test
+    void whenComputingNextRefreshDelay_thenMarginAndJitterAreSubtracted() {
+        Instant expiresAt = NOW.plus(Duration.ofHours(1));
+
+        assertThat(FcmAccessTokenRefresher.nextRefreshDelay(
+                expiresAt, NOW, Duration.ofMinutes(10), Duration.ofMinutes(2))).isEqualTo(Duration.ofMinutes(48));
+    }
+
+    @Test
+    void whenTokenExpiresWithinMargin_thenNextRefreshDelayIsBounded() {
+        Instant expiresAt = NOW.plus(Duration.ofMinutes(5));
+
+        assertThat(FcmAccessTokenRefresher.nextRefreshDelay(expiresAt, NOW, Duration.ofMinutes(10), Duration.ZERO))
+                .isEqualTo(FcmAccessTokenRefresher.MIN_REFRESH_DELAY);
+    }
+
+    /**
+     * Stands in for the service account token endpoint, answering refreshes in the order they were queued.
+     */
+    private static final class StubGoogleCredentials extends GoogleCredentials {
+        private final Deque<Object> responses = new ArrayDeque<>();
+
+        void respondWith(final AccessToken accessToken) {
+            responses.add(accessToken);
+        }
+
+        void failWith(final IOException exception) {
+            responses.add(exception);
+        }
+
+        @Override
+        public AccessToken refreshAccessToken() throws IOException {
+            final Object response = responses.remove();
+            if (response instanceof IOException exception) {
+                throw exception;
+            }
+            return (AccessToken) response;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpResponse;
+import com.google.firebase.internal.ApacheHttp2Transport;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static bisq.relay.notification.metrics.PushMetrics.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit test for FcmClientInstrumentation - sends plain HTTP requests through the instrumented transport to a local
+ * server, no Spring context needed.
+ */
+class FcmClientInstrumentationTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+    private ApacheHttp2Transport transport;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            final byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+        transport = FcmClientInstrumentation.httpTransport(registry);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        transport.shutdown();
+        server.stop(0);
+    }
+
+    @Test
+    void whenSendingRequests_thenConnectionReuseAndRequestTimeRecorded() throws IOException {
+        final GenericUrl url = new GenericUrl("http://127.0.0.1:" + server.getAddress().getPort() + "/");
+        for (int i = 1; i <= 3; i++) {
+            final HttpResponse response = transport.createRequestFactory().buildGetRequest(url).execute();
+            assertThat(response.getStatusCode()).isEqualTo(200);
+            assertThat(response.parseAsString()).isEqualTo("{}");
+
+            // The exchange completes on the I/O thread, possibly after the response was handed over
+            final long completedExchanges = i;
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(
+                    registry.get(METRIC_PUSH_CLIENT_REQUEST_SECONDS).tag(TAG_PROVIDER, PROVIDER_ID_FCM).timer().count())
+                    .isEqualTo(completedExchanges));
+        }
+
+        assertThat(registry.get(METRIC_PUSH_CLIENT_CONNECTION_WAIT_SECONDS).tag(TAG_PROVIDER, PROVIDER_ID_FCM)
+                .timer().count())
+                .isEqualTo(3);
+        assertThat(registry.get(METRIC_PUSH_CLIENT_CONNECT_SECONDS).tag(TAG_PROVIDER, PROVIDER_ID_FCM).timer().count())
+                .isEqualTo(1);
+        assertThat(registry.get(METRIC_PUSH_CLIENT_POOL_CONNECTIONS)
+                .tags(TAG_PROVIDER, PROVIDER_ID_FCM, TAG_STATE, "available").gauge().value())
+                .isEqualTo(1.0);
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationResult;
+import bisq.relay.test.gateway.FaultSchedule;
+import bisq.relay.test.gateway.FcmGatewayStub;
+import bisq.relay.test.gateway.GatewayFault;
+import bisq.relay.test.gateway.GatewayResponseMix;
+import bisq.relay.test.gateway.LatencyDistribution;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends messages through {@link FcmHttp2PushNotificationSender} to an {@link FcmGatewayStub} that injects faults.
+ * Under every fault each message must complete within the request timeout, so that none are left outstanding, and
+ * be reported as the right {@link PushNotificationResult} or failure.
+ */
+class FcmHttp2GatewayFaultTest {
+    private static final String DEVICE_TOKEN =
+            "d4HedtovQCyRdgPsxM0JbA:APA91bFJIwRdBpO4SQpeSuA5rpEnu5N3Y3_c1T5x69gpedyKwGLUrApT6xkwIq8LZVPCy" +
+                    "KVi1nh5NdG37TN2nGhpqchOUCysHweuL8V023WJYVwGgpUvdkk5mkYD9D3_QFj2c7f_2ul6";
+    private static final PushNotificationMessage MESSAGE = new PushNotificationMessage("foo", true, false);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMillis(500);
+    // Leaves room for connection set-up and a busy machine, while still catching messages that never complete
+    private static final Duration COMPLETION_BOUND = REQUEST_TIMEOUT.plusSeconds(3);
+    private static final Duration FAULT_WINDOW = Duration.ofSeconds(1);
+    private static final int MESSAGES = 50;
+
+    private static FcmGatewayStub gateway;
+
+    private FcmHttp2PushNotificationSender fcmSender;
+
+    @BeforeAll
+    static void startGateway() throws Exception {
+        gateway = FcmGatewayStub.start(GatewayResponseMix.ACCEPT_ALL);
+    }
+
+    @AfterAll
+    static void stopGateway() throws Exception {
+        gateway.close();
+    }
+
+    @BeforeEach
+    void setup() {
+        final FcmProperties properties = new FcmProperties();
+        properties.setSendDataOnly(true);
+        fcmSender = new FcmHttp2PushNotificationSender(
+                URI.create(gateway.getApiUrl() + "/v1/projects/test-project/messages:send"),
+                List.of(HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build()),
+                () -> "test-access-token",
+                REQUEST_TIMEOUT,
+                new FcmPushNotificationBuilder(properties),
+                new ObjectMapper());
+        // Connect, and upgrade the connection to HTTP/2, before any fault is injected
+        assertThat(fcmSender.sendNotification(MESSAGE, DEVICE_TOKEN).join().wasAccepted()).isTrue();
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.setFaultSchedule(FaultSchedule.NONE);
+    }
+
+    @Test
+    void whenGatewayThrottles_thenMessagesAreRejectedAsQuotaExceeded() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.THROTTLED, 1).build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES);
+
+        assertThat(awaitResults(results)).containsOnly(new PushNotificationResult(false, "QUOTA_EXCEEDED",
+                "Quota exceeded for quota metric 'Send messages'.", false));
+    }
+
+    @Test
+    void whenGatewayFailsWithServerErrors_thenMessagesAreRejectedAsUnavailable() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.SERVER_ERROR, 1).build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES);
+
+        assertThat(awaitResults(results)).containsOnly(new PushNotificationResult(false, "UNAVAILABLE",
+                "The service is currently unavailable.", false));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = GatewayFault.class, names = {"SERVER_ERROR", "CONNECTION_RESET", "GOAWAY"})
+    void whenFaultBurstIsOver_thenMessagesAreAcceptedAgain(final GatewayFault fault) throws Exception {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(fault, Duration.ZERO, FAULT_WINDOW).build());
+        final long burstStartNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> duringBurst = send(MESSAGES);
+        awaitCompletion(duringBurst);
+        assertThat(duringBurst).allSatisfy(result -> assertThat(result.handle((value, cause) ->
+                cause != null || !value.wasAccepted()).join()).isTrue());
+        assertThat(gateway.getCount(fault)).isPositive();
+
+        Thread.sleep(Math.max(0, FAULT_WINDOW.toMillis() - (System.nanoTime() - burstStartNanos) / 1_000_000));
+        final List<CompletableFuture<PushNotificationResult>> afterBurst = send(MESSAGES);
+
+        assertThat(awaitResults(afterBurst)).allSatisfy(result -> assertThat(result.wasAccepted()).isTrue());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = GatewayFault.class, names = {"CONNECTION_RESET", "GOAWAY"})
+    void whenConnectionIsLost_thenMessagesFailWithoutWaitingForTheTimeout(final GatewayFault fault) {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(fault, 1).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result -> assertThat(failureOf(result))
+                .isInstanceOf(IOException.class)
+                .isNotInstanceOf(HttpTimeoutException.class));
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(COMPLETION_BOUND);
+    }
+
+    @Test
+    void whenStreamsStall_thenMessagesTimeOut() {
+        gateway.setFaultSchedule(FaultSchedule.builder().inject(GatewayFault.STALLED_STREAM, 1).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result ->
+                assertThat(failureOf(result)).isInstanceOf(HttpTimeoutException.class));
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isGreaterThanOrEqualTo(REQUEST_TIMEOUT);
+    }
+
+    @Test
+    void whenGatewayIsSlow_thenMessagesAreAcceptedAfterItsLatency() {
+        final Duration latency = Duration.ofMillis(200);
+        gateway.setFaultSchedule(FaultSchedule.builder().latency(LatencyDistribution.fixed(latency)).build());
+        final long startNanos = System.nanoTime();
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES);
+
+        assertThat(awaitResults(results)).allSatisfy(result -> assertThat(result.wasAccepted()).isTrue());
+        assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isGreaterThanOrEqualTo(latency);
+    }
+
+    @Test
+    void whenFaultsAreMixed_thenEveryMessageCompletesWithinTheBound() {
+        gateway.setFaultSchedule(FaultSchedule.builder()
+                .latency(LatencyDistribution.logNormal(Duration.ofMillis(5), Duration.ofMillis(100)))
+                .inject(GatewayFault.THROTTLED, 0.05)
+                .inject(GatewayFault.SERVER_ERROR, 0.05)
+                .inject(GatewayFault.STALLED_STREAM, 0.02)
+                .inject(GatewayFault.CONNECTION_RESET, 0.002)
+                .inject(GatewayFault.GOAWAY, 0.002)
+                .build());
+
+        final List<CompletableFuture<PushNotificationResult>> results = send(MESSAGES * 10);
+        awaitCompletion(results);
+
+        assertThat(results).allSatisfy(result -> {
+            if (failureOf(result) == null) {
+                assertThat(result.join().errorCode()).isIn(null, "QUOTA_EXCEEDED", "UNAVAILABLE");
+            }
+        });
+        assertThat(results).filteredOn(result -> failureOf(result) == null)
+                .extracting(result -> result.join().errorCode())
+                .contains(null, "QUOTA_EXCEEDED", "UNAVAILABLE");
+    }
+
+    private List<CompletableFuture<PushNotificationResult>> send(final int count) {
+        final List<CompletableFuture<PushNotificationResult>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(fcmSender.sendNotification(MESSAGE, DEVICE_TOKEN));
+        }
+        return results;
+    }
+
+    private static void awaitCompletion(final List<CompletableFuture<PushNotificationResult>> results) {
+        assertThat(CompletableFuture.allOf(results.stream()
+                .map(result -> result.handle((value, cause) -> null))
+                .toArray(CompletableFuture<?>[]::new)))
+                .succeedsWithin(COMPLETION_BOUND);
+    }
+
+    private static List<PushNotificationResult> awaitResults(
+            final List<CompletableFuture<PushNotificationResult>> results) {
+        awaitCompletion(results);
+        return results.stream().map(CompletableFuture::join).toList();
+    }
+
+    private static Throwable failureOf(final CompletableFuture<PushNotificationResult> result) {
+        return result.handle((value, cause) -> cause).join();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package bisq.relay.notification.fcm;
+
+import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotificationMessage;
+import bisq.relay.notification.PushNotificationResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Unit test for FcmHttp2PushNotificationSender - runs against a local stub of the FCM v1 API, no Spring context needed.
+ */
+class FcmHttp2PushNotificationSenderTest {
+    private static final String DEVICE_TOKEN =
+            "d4HedtovQCyRdgPsxM0JbA:APA91bFJIwRdBpO4SQpeSuA5rpEnu5N3Y3_c1T5x69gpedyKwGLUrApT6xkwIq8LZVPCy" +
+                    "KVi1nh5NdG37TN2nGhpqchOUCysHweuL8V023WJYVwGgpUvdkk5mkYD9D3_QFj2c7f_2ul6";
+    private static final String SEND_PATH = "/v1/projects/test-project/messages:send";
+    private static final String ACCESS_TOKEN = "test-access-token";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<String> receivedAuthorization = new AtomicReference<>();
+    private final AtomicReference<String> receivedBody = new AtomicReference<>();
+    private final CountDownLatch releaseStalledResponses = new CountDownLatch(1);
+
+    private HttpServer server;
+    private volatile int responseStatus;
+    private volatile String responseBody;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(SEND_PATH, exchange -> {
+            receivedAuthorization.set(exchange.getRequestHeaders().getFirst("Authorization"));
+            receivedBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            if (responseStatus == 0) {
+                try {
+                    releaseStalledResponses.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.close();
+                return;
+            }
+            final byte[] body = responseBody.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(responseStatus, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseStalledResponses.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void whenPushNotificationIsAcceptedByFcm_thenSuccessfulResultReturned() throws IOException {
+        givenFcmResponds(200, "{\"name\":\"projects/test-project/messages/0:1234\"}");
+
+        PushNotificationResult result = whenSendingAPushNotification(Duration.ofSeconds(5));
+
+        assertThat(result).isEqualTo(new PushNotificationResult(true, null, null, false));
+        assertThat(receivedAuthorization.get()).isEqualTo("Bearer " + ACCESS_TOKEN);
+
+        JsonNode message = objectMapper.readTree(receivedBody.get()).get("message");
+        assertThat(message.get("token").asText()).isEqualTo(DEVICE_TOKEN);
+        assertThat(message.get("data").get("encrypted").asText()).isEqualTo("foo");
+        assertThat(message.get("android").get("priority").asText()).isEqualTo("high");
+        assertThat(message.has("notification")).isFalse();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"404,NOT_FOUND,UNREGISTERED,true", "400,INVALID_ARGUMENT,INVALID_ARGUMENT,false",
+            "429,RESOURCE_EXHAUSTED,QUOTA_EXCEEDED,false"})
+    void whenPushNotificationIsRejectedByFcm_thenErrorResultReturned(
+            final int httpStatus, final String status, final String errorCode, final boolean isUnregistered) {
+        givenFcmResponds(httpStatus, "{\"error\":{\"code\":" + httpStatus + ",\"message\":\"rejected\"," +
+                "\"status\":\"" + status + "\",\"details\":[{\"@type\":" +
+                "\"type.googleapis.com/google.firebase.fcm.v1.FcmError\",\"errorCode\":\"" + errorCode + "\"}]}}");
+
+        PushNotificationResult result = whenSendingAPushNotification(Duration.ofSeconds(5));
+
+        assertThat(result).isEqualTo(new PushNotificationResult(false, errorCode, "rejected", isUnregistered));
+    }
+
+    @Test
+    void whenFcmFailsWithoutErrorCode_thenExceptionRaised() {
+        givenFcmResponds(503, "{\"error\":{\"code\":503,\"message\":\"unavailable\",\"status\":\"UNAVAILABLE\"}}");
+
+        Throwable thrown = catchThrowable(() -> whenSendingAPushNotification(Duration.ofSeconds(5)));
+
+        assertThat(thrown).isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(IOException.class)
+                .hasMessageContaining("503");
+    }
+
+    @Test
+    void whenFcmDoesNotRespondInTime_thenExceptionRaised() {
+        givenFcmResponds(0, null);
+
+        Throwable thrown = catchThrowable(() -> whenSendingAPushNotification(Duration.ofMillis(200)));
+
+        assertThat(thrown).isInstanceOf(CompletionException.class).hasCauseInstanceOf(HttpTimeoutException.class);
+    }
+
+    private void givenFcmResponds(final int status, final String body) {
+        this.responseStatus = status;
+        this.responseBody = body;
+    }
+
+    private PushNotificationResult whenSendingAPushNotification(final Duration requestTimeout) {
+        FcmProperties properties = new FcmProperties();
+        properties.setSendDataOnly(true);
+        FcmHttp2PushNotificationSender sender = new FcmHttp2PushNotificationSender(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort() + SEND_PATH),
+                List.of(HttpClient.newHttpClient()),
+                () -> ACCESS_TOKEN,
+                requestTimeout,
+                new FcmPushNotificationBuilder(properties),
+                objectMapper);
+
+        return sender.sendNotification(new PushNotificationMessage("foo", true, false), DEVICE_TOKEN).join();
+    }
+}
@@ -18,6 +18,7 @@
 package bisq.relay.notification.fcm;
 
 import bisq.relay.config.FcmProperties;
+import bisq.relay.notification.PushNotification;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import com.google.api.core.SettableApiFuture;
@@ -33,12 +34,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.*;
 
@@ -107,6 +111,42 @@ class FcmPushNotificationSenderTest {
         verifyNoMoreInteractions(firebaseMessaging);
     }
 
+    @Test
+    void whenSendingABatch_thenFcmGetsOneSendEachCallAndEachResultIsMapped() {
+        FirebaseMessagingException unregistered = mock(FirebaseMessagingException.class);
+        when(unregistered.getMessagingErrorCode()).thenReturn(MessagingErrorCode.UNREGISTERED);
+        SendResponse accepted = mock(SendResponse.class);
+        when(accepted.isSuccessful()).thenReturn(true);
+        when(accepted.getMessageId()).thenReturn("messageId");
+        SendResponse rejected = mock(SendResponse.class);
+        when(rejected.isSuccessful()).thenReturn(false);
+        when(rejected.getException()).thenReturn(unregistered);
+        BatchResponse batchResponse = mock(BatchResponse.class);
+        when(batchResponse.getResponses()).thenReturn(List.of(accepted, rejected));
+        SettableApiFuture<BatchResponse> apiFuture = SettableApiFuture.create();
+        apiFuture.set(batchResponse);
+        when(firebaseMessaging.sendEachAsync(anyList())).thenReturn(apiFuture);
+
+        PushNotificationMessage pushNotificationMessage = new PushNotificationMessage("foo", false, false);
+        List<CompletableFuture<PushNotificationResult>> results = fcmSender.sendNotifications(List.of(
+                new PushNotification(pushNotificationMessage, DEVICE_TOKEN),
+                new PushNotification(pushNotificationMessage, "other")));
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).join().wasAccepted()).isTrue();
+        assertThat(results.get(1).join().wasAccepted()).isFalse();
+        assertThat(results.get(1).join().errorCode()).isEqualTo("UNREGISTERED");
+        assertThat(results.get(1).join().isUnregistered()).isTrue();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Message>> messages = ArgumentCaptor.forClass(List.class);
+        verify(firebaseMessaging).sendEachAsync(messages.capture());
+        assertThat(messages.getValue()).hasSize(2);
+        sentPushNotification = messages.getValue().get(0);
+        assertThat(MessageUtil.getMessageToken(sentPushNotification)).isEqualTo(DEVICE_TOKEN);
+        verifyNoMoreInteractions(firebaseMessaging);
+    }
+
     private void givenFcmWillAcceptPushNotifications() {
         SettableApiFuture<String> apiFuture = SettableApiFuture.create();
         apiFuture.set("messageId");
@@ -17,23 +17,33 @@
 
 package bisq.relay.notification.metrics;
 
+import bisq.relay.notification.PushNotification;
 import bisq.relay.notification.PushNotificationMessage;
 import bisq.relay.notification.PushNotificationResult;
 import bisq.relay.notification.PushNotificationSender;
+import bisq.relay.notification.PushStage;
+import bisq.relay.notification.PushStageListener;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.beans.factory.ObjectProvider;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Stream;
 
 import static bisq.relay.notification.metrics.PushMetrics.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 class MetricsPushNotificationSenderTest {
 
@@ -168,4 +178,108 @@ class MetricsPushNotificationSenderTest {
                 .describedAs(String.format("%s{%s,%s,%s}", METRIC_PUSH_LATENCY_SECONDS, providerId, RESULT_ERROR, CODE_IO))
                 .isEqualTo(1);
     }
+
+    @Test
+    void whenCallerAbandonsTheSend_thenSendIsCancelledAndTimeoutIsRecorded() {
+        CompletableFuture<PushNotificationResult> pending = new CompletableFuture<>();
+        MetricsPushNotificationSender metricsSender = new MetricsPushNotificationSender(
+                PROVIDER_ID_APNS, (m, tok) -> pending, providerOf(registry));
+
+        metricsSender.sendNotification(MSG, "tok").cancel(true);
+
+        assertThat(pending).isCancelled();
+        assertThat(registry.get(METRIC_PUSH_TOTAL)
+                .tags(TAG_PROVIDER, PROVIDER_ID_APNS, TAG_RESULT, RESULT_TIMEOUT)
+                .counter().count())
+                .isEqualTo(1.0);
+        assertThat(registry.find(METRIC_PUSH_TOTAL).tags(TAG_RESULT, RESULT_ERROR).counter()).isNull();
+    }
+
+    @Test
+    void whenSendingABatch_thenEachNotificationIsRecorded() {
+        PushNotificationSender senderThatAcceptsOnlyFoo = (m, tok) ->
+                CompletableFuture.completedFuture(tok.equals("foo")
+                        ? new PushNotificationResult(true, null, null, false)
+                        : new PushNotificationResult(false, "BadDeviceToken", "msg", true));
+
+        MetricsPushNotificationSender metricsSender = new MetricsPushNotificationSender(
+                PROVIDER_ID_APNS, senderThatAcceptsOnlyFoo, providerOf(registry));
+
+        List<CompletableFuture<PushNotificationResult>> results = metricsSender.sendNotifications(List.of(
+                new PushNotification(MSG, "foo"), new PushNotification(MSG, "bar"), new PushNotification(MSG, "foo")));
+
+        assertThat(results).hasSize(3).allMatch(CompletableFuture::isDone);
+        assertThat(results.get(1).join().wasAccepted()).isFalse();
+        assertThat(registry.get(METRIC_PUSH_ATTEMPTS_TOTAL).tag(TAG_PROVIDER, PROVIDER_ID_APNS).counter().count())
+                .isEqualTo(3.0);
+        assertThat(registry.get(METRIC_PUSH_TOTAL)
+                .tags(TAG_PROVIDER, PROVIDER_ID_APNS, TAG_RESULT, RESULT_ACCEPTED)
+                .counter().count())
+                .isEqualTo(2.0);
+        assertThat(registry.get(METRIC_PUSH_TOTAL)
+                .tags(TAG_PROVIDER, PROVIDER_ID_APNS, TAG_RESULT, RESULT_REJECTED)
+                .counter().count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    void whenSendingRepeatedly_thenMetersAreLookedUpOnce() {
+        MeterRegistry spiedRegistry = spy(new SimpleMeterRegistry());
+        PushNotificationSender senderThatReturnsSuccessfulResponse = (m, tok) ->
+                CompletableFuture.completedFuture(
+                        new PushNotificationResult(true, null, null, false));
+
+        MetricsPushNotificationSender metricsSender = new MetricsPushNotificationSender(
+                PROVIDER_ID_APNS, senderThatReturnsSuccessfulResponse, providerOf(spiedRegistry));
+
+        for (int i = 0; i < 3; i++) {
+            metricsSender.sendNotification(MSG, "tok").join();
+        }
+
+        verify(spiedRegistry, times(2)).counter(anyString(), any(String[].class));
+        assertThat(spiedRegistry.get(METRIC_PUSH_TOTAL)
+                .tags(TAG_PROVIDER, PROVIDER_ID_APNS, TAG_RESULT, RESULT_ACCEPTED)
+                .counter().count())
+                .isEqualTo(3.0);
+        assertThat(spiedRegistry.get(METRIC_PUSH_LATENCY_SECONDS)
+                .tags(TAG_PROVIDER, PROVIDER_ID_APNS, TAG_RESULT, RESULT_ACCEPTED, TAG_CODE, CODE_NONE)
+                .timer().count())
+                .isEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {PROVIDER_ID_APNS, PROVIDER_ID_FCM})
+    void whenStagesReported_thenStageLatenciesRecorded(final String providerId) {
+        PushNotificationSender senderThatReportsStages = new PushNotificationSender() {
+            @Override
+            public CompletableFuture<PushNotificationResult> sendNotification(
+                    final PushNotificationMessage message, final String deviceToken) {
+                return sendNotification(message, deviceToken, PushStageListener.NOOP);
+            }
+
+            @Override
+            public CompletableFuture<PushNotificationResult> sendNotification(
+                    final PushNotificationMessage message, final String deviceToken,
+                    final PushStageListener stageListener) {
+                stageListener.stageCompleted(PushStage.BUILD, 1_000);
+                stageListener.stageCompleted(PushStage.GATEWAY, 2_000);
+                return CompletableFuture.completedFuture(new PushNotificationResult(true, null, null, false));
+            }
+        };
+
+        MetricsPushNotificationSender metricsSender = new MetricsPushNotificationSender(
+                providerId, senderThatReportsStages, providerOf(registry));
+
+        metricsSender.sendNotification(MSG, "tok").join();
+        metricsSender.stageCompleted(PushStage.RESPOND, 3_000);
+
+        for (PushStage stage : new PushStage[]{PushStage.BUILD, PushStage.GATEWAY, PushStage.RESPOND}) {
+            assertThat(registry.get(METRIC_PUSH_STAGE_LATENCY_SECONDS)
+                    .tags(TAG_PROVIDER, providerId, TAG_STAGE, stage.tag())
+                    .timer().count())
+                    .describedAs(String.format("%s{%s,%s}", METRIC_PUSH_STAGE_LATENCY_SECONDS, providerId, stage.tag()))
+                    .isEqualTo(1);
+        }
+        assertThat(registry.find(METRIC_PUSH_STAGE_LATENCY_SECONDS).tag(TAG_STAGE, STAGE_WAIT).timer()).isNull();
+    }
 }
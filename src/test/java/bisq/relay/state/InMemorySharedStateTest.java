@@ -0,0 +1,69 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemorySharedStateTest {
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final InMemorySharedState state = new InMemorySharedState(nanoClock::get);
+
+    @Test
+    void whenIncrementedWithinTheWindow_thenTheCounterAddsUpAndStartsOverAfterIt() {
+        assertThat(state.increment("counter", 1, WINDOW)).isCompletedWithValue(1L);
+        nanoClock.addAndGet(WINDOW.toNanos() - 1);
+        assertThat(state.increment("counter", 2, WINDOW)).isCompletedWithValue(3L);
+
+        nanoClock.addAndGet(1);
+
+        assertThat(state.increment("counter", 1, WINDOW)).isCompletedWithValue(1L);
+    }
+
+    @Test
+    void whenAFlagIsPut_thenItIsContainedUntilItExpires() {
+        assertThat(state.contains("flag")).isCompletedWithValue(false);
+
+        state.put("flag", WINDOW);
+
+        assertThat(state.contains("flag")).isCompletedWithValue(true);
+        nanoClock.addAndGet(WINDOW.toNanos());
+        assertThat(state.contains("flag")).isCompletedWithValue(false);
+    }
+
+    @Test
+    void whenEntriesExpire_thenTheyAreEventuallySweptAway() {
+        for (int i = 0; i < 1000; i++) {
+            state.put("flag-" + i, WINDOW);
+        }
+        nanoClock.addAndGet(WINDOW.toNanos());
+
+        for (int i = 0; i < 5000; i++) {
+            state.contains("flag-0");
+        }
+
+        assertThat(state.size()).isZero();
+    }
+}
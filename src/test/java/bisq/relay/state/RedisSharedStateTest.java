@@ -0,0 +1,148 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.state;
+
+import bisq.relay.test.redis.RedisStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedisSharedStateTest {
+    private static final Duration COMMAND_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration NEAR_CACHE_TTL = Duration.ofSeconds(1);
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final List<RedisSharedState> states = new ArrayList<>();
+    private RedisStub redis;
+
+    @BeforeEach
+    void startRedis() throws InterruptedException {
+        redis = RedisStub.start();
+    }
+
+    @AfterEach
+    void stopRedis() throws InterruptedException {
+        states.forEach(RedisSharedState::close);
+        redis.close();
+    }
+
+    @Test
+    void whenTwoInstancesIncrement_thenTheyShareTheCounterUntilTheWindowEnds() throws InterruptedException {
+        RedisSharedState first = newState(redis.getPort());
+        RedisSharedState second = newState(redis.getPort());
+        Duration window = Duration.ofMillis(300);
+
+        assertThat(first.increment("counter", 1, window).join()).isEqualTo(1);
+        assertThat(second.increment("counter", 2, window).join()).isEqualTo(3);
+        assertThat(first.increment("counter", 1, window).join()).isEqualTo(4);
+
+        Thread.sleep(window.toMillis() + 100);
+
+        assertThat(second.increment("counter", 1, window).join()).isEqualTo(1);
+    }
+
+    @Test
+    void whenAnotherInstancePutsAFlag_thenItShowsUpOnceTheNearCacheExpires() {
+        RedisSharedState first = newState(redis.getPort());
+        RedisSharedState second = newState(redis.getPort());
+        assertThat(first.contains("flag").join()).isFalse();
+
+        second.put("flag", WINDOW).join();
+
+        assertThat(second.contains("flag").join()).isTrue();
+        assertThat(first.contains("flag").join()).isFalse();
+        nanoClock.addAndGet(NEAR_CACHE_TTL.toNanos());
+        assertThat(first.contains("flag").join()).isTrue();
+    }
+
+    @Test
+    void whenAFlagIsKnown_thenLookupsAreAnsweredWithoutARoundTrip() {
+        RedisSharedState first = newState(redis.getPort());
+        RedisSharedState second = newState(redis.getPort());
+        second.put("flag", WINDOW).join();
+        assertThat(first.contains("flag").join()).isTrue();
+        long commands = redis.getCommandCount();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(first.contains("flag")).isCompletedWithValue(true);
+            assertThat(second.contains("flag")).isCompletedWithValue(true);
+        }
+
+        assertThat(redis.getCommandCount()).isEqualTo(commands);
+    }
+
+    @Test
+    void whenManyCommandsAreSentAtOnce_thenTheyArePipelined() {
+        RedisSharedState state = newState(redis.getPort());
+        state.contains("warm-up").join();
+        long reads = redis.getReadCount();
+
+        List<CompletableFuture<Long>> increments = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            increments.add(state.increment("counter-" + (i % 10), 1, WINDOW));
+        }
+        increments.forEach(CompletableFuture::join);
+
+        assertThat(state.increment("counter-0", 1, WINDOW).join()).isEqualTo(101);
+        assertThat(redis.getReadCount() - reads).isLessThan(100);
+    }
+
+    @Test
+    void whenTheConnectionIsLost_thenTheNextCommandReconnects() throws InterruptedException {
+        RedisSharedState state = newState(redis.getPort());
+        assertThat(state.increment("counter", 1, WINDOW).join()).isEqualTo(1);
+
+        redis.dropConnections();
+        Thread.sleep(100);
+
+        assertThat(state.increment("counter", 1, WINDOW).join()).isEqualTo(2);
+    }
+
+    @Test
+    void whenTheServerCannotBeReached_thenCommandsFailFast() throws IOException {
+        int unusedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            unusedPort = socket.getLocalPort();
+        }
+        RedisSharedState state = newState(unusedPort);
+
+        assertThat(state.contains("flag"))
+                .failsWithin(COMMAND_TIMEOUT.dividedBy(2))
+                .withThrowableOfType(Exception.class)
+                .withRootCauseInstanceOf(IOException.class);
+    }
+
+    private RedisSharedState newState(final int port) {
+        RedisSharedState state = new RedisSharedState(new RespClient("localhost", port, "", COMMAND_TIMEOUT),
+                "test:", NEAR_CACHE_TTL, nanoClock::get);
+        states.add(state);
+        return state;
+    }
+}
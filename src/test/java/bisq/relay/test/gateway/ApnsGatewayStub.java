@@ -0,0 +1,154 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import jakarta.annotation.Nullable;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for the APNs gateway, speaking HTTP/2 over TLS like the real one. It answers every notification
+ * according to a {@link GatewayResponseMix}, unless its {@link FaultSchedule} injects latency or a
+ * {@link GatewayFault}. The relay reaches it with {@code apns.host=localhost}, {@code apns.port=}
+ * {@link #getPort()} and {@code apns.trustedServerCertificateFile=}{@link #SERVER_CERTIFICATE_FILE}.
+ */
+public class ApnsGatewayStub implements AutoCloseable {
+    public static final String SERVER_CERTIFICATE_FILE = "build/resources/test/mock-apnsServerCertificate.pem";
+    private static final String SERVER_KEY_FILE = "build/resources/test/mock-apnsServerKey.pk8.pem";
+
+    private final NioEventLoopGroup eventLoopGroup;
+    private final Channel serverChannel;
+    private final ChannelGroup connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final GatewayResponseMix responseMix;
+    private final FaultInjector faultInjector = new FaultInjector();
+    private final Map<GatewayResponseMix.Outcome, AtomicLong> outcomes = new EnumMap<>(GatewayResponseMix.Outcome.class);
+
+    private ApnsGatewayStub(final GatewayResponseMix responseMix, final int eventLoopThreads) throws Exception {
+        this.responseMix = responseMix;
+        for (GatewayResponseMix.Outcome outcome : GatewayResponseMix.Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+        final SslContext sslContext = SslContextBuilder
+                .forServer(new File(SERVER_CERTIFICATE_FILE), new File(SERVER_KEY_FILE))
+                .applicationProtocolConfig(new ApplicationProtocolConfig(
+                        ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2))
+                .build();
+        eventLoopGroup = new NioEventLoopGroup(eventLoopThreads, GatewayStubThreads.threadFactory("apns"));
+        serverChannel = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        connections.add(channel);
+                        channel.pipeline().addLast(
+                                sslContext.newHandler(channel.alloc()),
+                                Http2FrameCodecBuilder.forServer().build(),
+                                new Http2GatewayHandler(faultInjector, (path, fault) -> respond(fault)));
+                    }
+                })
+                .bind(0)
+                .sync()
+                .channel();
+    }
+
+    public static ApnsGatewayStub start(final GatewayResponseMix responseMix) throws Exception {
+        return new ApnsGatewayStub(responseMix, 2);
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * Applies {@code faultSchedule} from now on, replacing the previous one.
+     */
+    public void setFaultSchedule(final FaultSchedule faultSchedule) {
+        faultInjector.setSchedule(faultSchedule);
+    }
+
+    /**
+     * Closes every open connection. Pushy keeps the streams of unanswered notifications, such as those stalled by
+     * {@link GatewayFault#STALLED_STREAM}, until their connection closes, and waits for them when it is closed itself.
+     */
+    public void dropConnections() throws InterruptedException {
+        connections.close().await();
+    }
+
+    public long getCount(final GatewayResponseMix.Outcome outcome) {
+        return outcomes.get(outcome).get();
+    }
+
+    public long getCount(final GatewayFault fault) {
+        return faultInjector.getCount(fault);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        serverChannel.close().sync();
+        eventLoopGroup.shutdownGracefully().await();
+    }
+
+    private GatewayResponse respond(@Nullable final GatewayFault fault) {
+        if (fault == GatewayFault.THROTTLED) {
+            return rejection(429, "TooManyRequests");
+        }
+        if (fault == GatewayFault.SERVER_ERROR) {
+            return rejection(500, "InternalServerError");
+        }
+        final GatewayResponseMix.Outcome outcome = responseMix.nextOutcome();
+        outcomes.get(outcome).incrementAndGet();
+        return switch (outcome) {
+            case UNREGISTERED -> new GatewayResponse(410, apnsId(),
+                    "{\"reason\":\"Unregistered\",\"timestamp\":" + System.currentTimeMillis() + "}");
+            case THROTTLED -> rejection(429, "TooManyRequests");
+            case ACCEPTED -> new GatewayResponse(200, apnsId(), null);
+        };
+    }
+
+    private static GatewayResponse rejection(final int status, final String reason) {
+        return new GatewayResponse(status, apnsId(), "{\"reason\":\"" + reason + "\"}");
+    }
+
+    private static Map<String, String> apnsId() {
+        return Map.of("apns-id", UUID.randomUUID().toString());
+    }
+}
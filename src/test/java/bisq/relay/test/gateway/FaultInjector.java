@@ -0,0 +1,66 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link FaultSchedule} a push gateway stand-in currently applies, and how often it injected each fault.
+ */
+final class FaultInjector {
+    private final Map<GatewayFault, AtomicLong> counts = new EnumMap<>(GatewayFault.class);
+    private volatile AppliedSchedule appliedSchedule = new AppliedSchedule(FaultSchedule.NONE, System.nanoTime());
+
+    FaultInjector() {
+        for (GatewayFault fault : GatewayFault.values()) {
+            counts.put(fault, new AtomicLong());
+        }
+    }
+
+    void setSchedule(final FaultSchedule schedule) {
+        appliedSchedule = new AppliedSchedule(schedule, System.nanoTime());
+    }
+
+    @Nullable
+    GatewayFault nextFault() {
+        final AppliedSchedule applied = appliedSchedule;
+        final Duration elapsed = Duration.ofNanos(System.nanoTime() - applied.startNanos());
+        final GatewayFault fault = applied.schedule().nextFault(elapsed);
+        if (fault != null) {
+            counts.get(fault).incrementAndGet();
+        }
+        return fault;
+    }
+
+    Duration nextLatency() {
+        return appliedSchedule.schedule().nextLatency();
+    }
+
+    long getCount(final GatewayFault fault) {
+        return counts.get(fault).get();
+    }
+
+    private record AppliedSchedule(FaultSchedule schedule, long startNanos) {
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import jakarta.annotation.Nullable;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * When a push gateway stand-in injects which {@link GatewayFault}s, and the {@link LatencyDistribution} of its
+ * answers. Faults are injected in windows relative to the moment the schedule is applied, e.g. with
+ * {@link ApnsGatewayStub#setFaultSchedule(FaultSchedule)}, into the given share of the notifications received in the
+ * window. When windows overlap, the first one added that draws its fault wins.
+ * <pre>{@code
+ * FaultSchedule.builder()
+ *         .latency(LatencyDistribution.logNormal(Duration.ofMillis(20), Duration.ofMillis(200)))
+ *         .inject(GatewayFault.SERVER_ERROR, Duration.ofSeconds(5), Duration.ofSeconds(1))
+ *         .inject(GatewayFault.CONNECTION_RESET, Duration.ZERO, Duration.ofSeconds(30), 0.001)
+ *         .build();
+ * }</pre>
+ */
+public final class FaultSchedule {
+    public static final FaultSchedule NONE = builder().build();
+
+    private final LatencyDistribution latency;
+    private final List<Window> windows;
+
+    private FaultSchedule(final Builder builder) {
+        this.latency = builder.latency;
+        this.windows = List.copyOf(builder.windows);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Draws the fault to inject into a notification received {@code elapsed} after the schedule was applied.
+     *
+     * @return the fault, or {@code null} to answer the notification normally
+     */
+    @Nullable
+    public GatewayFault nextFault(final Duration elapsed) {
+        for (Window window : windows) {
+            if (elapsed.compareTo(window.from()) >= 0 && elapsed.compareTo(window.until()) < 0 &&
+                    (window.ratio() >= 1 || ThreadLocalRandom.current().nextDouble() < window.ratio())) {
+                return window.fault();
+            }
+        }
+        return null;
+    }
+
+    public Duration nextLatency() {
+        return latency.next();
+    }
+
+    private record Window(GatewayFault fault, Duration from, Duration until, double ratio) {
+    }
+
+    public static final class Builder {
+        private final List<Window> windows = new ArrayList<>();
+        private LatencyDistribution latency = LatencyDistribution.NONE;
+
+        private Builder() {
+        }
+
+        public Builder latency(final LatencyDistribution latency) {
+            this.latency = Objects.requireNonNull(latency);
+            return this;
+        }
+
+        /**
+         * Injects {@code fault} into every notification received in the given window.
+         */
+        public Builder inject(final GatewayFault fault, final Duration from, final Duration length) {
+            return inject(fault, from, length, 1);
+        }
+
+        /**
+         * Injects {@code fault} into the given share of the notifications received in the given window.
+         */
+        public Builder inject(final GatewayFault fault, final Duration from, final Duration length,
+                              final double ratio) {
+            Objects.requireNonNull(fault);
+            if (from.isNegative() || length.isNegative() || ratio < 0 || ratio > 1) {
+                throw new IllegalArgumentException(String.format(
+                        "Window must not start or last negative and ratio must be between 0 and 1; " +
+                                "from=%s length=%s ratio=%s", from, length, ratio));
+            }
+            windows.add(new Window(fault, from, from.plus(length), ratio));
+            return this;
+        }
+
+        /**
+         * Injects {@code fault} into the given share of all notifications, for as long as the schedule applies.
+         */
+        public Builder inject(final GatewayFault fault, final double ratio) {
+            return inject(fault, Duration.ZERO, ChronoUnit.FOREVER.getDuration(), ratio);
+        }
+
+        public FaultSchedule build() {
+            return new FaultSchedule(this);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.CleartextHttp2ServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.util.AsciiString;
+import jakarta.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.handler.codec.http2.Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME;
+
+/**
+ * A local stand-in for the FCM v1 API and the Google OAuth token endpoint, answering every message according to a
+ * {@link GatewayResponseMix}: {@code 200} with a message name, {@code 404 UNREGISTERED} or
+ * {@code 429 QUOTA_EXCEEDED}, in the format of the real API. Its {@link FaultSchedule} can inject latency and
+ * {@link GatewayFault}s into the messages.
+ * <p>
+ * Messages are served over cleartext HTTP/2, which the JDK client of the http2 transport upgrades to from its first
+ * HTTP/1.1 request; the token endpoint is served over HTTP/1.1, without faults. The relay reaches it with
+ * {@code fcm.transport=http2}, {@code fcm.apiUrl=}{@link #getApiUrl()} and
+ * {@code fcm.firebaseConfigurationFile=}{@link #writeServiceAccountKey(Path)}, a copy of the mock service account
+ * key whose token URI points at this stub.
+ */
+public class FcmGatewayStub implements AutoCloseable {
+    private static final String SERVICE_ACCOUNT_KEY_FILE = "build/resources/test/mock-fcmServiceAccountKey.json";
+    private static final int MAX_CONTENT_LENGTH = 1024 * 1024;
+    private static final String TOKEN_PATH = "/token";
+    private static final String TOKEN_RESPONSE =
+            "{\"access_token\":\"fcm-gateway-stub-token\",\"expires_in\":3600,\"token_type\":\"Bearer\"}";
+    private static final String UNREGISTERED_RESPONSE = errorResponse(404, "NOT_FOUND", "UNREGISTERED",
+            "Requested entity was not found.");
+    private static final String THROTTLED_RESPONSE = errorResponse(429, "RESOURCE_EXHAUSTED", "QUOTA_EXCEEDED",
+            "Quota exceeded for quota metric 'Send messages'.");
+    private static final String UNAVAILABLE_RESPONSE = errorResponse(503, "UNAVAILABLE", "UNAVAILABLE",
+            "The service is currently unavailable.");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final NioEventLoopGroup eventLoopGroup;
+    private final Channel serverChannel;
+    private final GatewayResponseMix responseMix;
+    private final FaultInjector faultInjector = new FaultInjector();
+    private final Map<GatewayResponseMix.Outcome, AtomicLong> outcomes = new EnumMap<>(GatewayResponseMix.Outcome.class);
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private FcmGatewayStub(final GatewayResponseMix responseMix, final int eventLoopThreads)
+            throws InterruptedException {
+        this.responseMix = responseMix;
+        for (GatewayResponseMix.Outcome outcome : GatewayResponseMix.Outcome.values()) {
+            outcomes.put(outcome, new AtomicLong());
+        }
+        eventLoopGroup = new NioEventLoopGroup(eventLoopThreads, GatewayStubThreads.threadFactory("fcm"));
+        serverChannel = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        final HttpServerCodec http1Codec = new HttpServerCodec();
+                        final HttpServerUpgradeHandler upgradeHandler = new HttpServerUpgradeHandler(http1Codec,
+                                protocol -> AsciiString.contentEquals(HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                                        ? new Http2ServerUpgradeCodec(Http2FrameCodecBuilder.forServer().build(),
+                                        newHttp2Handler())
+                                        : null,
+                                MAX_CONTENT_LENGTH);
+                        channel.pipeline().addLast(
+                                new CleartextHttp2ServerUpgradeHandler(http1Codec, upgradeHandler,
+                                        new ChannelInitializer<>() {
+                                            @Override
+                                            protected void initChannel(final Channel priorKnowledgeChannel) {
+                                                priorKnowledgeChannel.pipeline().addLast(
+                                                        Http2FrameCodecBuilder.forServer().build(),
+                                                        newHttp2Handler());
+                                            }
+                                        }),
+                                // Requests that do not upgrade to HTTP/2, like the token requests
+                                new HttpObjectAggregator(MAX_CONTENT_LENGTH),
+                                new Http1Handler());
+                    }
+                })
+                .bind(0)
+                .sync()
+                .channel();
+    }
+
+    public static FcmGatewayStub start(final GatewayResponseMix responseMix) throws InterruptedException {
+        return new FcmGatewayStub(responseMix, 2);
+    }
+
+    public String getApiUrl() {
+        return "http://127.0.0.1:" + ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    /**
+     * Applies {@code faultSchedule} from now on, replacing the previous one.
+     */
+    public void setFaultSchedule(final FaultSchedule faultSchedule) {
+        faultInjector.setSchedule(faultSchedule);
+    }
+
+    public long getCount(final GatewayResponseMix.Outcome outcome) {
+        return outcomes.get(outcome).get();
+    }
+
+    public long getCount(final GatewayFault fault) {
+        return faultInjector.getCount(fault);
+    }
+
+    /**
+     * Writes a copy of the mock service account key into {@code directory}, with its token URI pointing at this
+     * stub, so that fetching an access token does not leave the machine.
+     *
+     * @return the path of the written file
+     */
+    public String writeServiceAccountKey(final Path directory) throws IOException {
+        final ObjectNode serviceAccountKey = (ObjectNode) objectMapper.readTree(new File(SERVICE_ACCOUNT_KEY_FILE));
+        serviceAccountKey.put("token_uri", getApiUrl() + TOKEN_PATH);
+        final File file = directory.resolve("fcm-gateway-stub-service-account.json").toFile();
+        objectMapper.writeValue(file, serviceAccountKey);
+        return file.getPath();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        serverChannel.close().sync();
+        eventLoopGroup.shutdownGracefully().await();
+    }
+
+    private ChannelHandler newHttp2Handler() {
+        return new Http2GatewayHandler(faultInjector, this::respond);
+    }
+
+    private GatewayResponse respond(final CharSequence path, @Nullable final GatewayFault fault) {
+        if (path.toString().startsWith(TOKEN_PATH)) {
+            return GatewayResponse.json(200, TOKEN_RESPONSE);
+        }
+        if (fault == GatewayFault.THROTTLED) {
+            return GatewayResponse.json(429, THROTTLED_RESPONSE);
+        }
+        if (fault == GatewayFault.SERVER_ERROR) {
+            return GatewayResponse.json(503, UNAVAILABLE_RESPONSE);
+        }
+        final GatewayResponseMix.Outcome outcome = responseMix.nextOutcome();
+        outcomes.get(outcome).incrementAndGet();
+        return switch (outcome) {
+            case UNREGISTERED -> GatewayResponse.json(404, UNREGISTERED_RESPONSE);
+            case THROTTLED -> GatewayResponse.json(429, THROTTLED_RESPONSE);
+            case ACCEPTED -> GatewayResponse.json(200,
+                    "{\"name\":\"projects/stub/messages/" + messageIds.incrementAndGet() + "\"}");
+        };
+    }
+
+    private static String errorResponse(final int code, final String status, final String errorCode,
+                                        final String message) {
+        return String.format("{\"error\":{\"code\":%d,\"message\":\"%s\",\"status\":\"%s\",\"details\":[{"
+                        + "\"@type\":\"type.googleapis.com/google.firebase.fcm.v1.FcmError\",\"errorCode\":\"%s\"}]}}",
+                code, message, status, errorCode);
+    }
+
+    private class Http1Handler extends SimpleChannelInboundHandler<FullHttpRequest> {
+        @Override
+        protected void channelRead0(final ChannelHandlerContext ctx, final FullHttpRequest request) {
+            final GatewayResponse response = respond(request.uri(), null);
+            final FullHttpResponse httpResponse = new DefaultFullHttpResponse(request.protocolVersion(),
+                    HttpResponseStatus.valueOf(response.status()),
+                    Unpooled.copiedBuffer(String.valueOf(response.body()), StandardCharsets.UTF_8));
+            httpResponse.headers()
+                    .set(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .setInt(HttpHeaderNames.CONTENT_LENGTH, httpResponse.content().readableBytes());
+            ctx.writeAndFlush(httpResponse);
+        }
+    }
+}
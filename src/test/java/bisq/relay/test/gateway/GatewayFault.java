@@ -0,0 +1,36 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+/**
+ * A failure a push gateway stand-in injects instead of answering a notification according to its
+ * {@link GatewayResponseMix}. Scheduled with a {@link FaultSchedule}.
+ */
+public enum GatewayFault {
+    /** The connection is closed with a TCP reset, failing every notification in flight on it. */
+    CONNECTION_RESET,
+    /** The gateway sends an HTTP/2 GOAWAY and closes the connection, failing the notifications in flight on it. */
+    GOAWAY,
+    /** The stream is never answered. */
+    STALLED_STREAM,
+    /** The notification is rejected as throttled: {@code 429 TooManyRequests} or {@code 429 QUOTA_EXCEEDED}. */
+    THROTTLED,
+    /** The gateway answers with a server error: {@code 500 InternalServerError} or {@code 503 UNAVAILABLE}. */
+    SERVER_ERROR
+}
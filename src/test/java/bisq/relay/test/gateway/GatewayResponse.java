@@ -0,0 +1,42 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import jakarta.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * An answer of a push gateway stand-in.
+ */
+record GatewayResponse(int status, Map<String, String> headers, @Nullable String body) {
+
+    static GatewayResponse json(final int status, final String body) {
+        return new GatewayResponse(status, Map.of(), body);
+    }
+
+    /**
+     * Decides the answer to a request, given its headers and the fault to inject into it, if it is answered with
+     * one ({@link GatewayFault#THROTTLED} or {@link GatewayFault#SERVER_ERROR}).
+     */
+    @FunctionalInterface
+    interface Responder {
+        GatewayResponse respond(CharSequence path, @Nullable GatewayFault fault);
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The share of notifications a push gateway stand-in answers with an {@code Unregistered} rejection and with a
+ * throttling response; the rest are accepted. Outcomes are drawn independently for every notification.
+ */
+public record GatewayResponseMix(double unregisteredRatio, double throttledRatio) {
+    public static final GatewayResponseMix ACCEPT_ALL = new GatewayResponseMix(0, 0);
+
+    public GatewayResponseMix {
+        if (unregisteredRatio < 0 || throttledRatio < 0 || unregisteredRatio + throttledRatio > 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Ratios must not be negative and add up to at most 1; unregisteredRatio=%s throttledRatio=%s",
+                    unregisteredRatio, throttledRatio));
+        }
+    }
+
+    public Outcome nextOutcome() {
+        final double draw = ThreadLocalRandom.current().nextDouble();
+        if (draw < unregisteredRatio) {
+            return Outcome.UNREGISTERED;
+        }
+        if (draw < unregisteredRatio + throttledRatio) {
+            return Outcome.THROTTLED;
+        }
+        return Outcome.ACCEPTED;
+    }
+
+    public enum Outcome {
+        ACCEPTED,
+        UNREGISTERED,
+        THROTTLED
+    }
+}
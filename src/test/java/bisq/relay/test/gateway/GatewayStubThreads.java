@@ -0,0 +1,42 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Names the threads of the gateway stand-ins, so that measurements can tell their work apart from the relay's.
+ */
+public final class GatewayStubThreads {
+    private static final String THREAD_NAME_PREFIX = "gateway-stub-";
+
+    private GatewayStubThreads() {
+        throw new AssertionError("This class must not be instantiated");
+    }
+
+    static ThreadFactory threadFactory(final String gateway) {
+        return new DefaultThreadFactory(THREAD_NAME_PREFIX + gateway, true);
+    }
+
+    public static boolean isStubThread(final String threadName) {
+        return threadName.startsWith(THREAD_NAME_PREFIX);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.http2.DefaultHttp2DataFrame;
+import io.netty.handler.codec.http2.DefaultHttp2GoAwayFrame;
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.DefaultHttp2HeadersFrame;
+import io.netty.handler.codec.http2.DefaultHttp2WindowUpdateFrame;
+import io.netty.handler.codec.http2.Http2DataFrame;
+import io.netty.handler.codec.http2.Http2Error;
+import io.netty.handler.codec.http2.Http2FrameStream;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.handler.codec.http2.Http2HeadersFrame;
+import io.netty.handler.codec.http2.Http2ResetFrame;
+import io.netty.util.ReferenceCountUtil;
+import jakarta.annotation.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Answers the requests on one HTTP/2 connection of a push gateway stand-in, after the {@link FaultInjector}'s
+ * latency, or with one of its faults. Sits behind an {@link io.netty.handler.codec.http2.Http2FrameCodec}.
+ */
+final class Http2GatewayHandler extends ChannelInboundHandlerAdapter {
+    private final FaultInjector faultInjector;
+    private final GatewayResponse.Responder responder;
+    private final Map<Integer, Http2Headers> pendingRequests = new HashMap<>();
+
+    Http2GatewayHandler(final FaultInjector faultInjector, final GatewayResponse.Responder responder) {
+        this.faultInjector = faultInjector;
+        this.responder = responder;
+    }
+
+    @Override
+    public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+        try {
+            if (msg instanceof final Http2HeadersFrame headersFrame) {
+                if (headersFrame.isEndStream()) {
+                    onRequest(ctx, headersFrame.stream(), headersFrame.headers());
+                } else {
+                    pendingRequests.put(headersFrame.stream().id(), headersFrame.headers());
+                }
+            } else if (msg instanceof final Http2DataFrame dataFrame) {
+                // The codec leaves flow control to the application; without this the client runs out of window
+                ctx.write(new DefaultHttp2WindowUpdateFrame(dataFrame.initialFlowControlledBytes())
+                        .stream(dataFrame.stream()));
+                if (dataFrame.isEndStream()) {
+                    final Http2Headers headers = pendingRequests.remove(dataFrame.stream().id());
+                    if (headers != null) {
+                        onRequest(ctx, dataFrame.stream(), headers);
+                    }
+                }
+            } else if (msg instanceof final Http2ResetFrame resetFrame) {
+                pendingRequests.remove(resetFrame.stream().id());
+            }
+        } finally {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Override
+    public void channelReadComplete(final ChannelHandlerContext ctx) {
+        ctx.flush();
+    }
+
+    @Override
+    public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+        ctx.close();
+    }
+
+    private void onRequest(final ChannelHandlerContext ctx, final Http2FrameStream stream,
+                           final Http2Headers requestHeaders) {
+        final GatewayFault fault = faultInjector.nextFault();
+        if (fault == GatewayFault.STALLED_STREAM) {
+            return;
+        }
+        final CharSequence path = requestHeaders.path();
+        final Duration latency = faultInjector.nextLatency();
+        if (latency.isZero()) {
+            answer(ctx, stream, path, fault);
+        } else {
+            ctx.executor().schedule(() -> answer(ctx, stream, path, fault), latency.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void answer(final ChannelHandlerContext ctx, final Http2FrameStream stream, final CharSequence path,
+                        @Nullable final GatewayFault fault) {
+        if (fault == GatewayFault.CONNECTION_RESET) {
+            // Closing with a zero linger time sends an RST instead of a FIN
+            ctx.channel().config().setOption(ChannelOption.SO_LINGER, 0);
+            ctx.channel().close();
+            return;
+        }
+        if (fault == GatewayFault.GOAWAY) {
+            ctx.writeAndFlush(new DefaultHttp2GoAwayFrame(Http2Error.NO_ERROR))
+                    .addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+
+        final GatewayResponse response = responder.respond(path, fault);
+        final Http2Headers headers = new DefaultHttp2Headers().status(Integer.toString(response.status()));
+        response.headers().forEach(headers::set);
+        if (response.body() == null) {
+            ctx.writeAndFlush(new DefaultHttp2HeadersFrame(headers, true).stream(stream));
+            return;
+        }
+        headers.set("content-type", "application/json");
+        ctx.write(new DefaultHttp2HeadersFrame(headers).stream(stream));
+        ctx.writeAndFlush(new DefaultHttp2DataFrame(
+                Unpooled.copiedBuffer(response.body(), StandardCharsets.UTF_8), true).stream(stream));
+    }
+}
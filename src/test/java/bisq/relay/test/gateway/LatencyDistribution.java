@@ -0,0 +1,66 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.gateway;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The delay a push gateway stand-in adds before it answers a notification, drawn independently for every
+ * notification.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+    LatencyDistribution NONE = () -> Duration.ZERO;
+
+    Duration next();
+
+    static LatencyDistribution fixed(final Duration latency) {
+        Objects.requireNonNull(latency);
+        return () -> latency;
+    }
+
+    static LatencyDistribution uniform(final Duration min, final Duration max) {
+        if (min.isNegative() || max.compareTo(min) < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Latency bounds must not be negative and max must not be below min; min=%s max=%s", min, max));
+        }
+        final long minNanos = min.toNanos();
+        final long maxNanos = max.toNanos();
+        return () -> Duration.ofNanos(minNanos == maxNanos
+                ? minNanos
+                : ThreadLocalRandom.current().nextLong(minNanos, maxNanos + 1));
+    }
+
+    /**
+     * A log-normal distribution, the usual shape of network latency: most notifications are answered around the
+     * median, with a long tail up to the 99th percentile and occasionally beyond.
+     */
+    static LatencyDistribution logNormal(final Duration median, final Duration p99) {
+        if (median.isNegative() || median.isZero() || p99.compareTo(median) < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "Median must be positive and p99 must not be below it; median=%s p99=%s", median, p99));
+        }
+        final double mu = Math.log(median.toNanos());
+        // 2.326 is the 99th percentile of the standard normal distribution
+        final double sigma = (Math.log(p99.toNanos()) - mu) / 2.326;
+        return () -> Duration.ofNanos(Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian())));
+    }
+}
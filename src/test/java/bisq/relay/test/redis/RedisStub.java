@@ -0,0 +1,232 @@
+/*
+ * This file is part of Bisq.
+ *
+ * Bisq is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or (at
+ * your option) any later version.
+ *
+ * Bisq is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU Affero General Public
+ * License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Bisq. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package bisq.relay.test.redis;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.ByteProcessor;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for a Redis server, speaking the Redis serialization protocol (RESP2). It keeps its keys in memory
+ * and understands the few commands the relay uses: {@code PING}, {@code AUTH}, {@code INCRBY}, {@code PEXPIRE} (with
+ * {@code NX}), {@code SET} (with {@code PX}) and {@code PTTL}. It counts the commands and the reads they arrived in,
+ * so that tests can tell whether commands were pipelined.
+ */
+public class RedisStub implements AutoCloseable {
+    private final NioEventLoopGroup eventLoopGroup;
+    private final Channel serverChannel;
+    private final ChannelGroup connections = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong reads = new AtomicLong();
+
+    private RedisStub() throws InterruptedException {
+        eventLoopGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("redis-stub", true));
+        serverChannel = new ServerBootstrap()
+                .group(eventLoopGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(final SocketChannel channel) {
+                        connections.add(channel);
+                        channel.pipeline().addLast(new CommandDecoder(), new CommandHandler());
+                    }
+                })
+                .bind(0)
+                .sync()
+                .channel();
+    }
+
+    public static RedisStub start() throws InterruptedException {
+        return new RedisStub();
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public long getCommandCount() {
+        return commands.get();
+    }
+
+    /**
+     * Returns how many reads from the connections the commands arrived in.
+     */
+    public long getReadCount() {
+        return reads.get();
+    }
+
+    public void dropConnections() throws InterruptedException {
+        connections.close().await();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        serverChannel.close().sync();
+        eventLoopGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).await();
+    }
+
+    private String execute(final List<String> command) {
+        commands.incrementAndGet();
+        final long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis > 0 && entry.expiresAtMillis <= now);
+        final String name = command.get(0).toUpperCase(Locale.ROOT);
+        switch (name) {
+            case "PING":
+                return "+PONG\r\n";
+            case "AUTH":
+                return "+OK\r\n";
+            case "INCRBY": {
+                final Entry entry = entries.computeIfAbsent(command.get(1), key -> new Entry("0", 0));
+                entry.value = Long.toString(Long.parseLong(entry.value) + Long.parseLong(command.get(2)));
+                return ":" + entry.value + "\r\n";
+            }
+            case "PEXPIRE": {
+                final Entry entry = entries.get(command.get(1));
+                final boolean onlyIfNoExpiry = command.size() > 3 && command.get(3).equalsIgnoreCase("NX");
+                if (entry == null || (onlyIfNoExpiry && entry.expiresAtMillis > 0)) {
+                    return ":0\r\n";
+                }
+                entry.expiresAtMillis = now + Long.parseLong(command.get(2));
+                return ":1\r\n";
+            }
+            case "SET": {
+                final long expiresAtMillis = command.size() > 4 && command.get(3).equalsIgnoreCase("PX")
+                        ? now + Long.parseLong(command.get(4))
+                        : 0;
+                entries.put(command.get(1), new Entry(command.get(2), expiresAtMillis));
+                return "+OK\r\n";
+            }
+            case "PTTL": {
+                final Entry entry = entries.get(command.get(1));
+                if (entry == null) {
+                    return ":-2\r\n";
+                }
+                return ":" + (entry.expiresAtMillis > 0 ? entry.expiresAtMillis - now : -1) + "\r\n";
+            }
+            default:
+                return "-ERR unknown command '" + name + "'\r\n";
+        }
+    }
+
+    private static final class Entry {
+        private String value;
+        private long expiresAtMillis;
+
+        private Entry(final String value, final long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    /**
+     * Decodes the commands, which clients send as arrays of bulk strings.
+     */
+    private final class CommandDecoder extends ByteToMessageDecoder {
+        @Override
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) throws Exception {
+            reads.incrementAndGet();
+            super.channelRead(ctx, msg);
+        }
+
+        @Override
+        protected void decode(final ChannelHandlerContext ctx, final ByteBuf in, final List<Object> out) {
+            while (in.isReadable()) {
+                final int start = in.readerIndex();
+                final List<String> command = readCommand(in);
+                if (command == null) {
+                    in.readerIndex(start);
+                    return;
+                }
+                out.add(command);
+            }
+        }
+
+        private static List<String> readCommand(final ByteBuf in) {
+            final String header = readLine(in);
+            if (header == null) {
+                return null;
+            }
+            final int count = Integer.parseInt(header.substring(1));
+            final List<String> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final String lengthLine = readLine(in);
+                if (lengthLine == null) {
+                    return null;
+                }
+                final int length = Integer.parseInt(lengthLine.substring(1));
+                if (in.readableBytes() < length + 2) {
+                    return null;
+                }
+                args.add(in.toString(in.readerIndex(), length, StandardCharsets.UTF_8));
+                in.skipBytes(length + 2);
+            }
+            return args;
+        }
+
+        private static String readLine(final ByteBuf in) {
+            final int lf = in.forEachByte(ByteProcessor.FIND_LF);
+            if (lf < 0) {
+                return null;
+            }
+            final String line = in.toString(in.readerIndex(), lf - 1 - in.readerIndex(), StandardCharsets.UTF_8);
+            in.readerIndex(lf + 1);
+            return line;
+        }
+    }
+
+    private final class CommandHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+            final String reply;
+            synchronized (entries) {
+                reply = execute((List<String>) msg);
+            }
+            ctx.write(ctx.alloc().buffer().writeBytes(reply.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        @Override
+        public void channelReadComplete(final ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+}
@@ -70,4 +70,20 @@ class MaskingUtilTest {
             softly.assertThat(MaskingUtil.maskSensitive("data", 5)).isEqualTo("****");
         });
     }
+
+    @Test
+    void testMasked_MatchesMaskSensitive() {
+        SoftAssertions.assertSoftly(softly -> {
+            for (String value : new String[]{"1234567890", "secretpassword", "short", "", "12345678901"}) {
+                softly.assertThat(MaskingUtil.masked(value).toString()).isEqualTo(MaskingUtil.maskSensitive(value));
+                softly.assertThat(new StringBuilder().append((CharSequence) MaskingUtil.masked(value)).toString())
+                        .isEqualTo(MaskingUtil.maskSensitive(value));
+            }
+        });
+    }
+
+    @Test
+    void testMasked_WhenInputIsNull() {
+        assertThat(MaskingUtil.masked(null)).hasToString("null").hasSize(4);
+    }
 }
@@ -0,0 +1,110 @@
+#!/bin/bash
+#
+# Bisq relay startup benchmark.
+#
+# Measures time-to-ready, i.e. from launching the JVM until /actuator/health/readiness reports UP, for:
+#   jar          - plain `java -jar` on the bootJar
+#   cds          - extracted jar with an AppCDS archive from a training run
+#   aot          - extracted jar with Spring AOT initialization
+#   cds+aot      - both of the above (what the fast-start Docker image runs)
+#
+# Usage:
+#   ./gradlew bootJar -PfastStart
+#   ./startup_benchmark.sh [runs]     # default: 5 runs per mode
+#
+# The bootJar must be built with -PfastStart, otherwise the aot modes fail to start.
+# By default the mock credentials from src/test/resources are used, so no real APNs or FCM account is needed;
+# override BISQ_RELAY_* environment variables to benchmark with a real configuration.
+
+set -euo pipefail
+
+RUNS="${1:-5}"
+SERVER_PORT="${BENCHMARK_SERVER_PORT:-18080}"
+MANAGEMENT_PORT="${BENCHMARK_MANAGEMENT_PORT:-19400}"
+READY_TIMEOUT_SECONDS=60
+
+JAR=$(ls build/libs/bisq-relay-*.jar 2>/dev/null | grep -v -- '-plain.jar' | head -n 1 || true)
+if [ -z "$JAR" ]; then
+    echo "No bootJar found in build/libs, run ./gradlew bootJar -PfastStart first" >&2
+    exit 2
+fi
+
+export BISQ_RELAY_APNS_BUNDLE_ID="${BISQ_RELAY_APNS_BUNDLE_ID:-bisq.relay.benchmark}"
+export BISQ_RELAY_APNS_CERTIFICATE_FILE="${BISQ_RELAY_APNS_CERTIFICATE_FILE:-$PWD/src/test/resources/mock-apnsCertificate.p12}"
+export BISQ_RELAY_APNS_CERTIFICATE_PASSWORD_FILE="${BISQ_RELAY_APNS_CERTIFICATE_PASSWORD_FILE:-$PWD/src/test/resources/mock-apnsCertificatePassword.txt}"
+export BISQ_RELAY_FCM_ENABLED="${BISQ_RELAY_FCM_ENABLED:-true}"
+export BISQ_RELAY_FCM_FIREBASE_CONFIGURATION_FILE="${BISQ_RELAY_FCM_FIREBASE_CONFIGURATION_FILE:-$PWD/src/test/resources/mock-fcmServiceAccountKey.json}"
+export BISQ_RELAY_FCM_FIREBASE_URL="${BISQ_RELAY_FCM_FIREBASE_URL:-https://benchmark.firebaseio.com}"
+# The mock service account cannot obtain access tokens
+export BISQ_RELAY_FCM_TOKEN_REFRESH_ENABLED="${BISQ_RELAY_FCM_TOKEN_REFRESH_ENABLED:-false}"
+
+WORK_DIR=$(mktemp -d)
+trap 'rm -rf "$WORK_DIR"' EXIT
+
+echo "Extracting $JAR"
+java -Djarmode=tools -jar "$JAR" extract --destination "$WORK_DIR/application" > /dev/null
+EXTRACTED_JAR="$WORK_DIR/application/$(basename "$JAR")"
+
+APP_ARGS=(--server.port="$SERVER_PORT" --management.server.port="$MANAGEMENT_PORT")
+
+now_millis() {
+    date +%s%3N
+}
+
+# Starts the relay with the given JVM options and jar, and prints the milliseconds until it reported ready.
+time_to_ready() {
+    local jar="$1"
+    shift
+    local start
+    start=$(now_millis)
+    java "$@" -jar "$jar" "${APP_ARGS[@]}" > "$WORK_DIR/relay.log" 2>&1 &
+    local pid=$!
+    local deadline=$((start + READY_TIMEOUT_SECONDS * 1000))
+    until curl -fs "http://127.0.0.1:$MANAGEMENT_PORT/actuator/health/readiness" 2>/dev/null | grep -q '"UP"'; do
+        if ! kill -0 "$pid" 2>/dev/null || [ "$(now_millis)" -gt "$deadline" ]; then
+            kill "$pid" 2>/dev/null || true
+            echo "Relay did not become ready, see log:" >&2
+            tail -n 20 "$WORK_DIR/relay.log" >&2
+            exit 1
+        fi
+        sleep 0.02
+    done
+    echo $(($(now_millis) - start))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+# Creates an AppCDS archive by running the relay until its context is refreshed.
+train() {
+    local archive="$1"
+    shift
+    (cd "$WORK_DIR/application" && java -XX:ArchiveClassesAtExit="$archive" -Dspring.context.exit=onRefresh "$@" \
+        -jar "$EXTRACTED_JAR" "${APP_ARGS[@]}" > "$WORK_DIR/training.log" 2>&1)
+}
+
+benchmark() {
+    local mode="$1"
+    local jar="$2"
+    shift 2
+    local results=()
+    for _ in $(seq "$RUNS"); do
+        results+=("$(time_to_ready "$jar" "$@")")
+    done
+    local sorted
+    sorted=$(printf '%s\n' "${results[@]}" | sort -n)
+    printf '%-8s  median=%5sms  min=%5sms  max=%5sms  runs=%s\n' "$mode" \
+        "$(echo "$sorted" | sed -n "$(((RUNS + 1) / 2))p")" \
+        "$(echo "$sorted" | head -n 1)" \
+        "$(echo "$sorted" | tail -n 1)" \
+        "${results[*]}"
+}
+
+echo "Training CDS archives"
+train "$WORK_DIR/cds.jsa"
+train "$WORK_DIR/cds-aot.jsa" -Dspring.aot.enabled=true
+
+echo "Measuring time-to-ready ($RUNS runs per mode)"
+benchmark "jar" "$JAR"
+benchmark "cds" "$EXTRACTED_JAR" -XX:SharedArchiveFile="$WORK_DIR/cds.jsa"
+benchmark "aot" "$EXTRACTED_JAR" -Dspring.aot.enabled=true
+benchmark "cds+aot" "$EXTRACTED_JAR" -XX:SharedArchiveFile="$WORK_DIR/cds-aot.jsa" -Dspring.aot.enabled=true